@@ -22,10 +22,12 @@ package com.thinkbiganalytics.spark;
 
 import org.apache.spark.api.java.JavaRDD;
 import org.apache.spark.rdd.RDD;
+import org.apache.spark.sql.Column;
 import org.apache.spark.sql.DataFrame;
 import org.apache.spark.sql.Row;
 import org.apache.spark.sql.SaveMode;
 import org.apache.spark.sql.types.StructType;
+import org.apache.spark.storage.StorageLevel;
 
 import java.util.List;
 
@@ -59,6 +61,16 @@ public class DataSet16 implements DataSet {
         return new DataSet16(dataframe.filter(condition));
     }
 
+    @Override
+    public DataSet filter(Column condition) {
+        return new DataSet16(dataframe.filter(condition));
+    }
+
+    @Override
+    public DataSet select(Column... columns) {
+        return new DataSet16(dataframe.select(columns));
+    }
+
     @Override
     public DataSet drop(String condition) {
         return new DataSet16(dataframe.drop(condition));
@@ -89,8 +101,30 @@ public class DataSet16 implements DataSet {
         dataframe.write().partitionBy(partitionColumn).mode(SaveMode.Append).saveAsTable(fqnTable);
     }
 
+    @Override
+    public void writeToPath(String partitionColumn, String format, String path) {
+        dataframe.write().partitionBy(partitionColumn).mode(SaveMode.Overwrite).format(format).save(path);
+    }
+
     @Override
     public List<Row> collectAsList() {
         return dataframe.collectAsList();
     }
+
+    @Override
+    public DataSet repartition(int numPartitions) {
+        return new DataSet16(dataframe.repartition(numPartitions));
+    }
+
+    @Override
+    public DataSet persist(StorageLevel newLevel) {
+        dataframe.persist(newLevel);
+        return this;
+    }
+
+    @Override
+    public DataSet unpersist() {
+        dataframe.unpersist();
+        return this;
+    }
 }
@@ -53,6 +53,11 @@ public class SparkContextService16 implements SparkContextService {
         return toDataSet(context.createDataFrame(rdd, beanClass));
     }
 
+    @Override
+    public DataSet read(SQLContext context, String format, String path) {
+        return toDataSet(context.read().format(format).load(path));
+    }
+
     @Override
     public DataSet sql(HiveContext context, String sql) {
         return toDataSet(context.sql(sql));
@@ -23,10 +23,12 @@ package com.thinkbiganalytics.spark;
 
 import org.apache.spark.api.java.JavaRDD;
 import org.apache.spark.rdd.RDD;
+import org.apache.spark.sql.Column;
 import org.apache.spark.sql.Dataset;
 import org.apache.spark.sql.Row;
 import org.apache.spark.sql.SaveMode;
 import org.apache.spark.sql.types.StructType;
+import org.apache.spark.storage.StorageLevel;
 
 import java.util.List;
 
@@ -60,6 +62,16 @@ public class DataSet20 implements DataSet {
         return new DataSet20(dataset.filter(condition));
     }
 
+    @Override
+    public DataSet filter(Column condition) {
+        return new DataSet20(dataset.filter(condition));
+    }
+
+    @Override
+    public DataSet select(Column... columns) {
+        return new DataSet20(dataset.select(columns));
+    }
+
     @Override
     public DataSet drop(String condition) {
         return new DataSet20(dataset.drop(condition));
@@ -94,4 +106,26 @@ public class DataSet20 implements DataSet {
     public void writeToTable(String partitionColumn, String fqnTable) {
         dataset.write().mode(SaveMode.Append).insertInto(fqnTable);
     }
+
+    @Override
+    public void writeToPath(String partitionColumn, String format, String path) {
+        dataset.write().partitionBy(partitionColumn).mode(SaveMode.Overwrite).format(format).save(path);
+    }
+
+    @Override
+    public DataSet repartition(int numPartitions) {
+        return new DataSet20(dataset.repartition(numPartitions));
+    }
+
+    @Override
+    public DataSet persist(StorageLevel newLevel) {
+        dataset.persist(newLevel);
+        return this;
+    }
+
+    @Override
+    public DataSet unpersist() {
+        dataset.unpersist();
+        return this;
+    }
 }
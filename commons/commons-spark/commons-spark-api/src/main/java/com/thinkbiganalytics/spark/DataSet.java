@@ -22,8 +22,10 @@ package com.thinkbiganalytics.spark;
 
 import org.apache.spark.api.java.JavaRDD;
 import org.apache.spark.rdd.RDD;
+import org.apache.spark.sql.Column;
 import org.apache.spark.sql.Row;
 import org.apache.spark.sql.types.StructType;
+import org.apache.spark.storage.StorageLevel;
 
 import java.util.List;
 
@@ -54,6 +56,22 @@ public interface DataSet {
      */
     DataSet filter(String condition);
 
+    /**
+     * Filters rows using the specified condition.
+     *
+     * @param condition a boolean column expression
+     * @return the filtered data set
+     */
+    DataSet filter(Column condition);
+
+    /**
+     * Selects a set of column based expressions.
+     *
+     * @param columns the column expressions
+     * @return the data set with the selected columns
+     */
+    DataSet select(Column... columns);
+
     /**
      * Drops the specified column from this data set.
      *
@@ -104,4 +122,36 @@ public interface DataSet {
      * @param fqnTable        the name for the table
      */
     void writeToTable(String partitionColumn, String fqnTable);
+
+    /**
+     * Saves the content of this data set as files in the specified directory, replacing any existing content.
+     *
+     * @param partitionColumn the name of the column used to partition the files into sub-directories
+     * @param format          the name of the data source format, such as {@code parquet}
+     * @param path            the directory for the files
+     */
+    void writeToPath(String partitionColumn, String format, String path);
+
+    /**
+     * Returns a data set with exactly the specified number of partitions.
+     *
+     * @param numPartitions the number of partitions
+     * @return the repartitioned data set
+     */
+    DataSet repartition(int numPartitions);
+
+    /**
+     * Persists this data set with the specified storage level.
+     *
+     * @param newLevel the storage level
+     * @return this data set
+     */
+    DataSet persist(StorageLevel newLevel);
+
+    /**
+     * Removes all blocks of this data set from memory and disk.
+     *
+     * @return this data set
+     */
+    DataSet unpersist();
 }
@@ -72,6 +72,16 @@ public interface SparkContextService extends Serializable {
      */
     DataSet toDataSet(SQLContext context, JavaRDD<?> rdd, Class<?> beanClass);
 
+    /**
+     * Creates a data set from the files in the specified directory.
+     *
+     * @param context the Spark SQL context
+     * @param format  the name of the data source format, such as {@code parquet}
+     * @param path    the directory containing the files
+     * @return the file data
+     */
+    DataSet read(SQLContext context, String format, String path);
+
     /**
      * Creates a data set from the specified Hive query.
      *
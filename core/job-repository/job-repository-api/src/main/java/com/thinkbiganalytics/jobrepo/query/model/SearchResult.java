@@ -74,4 +74,16 @@ public interface SearchResult {
      * set an error message to the result
      */
     void setError(String error);
+
+    /**
+     * Return the continuation token for the next page when paging by keyset, or null if there are no more pages or the results are paged by offset
+     *
+     * @return the continuation token for the next page
+     */
+    String getNextPage();
+
+    /**
+     * set the continuation token for the next page
+     */
+    void setNextPage(String nextPage);
 }
@@ -0,0 +1,77 @@
+package com.thinkbiganalytics.jobrepo.query.model;
+
+/*-
+ * #%L
+ * thinkbig-job-repository-core
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * The position of the last job on a page of jobs ordered by start time and job execution id.
+ * The position is given to clients as an opaque continuation token that is passed back to get the next page.
+ */
+public class JobPageToken {
+
+    private final long startTime;
+    private final long jobExecutionId;
+
+    public JobPageToken(long startTime, long jobExecutionId) {
+        this.startTime = startTime;
+        this.jobExecutionId = jobExecutionId;
+    }
+
+    /**
+     * Parse a continuation token created by {@link #encode()}
+     *
+     * @param token the continuation token
+     * @return the position in the jobs
+     * @throws IllegalArgumentException if the token is not valid
+     */
+    public static JobPageToken decode(String token) {
+        try {
+            String[] parts = StringUtils.split(new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8), ':');
+            if (parts.length == 2) {
+                return new JobPageToken(Long.parseLong(parts[0]), Long.parseLong(parts[1]));
+            }
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid page token: " + token, e);
+        }
+        throw new IllegalArgumentException("Invalid page token: " + token);
+    }
+
+    /**
+     * Create the continuation token for this position
+     *
+     * @return the continuation token
+     */
+    public String encode() {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString((startTime + ":" + jobExecutionId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public long getJobExecutionId() {
+        return jobExecutionId;
+    }
+}
@@ -21,6 +21,7 @@ package com.thinkbiganalytics.jobrepo.query.model;
  */
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
 
 import java.util.List;
 
@@ -34,6 +35,8 @@ public class SearchResultImpl implements SearchResult {
     private Long recordsTotal;
     private Long recordsFiltered;
     private String error;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String nextPage;
 
     @Override
     public List<? extends Object> getData() {
@@ -74,4 +77,14 @@ public class SearchResultImpl implements SearchResult {
     public void setError(String error) {
         this.error = error;
     }
+
+    @Override
+    public String getNextPage() {
+        return nextPage;
+    }
+
+    @Override
+    public void setNextPage(String nextPage) {
+        this.nextPage = nextPage;
+    }
 }
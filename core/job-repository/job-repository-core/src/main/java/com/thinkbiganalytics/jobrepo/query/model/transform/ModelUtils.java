@@ -27,6 +27,8 @@ import com.thinkbiganalytics.jobrepo.query.model.SearchResultImpl;
 import org.joda.time.DateTime;
 import org.springframework.data.domain.Page;
 
+import java.util.List;
+
 /**
  * Utility to get model data to user friendly UI
  */
@@ -67,4 +69,20 @@ public class ModelUtils {
 
     }
 
+    /**
+     * Create a SearchResult UI object for a page of results found by keyset
+     *
+     * @param data     the results on the page
+     * @param total    the total number of results, or null if not known
+     * @param nextPage the continuation token for the next page, or null if this is the last page
+     */
+    public static SearchResult toSearchResult(List<?> data, Long total, String nextPage) {
+        SearchResult searchResult = new SearchResultImpl();
+        searchResult.setData(data);
+        searchResult.setRecordsTotal(total);
+        searchResult.setRecordsFiltered(total);
+        searchResult.setNextPage(nextPage);
+        return searchResult;
+    }
+
 }
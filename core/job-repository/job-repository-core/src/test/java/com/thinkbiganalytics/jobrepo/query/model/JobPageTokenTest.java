@@ -0,0 +1,70 @@
+package com.thinkbiganalytics.jobrepo.query.model;
+
+/*-
+ * #%L
+ * thinkbig-job-repository-core
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+public class JobPageTokenTest {
+
+    @Test
+    public void testRoundTrip() {
+        String token = new JobPageToken(1496318400000L, 42L).encode();
+        JobPageToken decoded = JobPageToken.decode(token);
+
+        Assert.assertEquals(1496318400000L, decoded.getStartTime());
+        Assert.assertEquals(42L, decoded.getJobExecutionId());
+    }
+
+    @Test
+    public void testTokenIsUrlSafe() {
+        String token = new JobPageToken(Long.MAX_VALUE, Long.MAX_VALUE).encode();
+
+        Assert.assertTrue(token, token.matches("[A-Za-z0-9_-]+"));
+        Assert.assertEquals(Long.MAX_VALUE, JobPageToken.decode(token).getJobExecutionId());
+    }
+
+    @Test
+    public void testInvalidTokens() {
+        assertInvalid("not base64!");
+        assertInvalid(encode("1496318400000"));
+        assertInvalid(encode("1496318400000:42:7"));
+        assertInvalid(encode("start:42"));
+        assertInvalid(encode("1496318400000:"));
+        assertInvalid("");
+    }
+
+    private static String encode(String value) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void assertInvalid(String token) {
+        try {
+            JobPageToken.decode(token);
+            Assert.fail("Expected an invalid token: " + token);
+        } catch (IllegalArgumentException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().startsWith("Invalid page token"));
+        }
+    }
+}
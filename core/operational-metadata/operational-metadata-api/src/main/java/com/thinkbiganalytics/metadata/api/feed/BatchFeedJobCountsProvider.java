@@ -0,0 +1,68 @@
+package com.thinkbiganalytics.metadata.api.feed;
+
+/*-
+ * #%L
+ * thinkbig-operational-metadata-api
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.metadata.api.jobrepo.job.BatchJobExecution;
+
+import java.util.List;
+
+/**
+ * Maintains the per feed job counts (running, failed, completed, abandoned and the latest jobs) that back the feed health and summary views.
+ * The counts are updated as each {@link BatchJobExecution} changes and can be rebuilt from the job history if they drift.
+ */
+public interface BatchFeedJobCountsProvider {
+
+    /**
+     * Apply the change in a job execution since it was last counted to the counts of its feed
+     *
+     * @param jobExecution the job execution that was created or updated
+     */
+    void recordJobExecution(BatchJobExecution jobExecution);
+
+    /**
+     * Create the empty counts for a new feed
+     *
+     * @param feedId the feed id
+     */
+    void create(OpsManagerFeed.ID feedId);
+
+    /**
+     * Remove the counts for a feed
+     *
+     * @param feedId the feed id
+     */
+    void delete(OpsManagerFeed.ID feedId);
+
+    /**
+     * Return the ids of all the feeds that have, or should have, job counts
+     *
+     * @return the feed ids
+     */
+    List<OpsManagerFeed.ID> findFeedIds();
+
+    /**
+     * Rebuild the counts for a feed from its job history
+     *
+     * @param feedId the feed id
+     * @return true if the stored counts were out of date and have been corrected, false if they were already correct
+     */
+    boolean reconcile(OpsManagerFeed.ID feedId);
+}
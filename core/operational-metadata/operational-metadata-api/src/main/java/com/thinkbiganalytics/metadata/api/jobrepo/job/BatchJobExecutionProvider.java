@@ -28,7 +28,9 @@ import org.joda.time.ReadablePeriod;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -108,6 +110,24 @@ public interface BatchJobExecutionProvider extends BatchJobExecutionFilters {
      */
     BatchJobExecution getOrCreateJobExecution(ProvenanceEventRecordDTO event);
 
+    /**
+     * find or create the job execution from the provenance event using a map of job executions that have already been resolved for a batch of events.
+     * The map is keyed by the {@link ProvenanceEventRecordDTO#jobFlowFileId} and is updated with any newly created job execution.
+     *
+     * @param event         a provenance event
+     * @param jobExecutions the job executions already resolved for the batch, keyed by the job flow file id
+     * @return the job execution
+     */
+    BatchJobExecution getOrCreateJobExecution(ProvenanceEventRecordDTO event, Map<String, BatchJobExecution> jobExecutions);
+
+    /**
+     * find the job executions for a set of job flow files in as few queries as possible
+     *
+     * @param jobFlowFileIds the job flow file ids
+     * @return the job executions that exist, keyed by the job flow file id
+     */
+    Map<String, BatchJobExecution> findJobExecutionsByFlowFiles(Collection<String> jobFlowFileIds);
+
     /**
      * find the job execution from the provenance event
      *
@@ -151,6 +171,27 @@ public interface BatchJobExecutionProvider extends BatchJobExecutionFilters {
      */
     Page<? extends BatchJobExecution> findAll(String filter, Pageable pageable);
 
+    /**
+     * find the job executions matching a particular filter string that come after a position, newest first.
+     * The jobs are ordered by start time and job execution id so each page is found with an index seek rather than by skipping the previous pages.
+     * Jobs without a start time are not included.
+     *
+     * @param filter              a filter string
+     * @param afterStartTime      the start time of the last job on the previous page, in millis, or null for the first page
+     * @param afterJobExecutionId the job execution id of the last job on the previous page, or null for the first page
+     * @param limit               the maximum number of jobs to return
+     * @return the job executions after the position
+     */
+    List<? extends BatchJobExecution> findAllAfter(String filter, Long afterStartTime, Long afterJobExecutionId, int limit);
+
+    /**
+     * count the job executions matching a particular filter string
+     *
+     * @param filter a filter string
+     * @return the number of matching job executions
+     */
+    long count(String filter);
+
     /**
      * Return a list of job status objects grouped by day
      *
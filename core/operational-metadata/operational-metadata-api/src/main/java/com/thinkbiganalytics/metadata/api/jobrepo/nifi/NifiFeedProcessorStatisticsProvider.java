@@ -38,6 +38,31 @@ public interface NifiFeedProcessorStatisticsProvider {
      */
     NifiFeedProcessorStats create(NifiFeedProcessorStats t);
 
+    /**
+     * Save a group of new stats records and fold them into the {@link RollupLevel} buckets
+     *
+     * @param stats the stats records received together from NiFi
+     * @return the saved stats records
+     */
+    List<? extends NifiFeedProcessorStats> create(List<? extends NifiFeedProcessorStats> stats);
+
+    /**
+     * Delete the raw stats records collected before the given time.  Rolled up statistics are not affected
+     *
+     * @param before the time before which the raw stats are removed
+     * @return the number of records removed
+     */
+    int deleteStatisticsBefore(DateTime before);
+
+    /**
+     * Delete the rolled up statistics for a given level with buckets starting before the given time
+     *
+     * @param level  the rollup level
+     * @param before the time before which the buckets are removed
+     * @return the number of buckets removed
+     */
+    int deleteRollupsBefore(RollupLevel level, DateTime before);
+
     /**
      * find statistics within a given start and end time
      *
@@ -151,5 +176,30 @@ public interface NifiFeedProcessorStatisticsProvider {
         }
     }
 
+    /**
+     * The time buckets that raw statistics are rolled up into.  Queries over a long time window read the coarsest bucket that still gives a reasonable number of points.
+     */
+    public static enum RollupLevel {
+
+        MINUTE(1000L * 60), HOUR(MINUTE.millis * 60), DAY(HOUR.millis * 24);
+
+        private final long millis;
+
+        private RollupLevel(long millis) {
+            this.millis = millis;
+        }
+
+        public long getMillis() {
+            return millis;
+        }
+
+        /**
+         * @return the start of the bucket (in UTC millis) that contains the given time
+         */
+        public long bucketStart(DateTime time) {
+            return time.getMillis() - Math.floorMod(time.getMillis(), millis);
+        }
+    }
+
 
 }
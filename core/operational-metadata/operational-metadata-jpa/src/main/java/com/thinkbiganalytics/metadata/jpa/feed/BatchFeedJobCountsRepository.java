@@ -0,0 +1,66 @@
+package com.thinkbiganalytics.metadata.jpa.feed;
+
+/*-
+ * #%L
+ * thinkbig-operational-metadata-jpa
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.UUID;
+
+import javax.persistence.LockModeType;
+
+/**
+ * Spring data repository to access and incrementally update the {@link JpaBatchFeedJobCounts}
+ */
+public interface BatchFeedJobCountsRepository extends JpaRepository<JpaBatchFeedJobCounts, JpaBatchFeedJobCounts.BatchFeedJobCountsFeedId> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select counts from JpaBatchFeedJobCounts as counts where counts.feedId.uuid = :feedId")
+    JpaBatchFeedJobCounts findForUpdate(@Param("feedId") UUID feedId);
+
+    @Modifying
+    @Query("update JpaBatchFeedJobCounts as counts set counts.allCount = counts.allCount + :all, "
+           + "counts.runningCount = counts.runningCount + :running, "
+           + "counts.failedCount = counts.failedCount + :failed, "
+           + "counts.completedCount = counts.completedCount + :completed, "
+           + "counts.abandonedCount = counts.abandonedCount + :abandoned "
+           + "where counts.feedId.uuid = :feedId")
+    int incrementCounts(@Param("feedId") UUID feedId, @Param("all") Long all, @Param("running") Long running, @Param("failed") Long failed, @Param("completed") Long completed,
+                        @Param("abandoned") Long abandoned);
+
+    @Modifying
+    @Query("update JpaBatchFeedJobCounts as counts set counts.latestJobExecutionId = :jobExecutionId "
+           + "where counts.feedId.uuid = :feedId and (counts.latestJobExecutionId is null or counts.latestJobExecutionId < :jobExecutionId)")
+    int updateLatestJobExecution(@Param("feedId") UUID feedId, @Param("jobExecutionId") Long jobExecutionId);
+
+    @Modifying
+    @Query("update JpaBatchFeedJobCounts as counts set counts.latestFinishedJobExecutionId = :jobExecutionId, counts.latestEndTime = :endTime "
+           + "where counts.feedId.uuid = :feedId and (counts.latestEndTime is null or counts.latestEndTime < :endTime "
+           + "or (counts.latestEndTime = :endTime and counts.latestFinishedJobExecutionId < :jobExecutionId))")
+    int updateLatestFinishedJobExecution(@Param("feedId") UUID feedId, @Param("jobExecutionId") Long jobExecutionId, @Param("endTime") Long endTime);
+
+    @Modifying
+    @Query("delete from JpaBatchFeedJobCounts as counts where counts.feedId.uuid = :feedId")
+    int deleteForFeed(@Param("feedId") UUID feedId);
+}
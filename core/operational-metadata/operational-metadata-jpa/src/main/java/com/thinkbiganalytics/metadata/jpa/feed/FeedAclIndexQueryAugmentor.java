@@ -25,7 +25,9 @@ import com.querydsl.core.types.dsl.BooleanExpression;
 import com.querydsl.core.types.dsl.ComparablePath;
 import com.querydsl.jpa.JPAExpressions;
 import com.querydsl.jpa.JPQLQuery;
+import com.thinkbiganalytics.jpa.BaseJpaId;
 import com.thinkbiganalytics.metadata.config.RoleSetExposingSecurityExpressionRoot;
+import com.thinkbiganalytics.metadata.jpa.feed.security.FeedAclCache;
 import com.thinkbiganalytics.metadata.jpa.feed.security.JpaFeedOpsAclEntry;
 import com.thinkbiganalytics.metadata.jpa.feed.security.JpaFeedOpsAclEntry.PrincipalType;
 import com.thinkbiganalytics.metadata.jpa.feed.security.QJpaFeedOpsAclEntry;
@@ -42,6 +44,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
 import javax.persistence.EntityManager;
@@ -53,12 +56,58 @@ import javax.persistence.criteria.Subquery;
 
 /**
  * Secures queries by checking whether access to them is allowed by having matching roles for current
- * user principal in FeedAclIndex table
+ * user principal in FeedAclIndex table.
+ *
+ * When a {@link FeedAclCache} is registered the feeds accessible to the current user are looked up once and the query is filtered with an {@code IN} list of their ids,
+ * otherwise, or if the user can access too many feeds for an {@code IN} list, a correlated {@code EXISTS} subquery against the FeedAclIndex table is used.
  */
 public abstract class FeedAclIndexQueryAugmentor implements QueryAugmentor {
 
     private static final Logger LOG = LoggerFactory.getLogger(FeedAclIndexQueryAugmentor.class);
 
+    /**
+     * The cache of the feeds accessible to each user, null if feed ids are not cached
+     */
+    private static volatile FeedAclCache feedAclCache;
+
+    /**
+     * The maximum number of feed ids to filter with in an {@code IN} list
+     */
+    private static volatile int maxFeedIdsInList = 500;
+
+    /**
+     * Register the cache used to look up the feeds accessible to the current user
+     *
+     * @param cache            the cache, or null to always use the {@code EXISTS} subquery
+     * @param maxFeedIdsInList users with access to more feeds than this use the {@code EXISTS} subquery
+     */
+    public static void setFeedAclCache(FeedAclCache cache, int maxFeedIdsInList) {
+        FeedAclIndexQueryAugmentor.feedAclCache = cache;
+        FeedAclIndexQueryAugmentor.maxFeedIdsInList = maxFeedIdsInList;
+    }
+
+    /**
+     * Clear the cached feed ids after the feed access control entries have changed
+     */
+    public static void invalidateFeedAclCache() {
+        FeedAclCache cache = feedAclCache;
+        if (cache != null) {
+            cache.invalidate();
+        }
+    }
+
+    /**
+     * Return the ids of the feeds accessible to the user, or null if they are not cached or there are too many to filter with in an {@code IN} list
+     */
+    private static Set<UUID> getAccessibleFeedIds(RoleSetExposingSecurityExpressionRoot userCxt) {
+        FeedAclCache cache = feedAclCache;
+        if (cache == null) {
+            return null;
+        }
+        Set<UUID> feedIds = cache.getAccessibleFeedIds(userCxt.getName(), userCxt.getGroups());
+        return feedIds.size() <= maxFeedIdsInList ? feedIds : null;
+    }
+
     protected abstract <S, T, ID extends Serializable> Path<Object> getFeedId(JpaEntityInformation<T, ID> entityInformation, Root<S> root);
 
     protected abstract ComparablePath<UUID> getFeedId();
@@ -74,12 +123,21 @@ public abstract class FeedAclIndexQueryAugmentor implements QueryAugmentor {
             //and exists (select 1 from JpaFeedOpsAclEntry as x where {root}.id = x.feedId and x.principalName in :#{principal.roleSet})
 
             RoleSetExposingSecurityExpressionRoot userCxt = getUserContext();
+            Path<Object> feedId = getFeedId(entityInformation, root);
+            Set<UUID> accessibleFeedIds = BaseJpaId.class.isAssignableFrom(feedId.getJavaType()) ? getAccessibleFeedIds(userCxt) : null;
+            if (accessibleFeedIds != null) {
+                //and {root}.id.uuid in (:accessibleFeedIds)
+                javax.persistence.criteria.Predicate securingPredicate = accessibleFeedIds.isEmpty()
+                                                                          ? criteriaBuilder.disjunction()
+                                                                          : feedId.get("uuid").in(accessibleFeedIds);
+                return spec != null ? criteriaBuilder.and(spec.toPredicate(root, query, criteriaBuilder), securingPredicate) : securingPredicate;
+            }
+
             Subquery<Integer> subquery = query.subquery(Integer.class);
             Root<JpaFeedOpsAclEntry> fromAcl = subquery.from(JpaFeedOpsAclEntry.class);
 
             subquery.select(fromAcl.get("feedId"));
 
-            Path<Object> feedId = getFeedId(entityInformation, root);
             javax.persistence.criteria.Predicate rootFeedIdEqualToAclFeedId = criteriaBuilder.equal(feedId, fromAcl.get("feedId"));
 
             javax.persistence.criteria.Predicate aclPrincipalInGroups = fromAcl.get("principalName").in(userCxt.getGroups());
@@ -119,7 +177,8 @@ public abstract class FeedAclIndexQueryAugmentor implements QueryAugmentor {
     }
 
     /**
-     * Generates the Exist expression for the feed to feedacl table
+     * Generates the expression limiting the feed to those accessible to the current user.
+     * This is an {@code IN} list of the cached accessible feed ids when available, otherwise the Exist expression for the feed to feedacl table
      * TODO need to check if access control is disabled then return a 1=1 else return this exists
      * @param feedId
      * @return
@@ -128,6 +187,11 @@ public abstract class FeedAclIndexQueryAugmentor implements QueryAugmentor {
         LOG.debug("FeedAclIndexQueryAugmentor.generateExistsExpression(QOpsManagerFeedId)");
 
         RoleSetExposingSecurityExpressionRoot userCxt = getUserContext();
+        Set<UUID> accessibleFeedIds = getAccessibleFeedIds(userCxt);
+        if (accessibleFeedIds != null) {
+            //a feed id is never null, so this matches nothing when no feeds are accessible
+            return accessibleFeedIds.isEmpty() ? feedId.uuid.isNull() : feedId.uuid.in(accessibleFeedIds);
+        }
         QJpaFeedOpsAclEntry aclEntry = QJpaFeedOpsAclEntry.jpaFeedOpsAclEntry;
         JPQLQuery<JpaFeedOpsAclEntry> subquery = JPAExpressions.selectFrom(aclEntry).where(aclEntry.feed.id.eq(feedId)
                                                                                                .and(aclEntry.principalName.in(userCxt.getGroups()).and(aclEntry.principalType.eq(PrincipalType.GROUP))
@@ -0,0 +1,255 @@
+package com.thinkbiganalytics.metadata.jpa.feed;
+
+/*-
+ * #%L
+ * thinkbig-operational-metadata-jpa
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.jpa.BaseJpaId;
+import com.thinkbiganalytics.metadata.api.feed.OpsManagerFeed;
+import com.thinkbiganalytics.metadata.api.jobrepo.ExecutionConstants;
+import com.thinkbiganalytics.metadata.api.jobrepo.job.BatchJobExecution;
+
+import java.io.Serializable;
+import java.util.Objects;
+import java.util.UUID;
+
+import javax.persistence.Column;
+import javax.persistence.Embeddable;
+import javax.persistence.EmbeddedId;
+import javax.persistence.Entity;
+import javax.persistence.Table;
+
+/**
+ * The job counts for a single feed.
+ * Rows are keyed by the feed of the job instance, so the counts for a check data feed are kept separately and are merged into the owning feed by the BATCH_FEED_SUMMARY_COUNTS_VW.
+ */
+@Entity
+@Table(name = "BATCH_FEED_JOB_COUNTS")
+public class JpaBatchFeedJobCounts {
+
+    /**
+     * Flags indicating which of the counts a job contributes to. A job can be counted as both running and failed, or failed and completed, as in the original views.
+     */
+    public static final int RUNNING = 1;
+    public static final int FAILED = 1 << 1;
+    public static final int COMPLETED = 1 << 2;
+    public static final int ABANDONED = 1 << 3;
+
+    @EmbeddedId
+    private BatchFeedJobCountsFeedId feedId;
+
+    @Column(name = "ALL_COUNT")
+    private Long allCount = 0L;
+
+    @Column(name = "RUNNING_COUNT")
+    private Long runningCount = 0L;
+
+    @Column(name = "FAILED_COUNT")
+    private Long failedCount = 0L;
+
+    @Column(name = "COMPLETED_COUNT")
+    private Long completedCount = 0L;
+
+    @Column(name = "ABANDONED_COUNT")
+    private Long abandonedCount = 0L;
+
+    @Column(name = "LATEST_JOB_EXECUTION_ID")
+    private Long latestJobExecutionId;
+
+    @Column(name = "LATEST_FINISHED_JOB_EXECUTION_ID")
+    private Long latestFinishedJobExecutionId;
+
+    @Column(name = "LATEST_END_TIME")
+    private Long latestEndTime;
+
+    public JpaBatchFeedJobCounts() {
+
+    }
+
+    public JpaBatchFeedJobCounts(BatchFeedJobCountsFeedId feedId) {
+        this.feedId = feedId;
+    }
+
+    /**
+     * Return the counts a job with the given status and exit code contributes to, matching the conditions used by the original BATCH_FEED_SUMMARY_COUNTS_VW
+     *
+     * @param status   the job status
+     * @param exitCode the job exit code
+     * @return the {@link #RUNNING}, {@link #FAILED}, {@link #COMPLETED} and {@link #ABANDONED} flags for the job
+     */
+    public static int countFlags(BatchJobExecution.JobStatus status, ExecutionConstants.ExitCode exitCode) {
+        int flags = 0;
+        if (status == null) {
+            return flags;
+        }
+        if (status == BatchJobExecution.JobStatus.STARTING || status == BatchJobExecution.JobStatus.STARTED) {
+            flags |= RUNNING;
+        }
+        if (status == BatchJobExecution.JobStatus.ABANDONED) {
+            flags |= ABANDONED;
+        } else {
+            if (status == BatchJobExecution.JobStatus.FAILED || exitCode == ExecutionConstants.ExitCode.FAILED) {
+                flags |= FAILED;
+            }
+            if (exitCode == ExecutionConstants.ExitCode.COMPLETED) {
+                flags |= COMPLETED;
+            }
+        }
+        return flags;
+    }
+
+    /**
+     * Return the change in a count when a job moves from one set of flags to another
+     *
+     * @param previousFlags the flags the job was counted with, 0 if it has not been counted
+     * @param flags         the current flags of the job
+     * @param flag          the count to check
+     * @return -1, 0 or 1
+     */
+    public static int delta(int previousFlags, int flags, int flag) {
+        return ((flags & flag) != 0 ? 1 : 0) - ((previousFlags & flag) != 0 ? 1 : 0);
+    }
+
+    /**
+     * Return true if the counts and latest jobs are the same as another set of counts
+     */
+    public boolean isSameAs(JpaBatchFeedJobCounts other) {
+        return other != null
+               && Objects.equals(allCount, other.allCount)
+               && Objects.equals(runningCount, other.runningCount)
+               && Objects.equals(failedCount, other.failedCount)
+               && Objects.equals(completedCount, other.completedCount)
+               && Objects.equals(abandonedCount, other.abandonedCount)
+               && Objects.equals(latestJobExecutionId, other.latestJobExecutionId)
+               && Objects.equals(latestFinishedJobExecutionId, other.latestFinishedJobExecutionId)
+               && Objects.equals(latestEndTime, other.latestEndTime);
+    }
+
+    /**
+     * Copy the counts and latest jobs from another set of counts
+     */
+    public void copyFrom(JpaBatchFeedJobCounts other) {
+        this.allCount = other.allCount;
+        this.runningCount = other.runningCount;
+        this.failedCount = other.failedCount;
+        this.completedCount = other.completedCount;
+        this.abandonedCount = other.abandonedCount;
+        this.latestJobExecutionId = other.latestJobExecutionId;
+        this.latestFinishedJobExecutionId = other.latestFinishedJobExecutionId;
+        this.latestEndTime = other.latestEndTime;
+    }
+
+    public BatchFeedJobCountsFeedId getFeedId() {
+        return feedId;
+    }
+
+    public void setFeedId(BatchFeedJobCountsFeedId feedId) {
+        this.feedId = feedId;
+    }
+
+    public Long getAllCount() {
+        return allCount;
+    }
+
+    public void setAllCount(Long allCount) {
+        this.allCount = allCount;
+    }
+
+    public Long getRunningCount() {
+        return runningCount;
+    }
+
+    public void setRunningCount(Long runningCount) {
+        this.runningCount = runningCount;
+    }
+
+    public Long getFailedCount() {
+        return failedCount;
+    }
+
+    public void setFailedCount(Long failedCount) {
+        this.failedCount = failedCount;
+    }
+
+    public Long getCompletedCount() {
+        return completedCount;
+    }
+
+    public void setCompletedCount(Long completedCount) {
+        this.completedCount = completedCount;
+    }
+
+    public Long getAbandonedCount() {
+        return abandonedCount;
+    }
+
+    public void setAbandonedCount(Long abandonedCount) {
+        this.abandonedCount = abandonedCount;
+    }
+
+    public Long getLatestJobExecutionId() {
+        return latestJobExecutionId;
+    }
+
+    public void setLatestJobExecutionId(Long latestJobExecutionId) {
+        this.latestJobExecutionId = latestJobExecutionId;
+    }
+
+    public Long getLatestFinishedJobExecutionId() {
+        return latestFinishedJobExecutionId;
+    }
+
+    public void setLatestFinishedJobExecutionId(Long latestFinishedJobExecutionId) {
+        this.latestFinishedJobExecutionId = latestFinishedJobExecutionId;
+    }
+
+    public Long getLatestEndTime() {
+        return latestEndTime;
+    }
+
+    public void setLatestEndTime(Long latestEndTime) {
+        this.latestEndTime = latestEndTime;
+    }
+
+    @Embeddable
+    public static class BatchFeedJobCountsFeedId extends BaseJpaId implements Serializable, OpsManagerFeed.ID {
+
+        private static final long serialVersionUID = -3160843473384049472L;
+
+        @Column(name = "FEED_ID")
+        private UUID uuid;
+
+        public BatchFeedJobCountsFeedId() {
+        }
+
+        public BatchFeedJobCountsFeedId(Serializable ser) {
+            super(ser);
+        }
+
+        @Override
+        public UUID getUuid() {
+            return this.uuid;
+        }
+
+        @Override
+        public void setUuid(UUID uuid) {
+            this.uuid = uuid;
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.thinkbiganalytics.metadata.jpa.feed;
+
+/*-
+ * #%L
+ * thinkbig-operational-metadata-jpa
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.CaseBuilder;
+import com.querydsl.core.types.dsl.NumberExpression;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.thinkbiganalytics.metadata.api.feed.BatchFeedJobCountsProvider;
+import com.thinkbiganalytics.metadata.api.feed.OpsManagerFeed;
+import com.thinkbiganalytics.metadata.api.jobrepo.ExecutionConstants;
+import com.thinkbiganalytics.metadata.api.jobrepo.job.BatchJobExecution;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.job.JpaBatchJobExecution;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.job.QJpaBatchJobExecution;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.job.QJpaBatchJobInstance;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Keeps the {@link JpaBatchFeedJobCounts} in step with the job executions.
+ *
+ * Each job execution remembers the state it was last counted with, so saving a job only applies the difference to its feeds counts with a single update statement instead of the
+ * feed health and summary views aggregating the whole job history on every read.
+ */
+@Service
+public class JpaBatchFeedJobCountsProvider implements BatchFeedJobCountsProvider {
+
+    private static final Logger log = LoggerFactory.getLogger(JpaBatchFeedJobCountsProvider.class);
+
+    @Autowired
+    private JPAQueryFactory factory;
+
+    private BatchFeedJobCountsRepository countsRepository;
+
+    @Autowired
+    public JpaBatchFeedJobCountsProvider(BatchFeedJobCountsRepository countsRepository) {
+        this.countsRepository = countsRepository;
+    }
+
+    @Override
+    public void recordJobExecution(BatchJobExecution jobExecution) {
+        JpaBatchJobExecution jpaJobExecution = (JpaBatchJobExecution) jobExecution;
+        UUID feedId = getFeedId(jpaJobExecution);
+        if (feedId == null || jpaJobExecution.getJobExecutionId() == null) {
+            //jobs for feeds that are not registered with Kylo are not counted
+            return;
+        }
+
+        Integer countedFlags = jpaJobExecution.getCountedFlags();
+        boolean isNew = countedFlags == null;
+        int previousFlags = isNew ? 0 : countedFlags;
+        int flags = JpaBatchFeedJobCounts.countFlags(jpaJobExecution.getStatus(), jpaJobExecution.getExitCode());
+        Long endTime = jpaJobExecution.getEndTime() != null ? jpaJobExecution.getEndTime().getMillis() : null;
+        boolean countsChanged = isNew || previousFlags != flags;
+        boolean finished = endTime != null && !endTime.equals(jpaJobExecution.getCountedEndTime());
+
+        if (countsChanged) {
+            int updated = countsRepository.incrementCounts(feedId, isNew ? 1L : 0L,
+                                                           (long) JpaBatchFeedJobCounts.delta(previousFlags, flags, JpaBatchFeedJobCounts.RUNNING),
+                                                           (long) JpaBatchFeedJobCounts.delta(previousFlags, flags, JpaBatchFeedJobCounts.FAILED),
+                                                           (long) JpaBatchFeedJobCounts.delta(previousFlags, flags, JpaBatchFeedJobCounts.COMPLETED),
+                                                           (long) JpaBatchFeedJobCounts.delta(previousFlags, flags, JpaBatchFeedJobCounts.ABANDONED));
+            if (updated == 0) {
+                //the feed has no counts yet.  build them from the history, which includes this job
+                jpaJobExecution.markCounted();
+                reconcile(new JpaBatchFeedJobCounts.BatchFeedJobCountsFeedId(feedId));
+                return;
+            }
+        }
+        if (isNew) {
+            countsRepository.updateLatestJobExecution(feedId, jpaJobExecution.getJobExecutionId());
+        }
+        if (finished) {
+            countsRepository.updateLatestFinishedJobExecution(feedId, jpaJobExecution.getJobExecutionId(), endTime);
+        }
+        jpaJobExecution.markCounted();
+    }
+
+    @Override
+    public void create(OpsManagerFeed.ID feedId) {
+        JpaBatchFeedJobCounts.BatchFeedJobCountsFeedId countsId = new JpaBatchFeedJobCounts.BatchFeedJobCountsFeedId(feedId.toString());
+        if (!countsRepository.exists(countsId)) {
+            countsRepository.save(new JpaBatchFeedJobCounts(countsId));
+        }
+    }
+
+    @Override
+    public void delete(OpsManagerFeed.ID feedId) {
+        countsRepository.deleteForFeed(UUID.fromString(feedId.toString()));
+    }
+
+    @Override
+    public List<OpsManagerFeed.ID> findFeedIds() {
+        QJpaOpsManagerFeed feed = QJpaOpsManagerFeed.jpaOpsManagerFeed;
+        QJpaBatchFeedJobCounts counts = QJpaBatchFeedJobCounts.jpaBatchFeedJobCounts;
+        Set<UUID> ids = new LinkedHashSet<>(factory.select(feed.id.uuid).from(feed).fetch());
+        ids.addAll(factory.select(counts.feedId.uuid).from(counts).fetch());
+
+        List<OpsManagerFeed.ID> feedIds = new ArrayList<>(ids.size());
+        ids.forEach(id -> feedIds.add(new JpaBatchFeedJobCounts.BatchFeedJobCountsFeedId(id)));
+        return feedIds;
+    }
+
+    /**
+     * Rebuild the counts of a feed from its job history.
+     * The counts row is locked first so jobs of the feed that are being saved at the same time wait for the reconciliation rather than having their increments overwritten.
+     */
+    @Override
+    public boolean reconcile(OpsManagerFeed.ID feedId) {
+        UUID uuid = UUID.fromString(feedId.toString());
+        JpaBatchFeedJobCounts.BatchFeedJobCountsFeedId countsId = new JpaBatchFeedJobCounts.BatchFeedJobCountsFeedId(uuid);
+        JpaBatchFeedJobCounts counts = countsRepository.findForUpdate(uuid);
+
+        QJpaOpsManagerFeed feed = QJpaOpsManagerFeed.jpaOpsManagerFeed;
+        boolean feedExists = factory.select(feed.id).from(feed).where(feed.id.uuid.eq(uuid)).fetchFirst() != null;
+        if (!feedExists) {
+            if (counts != null) {
+                countsRepository.delete(counts);
+                return true;
+            }
+            return false;
+        }
+
+        JpaBatchFeedJobCounts actual = countFromHistory(countsId);
+        if (counts == null) {
+            countsRepository.save(actual);
+            log.info("Created the job counts for feed {}", feedId);
+            return true;
+        } else if (!counts.isSameAs(actual)) {
+            log.info("Reconciled the job counts for feed {}. all: {} -> {}, running: {} -> {}, failed: {} -> {}, completed: {} -> {}, abandoned: {} -> {}", feedId,
+                     counts.getAllCount(), actual.getAllCount(), counts.getRunningCount(), actual.getRunningCount(), counts.getFailedCount(), actual.getFailedCount(),
+                     counts.getCompletedCount(), actual.getCompletedCount(), counts.getAbandonedCount(), actual.getAbandonedCount());
+            counts.copyFrom(actual);
+            countsRepository.save(counts);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Aggregate the job history of a feed into a new set of counts
+     */
+    private JpaBatchFeedJobCounts countFromHistory(JpaBatchFeedJobCounts.BatchFeedJobCountsFeedId countsId) {
+        QJpaBatchJobExecution jobExecution = QJpaBatchJobExecution.jpaBatchJobExecution;
+        QJpaBatchJobInstance jobInstance = QJpaBatchJobInstance.jpaBatchJobInstance;
+        BooleanExpression forFeed = jobInstance.feed.id.uuid.eq(countsId.getUuid());
+
+        BooleanExpression notAbandoned = jobExecution.status.ne(BatchJobExecution.JobStatus.ABANDONED);
+        NumberExpression<Long> running = countIf(jobExecution.status.in(BatchJobExecution.JobStatus.STARTING, BatchJobExecution.JobStatus.STARTED));
+        NumberExpression<Long> failed = countIf(notAbandoned.and(jobExecution.status.eq(BatchJobExecution.JobStatus.FAILED)
+                                                                     .or(jobExecution.exitCode.eq(ExecutionConstants.ExitCode.FAILED))));
+        NumberExpression<Long> completed = countIf(notAbandoned.and(jobExecution.exitCode.eq(ExecutionConstants.ExitCode.COMPLETED)));
+        NumberExpression<Long> abandoned = countIf(jobExecution.status.eq(BatchJobExecution.JobStatus.ABANDONED));
+
+        Tuple tuple = factory.select(jobExecution.jobExecutionId.count(), running, failed, completed, abandoned, jobExecution.jobExecutionId.max(), jobExecution.endTimeMillis.max())
+            .from(jobExecution)
+            .innerJoin(jobExecution.jobInstance, jobInstance)
+            .where(forFeed)
+            .fetchOne();
+
+        JpaBatchFeedJobCounts counts = new JpaBatchFeedJobCounts(countsId);
+        if (tuple != null) {
+            counts.setAllCount(valueOf(tuple.get(0, Long.class)));
+            counts.setRunningCount(valueOf(tuple.get(running)));
+            counts.setFailedCount(valueOf(tuple.get(failed)));
+            counts.setCompletedCount(valueOf(tuple.get(completed)));
+            counts.setAbandonedCount(valueOf(tuple.get(abandoned)));
+            counts.setLatestJobExecutionId(tuple.get(5, Long.class));
+            Long latestEndTime = tuple.get(6, Long.class);
+            counts.setLatestEndTime(latestEndTime);
+            if (latestEndTime != null) {
+                counts.setLatestFinishedJobExecutionId(factory.select(jobExecution.jobExecutionId.max())
+                                                           .from(jobExecution)
+                                                           .innerJoin(jobExecution.jobInstance, jobInstance)
+                                                           .where(forFeed.and(jobExecution.endTimeMillis.eq(latestEndTime)))
+                                                           .fetchOne());
+            }
+        }
+        return counts;
+    }
+
+    private NumberExpression<Long> countIf(BooleanExpression condition) {
+        return new CaseBuilder().when(condition).then(1L).otherwise(0L).sum();
+    }
+
+    private Long valueOf(Long value) {
+        return value != null ? value : 0L;
+    }
+
+    private UUID getFeedId(JpaBatchJobExecution jobExecution) {
+        if (jobExecution.getJobInstance() == null || jobExecution.getJobInstance().getFeed() == null || jobExecution.getJobInstance().getFeed().getId() == null) {
+            return null;
+        }
+        return UUID.fromString(jobExecution.getJobInstance().getFeed().getId().toString());
+    }
+}
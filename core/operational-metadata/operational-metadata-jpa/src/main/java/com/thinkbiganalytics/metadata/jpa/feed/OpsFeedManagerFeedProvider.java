@@ -58,6 +58,8 @@ public class OpsFeedManagerFeedProvider implements OpsManagerFeedProvider {
     private static final Logger log = LoggerFactory.getLogger(OpsFeedManagerFeedProvider.class);
     @Inject
     BatchJobExecutionProvider batchJobExecutionProvider;
+    @Inject
+    BatchFeedJobCountsProvider feedJobCountsProvider;
     private OpsManagerFeedRepository repository;
     private FeedHealthRepository feedHealthRepository;
     private LatestFeedJobExectionRepository latestFeedJobExectionRepository;
@@ -120,6 +122,7 @@ public class OpsFeedManagerFeedProvider implements OpsManagerFeedProvider {
             ((JpaOpsManagerFeed) feed).setName(systemName);
             ((JpaOpsManagerFeed) feed).setId((OpsManagerFeedId) feedManagerId);
             repository.save((JpaOpsManagerFeed) feed);
+            feedJobCountsProvider.create(feedManagerId);
         }
         return feed;
     }
@@ -132,6 +135,7 @@ public class OpsFeedManagerFeedProvider implements OpsManagerFeedProvider {
             //first delete all jobs for this feed
             deleteFeedJobs(FeedNameUtil.category(feed.getName()), FeedNameUtil.feed(feed.getName()));
             repository.delete(feed.getId());
+            feedJobCountsProvider.delete(feed.getId());
             //notify the listeners
             notifyOnFeedDeleted(feed);
             log.info("Successfully deleted the feed {} ({})  and all job executions. ", feed.getName(), feed.getId());
@@ -220,6 +224,7 @@ public class OpsFeedManagerFeedProvider implements OpsManagerFeedProvider {
      */
     public void deleteFeedJobs(String category, String feed) {
         repository.deleteFeedJobs(category, feed);
+        reconcileFeedJobCounts(FeedNameUtil.fullName(category, feed));
     }
 
     /**
@@ -230,6 +235,20 @@ public class OpsFeedManagerFeedProvider implements OpsManagerFeedProvider {
         String exitMessage = String.format("Job manually abandoned @ %s", DateTimeUtil.getNowFormattedWithTimeZone());
 
         repository.abandonFeedJobs(feed, exitMessage);
+        reconcileFeedJobCounts(feed);
+    }
+
+    /**
+     * The stored procedures change the jobs directly in the database, so rebuild the job counts of the feed, and of its check data feeds, from their history
+     *
+     * @param feedName the feed whose jobs were changed
+     */
+    private void reconcileFeedJobCounts(String feedName) {
+        OpsManagerFeed feed = findByName(feedName);
+        if (feed != null) {
+            feedJobCountsProvider.reconcile(feed.getId());
+            ((JpaOpsManagerFeed) feed).getCheckDataFeeds().forEach(checkDataFeed -> feedJobCountsProvider.reconcile(checkDataFeed.getId()));
+        }
     }
 
 
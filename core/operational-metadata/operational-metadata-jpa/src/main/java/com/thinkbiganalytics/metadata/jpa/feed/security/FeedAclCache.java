@@ -0,0 +1,150 @@
+package com.thinkbiganalytics.metadata.jpa.feed.security;
+
+/*-
+ * #%L
+ * kylo-operational-metadata-jpa
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableSet;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches the ids of the feeds accessible to a user and set of groups so operations queries can filter on the ids instead of correlating every row with the feed access control entries.
+ *
+ * The cache is cleared whenever a {@link JpaFeedOpsAclEntry} is saved or removed, or the {@link JpaFeedOpsAccessControlProvider} bulk deletes entries, both immediately and once the changing transaction completes so a lookup made
+ * before the commit cannot keep the old ids.  Entries also expire after a short time so changes made by another Kylo node are picked up.
+ */
+public class FeedAclCache {
+
+    private static final Logger log = LoggerFactory.getLogger(FeedAclCache.class);
+
+    private final FeedOpsAccessControlRepository repository;
+
+    private final Cache<PrincipalKey, Set<UUID>> accessibleFeedIds;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @param repository    the access control repository used to load the accessible feeds
+     * @param expireSeconds how long a principals feed ids are cached
+     * @param maximumSize   the maximum number of users/group sets to cache
+     */
+    public FeedAclCache(FeedOpsAccessControlRepository repository, long expireSeconds, long maximumSize) {
+        this.repository = repository;
+        this.accessibleFeedIds = CacheBuilder.newBuilder()
+            .expireAfterWrite(expireSeconds, TimeUnit.SECONDS)
+            .maximumSize(maximumSize)
+            .build();
+    }
+
+    /**
+     * Return the ids of the feeds the user, or any of the groups, has been granted access to
+     *
+     * @param userName   the user name
+     * @param groupNames the groups of the user
+     * @return the accessible feed ids
+     */
+    public Set<UUID> getAccessibleFeedIds(String userName, Set<String> groupNames) {
+        PrincipalKey key = new PrincipalKey(userName, groupNames);
+        Set<UUID> feedIds = accessibleFeedIds.getIfPresent(key);
+        if (feedIds != null) {
+            hits.incrementAndGet();
+            return feedIds;
+        }
+        try {
+            return accessibleFeedIds.get(key, () -> {
+                misses.incrementAndGet();
+                Set<UUID> ids = key.groupNames.isEmpty() ? repository.findFeedIdsForUser(key.userName) : repository.findFeedIdsForPrincipals(key.userName, key.groupNames);
+                log.debug("Loaded {} accessible feeds for user {} and {} groups", ids.size(), key.userName, key.groupNames.size());
+                return ImmutableSet.copyOf(ids);
+            });
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Unable to load the feeds accessible to " + userName, e.getCause());
+        }
+    }
+
+    /**
+     * Clear the cache.  If called within a transaction the cache is cleared again once the transaction completes.
+     */
+    public void invalidate() {
+        accessibleFeedIds.invalidateAll();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    accessibleFeedIds.invalidateAll();
+                }
+            });
+        }
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * A user and the set of groups it belongs to
+     */
+    private static final class PrincipalKey {
+
+        private final String userName;
+
+        private final Set<String> groupNames;
+
+        PrincipalKey(String userName, Set<String> groupNames) {
+            this.userName = userName;
+            this.groupNames = groupNames != null ? ImmutableSet.copyOf(groupNames) : ImmutableSet.of();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            PrincipalKey that = (PrincipalKey) o;
+            return Objects.equals(userName, that.userName) && groupNames.equals(that.groupNames);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(userName, groupNames);
+        }
+    }
+}
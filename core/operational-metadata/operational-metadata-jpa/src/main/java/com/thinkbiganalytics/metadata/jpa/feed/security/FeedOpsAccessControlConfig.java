@@ -23,10 +23,12 @@ package com.thinkbiganalytics.metadata.jpa.feed.security;
  * #L%
  */
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 import com.thinkbiganalytics.metadata.api.feed.security.FeedOpsAccessControlProvider;
+import com.thinkbiganalytics.metadata.jpa.feed.FeedAclIndexQueryAugmentor;
 
 /**
  *
@@ -34,8 +36,33 @@ import com.thinkbiganalytics.metadata.api.feed.security.FeedOpsAccessControlProv
 @Configuration
 public class FeedOpsAccessControlConfig {
 
+    /**
+     * How long the feeds accessible to a user are cached
+     */
+    @Value("${kylo.ops.mgr.feed.acl.cache.expire.seconds:60}")
+    private long aclCacheExpireSeconds;
+
+    /**
+     * The number of users/group sets to cache
+     */
+    @Value("${kylo.ops.mgr.feed.acl.cache.size:1000}")
+    private long aclCacheSize;
+
+    /**
+     * Users with access to more feeds than this are filtered with the correlated access control subquery rather than a list of feed ids
+     */
+    @Value("${kylo.ops.mgr.feed.acl.cache.max.in.size:500}")
+    private int aclCacheMaxInSize;
+
     @Bean
     public FeedOpsAccessControlProvider feedOpsAccessControlProvider() {
         return new JpaFeedOpsAccessControlProvider();
     }
+
+    @Bean
+    public FeedAclCache feedAclCache(FeedOpsAccessControlRepository repository) {
+        FeedAclCache cache = new FeedAclCache(repository, aclCacheExpireSeconds, aclCacheSize);
+        FeedAclIndexQueryAugmentor.setFeedAclCache(cache, aclCacheMaxInSize);
+        return cache;
+    }
 }
@@ -60,6 +60,13 @@ public interface FeedOpsAccessControlRepository extends JpaRepository<JpaFeedOps
     @Query("select entry from JpaFeedOpsAclEntry as entry where entry.feedId = :id")
     List<JpaFeedOpsAclEntry> findForFeed(@Param("id") UUID feedId);
 
+    @Query("select distinct acl.feedId from JpaFeedOpsAclEntry as acl where acl.principalType = 'USER' AND acl.principalName = :user")
+    Set<UUID> findFeedIdsForUser(@Param("user") String userName);
+
+    @Query("select distinct acl.feedId from JpaFeedOpsAclEntry as acl where (acl.principalType = 'USER' AND acl.principalName = :user) "
+           + " OR (acl.principalType = 'GROUP' AND acl.principalName in (:groups))")
+    Set<UUID> findFeedIdsForPrincipals(@Param("user") String userName, @Param("groups") Set<String> groupNames);
+
     @Modifying
     @Query("delete from JpaFeedOpsAclEntry as entry where entry.principalName in (:names)")
     int deleteForPrincipals(@Param("names") Set<String> principalNames);
@@ -47,6 +47,12 @@ public class JpaFeedOpsAccessControlProvider implements FeedOpsAccessControlProv
     @Inject
     private FeedOpsAccessControlRepository repository;
 
+    /**
+     * Entries saved or removed as entities clear the cache themselves, the bulk deletes must clear it explicitly
+     */
+    @Inject
+    private FeedAclCache feedAclCache;
+
     /* (non-Javadoc)
      * @see com.thinkbiganalytics.metadata.api.feed.security.FeedOpsAccessControlProvider#grantAccess(com.thinkbiganalytics.metadata.api.feed.Feed.ID, java.security.Principal, java.security.Principal[])
      */
@@ -110,6 +116,7 @@ public class JpaFeedOpsAccessControlProvider implements FeedOpsAccessControlProv
                         .map(Principal::getName)
                         .collect(Collectors.toSet());
         this.repository.deleteForPrincipals(principalNames);
+        feedAclCache.invalidate();
     }
 
     /* (non-Javadoc)
@@ -121,6 +128,7 @@ public class JpaFeedOpsAccessControlProvider implements FeedOpsAccessControlProv
                         .map(Principal::getName)
                         .collect(Collectors.toSet());
         this.repository.deleteForPrincipals(principalNames);
+        feedAclCache.invalidate();
     }
 
     /* (non-Javadoc)
@@ -129,6 +137,7 @@ public class JpaFeedOpsAccessControlProvider implements FeedOpsAccessControlProv
     @Override
     public void revokeAllAccess(ID feedId) {
         this.repository.deleteForFeed(UUID.fromString(feedId.toString()));
+        feedAclCache.invalidate();
     }
 
     /* (non-Javadoc)
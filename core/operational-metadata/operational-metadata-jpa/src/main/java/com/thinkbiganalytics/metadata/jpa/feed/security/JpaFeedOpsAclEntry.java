@@ -37,10 +37,14 @@ import javax.persistence.Enumerated;
 import javax.persistence.FetchType;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.PrePersist;
+import javax.persistence.PreRemove;
+import javax.persistence.PreUpdate;
 import javax.persistence.Table;
 
 import com.thinkbiganalytics.metadata.api.feed.Feed;
 import com.thinkbiganalytics.metadata.api.feed.OpsManagerFeed;
+import com.thinkbiganalytics.metadata.jpa.feed.FeedAclIndexQueryAugmentor;
 import com.thinkbiganalytics.metadata.jpa.feed.JpaOpsManagerFeed;
 
 /**
@@ -73,6 +77,16 @@ public class JpaFeedOpsAclEntry {
         super();
     }
 
+    /**
+     * Any change to the entries changes which feeds are accessible, so clear the cached feed ids
+     */
+    @PrePersist
+    @PreUpdate
+    @PreRemove
+    private void onChange() {
+        FeedAclIndexQueryAugmentor.invalidateFeedAclCache();
+    }
+
     public JpaFeedOpsAclEntry(Feed.ID id, Principal principal) {
         this(id, principal.getName(), principal instanceof Group ? PrincipalType.GROUP : PrincipalType.USER);
     }
@@ -31,6 +31,7 @@ import com.thinkbiganalytics.metadata.api.jobrepo.job.BatchJobExecutionParameter
 import com.thinkbiganalytics.metadata.api.jobrepo.job.BatchJobInstance;
 import com.thinkbiganalytics.metadata.api.jobrepo.nifi.NifiEventJobExecution;
 import com.thinkbiganalytics.metadata.api.jobrepo.step.BatchStepExecution;
+import com.thinkbiganalytics.metadata.jpa.feed.JpaBatchFeedJobCounts;
 import com.thinkbiganalytics.metadata.jpa.jobrepo.nifi.JpaNifiEventJobExecution;
 import com.thinkbiganalytics.metadata.jpa.jobrepo.step.JpaBatchStepExecution;
 
@@ -57,8 +58,10 @@ import javax.persistence.ManyToOne;
 import javax.persistence.NamedNativeQuery;
 import javax.persistence.OneToMany;
 import javax.persistence.OneToOne;
+import javax.persistence.PostLoad;
 import javax.persistence.Table;
 import javax.persistence.TableGenerator;
+import javax.persistence.Transient;
 import javax.persistence.Version;
 
 /**
@@ -174,11 +177,47 @@ public class JpaBatchJobExecution implements BatchJobExecution {
     @OneToOne(targetEntity = JpaNifiEventJobExecution.class, mappedBy = "jobExecution", cascade = CascadeType.ALL, fetch = FetchType.LAZY, optional = false)
     private NifiEventJobExecution nifiEventJobExecution;
 
+    /**
+     * The {@link JpaBatchFeedJobCounts} flags this job was last counted with in its feeds job counts, null if it has not been counted yet
+     */
+    @Transient
+    private Integer countedFlags;
+
+    /**
+     * The end time, in millis, this job was last counted with in its feeds job counts
+     */
+    @Transient
+    private Long countedEndTime;
+
 
     public JpaBatchJobExecution() {
 
     }
 
+    /**
+     * A job loaded from the database is already included in its feeds job counts
+     */
+    @PostLoad
+    private void onLoad() {
+        markCounted();
+    }
+
+    /**
+     * Record the current status, exit code and end time as the state included in the feeds job counts
+     */
+    public void markCounted() {
+        this.countedFlags = JpaBatchFeedJobCounts.countFlags(status, exitCode);
+        this.countedEndTime = endTime != null ? endTime.getMillis() : null;
+    }
+
+    public Integer getCountedFlags() {
+        return countedFlags;
+    }
+
+    public Long getCountedEndTime() {
+        return countedEndTime;
+    }
+
     @Override
     public BatchJobInstance getJobInstance() {
         return jobInstance;
@@ -21,6 +21,8 @@ package com.thinkbiganalytics.metadata.jpa.jobrepo.job;
  */
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Striped;
 import com.querydsl.core.BooleanBuilder;
 import com.querydsl.core.types.ConstructorExpression;
 import com.querydsl.core.types.Predicate;
@@ -34,6 +36,7 @@ import com.thinkbiganalytics.DateTimeUtil;
 import com.thinkbiganalytics.jobrepo.common.constants.CheckDataStepConstants;
 import com.thinkbiganalytics.jobrepo.common.constants.FeedConstants;
 import com.thinkbiganalytics.metadata.api.SearchCriteria;
+import com.thinkbiganalytics.metadata.api.feed.BatchFeedJobCountsProvider;
 import com.thinkbiganalytics.metadata.api.feed.OpsManagerFeed;
 import com.thinkbiganalytics.metadata.api.jobrepo.ExecutionConstants;
 import com.thinkbiganalytics.metadata.api.jobrepo.job.BatchJobExecution;
@@ -72,18 +75,23 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.io.UnsupportedEncodingException;
 import java.math.BigInteger;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.locks.Lock;
 
 import javax.inject.Inject;
 import javax.persistence.OptimisticLockException;
@@ -99,6 +107,21 @@ public class JpaBatchJobExecutionProvider extends QueryDslPagingSupport<JpaBatch
 
     private static String PARAM_TB_JOB_TYPE = "tb.jobType";
 
+    /**
+     * Maximum number of job flow file ids to include in a single IN clause
+     */
+    private static final int FLOW_FILE_QUERY_PARTITION_SIZE = 500;
+
+    /**
+     * Number of locks used to guard the creation of job executions.  Job flow files are hashed to a lock so unrelated flow files can be processed in parallel.
+     */
+    private static final int JOB_FLOW_FILE_LOCK_STRIPES = 256;
+
+    /**
+     * Locks guarding the lookup and creation of the job execution for a job flow file
+     */
+    private final Striped<Lock> jobFlowFileLocks = Striped.lock(JOB_FLOW_FILE_LOCK_STRIPES);
+
 
     @Autowired
     private JPAQueryFactory factory;
@@ -118,6 +141,9 @@ public class JpaBatchJobExecutionProvider extends QueryDslPagingSupport<JpaBatch
     @Inject
     private BatchStepExecutionProvider batchStepExecutionProvider;
 
+    @Inject
+    private BatchFeedJobCountsProvider feedJobCountsProvider;
+
 
     @Autowired
     public JpaBatchJobExecutionProvider(BatchJobExecutionRepository jobExecutionRepository, BatchJobInstanceRepository jobInstanceRepository,
@@ -361,11 +387,96 @@ public class JpaBatchJobExecutionProvider extends QueryDslPagingSupport<JpaBatch
      * Get or Create the JobExecution for a given ProvenanceEvent
      */
     @Override
-    public synchronized JpaBatchJobExecution getOrCreateJobExecution(ProvenanceEventRecordDTO event) {
-        JpaBatchJobExecution jobExecution = null;
+    public JpaBatchJobExecution getOrCreateJobExecution(ProvenanceEventRecordDTO event) {
+        List<Lock> locks = lockJobFlowFiles(Collections.singleton(event.getJobFlowFileId()));
+        try {
+            return getOrCreateJobExecution(event, jobExecutionRepository.findByFlowFile(event.getJobFlowFileId()));
+        } finally {
+            releaseJobFlowFileLocks(locks);
+        }
+    }
+
+    /**
+     * Get or Create the JobExecution for a given ProvenanceEvent using the job executions already resolved for the batch of events
+     */
+    @Override
+    public JpaBatchJobExecution getOrCreateJobExecution(ProvenanceEventRecordDTO event, Map<String, BatchJobExecution> jobExecutions) {
+        List<Lock> locks = lockJobFlowFiles(Collections.singleton(event.getJobFlowFileId()));
+        try {
+            JpaBatchJobExecution jobExecution = getOrCreateJobExecution(event, (JpaBatchJobExecution) jobExecutions.get(event.getJobFlowFileId()));
+            jobExecutions.put(event.getJobFlowFileId(), jobExecution);
+            return jobExecution;
+        } finally {
+            releaseJobFlowFileLocks(locks);
+        }
+    }
+
+    /**
+     * Find the job executions for the job flow files.
+     * The job flow files are locked until the current transaction completes so the job executions can be safely created for the flow files that do not have one yet.
+     */
+    @Override
+    public Map<String, BatchJobExecution> findJobExecutionsByFlowFiles(Collection<String> jobFlowFileIds) {
+        Map<String, BatchJobExecution> jobExecutions = new HashMap<>();
+        if (jobFlowFileIds != null && !jobFlowFileIds.isEmpty()) {
+            Set<String> distinctFlowFileIds = new HashSet<>(jobFlowFileIds);
+            releaseJobFlowFileLocks(lockJobFlowFiles(distinctFlowFileIds));
+            //partition the ids to stay within the IN clause limits of the database
+            for (List<String> flowFileIds : Lists.partition(new ArrayList<>(distinctFlowFileIds), FLOW_FILE_QUERY_PARTITION_SIZE)) {
+                for (JpaBatchJobExecution jobExecution : jobExecutionRepository.findByFlowFiles(flowFileIds)) {
+                    jobExecutions.put(jobExecution.getNifiEventJobExecution().getFlowFileId(), jobExecution);
+                }
+            }
+        }
+        return jobExecutions;
+    }
+
+    /**
+     * Acquire the locks guarding the job flow files.
+     * {@link Striped#bulkGet(Iterable)} returns the locks in a consistent order so threads locking several flow files at once cannot deadlock each other.
+     *
+     * @param jobFlowFileIds the job flow files to lock
+     * @return the acquired locks
+     */
+    private List<Lock> lockJobFlowFiles(Iterable<String> jobFlowFileIds) {
+        List<Lock> locks = new ArrayList<>();
+        for (Lock lock : jobFlowFileLocks.bulkGet(jobFlowFileIds)) {
+            lock.lock();
+            locks.add(lock);
+        }
+        return locks;
+    }
+
+    /**
+     * Release the job flow file locks.
+     * If a transaction is active the locks are held until it completes, otherwise another thread could look up the flow file before the new job execution is committed and create a duplicate.
+     *
+     * @param locks the locks acquired by {@link #lockJobFlowFiles(Iterable)}
+     */
+    private void releaseJobFlowFileLocks(List<Lock> locks) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    locks.forEach(Lock::unlock);
+                }
+            });
+        } else {
+            locks.forEach(Lock::unlock);
+        }
+    }
+
+    /**
+     * Create the job execution if {@code existingJobExecution} is null, and apply the event to the job
+     *
+     * @param event                a provenance event
+     * @param existingJobExecution the job execution already found for the events job flow file, or null if there is none
+     * @return the job execution
+     */
+    private JpaBatchJobExecution getOrCreateJobExecution(ProvenanceEventRecordDTO event, JpaBatchJobExecution existingJobExecution) {
+        JpaBatchJobExecution jobExecution = existingJobExecution;
         boolean isNew = false;
         try {
-            jobExecution = jobExecutionRepository.findByFlowFile(event.getJobFlowFileId());
             if (jobExecution == null) {
                 jobExecution = createNewJobExecution(event);
                 isNew = true;
@@ -401,6 +512,7 @@ public class JpaBatchJobExecutionProvider extends QueryDslPagingSupport<JpaBatch
         if (save) {
             jobExecutionRepository.save(jobExecution);
         }
+        feedJobCountsProvider.recordJobExecution(jobExecution);
         return jobExecution;
     }
 
@@ -416,6 +528,8 @@ public class JpaBatchJobExecutionProvider extends QueryDslPagingSupport<JpaBatch
             //ensure failures
             batchStepExecutionProvider.ensureFailureSteps(jpaBatchJobExecution);
         }
+        //the steps may have changed the exit code of the job
+        feedJobCountsProvider.recordJobExecution(jpaBatchJobExecution);
         return jobExecution;
     }
 
@@ -438,7 +552,9 @@ public class JpaBatchJobExecutionProvider extends QueryDslPagingSupport<JpaBatch
      */
     @Override
     public BatchJobExecution save(BatchJobExecution jobExecution) {
-        return jobExecutionRepository.save((JpaBatchJobExecution) jobExecution);
+        JpaBatchJobExecution savedJobExecution = jobExecutionRepository.save((JpaBatchJobExecution) jobExecution);
+        feedJobCountsProvider.recordJobExecution(savedJobExecution);
+        return savedJobExecution;
     }
 
     @Override
@@ -494,14 +610,8 @@ public class JpaBatchJobExecutionProvider extends QueryDslPagingSupport<JpaBatch
         QJpaBatchJobExecution jobExecution = QJpaBatchJobExecution.jpaBatchJobExecution;
         //if the filter contains a filter on the feed then delegate to the findAllForFeed method to include any check data jobs
         List<SearchCriteria> searchCriterias = GenericQueryDslFilter.parseFilterString(filter);
-        SearchCriteria feedFilter = searchCriterias.stream().map(searchCriteria -> searchCriteria.withKey(CommonFilterTranslations.resolvedFilter(jobExecution, searchCriteria.getKey()))).filter(
-            sc -> sc.getKey().equalsIgnoreCase(CommonFilterTranslations.jobExecutionFeedNameFilterKey)).findFirst().orElse(null);
-        if (feedFilter != null && feedFilter.getPreviousSearchCriteria() != null && !feedFilter.isValueCollection()) {
-            //remove the feed filter from the list and filter by this feed
-            searchCriterias.remove(feedFilter.getPreviousSearchCriteria());
-            String feedValue = feedFilter.getValue().toString();
-            //remove any quotes around the feedValue
-            feedValue = feedValue.replaceAll("^\"|\"$", "");
+        String feedValue = removeFeedFilter(searchCriterias);
+        if (feedValue != null) {
             return findAllForFeed(feedValue, searchCriterias, pageable);
         } else {
             pageable = CommonFilterTranslations.resolveSortFilters(jobExecution, pageable);
@@ -519,6 +629,95 @@ public class JpaBatchJobExecutionProvider extends QueryDslPagingSupport<JpaBatch
 
     }
 
+    /**
+     * Find the job executions matching the filter, newest first, that come after the given start time and job execution id.
+     * The (START_TIME, JOB_EXECUTION_ID) index lets the database seek directly to the page.
+     */
+    @Override
+    public List<? extends BatchJobExecution> findAllAfter(String filter, Long afterStartTime, Long afterJobExecutionId, int limit) {
+        QJpaBatchJobExecution jobExecution = QJpaBatchJobExecution.jpaBatchJobExecution;
+        JPAQuery<JpaBatchJobExecution> query = createFilterQuery(filter, true);
+        query.where(jobExecution.startTimeMillis.isNotNull());
+        if (afterStartTime != null && afterJobExecutionId != null) {
+            query.where(jobExecution.startTimeMillis.lt(afterStartTime)
+                            .or(jobExecution.startTimeMillis.eq(afterStartTime).and(jobExecution.jobExecutionId.lt(afterJobExecutionId))));
+        }
+        return query.orderBy(jobExecution.startTimeMillis.desc(), jobExecution.jobExecutionId.desc())
+            .limit(limit)
+            .fetch();
+    }
+
+    /**
+     * Count the job executions matching the filter, including the check data jobs when filtering by feed
+     */
+    @Override
+    public long count(String filter) {
+        return createFilterQuery(filter, false).fetchCount();
+    }
+
+    /**
+     * Create a query for the job executions matching the filter.
+     * If the filter is on a single feed the check data jobs for that feed are included, the same as {@link #findAll(String, Pageable)}
+     *
+     * @param filter the filter string
+     * @param fetch  true to fetch the job instance, feed and nifi event with the job execution
+     * @return the query
+     */
+    private JPAQuery<JpaBatchJobExecution> createFilterQuery(String filter, boolean fetch) {
+        QJpaBatchJobExecution jobExecution = QJpaBatchJobExecution.jpaBatchJobExecution;
+        QJpaBatchJobInstance jobInstance = new QJpaBatchJobInstance("jobInstance");
+        QJpaOpsManagerFeed feed = new QJpaOpsManagerFeed("feed");
+
+        List<SearchCriteria> searchCriterias = GenericQueryDslFilter.parseFilterString(filter);
+        String feedName = removeFeedFilter(searchCriterias);
+
+        JPAQuery<JpaBatchJobExecution> query = factory.select(jobExecution).from(jobExecution);
+        if (feedName != null) {
+            QJpaOpsManagerFeed checkDataFeed = new QJpaOpsManagerFeed("checkDataFeed");
+            QJpaOpsManagerFeed parentFeed = new QJpaOpsManagerFeed("parentFeed");
+            JPQLQuery checkFeedQuery = JPAExpressions.select(checkDataFeed.id).from(parentFeed).join(parentFeed.checkDataFeeds, checkDataFeed).where(parentFeed.name.eq(feedName));
+
+            query.join(jobExecution.jobInstance, jobInstance)
+                .join(jobInstance.feed, feed)
+                .where((feed.name.eq(feedName).or(feed.id.in(checkFeedQuery)))
+                           .and(GenericQueryDslFilter.buildFilter(jobExecution, searchCriterias)
+                                    .and(augment(feed.id))));
+            if (fetch) {
+                query.fetchAll();
+            }
+        } else {
+            if (fetch) {
+                query.innerJoin(jobExecution.nifiEventJobExecution).fetchJoin()
+                    .innerJoin(jobExecution.jobInstance, jobInstance).fetchJoin()
+                    .innerJoin(jobInstance.feed, feed).fetchJoin();
+            } else {
+                query.innerJoin(jobExecution.nifiEventJobExecution)
+                    .innerJoin(jobExecution.jobInstance, jobInstance)
+                    .innerJoin(jobInstance.feed, feed);
+            }
+            query.where(GenericQueryDslFilter.buildFilter(jobExecution, filter).and(augment(feed.id)));
+        }
+        return query;
+    }
+
+    /**
+     * Remove a filter on a single feed name from the search criteria
+     *
+     * @return the feed name, or null if the criteria do not filter on a single feed
+     */
+    private String removeFeedFilter(List<SearchCriteria> searchCriterias) {
+        QJpaBatchJobExecution jobExecution = QJpaBatchJobExecution.jpaBatchJobExecution;
+        SearchCriteria feedFilter = searchCriterias.stream().map(searchCriteria -> searchCriteria.withKey(CommonFilterTranslations.resolvedFilter(jobExecution, searchCriteria.getKey()))).filter(
+            sc -> sc.getKey().equalsIgnoreCase(CommonFilterTranslations.jobExecutionFeedNameFilterKey)).findFirst().orElse(null);
+        if (feedFilter != null && feedFilter.getPreviousSearchCriteria() != null && !feedFilter.isValueCollection()) {
+            //remove the feed filter from the list and filter by this feed
+            searchCriterias.remove(feedFilter.getPreviousSearchCriteria());
+            //remove any quotes around the feedValue
+            return feedFilter.getValue().toString().replaceAll("^\"|\"$", "");
+        }
+        return null;
+    }
+
     private Predicate augment(QOpsManagerFeedId id) {
         return FeedAclIndexQueryAugmentor.generateExistsExpression(id);
     }
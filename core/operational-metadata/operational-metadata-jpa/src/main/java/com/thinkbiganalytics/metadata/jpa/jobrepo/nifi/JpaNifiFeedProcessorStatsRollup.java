@@ -0,0 +1,359 @@
+package com.thinkbiganalytics.metadata.jpa.jobrepo.nifi;
+
+/*-
+ * #%L
+ * thinkbig-operational-metadata-jpa
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.metadata.api.jobrepo.nifi.NifiFeedProcessorStatisticsProvider.RollupLevel;
+import com.thinkbiganalytics.metadata.api.jobrepo.nifi.NifiFeedProcessorStats;
+
+import org.hibernate.annotations.Type;
+import org.joda.time.DateTime;
+
+import java.io.Serializable;
+
+import javax.persistence.Column;
+import javax.persistence.Embeddable;
+import javax.persistence.EmbeddedId;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Table;
+
+/**
+ * Statistics for a feed and processor summed over a fixed time bucket ({@link RollupLevel}).
+ * Each raw {@link JpaNifiFeedProcessorStats} record is added to the minute, hour and day bucket that contains it as it is saved.
+ */
+@Entity
+@Table(name = "NIFI_FEED_PROCESSOR_STATS_ROLLUP")
+public class JpaNifiFeedProcessorStatsRollup {
+
+    @EmbeddedId
+    private RollupId rollupId;
+
+    @Column(name = "PROCESSOR_NAME")
+    private String processorName;
+
+    @Column(name = "NIFI_FEED_PROCESS_GROUP_ID")
+    private String feedProcessGroupId;
+
+    @Column(name = "DURATION_MILLIS")
+    private Long duration = 0L;
+
+    @Column(name = "BYTES_IN")
+    private Long bytesIn = 0L;
+
+    @Column(name = "BYTES_OUT")
+    private Long bytesOut = 0L;
+
+    @Column(name = "TOTAL_EVENTS")
+    private Long totalCount = 0L;
+
+    @Column(name = "JOBS_STARTED")
+    private Long jobsStarted = 0L;
+
+    @Column(name = "JOBS_FINISHED")
+    private Long jobsFinished = 0L;
+
+    @Column(name = "JOBS_FAILED")
+    private Long jobsFailed = 0L;
+
+    @Column(name = "JOB_DURATION")
+    private Long jobDuration = 0L;
+
+    @Column(name = "SUCCESSFUL_JOB_DURATION")
+    private Long successfulJobDuration = 0L;
+
+    @Column(name = "PROCESSORS_FAILED")
+    private Long processorsFailed = 0L;
+
+    @Column(name = "FLOW_FILES_STARTED")
+    private Long flowFilesStarted = 0L;
+
+    @Column(name = "FLOW_FILES_FINISHED")
+    private Long flowFilesFinished = 0L;
+
+    @Type(type = "org.jadira.usertype.dateandtime.joda.PersistentDateTime")
+    @Column(name = "MIN_EVENT_TIME")
+    private DateTime minEventTime;
+
+    @Type(type = "org.jadira.usertype.dateandtime.joda.PersistentDateTime")
+    @Column(name = "MAX_EVENT_TIME")
+    private DateTime maxEventTime;
+
+    @Column(name = "MAX_EVENT_ID")
+    private Long maxEventId = 0L;
+
+    /**
+     * The number of raw stats records summed into this bucket
+     */
+    @Column(name = "STATS_COUNT")
+    private Long statsCount = 0L;
+
+    public JpaNifiFeedProcessorStatsRollup() {
+
+    }
+
+    public JpaNifiFeedProcessorStatsRollup(RollupId rollupId) {
+        this.rollupId = rollupId;
+    }
+
+    /**
+     * Add a raw stats record to this bucket
+     */
+    public void add(NifiFeedProcessorStats stats) {
+        duration += nullToZero(stats.getDuration());
+        bytesIn += nullToZero(stats.getBytesIn());
+        bytesOut += nullToZero(stats.getBytesOut());
+        totalCount += nullToZero(stats.getTotalCount());
+        jobsStarted += nullToZero(stats.getJobsStarted());
+        jobsFinished += nullToZero(stats.getJobsFinished());
+        jobsFailed += nullToZero(stats.getJobsFailed());
+        jobDuration += nullToZero(stats.getJobDuration());
+        successfulJobDuration += nullToZero(stats.getSuccessfulJobDuration());
+        processorsFailed += nullToZero(stats.getProcessorsFailed());
+        flowFilesStarted += nullToZero(stats.getFlowFilesStarted());
+        flowFilesFinished += nullToZero(stats.getFlowFilesFinished());
+        maxEventId = Math.max(maxEventId, nullToZero(stats.getMaxEventId()));
+        minEventTime = min(minEventTime, stats.getMinEventTime());
+        maxEventTime = max(maxEventTime, stats.getMaxEventTime());
+        statsCount++;
+        if (stats.getProcessorName() != null) {
+            processorName = stats.getProcessorName();
+        }
+        if (stats.getFeedProcessGroupId() != null) {
+            feedProcessGroupId = stats.getFeedProcessGroupId();
+        }
+    }
+
+    /**
+     * Add the values of another bucket for the same feed, processor and time to this bucket
+     */
+    public void add(JpaNifiFeedProcessorStatsRollup other) {
+        duration += other.duration;
+        bytesIn += other.bytesIn;
+        bytesOut += other.bytesOut;
+        totalCount += other.totalCount;
+        jobsStarted += other.jobsStarted;
+        jobsFinished += other.jobsFinished;
+        jobsFailed += other.jobsFailed;
+        jobDuration += other.jobDuration;
+        successfulJobDuration += other.successfulJobDuration;
+        processorsFailed += other.processorsFailed;
+        flowFilesStarted += other.flowFilesStarted;
+        flowFilesFinished += other.flowFilesFinished;
+        maxEventId = Math.max(maxEventId, other.maxEventId);
+        minEventTime = min(minEventTime, other.minEventTime);
+        maxEventTime = max(maxEventTime, other.maxEventTime);
+        statsCount += other.statsCount;
+        if (other.processorName != null) {
+            processorName = other.processorName;
+        }
+        if (other.feedProcessGroupId != null) {
+            feedProcessGroupId = other.feedProcessGroupId;
+        }
+    }
+
+    private static long nullToZero(Long value) {
+        return value != null ? value : 0L;
+    }
+
+    private static DateTime min(DateTime current, DateTime time) {
+        return current == null || (time != null && time.isBefore(current)) ? time : current;
+    }
+
+    private static DateTime max(DateTime current, DateTime time) {
+        return current == null || (time != null && time.isAfter(current)) ? time : current;
+    }
+
+    public RollupId getRollupId() {
+        return rollupId;
+    }
+
+    public void setRollupId(RollupId rollupId) {
+        this.rollupId = rollupId;
+    }
+
+    public String getProcessorName() {
+        return processorName;
+    }
+
+    public String getFeedProcessGroupId() {
+        return feedProcessGroupId;
+    }
+
+    public Long getDuration() {
+        return duration;
+    }
+
+    public Long getBytesIn() {
+        return bytesIn;
+    }
+
+    public Long getBytesOut() {
+        return bytesOut;
+    }
+
+    public Long getTotalCount() {
+        return totalCount;
+    }
+
+    public Long getJobsStarted() {
+        return jobsStarted;
+    }
+
+    public Long getJobsFinished() {
+        return jobsFinished;
+    }
+
+    public Long getJobsFailed() {
+        return jobsFailed;
+    }
+
+    public Long getJobDuration() {
+        return jobDuration;
+    }
+
+    public Long getSuccessfulJobDuration() {
+        return successfulJobDuration;
+    }
+
+    public Long getProcessorsFailed() {
+        return processorsFailed;
+    }
+
+    public Long getFlowFilesStarted() {
+        return flowFilesStarted;
+    }
+
+    public Long getFlowFilesFinished() {
+        return flowFilesFinished;
+    }
+
+    public DateTime getMinEventTime() {
+        return minEventTime;
+    }
+
+    public DateTime getMaxEventTime() {
+        return maxEventTime;
+    }
+
+    public Long getMaxEventId() {
+        return maxEventId;
+    }
+
+    public Long getStatsCount() {
+        return statsCount;
+    }
+
+    /**
+     * Identifies a bucket by its level, start time, feed and processor
+     */
+    @Embeddable
+    public static class RollupId implements Serializable {
+
+        @Enumerated(EnumType.STRING)
+        @Column(name = "ROLLUP_LEVEL", length = 10)
+        private RollupLevel level;
+
+        @Column(name = "BUCKET_TIME_MILLIS")
+        private Long bucketTimeMillis;
+
+        @Column(name = "FM_FEED_NAME")
+        private String feedName;
+
+        @Column(name = "NIFI_PROCESSOR_ID")
+        private String processorId;
+
+        public RollupId() {
+
+        }
+
+        public RollupId(RollupLevel level, Long bucketTimeMillis, String feedName, String processorId) {
+            this.level = level;
+            this.bucketTimeMillis = bucketTimeMillis;
+            this.feedName = feedName;
+            this.processorId = processorId;
+        }
+
+        public RollupLevel getLevel() {
+            return level;
+        }
+
+        public void setLevel(RollupLevel level) {
+            this.level = level;
+        }
+
+        public Long getBucketTimeMillis() {
+            return bucketTimeMillis;
+        }
+
+        public void setBucketTimeMillis(Long bucketTimeMillis) {
+            this.bucketTimeMillis = bucketTimeMillis;
+        }
+
+        public String getFeedName() {
+            return feedName;
+        }
+
+        public void setFeedName(String feedName) {
+            this.feedName = feedName;
+        }
+
+        public String getProcessorId() {
+            return processorId;
+        }
+
+        public void setProcessorId(String processorId) {
+            this.processorId = processorId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+
+            RollupId that = (RollupId) o;
+
+            if (level != that.level) {
+                return false;
+            }
+            if (bucketTimeMillis != null ? !bucketTimeMillis.equals(that.bucketTimeMillis) : that.bucketTimeMillis != null) {
+                return false;
+            }
+            if (feedName != null ? !feedName.equals(that.feedName) : that.feedName != null) {
+                return false;
+            }
+            return processorId != null ? processorId.equals(that.processorId) : that.processorId == null;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = level != null ? level.hashCode() : 0;
+            result = 31 * result + (bucketTimeMillis != null ? bucketTimeMillis.hashCode() : 0);
+            result = 31 * result + (feedName != null ? feedName.hashCode() : 0);
+            result = 31 * result + (processorId != null ? processorId.hashCode() : 0);
+            return result;
+        }
+    }
+}
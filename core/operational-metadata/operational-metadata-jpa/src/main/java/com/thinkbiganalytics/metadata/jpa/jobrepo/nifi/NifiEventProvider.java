@@ -20,6 +20,7 @@ package com.thinkbiganalytics.metadata.jpa.jobrepo.nifi;
  * #L%
  */
 
+import com.google.common.collect.Lists;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import com.thinkbiganalytics.json.ObjectMapperSerializer;
 import com.thinkbiganalytics.metadata.api.common.ItemLastModified;
@@ -31,6 +32,15 @@ import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
 import javax.inject.Inject;
 
 /**
@@ -41,6 +51,11 @@ public class NifiEventProvider {
 
     public static String ITEM_LAST_MODIFIED_KEY = "NIFI_EVENT";
 
+    /**
+     * Maximum number of event ids to include in a single IN clause
+     */
+    private static final int EVENT_QUERY_PARTITION_SIZE = 500;
+
     @Autowired
     private JPAQueryFactory factory;
 
@@ -96,6 +111,47 @@ public class NifiEventProvider {
         return repository.exists(new JpaNifiEvent.NiFiEventPK(eventRecordDTO.getEventId(), eventRecordDTO.getFlowFileUuid()));
     }
 
+    /**
+     * Persist a batch of events.
+     * The last modified event id is updated once per cluster node for the batch rather than for every event
+     *
+     * @param events the events to persist
+     * @return the persisted events keyed by the provenance event they were created from, in the order supplied
+     */
+    public Map<ProvenanceEventRecordDTO, NifiEvent> create(List<ProvenanceEventRecordDTO> events) {
+        Map<ProvenanceEventRecordDTO, NifiEvent> nifiEvents = new LinkedHashMap<>();
+        Map<String, Long> maxEventIdByClusterNode = new HashMap<>();
+        for (ProvenanceEventRecordDTO event : events) {
+            nifiEvents.put(event, toNifiEvent(event));
+            maxEventIdByClusterNode.merge(getLastModifiedKey(event.getClusterNodeId()), event.getEventId(), Math::max);
+        }
+        maxEventIdByClusterNode.forEach((key, eventId) -> itemLastModifiedProvider.update(key, eventId.toString()));
+        repository.save(nifiEvents.values().stream().map(nifiEvent -> (JpaNifiEvent) nifiEvent).collect(Collectors.toList()));
+        return nifiEvents;
+    }
+
+    /**
+     * Return the events that have not already been persisted.
+     * Duplicate events within the supplied list are also removed.
+     *
+     * @param events the events to check
+     * @return the events that are new, in the order supplied
+     */
+    public List<ProvenanceEventRecordDTO> filterNewEvents(List<ProvenanceEventRecordDTO> events) {
+        Set<JpaNifiEvent.NiFiEventPK> existing = new HashSet<>();
+        List<Long> eventIds = events.stream().map(ProvenanceEventRecordDTO::getEventId).distinct().collect(Collectors.toList());
+        for (List<Long> ids : Lists.partition(eventIds, EVENT_QUERY_PARTITION_SIZE)) {
+            existing.addAll(repository.findEventKeys(ids));
+        }
+        List<ProvenanceEventRecordDTO> newEvents = new ArrayList<>();
+        for (ProvenanceEventRecordDTO event : events) {
+            if (existing.add(new JpaNifiEvent.NiFiEventPK(event.getEventId(), event.getFlowFileUuid()))) {
+                newEvents.add(event);
+            }
+        }
+        return newEvents;
+    }
+
 
 
     private String getLastModifiedKey(String clusterId) {
@@ -27,7 +27,9 @@ import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import com.thinkbiganalytics.metadata.api.common.ItemLastModified;
 import com.thinkbiganalytics.metadata.api.common.ItemLastModifiedProvider;
+import com.thinkbiganalytics.metadata.api.jobrepo.nifi.NifiFeedProcessorStatisticsProvider.RollupLevel;
 import com.thinkbiganalytics.metadata.api.jobrepo.nifi.NifiFeedProcessorStats;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.nifi.JpaNifiFeedProcessorStatsRollup.RollupId;
 import com.thinkbiganalytics.metadata.jpa.feed.FeedAclIndexQueryAugmentor;
 import com.thinkbiganalytics.metadata.jpa.feed.QJpaOpsManagerFeed;
 
@@ -36,7 +38,13 @@ import org.joda.time.DateTime;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 
 import javax.inject.Inject;
 
@@ -48,6 +56,11 @@ public class NifiFeedProcessorStatisticsProvider implements com.thinkbiganalytic
 
     public static String ITEM_LAST_MODIFIED_KEY = "NIFI_FEED_PROCESSOR_STATS";
 
+    /**
+     * The minimum number of buckets a time window needs to span before a rollup level is used to answer a query instead of the raw stats
+     */
+    private static final int MIN_BUCKETS_PER_WINDOW = 10;
+
     @Autowired
     private JPAQueryFactory factory;
 
@@ -55,6 +68,14 @@ public class NifiFeedProcessorStatisticsProvider implements com.thinkbiganalytic
 
     private NifiEventRepository nifiEventRepository;
 
+    private NifiFeedProcessorStatsRollupRepository rollupRepository;
+
+    /**
+     * The start time of the earliest bucket for each rollup level.
+     * Rollups are only populated from the time they were introduced, so windows starting before this are answered from the raw stats
+     */
+    private final Map<RollupLevel, Long> rollupStartTimes = new ConcurrentHashMap<>();
+
     @Inject
     private ItemLastModifiedProvider itemLastModifiedProvider;
 
@@ -62,9 +83,11 @@ public class NifiFeedProcessorStatisticsProvider implements com.thinkbiganalytic
     private NifiEventProvider nifiEventProvider;
 
     @Autowired
-    public NifiFeedProcessorStatisticsProvider(NifiFeedProcessorStatisticsRepository repository, NifiEventRepository nifiEventRepository) {
+    public NifiFeedProcessorStatisticsProvider(NifiFeedProcessorStatisticsRepository repository, NifiEventRepository nifiEventRepository,
+                                               NifiFeedProcessorStatsRollupRepository rollupRepository) {
         this.statisticsRepository = repository;
         this.nifiEventRepository = nifiEventRepository;
+        this.rollupRepository = rollupRepository;
     }
 
     private String getLastModifiedKey(String clusterId) {
@@ -80,9 +103,125 @@ public class NifiFeedProcessorStatisticsProvider implements com.thinkbiganalytic
     public NifiFeedProcessorStats create(NifiFeedProcessorStats t) {
         NifiFeedProcessorStats stats =  statisticsRepository.save((JpaNifiFeedProcessorStats) t);
         ItemLastModified lastModified = itemLastModifiedProvider.update(getLastModifiedKey(t.getClusterNodeId()), t.getMaxEventId().toString());
+        rollup(Collections.singletonList(stats));
         return stats;
     }
 
+    @Override
+    public List<? extends NifiFeedProcessorStats> create(List<? extends NifiFeedProcessorStats> stats) {
+        List<JpaNifiFeedProcessorStats> saved = statisticsRepository.save(stats.stream().map(stat -> (JpaNifiFeedProcessorStats) stat).collect(Collectors.toList()));
+        Map<String, Long> maxEventIdByClusterNode = new HashMap<>();
+        for (NifiFeedProcessorStats stat : saved) {
+            if (stat.getMaxEventId() != null) {
+                maxEventIdByClusterNode.merge(getLastModifiedKey(stat.getClusterNodeId()), stat.getMaxEventId(), Math::max);
+            }
+        }
+        maxEventIdByClusterNode.forEach((key, eventId) -> itemLastModifiedProvider.update(key, eventId.toString()));
+        rollup(saved);
+        return saved;
+    }
+
+    /**
+     * Add the raw stats to the minute, hour and day buckets they fall into.
+     * The stats are first summed in memory so each bucket is read and written once, and the existing buckets for a level are found with a single query.
+     *
+     * @param stats the raw stats that were just saved
+     */
+    private void rollup(List<? extends NifiFeedProcessorStats> stats) {
+        for (RollupLevel level : RollupLevel.values()) {
+            Map<RollupId, JpaNifiFeedProcessorStatsRollup> buckets = new HashMap<>();
+            for (NifiFeedProcessorStats stat : stats) {
+                DateTime time = stat.getMinEventTime() != null ? stat.getMinEventTime() : stat.getCollectionTime();
+                if (time != null && stat.getFeedName() != null && stat.getProcessorId() != null) {
+                    RollupId rollupId = new RollupId(level, level.bucketStart(time), stat.getFeedName(), stat.getProcessorId());
+                    buckets.computeIfAbsent(rollupId, JpaNifiFeedProcessorStatsRollup::new).add(stat);
+                }
+            }
+            if (buckets.isEmpty()) {
+                continue;
+            }
+            Map<RollupId, JpaNifiFeedProcessorStatsRollup> existingBuckets = findRollups(level, buckets.keySet());
+            long earliestBucket = Long.MAX_VALUE;
+            for (JpaNifiFeedProcessorStatsRollup bucket : buckets.values()) {
+                JpaNifiFeedProcessorStatsRollup existing = existingBuckets.get(bucket.getRollupId());
+                if (existing != null) {
+                    existing.add(bucket);
+                    rollupRepository.save(existing);
+                } else {
+                    rollupRepository.save(bucket);
+                }
+                earliestBucket = Math.min(earliestBucket, bucket.getRollupId().getBucketTimeMillis());
+            }
+            //late arriving stats can extend the rollups further back
+            final long bucketStart = earliestBucket;
+            rollupStartTimes.computeIfPresent(level, (l, start) -> Math.min(start, bucketStart));
+        }
+    }
+
+    /**
+     * Find the persisted buckets for the given ids
+     */
+    private Map<RollupId, JpaNifiFeedProcessorStatsRollup> findRollups(RollupLevel level, Set<RollupId> rollupIds) {
+        QJpaNifiFeedProcessorStatsRollup rollup = QJpaNifiFeedProcessorStatsRollup.jpaNifiFeedProcessorStatsRollup;
+        Set<Long> bucketTimes = rollupIds.stream().map(RollupId::getBucketTimeMillis).collect(Collectors.toSet());
+        Set<String> feedNames = rollupIds.stream().map(RollupId::getFeedName).collect(Collectors.toSet());
+        Iterable<JpaNifiFeedProcessorStatsRollup> result = rollupRepository.findAll(rollup.rollupId.level.eq(level)
+                                                                                       .and(rollup.rollupId.bucketTimeMillis.in(bucketTimes))
+                                                                                       .and(rollup.rollupId.feedName.in(feedNames)));
+        Map<RollupId, JpaNifiFeedProcessorStatsRollup> rollups = new HashMap<>();
+        for (JpaNifiFeedProcessorStatsRollup found : result) {
+            if (rollupIds.contains(found.getRollupId())) {
+                rollups.put(found.getRollupId(), found);
+            }
+        }
+        return rollups;
+    }
+
+    /**
+     * Determine the coarsest rollup level that can answer a query for the given window.
+     * A level is used when the window spans at least {@link #MIN_BUCKETS_PER_WINDOW} of its buckets and the level has been populated since the start of the window.
+     *
+     * @return the rollup level, or null if the raw stats should be queried
+     */
+    RollupLevel rollupLevelFor(DateTime start, DateTime end) {
+        if (start == null || end == null) {
+            return null;
+        }
+        long window = end.getMillis() - start.getMillis();
+        RollupLevel[] levels = RollupLevel.values();
+        for (int i = levels.length - 1; i >= 0; i--) {
+            RollupLevel level = levels[i];
+            if (level.getMillis() * MIN_BUCKETS_PER_WINDOW <= window && isRolledUpSince(level, start)) {
+                return level;
+            }
+        }
+        return null;
+    }
+
+    private boolean isRolledUpSince(RollupLevel level, DateTime start) {
+        Long rollupStart = rollupStartTimes.get(level);
+        if (rollupStart == null) {
+            rollupStart = rollupRepository.findMinBucketTime(level);
+            if (rollupStart == null) {
+                return false;
+            }
+            rollupStartTimes.put(level, rollupStart);
+        }
+        return rollupStart <= level.bucketStart(start);
+    }
+
+    @Override
+    public int deleteStatisticsBefore(DateTime before) {
+        return statisticsRepository.deleteBefore(before);
+    }
+
+    @Override
+    public int deleteRollupsBefore(RollupLevel level, DateTime before) {
+        int deleted = rollupRepository.deleteBefore(level, level.bucketStart(before));
+        rollupStartTimes.remove(level);
+        return deleted;
+    }
+
     public List<? extends JpaNifiFeedProcessorStats> findFeedProcessorStatisticsByProcessorId(String feedName, TimeFrame timeFrame) {
         DateTime now = DateTime.now();
         return findFeedProcessorStatisticsByProcessorId(feedName, timeFrame.startTimeRelativeTo(now), now);
@@ -138,6 +277,10 @@ public class NifiFeedProcessorStatisticsProvider implements com.thinkbiganalytic
 
     @Override
     public List<? extends JpaNifiFeedProcessorStats> findFeedProcessorStatisticsByProcessorId(String feedName, DateTime start, DateTime end) {
+        RollupLevel level = rollupLevelFor(start, end);
+        if (level != null) {
+            return findRollupStatisticsByProcessorId(feedName, level, start, end);
+        }
         QJpaNifiFeedProcessorStats stats = QJpaNifiFeedProcessorStats.jpaNifiFeedProcessorStats;
         QJpaOpsManagerFeed feed = QJpaOpsManagerFeed.jpaOpsManagerFeed;
         JPAQuery
@@ -165,6 +308,10 @@ public class NifiFeedProcessorStatisticsProvider implements com.thinkbiganalytic
 
     @Override
     public List<? extends JpaNifiFeedProcessorStats> findFeedProcessorStatisticsByProcessorName(String feedName, DateTime start, DateTime end) {
+        RollupLevel level = rollupLevelFor(start, end);
+        if (level != null) {
+            return findRollupStatisticsByProcessorName(feedName, level, start, end);
+        }
         QJpaNifiFeedProcessorStats stats = QJpaNifiFeedProcessorStats.jpaNifiFeedProcessorStats;
 
         QJpaOpsManagerFeed feed = QJpaOpsManagerFeed.jpaOpsManagerFeed;
@@ -192,6 +339,10 @@ public class NifiFeedProcessorStatisticsProvider implements com.thinkbiganalytic
     }
 
     public List<? extends JpaNifiFeedProcessorStats> findForFeedStatisticsGroupedByTime(String feedName, DateTime start, DateTime end) {
+        RollupLevel level = rollupLevelFor(start, end);
+        if (level != null) {
+            return findRollupStatisticsGroupedByTime(feedName, level, start, end);
+        }
         QJpaNifiFeedProcessorStats stats = QJpaNifiFeedProcessorStats.jpaNifiFeedProcessorStats;
 
         QJpaOpsManagerFeed feed = QJpaOpsManagerFeed.jpaOpsManagerFeed;
@@ -221,6 +372,89 @@ public class NifiFeedProcessorStatisticsProvider implements com.thinkbiganalytic
         return (List<JpaNifiFeedProcessorStats>) query.fetch();
     }
 
+    /**
+     * Restrict the rollups to the buckets of the given level that overlap the window.
+     * The first bucket may start before the window, so the result can include up to one bucket of statistics before {@code start}
+     */
+    private Predicate withinRollupWindow(QJpaNifiFeedProcessorStatsRollup rollup, RollupLevel level, DateTime start, DateTime end) {
+        return rollup.rollupId.level.eq(level)
+            .and(rollup.rollupId.bucketTimeMillis.goe(level.bucketStart(start)))
+            .and(rollup.rollupId.bucketTimeMillis.loe(end.getMillis()));
+    }
+
+    private List<? extends JpaNifiFeedProcessorStats> findRollupStatisticsByProcessorId(String feedName, RollupLevel level, DateTime start, DateTime end) {
+        QJpaNifiFeedProcessorStatsRollup rollup = QJpaNifiFeedProcessorStatsRollup.jpaNifiFeedProcessorStatsRollup;
+        QJpaOpsManagerFeed feed = QJpaOpsManagerFeed.jpaOpsManagerFeed;
+        JPAQuery
+            query = factory.select(
+            Projections.bean(JpaNifiFeedProcessorStats.class,
+                             rollup.rollupId.feedName.as("feedName"), rollup.rollupId.processorId.as("processorId"), rollup.processorName,
+                             rollup.bytesIn.sum().as("bytesIn"), rollup.bytesOut.sum().as("bytesOut"), rollup.duration.sum().as("duration"),
+                             rollup.jobsStarted.sum().as("jobsStarted"), rollup.jobsFinished.sum().as("jobsFinished"), rollup.jobDuration.sum().as("jobDuration"),
+                             rollup.flowFilesStarted.sum().as("flowFilesStarted"), rollup.flowFilesFinished.sum().as("flowFilesFinished"), rollup.totalCount.sum().as("totalCount"),
+                             rollup.maxEventTime.max().as("maxEventTime"), rollup.minEventTime.min().as("minEventTime"), rollup.jobsFailed.sum().as("jobsFailed"),
+                             rollup.statsCount.sum().as("resultSetCount"))
+        )
+            .from(rollup)
+            .innerJoin(feed).on(feed.name.eq(rollup.rollupId.feedName))
+            .where(rollup.rollupId.feedName.eq(feedName)
+                       .and(FeedAclIndexQueryAugmentor.generateExistsExpression(feed.id))
+                       .and(withinRollupWindow(rollup, level, start, end)))
+            .groupBy(rollup.rollupId.feedName, rollup.rollupId.processorId, rollup.processorName)
+            .orderBy(rollup.processorName.asc());
+
+        return (List<JpaNifiFeedProcessorStats>) query.fetch();
+    }
+
+    private List<? extends JpaNifiFeedProcessorStats> findRollupStatisticsByProcessorName(String feedName, RollupLevel level, DateTime start, DateTime end) {
+        QJpaNifiFeedProcessorStatsRollup rollup = QJpaNifiFeedProcessorStatsRollup.jpaNifiFeedProcessorStatsRollup;
+        QJpaOpsManagerFeed feed = QJpaOpsManagerFeed.jpaOpsManagerFeed;
+        JPAQuery
+            query = factory.select(
+            Projections.bean(JpaNifiFeedProcessorStats.class,
+                             rollup.rollupId.feedName.as("feedName"), rollup.processorName,
+                             rollup.bytesIn.sum().as("bytesIn"), rollup.bytesOut.sum().as("bytesOut"), rollup.duration.sum().as("duration"),
+                             rollup.jobsStarted.sum().as("jobsStarted"), rollup.jobsFinished.sum().as("jobsFinished"), rollup.jobDuration.sum().as("jobDuration"),
+                             rollup.flowFilesStarted.sum().as("flowFilesStarted"), rollup.flowFilesFinished.sum().as("flowFilesFinished"), rollup.totalCount.sum().as("totalCount"),
+                             rollup.maxEventTime.max().as("maxEventTime"), rollup.minEventTime.min().as("minEventTime"), rollup.jobsFailed.sum().as("jobsFailed"),
+                             rollup.statsCount.sum().as("resultSetCount"))
+        )
+            .from(rollup)
+            .innerJoin(feed).on(feed.name.eq(rollup.rollupId.feedName))
+            .where(rollup.rollupId.feedName.eq(feedName)
+                       .and(FeedAclIndexQueryAugmentor.generateExistsExpression(feed.id))
+                       .and(withinRollupWindow(rollup, level, start, end)))
+            .groupBy(rollup.rollupId.feedName, rollup.processorName)
+            .orderBy(rollup.processorName.asc());
+
+        return (List<JpaNifiFeedProcessorStats>) query.fetch();
+    }
+
+    private List<? extends JpaNifiFeedProcessorStats> findRollupStatisticsGroupedByTime(String feedName, RollupLevel level, DateTime start, DateTime end) {
+        QJpaNifiFeedProcessorStatsRollup rollup = QJpaNifiFeedProcessorStatsRollup.jpaNifiFeedProcessorStatsRollup;
+        QJpaOpsManagerFeed feed = QJpaOpsManagerFeed.jpaOpsManagerFeed;
+        JPAQuery
+            query = factory.select(
+            Projections.bean(JpaNifiFeedProcessorStats.class,
+                             rollup.rollupId.feedName.as("feedName"),
+                             rollup.bytesIn.sum().as("bytesIn"), rollup.bytesOut.sum().as("bytesOut"), rollup.duration.sum().as("duration"),
+                             rollup.jobsStarted.sum().as("jobsStarted"), rollup.jobsFinished.sum().as("jobsFinished"), rollup.jobDuration.sum().as("jobDuration"),
+                             rollup.flowFilesStarted.sum().as("flowFilesStarted"), rollup.flowFilesFinished.sum().as("flowFilesFinished"),
+                             rollup.maxEventTime.max().as("maxEventTime"),
+                             rollup.jobsFailed.sum().as("jobsFailed"), rollup.totalCount.sum().as("totalCount"),
+                             rollup.statsCount.sum().as("resultSetCount"))
+        )
+            .from(rollup)
+            .innerJoin(feed).on(feed.name.eq(rollup.rollupId.feedName))
+            .where(rollup.rollupId.feedName.eq(feedName)
+                       .and(FeedAclIndexQueryAugmentor.generateExistsExpression(feed.id))
+                       .and(withinRollupWindow(rollup, level, start, end)))
+            .groupBy(rollup.rollupId.feedName, rollup.rollupId.bucketTimeMillis)
+            .orderBy(rollup.rollupId.bucketTimeMillis.asc());
+
+        return (List<JpaNifiFeedProcessorStats>) query.fetch();
+    }
+
     public Long findLastProcessedEventId() {
         return findLastProcessedEventId(null);
     }
@@ -24,6 +24,7 @@ import com.thinkbiganalytics.metadata.jpa.feed.security.FeedOpsAccessControlRepo
 
 import org.joda.time.DateTime;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.querydsl.QueryDslPredicateExecutor;
 import org.springframework.data.repository.query.Param;
@@ -48,4 +49,8 @@ public interface NifiFeedProcessorStatisticsRepository extends JpaRepository<Jpa
     @Query(value = "select max(stats.maxEventId) from JpaNifiFeedProcessorStats as stats where stats.clusterNodeId = :clusterNodeId")
     Long findMaxEventId(@Param("clusterNodeId") String clusterNodeId);
 
+    @Modifying
+    @Query(value = "delete from JpaNifiFeedProcessorStats as stats where stats.maxEventTime < :before")
+    int deleteBefore(@Param("before") DateTime before);
+
 }
@@ -0,0 +1,43 @@
+package com.thinkbiganalytics.metadata.jpa.jobrepo.nifi;
+
+/*-
+ * #%L
+ * thinkbig-operational-metadata-jpa
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.metadata.api.jobrepo.nifi.NifiFeedProcessorStatisticsProvider.RollupLevel;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.querydsl.QueryDslPredicateExecutor;
+import org.springframework.data.repository.query.Param;
+
+/**
+ * Spring data repository for {@link JpaNifiFeedProcessorStatsRollup}
+ */
+public interface NifiFeedProcessorStatsRollupRepository
+    extends JpaRepository<JpaNifiFeedProcessorStatsRollup, JpaNifiFeedProcessorStatsRollup.RollupId>, QueryDslPredicateExecutor<JpaNifiFeedProcessorStatsRollup> {
+
+    @Query(value = "select min(rollup.rollupId.bucketTimeMillis) from JpaNifiFeedProcessorStatsRollup as rollup where rollup.rollupId.level = :level")
+    Long findMinBucketTime(@Param("level") RollupLevel level);
+
+    @Modifying
+    @Query(value = "delete from JpaNifiFeedProcessorStatsRollup as rollup where rollup.rollupId.level = :level and rollup.rollupId.bucketTimeMillis < :before")
+    int deleteBefore(@Param("level") RollupLevel level, @Param("before") Long before);
+}
@@ -23,6 +23,7 @@ package com.thinkbiganalytics.metadata.jpa.sla;
  * #L%
  */
 
+import com.thinkbiganalytics.jpa.JsonAttributeConverter;
 import com.thinkbiganalytics.metadata.api.MetadataAccess;
 import com.thinkbiganalytics.metadata.sla.api.AssessmentResult;
 import com.thinkbiganalytics.metadata.sla.api.Metric;
@@ -44,16 +45,25 @@ import com.thinkbiganalytics.metadata.sla.spi.ServiceLevelAssessor;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.inject.Inject;
 
@@ -73,12 +83,27 @@ public class JpaServiceLevelAssessor implements ServiceLevelAssessor {
     @Inject
     private ServiceLevelAgreementProvider agreementProvider;
 
+    /**
+     * Starts a new transaction for each SLA of a batch, suspending the transaction of the caller
+     */
+    private TransactionTemplate agreementTransactionTemplate;
+
 
     private ObligationAssessor<? extends Obligation> defaultObligationAssessor;
 
     private Set<ObligationAssessor<? extends Obligation>> obligationAssessors;
     private Set<MetricAssessor<? extends Metric, ? extends Serializable>> metricAssessors;
 
+    /**
+     * Used to derive the key identifying equal metrics (type and field values) within a batch of assessments
+     */
+    private final JsonAttributeConverter<Metric> metricKeyConverter = new JsonAttributeConverter<>();
+
+    private final AtomicLong assessedAgreements = new AtomicLong();
+    private final AtomicLong evaluatedMetrics = new AtomicLong();
+    private final AtomicLong reusedMetrics = new AtomicLong();
+    private final AtomicLong batchAssessmentMillis = new AtomicLong();
+
 
     public JpaServiceLevelAssessor() {
         this.obligationAssessors = Collections.synchronizedSet(new HashSet<ObligationAssessor<? extends Obligation>>());
@@ -87,6 +112,16 @@ public class JpaServiceLevelAssessor implements ServiceLevelAssessor {
     }
 
 
+    /**
+     * Set the Transaction manager used to assess each SLA of a batch, wiring in the one configured with Hibernate
+     */
+    @Inject
+    public void setTransactionManager(@Qualifier("operationalMetadataTransactionManager") PlatformTransactionManager transactionMgr) {
+        this.agreementTransactionTemplate = new TransactionTemplate(transactionMgr);
+        this.agreementTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+
     /*
     * (non-Javadoc)
     *
@@ -161,66 +196,105 @@ public class JpaServiceLevelAssessor implements ServiceLevelAssessor {
      * @param sla the SLA to be assessed
      */
     public ServiceLevelAssessment assess(ServiceLevelAgreement sla) {
+        return this.metadataAccess.commit(() -> assess(sla, new HashMap<>()), MetadataAccess.SERVICE);
+    }
 
-        log.info("Assessing SLA: {}", sla.getName());
+    /**
+     * Assess a batch of SLAs.  Metrics that are equal across the SLAs in the batch (same type and field values) are only evaluated once
+     * and their outcome is shared by each SLA that references them.  Each SLA is assessed and saved in a new transaction, even when the caller
+     * is already within one, since a nested metadataAccess.commit joins the caller's transaction.  An SLA that fails to be assessed, including failing to be saved,
+     * is logged and left out of the result without rolling back the assessments of the other SLAs or the caller's transaction.
+     *
+     * @param slas the SLAs to be assessed
+     * @return the assessments keyed by the SLA id, in the order of the SLAs
+     */
+    @Override
+    public Map<ID, ServiceLevelAssessment> assess(Collection<? extends ServiceLevelAgreement> slas) {
+        long start = System.currentTimeMillis();
+        long evaluatedBefore = evaluatedMetrics.get();
+        long reusedBefore = reusedMetrics.get();
+
+        Map<String, MetricAssessmentBuilderImpl<?>> sharedMetrics = new HashMap<>();
+        Map<ID, ServiceLevelAssessment> assessments = new LinkedHashMap<>();
+        for (ServiceLevelAgreement sla : slas) {
+            try {
+                assessments.put(sla.getId(), this.metadataAccess.commit(() -> agreementTransactionTemplate.execute(status -> assess(sla, sharedMetrics)),
+                                                                        MetadataAccess.SERVICE));
+            } catch (RuntimeException e) {
+                log.error("Failed to assess SLA {} in batch", sla.getName(), e);
+            }
+        }
 
-        ServiceLevelAssessment assessment = null;
+        long time = System.currentTimeMillis() - start;
+        batchAssessmentMillis.addAndGet(time);
+        log.info("Assessed {} of {} SLAs in {} ms. Evaluated {} metrics, reused {} metric evaluations", assessments.size(), slas.size(), time,
+                 evaluatedMetrics.get() - evaluatedBefore, reusedMetrics.get() - reusedBefore);
+        return assessments;
+    }
 
-        ServiceLevelAgreement serviceLevelAgreement = sla;
-        assessment = this.metadataAccess.commit(() -> {
-            AssessmentResult combinedResult = AssessmentResult.FAILURE;
-            try {
+    /**
+     * Assess the SLA.  Needs to be wrapped in metadataAccess.commit
+     *
+     * @param sla           the SLA to be assessed
+     * @param sharedMetrics the metric evaluations already made in this batch, keyed by the metric
+     */
+    private ServiceLevelAssessment assess(ServiceLevelAgreement sla, Map<String, MetricAssessmentBuilderImpl<?>> sharedMetrics) {
 
-                //create the new Assessment
-                JpaServiceLevelAssessment slaAssessment = new JpaServiceLevelAssessment();
-                slaAssessment.setId(JpaServiceLevelAssessment.SlaAssessmentId.create());
-                slaAssessment.setAgreement(serviceLevelAgreement);
-                List<ObligationGroup> groups = sla.getObligationGroups();
-
-                for (ObligationGroup group : groups) {
-                    Condition condition = group.getCondition();
-                    AssessmentResult groupResult = AssessmentResult.SUCCESS;
-                    Set<ObligationAssessment> obligationAssessments = new HashSet<>();
-                    log.debug("Assessing obligation group {} with {} obligations", group, group.getObligations().size());
-                    for (Obligation ob : group.getObligations()) {
-                        ObligationAssessment obAssessment = assess(ob, slaAssessment);
-                        obligationAssessments.add(obAssessment);
-                        // slaAssessment.add(obAssessment);
-                        groupResult = groupResult.max(obAssessment.getResult());
-                    }
-                    slaAssessment.setObligationAssessments(obligationAssessments);
-
-                    // Short-circuit required or sufficient if necessary.
-                    switch (condition) {
-                        case REQUIRED:
-                            if (groupResult == AssessmentResult.FAILURE) {
-                                return completeAssessment(slaAssessment, groupResult);
-                            }
-                            break;
-                        case SUFFICIENT:
-                            if (groupResult != AssessmentResult.FAILURE) {
-                                return completeAssessment(slaAssessment, groupResult);
-                            }
-                            break;
-                        default:
-                    }
-
-                    // Required condition but non-failure, sufficient condition but non-success, or optional condition:
-                    // continue assessing groups and retain the best of the group results.
-                    combinedResult = combinedResult.min(groupResult);
-                }
+        log.info("Assessing SLA: {}", sla.getName());
 
-                return completeAssessment(slaAssessment, combinedResult);
+        ServiceLevelAgreement serviceLevelAgreement = sla;
+        assessedAgreements.incrementAndGet();
+        AssessmentResult combinedResult = AssessmentResult.FAILURE;
+        try {
+
+            //create the new Assessment
+            JpaServiceLevelAssessment slaAssessment = new JpaServiceLevelAssessment();
+            slaAssessment.setId(JpaServiceLevelAssessment.SlaAssessmentId.create());
+            slaAssessment.setAgreement(serviceLevelAgreement);
+            List<ObligationGroup> groups = sla.getObligationGroups();
+
+            for (ObligationGroup group : groups) {
+                Condition condition = group.getCondition();
+                AssessmentResult groupResult = AssessmentResult.SUCCESS;
+                Set<ObligationAssessment> obligationAssessments = new HashSet<>();
+                log.debug("Assessing obligation group {} with {} obligations", group, group.getObligations().size());
+                for (Obligation ob : group.getObligations()) {
+                    ObligationAssessment obAssessment = assess(ob, slaAssessment, sharedMetrics);
+                    obligationAssessments.add(obAssessment);
+                    // slaAssessment.add(obAssessment);
+                    groupResult = groupResult.max(obAssessment.getResult());
+                }
+                slaAssessment.setObligationAssessments(obligationAssessments);
+
+                // Short-circuit required or sufficient if necessary.
+                switch (condition) {
+                    case REQUIRED:
+                        if (groupResult == AssessmentResult.FAILURE) {
+                            return completeAssessment(slaAssessment, groupResult);
+                        }
+                        break;
+                    case SUFFICIENT:
+                        if (groupResult != AssessmentResult.FAILURE) {
+                            return completeAssessment(slaAssessment, groupResult);
+                        }
+                        break;
+                    default:
+                }
 
-            } finally {
-                log.debug("Completed assessment of SLA {}: {}", sla.getName(), combinedResult);
+                // Required condition but non-failure, sufficient condition but non-success, or optional condition:
+                // continue assessing groups and retain the best of the group results.
+                combinedResult = combinedResult.min(groupResult);
             }
-        }, MetadataAccess.SERVICE);
-        return assessment;
+
+            return completeAssessment(slaAssessment, combinedResult);
+
+        } finally {
+            log.debug("Completed assessment of SLA {}: {}", sla.getName(), combinedResult);
+        }
     }
 
-    private ObligationAssessment assess(Obligation ob, JpaServiceLevelAssessment serviceLevelAssessment) {
-        ObligationAssessmentBuilderImpl builder = new ObligationAssessmentBuilderImpl(ob, serviceLevelAssessment);
+    private ObligationAssessment assess(Obligation ob, JpaServiceLevelAssessment serviceLevelAssessment, Map<String, MetricAssessmentBuilderImpl<?>> sharedMetrics) {
+        ObligationAssessmentBuilderImpl builder = new ObligationAssessmentBuilderImpl(ob, serviceLevelAssessment, sharedMetrics);
         @SuppressWarnings("unchecked")
         ObligationAssessor<Obligation> assessor = (ObligationAssessor<Obligation>) findAssessor(ob);
 
@@ -270,6 +344,41 @@ public class JpaServiceLevelAssessor implements ServiceLevelAssessor {
         throw new AssessorNotFoundException(metric);
     }
 
+    /**
+     * @return the number of SLAs assessed
+     */
+    public long getAssessedAgreementCount() {
+        return assessedAgreements.get();
+    }
+
+    /**
+     * @return the number of metrics evaluated by a metric assessor
+     */
+    public long getEvaluatedMetricCount() {
+        return evaluatedMetrics.get();
+    }
+
+    /**
+     * @return the number of metric assessments that reused an evaluation already made in the same batch
+     */
+    public long getReusedMetricCount() {
+        return reusedMetrics.get();
+    }
+
+    /**
+     * @return the total time, in millis, spent assessing batches of SLAs
+     */
+    public long getBatchAssessmentMillis() {
+        return batchAssessmentMillis.get();
+    }
+
+    /**
+     * @return a key identifying metrics of the same type with the same field values, or null if the metric cannot be serialized
+     */
+    private String metricKey(Metric metric) {
+        return metricKeyConverter.convertToDatabaseColumn(metric);
+    }
+
     private class ObligationAssessmentBuilderImpl implements ObligationAssessmentBuilder {
 
         private Obligation obligation;
@@ -281,9 +390,12 @@ public class JpaServiceLevelAssessor implements ServiceLevelAssessor {
 
         private JpaObligationAssessment assessment;
 
-        public ObligationAssessmentBuilderImpl(Obligation obligation, JpaServiceLevelAssessment serviceLevelAssessment) {
+        private Map<String, MetricAssessmentBuilderImpl<?>> sharedMetrics;
+
+        public ObligationAssessmentBuilderImpl(Obligation obligation, JpaServiceLevelAssessment serviceLevelAssessment, Map<String, MetricAssessmentBuilderImpl<?>> sharedMetrics) {
 
             this.obligation = obligation;
+            this.sharedMetrics = sharedMetrics;
             this.assessment = new JpaObligationAssessment();
             this.assessment.setObligation(obligation);
             this.serviceLevelAssessment = serviceLevelAssessment;
@@ -328,10 +440,22 @@ public class JpaServiceLevelAssessor implements ServiceLevelAssessor {
 
         @Override
         public <M extends Metric> MetricAssessment<?> assess(M metric) {
+            String key = metricKey(metric);
+            MetricAssessmentBuilderImpl<?> shared = key != null ? sharedMetrics.get(key) : null;
+            if (shared != null) {
+                // the same metric was already evaluated for another SLA in this batch
+                reusedMetrics.incrementAndGet();
+                return shared.copy(metric, this.assessment).build();
+            }
+
             MetricAssessor<M, ?> assessor = findAssessor(metric);
             MetricAssessmentBuilderImpl builder = new MetricAssessmentBuilderImpl(metric, this.assessment);
 
             assessor.assess(metric, builder);
+            evaluatedMetrics.incrementAndGet();
+            if (key != null) {
+                sharedMetrics.put(key, builder);
+            }
             MetricAssessment<?> metricAssmt = builder.build();
             return metricAssmt;
         }
@@ -425,6 +549,19 @@ public class JpaServiceLevelAssessor implements ServiceLevelAssessor {
         }
 
 
+        /**
+         * @return a new builder with the outcome of this one for the metric of another obligation assessment
+         */
+        protected MetricAssessmentBuilderImpl<D> copy(Metric metric, JpaObligationAssessment obligationAssessment) {
+            MetricAssessmentBuilderImpl<D> copy = new MetricAssessmentBuilderImpl<>(metric, obligationAssessment);
+            copy.message = this.message;
+            copy.result = this.result;
+            copy.data = this.data;
+            copy.comparator = this.comparator;
+            copy.comparables = this.comparables;
+            return copy;
+        }
+
         protected MetricAssessment build() {
             JpaMetricAssessment<D> assessment = new JpaMetricAssessment<>();
             assessment.setMetric(this.metric);
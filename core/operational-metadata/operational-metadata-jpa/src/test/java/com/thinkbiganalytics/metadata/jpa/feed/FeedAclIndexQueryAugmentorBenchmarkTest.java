@@ -0,0 +1,163 @@
+package com.thinkbiganalytics.metadata.jpa.feed;
+
+/*-
+ * #%L
+ * thinkbig-operational-metadata-jpa
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.metadata.api.MetadataAccess;
+import com.thinkbiganalytics.metadata.api.feed.OpsManagerFeed;
+import com.thinkbiganalytics.metadata.api.feed.OpsManagerFeedProvider;
+import com.thinkbiganalytics.metadata.api.jobrepo.job.JobStatusCount;
+import com.thinkbiganalytics.metadata.config.OperationalMetadataConfig;
+import com.thinkbiganalytics.metadata.core.feed.BaseFeed;
+import com.thinkbiganalytics.metadata.jpa.TestJpaConfiguration;
+import com.thinkbiganalytics.metadata.jpa.feed.security.FeedAclCache;
+import com.thinkbiganalytics.metadata.jpa.feed.security.FeedOpsAccessControlRepository;
+import com.thinkbiganalytics.metadata.jpa.feed.security.JpaFeedOpsAclEntry;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.job.JpaBatchJobExecutionProvider;
+import com.thinkbiganalytics.nifi.provenance.model.ProvenanceEventRecordDTO;
+import com.thinkbiganalytics.spring.CommonsSpringConfiguration;
+import com.thinkbiganalytics.test.security.WithMockJaasUser;
+
+import org.joda.time.DateTime;
+import org.junit.Assert;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import javax.inject.Inject;
+
+/**
+ * Compares the secured job queries using the correlated {@code EXISTS} subquery against those filtering with the cached accessible feed ids.
+ *
+ * Ignored as it creates a large number of jobs; run it manually and compare the logged timings.
+ */
+@Ignore
+@RunWith(SpringJUnit4ClassRunner.class)
+@TestPropertySource(locations = "classpath:test-application.properties")
+@SpringApplicationConfiguration(classes = {CommonsSpringConfiguration.class, OperationalMetadataConfig.class, TestJpaConfiguration.class})
+public class FeedAclIndexQueryAugmentorBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(FeedAclIndexQueryAugmentorBenchmarkTest.class);
+
+    private static final int FEEDS = 200;
+
+    private static final int JOBS_PER_FEED = 50;
+
+    private static final int ITERATIONS = 20;
+
+    private final AtomicLong eventIds = new AtomicLong(100000L);
+
+    @Inject
+    private JpaBatchJobExecutionProvider jobExecutionProvider;
+
+    @Inject
+    private OpsManagerFeedProvider feedProvider;
+
+    @Inject
+    private FeedOpsAccessControlRepository aclRepo;
+
+    @Inject
+    private FeedAclCache feedAclCache;
+
+    @Inject
+    private MetadataAccess metadataAccess;
+
+    @WithMockJaasUser(username = "dladmin",
+                      password = "secret",
+                      authorities = {"admin", "user"})
+    @Test
+    public void testSecuredJobQueries() {
+        //half of the feeds are accessible to the admin group, the others only to another group
+        for (int f = 0; f < FEEDS; f++) {
+            String feedName = "bench.feed_" + f + "_" + UUID.randomUUID().toString().replace("-", "");
+            OpsManagerFeed feed = metadataAccess.commit(() -> feedProvider.save(OpsManagerFeedId.create(), feedName), MetadataAccess.SERVICE);
+            String group = f % 2 == 0 ? "admin" : "operators";
+            aclRepo.save(new JpaFeedOpsAclEntry(new BaseFeed.FeedId(feed.getId().toString()), group, JpaFeedOpsAclEntry.PrincipalType.GROUP));
+
+            metadataAccess.commit(() -> {
+                for (int j = 0; j < JOBS_PER_FEED; j++) {
+                    jobExecutionProvider.getOrCreateJobExecution(newEvent(feedName));
+                }
+            }, MetadataAccess.SERVICE);
+        }
+
+        FeedAclIndexQueryAugmentor.setFeedAclCache(null, 0);
+        long existsPageMillis = time(() -> jobExecutionProvider.findAll(null, new PageRequest(0, 50)).getTotalElements());
+        long existsCountMillis = time(() -> (long) jobExecutionProvider.getJobStatusCount(null).size());
+        Long existsTotal = metadataAccess.read(() -> jobExecutionProvider.findAll(null, new PageRequest(0, 50)).getTotalElements());
+        List<String> existsCounts = metadataAccess.read(() -> toStrings(jobExecutionProvider.getJobStatusCount(null)));
+
+        FeedAclIndexQueryAugmentor.setFeedAclCache(feedAclCache, FEEDS);
+        long cachedPageMillis = time(() -> jobExecutionProvider.findAll(null, new PageRequest(0, 50)).getTotalElements());
+        long cachedCountMillis = time(() -> (long) jobExecutionProvider.getJobStatusCount(null).size());
+        Long cachedTotal = metadataAccess.read(() -> jobExecutionProvider.findAll(null, new PageRequest(0, 50)).getTotalElements());
+        List<String> cachedCounts = metadataAccess.read(() -> toStrings(jobExecutionProvider.getJobStatusCount(null)));
+
+        log.info("{} jobs over {} feeds, {} iterations. Job page: exists {} ms, cached ids {} ms. Job status counts: exists {} ms, cached ids {} ms. Cache hits {}, misses {}",
+                 FEEDS * JOBS_PER_FEED, FEEDS, ITERATIONS, existsPageMillis, cachedPageMillis, existsCountMillis, cachedCountMillis, feedAclCache.getHitCount(),
+                 feedAclCache.getMissCount());
+
+        Assert.assertEquals(Long.valueOf((FEEDS / 2) * JOBS_PER_FEED), existsTotal);
+        Assert.assertEquals(existsTotal, cachedTotal);
+        Assert.assertEquals(existsCounts, cachedCounts);
+    }
+
+    private long time(Supplier<Long> query) {
+        //warm up
+        metadataAccess.read(() -> query.get());
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < ITERATIONS; i++) {
+            metadataAccess.read(() -> query.get());
+        }
+        return System.currentTimeMillis() - start;
+    }
+
+    private List<String> toStrings(List<JobStatusCount> counts) {
+        return counts.stream().map(c -> c.getStatus() + "=" + c.getCount()).sorted().collect(Collectors.toList());
+    }
+
+    private ProvenanceEventRecordDTO newEvent(String feedName) {
+        String jobFlowFileId = UUID.randomUUID().toString();
+        ProvenanceEventRecordDTO event = new ProvenanceEventRecordDTO();
+        event.setEventId(eventIds.incrementAndGet());
+        event.setFeedName(feedName);
+        event.setFlowFileUuid(jobFlowFileId);
+        event.setJobFlowFileId(jobFlowFileId);
+        event.setComponentId(UUID.randomUUID().toString());
+        event.setEventType("CREATE");
+        event.setEventTime(DateTime.now());
+        event.setIsStartOfJob(true);
+        event.setIsEndOfJob(false);
+        event.setIsBatchJob(true);
+        return event;
+    }
+}
@@ -0,0 +1,140 @@
+package com.thinkbiganalytics.metadata.jpa.feed;
+
+/*-
+ * #%L
+ * thinkbig-operational-metadata-jpa
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.metadata.api.MetadataAccess;
+import com.thinkbiganalytics.metadata.api.feed.OpsManagerFeed;
+import com.thinkbiganalytics.metadata.api.feed.OpsManagerFeedProvider;
+import com.thinkbiganalytics.metadata.api.jobrepo.ExecutionConstants;
+import com.thinkbiganalytics.metadata.api.jobrepo.job.BatchJobExecution;
+import com.thinkbiganalytics.metadata.config.OperationalMetadataConfig;
+import com.thinkbiganalytics.metadata.jpa.TestJpaConfiguration;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.job.JpaBatchJobExecutionProvider;
+import com.thinkbiganalytics.nifi.provenance.model.ProvenanceEventRecordDTO;
+import com.thinkbiganalytics.spring.CommonsSpringConfiguration;
+import com.thinkbiganalytics.test.security.WithMockJaasUser;
+
+import org.joda.time.DateTime;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.inject.Inject;
+
+/**
+ * Verifies the feed job counts are kept up to date as jobs are created and finished, and that reconciling rebuilds them from the job history.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@TestPropertySource(locations = "classpath:test-application.properties")
+@SpringApplicationConfiguration(classes = {CommonsSpringConfiguration.class, OperationalMetadataConfig.class, TestJpaConfiguration.class})
+public class JpaBatchFeedJobCountsProviderTest {
+
+    private final AtomicLong eventIds = new AtomicLong(5000L);
+
+    @Inject
+    private JpaBatchJobExecutionProvider jobExecutionProvider;
+
+    @Inject
+    private JpaBatchFeedJobCountsProvider feedJobCountsProvider;
+
+    @Inject
+    private BatchFeedJobCountsRepository countsRepository;
+
+    @Inject
+    private OpsManagerFeedProvider feedProvider;
+
+    @Inject
+    private MetadataAccess metadataAccess;
+
+    @Test
+    public void testCountFlags() {
+        Assert.assertEquals(JpaBatchFeedJobCounts.RUNNING, JpaBatchFeedJobCounts.countFlags(BatchJobExecution.JobStatus.STARTED, ExecutionConstants.ExitCode.EXECUTING));
+        Assert.assertEquals(JpaBatchFeedJobCounts.COMPLETED, JpaBatchFeedJobCounts.countFlags(BatchJobExecution.JobStatus.COMPLETED, ExecutionConstants.ExitCode.COMPLETED));
+        Assert.assertEquals(JpaBatchFeedJobCounts.FAILED, JpaBatchFeedJobCounts.countFlags(BatchJobExecution.JobStatus.FAILED, ExecutionConstants.ExitCode.FAILED));
+        Assert.assertEquals(JpaBatchFeedJobCounts.FAILED, JpaBatchFeedJobCounts.countFlags(BatchJobExecution.JobStatus.COMPLETED, ExecutionConstants.ExitCode.FAILED));
+        Assert.assertEquals(0, JpaBatchFeedJobCounts.countFlags(BatchJobExecution.JobStatus.COMPLETED, ExecutionConstants.ExitCode.WARNING));
+        Assert.assertEquals(JpaBatchFeedJobCounts.ABANDONED, JpaBatchFeedJobCounts.countFlags(BatchJobExecution.JobStatus.ABANDONED, ExecutionConstants.ExitCode.FAILED));
+
+        int failed = JpaBatchFeedJobCounts.countFlags(BatchJobExecution.JobStatus.FAILED, ExecutionConstants.ExitCode.FAILED);
+        int abandoned = JpaBatchFeedJobCounts.countFlags(BatchJobExecution.JobStatus.ABANDONED, ExecutionConstants.ExitCode.FAILED);
+        Assert.assertEquals(-1, JpaBatchFeedJobCounts.delta(failed, abandoned, JpaBatchFeedJobCounts.FAILED));
+        Assert.assertEquals(1, JpaBatchFeedJobCounts.delta(failed, abandoned, JpaBatchFeedJobCounts.ABANDONED));
+        Assert.assertEquals(0, JpaBatchFeedJobCounts.delta(failed, abandoned, JpaBatchFeedJobCounts.COMPLETED));
+    }
+
+    @WithMockJaasUser(username = "dladmin",
+                      password = "secret",
+                      authorities = {"admin", "user"})
+    @Test
+    public void testIncrementalCountsAndReconcile() {
+        String feedName = "counts.feed_" + UUID.randomUUID().toString().replace("-", "");
+        OpsManagerFeed feed = metadataAccess.commit(() -> feedProvider.save(OpsManagerFeedId.create(), feedName), MetadataAccess.SERVICE);
+        UUID feedId = UUID.fromString(feed.getId().toString());
+
+        //a job that starts and finishes
+        String firstFlowFile = UUID.randomUUID().toString();
+        BatchJobExecution firstJob = metadataAccess.commit(() -> jobExecutionProvider.getOrCreateJobExecution(newEvent(feedName, firstFlowFile, true, false)), MetadataAccess.SERVICE);
+        metadataAccess.commit(() -> jobExecutionProvider.getOrCreateJobExecution(newEvent(feedName, firstFlowFile, false, true)), MetadataAccess.SERVICE);
+
+        //a job that is still running
+        String secondFlowFile = UUID.randomUUID().toString();
+        BatchJobExecution secondJob = metadataAccess.commit(() -> jobExecutionProvider.getOrCreateJobExecution(newEvent(feedName, secondFlowFile, true, false)), MetadataAccess.SERVICE);
+
+        JpaBatchFeedJobCounts counts = metadataAccess.read(() -> countsRepository.findOne(new JpaBatchFeedJobCounts.BatchFeedJobCountsFeedId(feedId)), MetadataAccess.SERVICE);
+        Assert.assertEquals(Long.valueOf(2), counts.getAllCount());
+        Assert.assertEquals(Long.valueOf(1), counts.getRunningCount());
+        Assert.assertEquals(Long.valueOf(1), counts.getCompletedCount());
+        Assert.assertEquals(Long.valueOf(0), counts.getFailedCount());
+        Assert.assertEquals(Long.valueOf(0), counts.getAbandonedCount());
+        Assert.assertEquals(secondJob.getJobExecutionId(), counts.getLatestJobExecutionId());
+        Assert.assertEquals(firstJob.getJobExecutionId(), counts.getLatestFinishedJobExecutionId());
+
+        //the incremental counts match the history
+        Assert.assertFalse(metadataAccess.commit(() -> feedJobCountsProvider.reconcile(feed.getId()), MetadataAccess.SERVICE));
+
+        //drift is corrected by the reconciliation
+        metadataAccess.commit(() -> countsRepository.incrementCounts(feedId, 5L, 1L, 1L, 0L, 0L), MetadataAccess.SERVICE);
+        Assert.assertTrue(metadataAccess.commit(() -> feedJobCountsProvider.reconcile(feed.getId()), MetadataAccess.SERVICE));
+        JpaBatchFeedJobCounts reconciled = metadataAccess.read(() -> countsRepository.findOne(new JpaBatchFeedJobCounts.BatchFeedJobCountsFeedId(feedId)), MetadataAccess.SERVICE);
+        Assert.assertTrue(counts.isSameAs(reconciled));
+    }
+
+    private ProvenanceEventRecordDTO newEvent(String feedName, String jobFlowFileId, boolean startOfJob, boolean endOfJob) {
+        ProvenanceEventRecordDTO event = new ProvenanceEventRecordDTO();
+        event.setEventId(eventIds.incrementAndGet());
+        event.setFeedName(feedName);
+        event.setFlowFileUuid(jobFlowFileId);
+        event.setJobFlowFileId(jobFlowFileId);
+        event.setComponentId(UUID.randomUUID().toString());
+        event.setEventType(startOfJob ? "CREATE" : "DROP");
+        event.setEventTime(DateTime.now());
+        event.setIsStartOfJob(startOfJob);
+        event.setIsEndOfJob(endOfJob);
+        event.setIsBatchJob(true);
+        return event;
+    }
+}
@@ -0,0 +1,84 @@
+package com.thinkbiganalytics.metadata.jpa.feed.security;
+
+/*-
+ * #%L
+ * kylo-operational-metadata-jpa
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.collect.ImmutableSet;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.UUID;
+
+public class FeedAclCacheTest {
+
+    private static final UUID FEED1 = UUID.randomUUID();
+
+    private static final UUID FEED2 = UUID.randomUUID();
+
+    private FeedOpsAccessControlRepository repository;
+
+    private FeedAclCache cache;
+
+    @Before
+    public void setUp() {
+        repository = Mockito.mock(FeedOpsAccessControlRepository.class);
+        Mockito.when(repository.findFeedIdsForUser("user1")).thenReturn(Collections.singleton(FEED1));
+        Mockito.when(repository.findFeedIdsForPrincipals(Mockito.eq("user1"), Mockito.anySetOf(String.class))).thenReturn(ImmutableSet.of(FEED1, FEED2));
+        cache = new FeedAclCache(repository, 60, 100);
+    }
+
+    @Test
+    public void testCachesFeedIds() {
+        Set<UUID> first = cache.getAccessibleFeedIds("user1", ImmutableSet.of("admin", "user"));
+        Set<UUID> second = cache.getAccessibleFeedIds("user1", ImmutableSet.of("user", "admin"));
+
+        Assert.assertEquals(ImmutableSet.of(FEED1, FEED2), first);
+        Assert.assertEquals(first, second);
+        Assert.assertEquals(1, cache.getMissCount());
+        Assert.assertEquals(1, cache.getHitCount());
+        Mockito.verify(repository, Mockito.times(1)).findFeedIdsForPrincipals(Mockito.eq("user1"), Mockito.anySetOf(String.class));
+    }
+
+    @Test
+    public void testUserWithoutGroups() {
+        Assert.assertEquals(Collections.singleton(FEED1), cache.getAccessibleFeedIds("user1", null));
+        Assert.assertEquals(Collections.singleton(FEED1), cache.getAccessibleFeedIds("user1", Collections.emptySet()));
+
+        Mockito.verify(repository, Mockito.times(1)).findFeedIdsForUser("user1");
+        Mockito.verify(repository, Mockito.never()).findFeedIdsForPrincipals(Mockito.anyString(), Mockito.anySetOf(String.class));
+    }
+
+    @Test
+    public void testInvalidate() {
+        cache.getAccessibleFeedIds("user1", ImmutableSet.of("admin"));
+        Mockito.when(repository.findFeedIdsForPrincipals(Mockito.eq("user1"), Mockito.anySetOf(String.class))).thenReturn(Collections.emptySet());
+
+        //the cached ids are used until the cache is invalidated
+        Assert.assertEquals(2, cache.getAccessibleFeedIds("user1", ImmutableSet.of("admin")).size());
+        cache.invalidate();
+        Assert.assertTrue(cache.getAccessibleFeedIds("user1", ImmutableSet.of("admin")).isEmpty());
+        Assert.assertEquals(2, cache.getMissCount());
+    }
+}
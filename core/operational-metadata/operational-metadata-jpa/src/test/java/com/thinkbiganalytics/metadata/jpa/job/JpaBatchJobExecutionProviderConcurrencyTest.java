@@ -0,0 +1,157 @@
+package com.thinkbiganalytics.metadata.jpa.job;
+
+/*-
+ * #%L
+ * thinkbig-operational-metadata-jpa
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.metadata.api.MetadataAccess;
+import com.thinkbiganalytics.metadata.api.jobrepo.job.BatchJobExecution;
+import com.thinkbiganalytics.metadata.config.OperationalMetadataConfig;
+import com.thinkbiganalytics.metadata.jpa.TestJpaConfiguration;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.job.JpaBatchJobExecutionProvider;
+import com.thinkbiganalytics.nifi.provenance.model.ProvenanceEventRecordDTO;
+import com.thinkbiganalytics.spring.CommonsSpringConfiguration;
+import com.thinkbiganalytics.test.security.WithMockJaasUser;
+
+import org.joda.time.DateTime;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.inject.Inject;
+
+/**
+ * Drives events for many feeds through {@link JpaBatchJobExecutionProvider#getOrCreateJobExecution(ProvenanceEventRecordDTO)} from several threads at once
+ * and verifies that only a single job execution is created for each job flow file.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@TestPropertySource(locations = "classpath:test-application.properties")
+@SpringApplicationConfiguration(classes = {CommonsSpringConfiguration.class, OperationalMetadataConfig.class, TestJpaConfiguration.class})
+public class JpaBatchJobExecutionProviderConcurrencyTest {
+
+    private static final int FEEDS = 25;
+
+    private static final int FLOW_FILES_PER_FEED = 2;
+
+    private static final int EVENTS_PER_FLOW_FILE = 8;
+
+    private static final int THREADS = 16;
+
+    private final AtomicLong eventIds = new AtomicLong(1000L);
+
+    @Inject
+    private JpaBatchJobExecutionProvider jobExecutionProvider;
+
+    @Inject
+    private MetadataAccess metadataAccess;
+
+    @WithMockJaasUser(username = "dladmin",
+                      password = "secret",
+                      authorities = {"admin", "user"})
+    @Test
+    public void testOneJobPerFlowFile() throws Exception {
+        List<ProvenanceEventRecordDTO> events = new ArrayList<>();
+        for (int feed = 0; feed < FEEDS; feed++) {
+            String feedName = "concurrency.feed_" + feed;
+            for (int flowFile = 0; flowFile < FLOW_FILES_PER_FEED; flowFile++) {
+                String jobFlowFileId = UUID.randomUUID().toString();
+                for (int event = 0; event < EVENTS_PER_FLOW_FILE; event++) {
+                    events.add(newEvent(feedName, jobFlowFileId, event == 0));
+                }
+            }
+        }
+        //interleave the events so threads compete for the same flow files
+        Collections.shuffle(events);
+
+        SecurityContext securityContext = SecurityContextHolder.getContext();
+        Map<String, Set<Long>> jobExecutionIdsByFlowFile = new ConcurrentHashMap<>();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<BatchJobExecution>> results = new ArrayList<>();
+        try {
+            for (ProvenanceEventRecordDTO event : events) {
+                results.add(executor.submit((Callable<BatchJobExecution>) () -> {
+                    SecurityContextHolder.setContext(securityContext);
+                    start.await();
+                    BatchJobExecution jobExecution = metadataAccess.commit(() -> jobExecutionProvider.getOrCreateJobExecution(event), MetadataAccess.SERVICE);
+                    jobExecutionIdsByFlowFile.computeIfAbsent(event.getJobFlowFileId(), id -> ConcurrentHashMap.newKeySet()).add(jobExecution.getJobExecutionId());
+                    return jobExecution;
+                }));
+            }
+            start.countDown();
+            for (Future<BatchJobExecution> result : results) {
+                //any duplicate job execution would fail the commit on the BATCH_NIFI_JOB primary key
+                Assert.assertNotNull(result.get(60, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Assert.assertEquals(FEEDS * FLOW_FILES_PER_FEED, jobExecutionIdsByFlowFile.size());
+        Set<Long> allJobExecutionIds = new HashSet<>();
+        for (Map.Entry<String, Set<Long>> entry : jobExecutionIdsByFlowFile.entrySet()) {
+            Assert.assertEquals("Expected a single job for flow file " + entry.getKey(), 1, entry.getValue().size());
+            allJobExecutionIds.addAll(entry.getValue());
+        }
+        Assert.assertEquals(FEEDS * FLOW_FILES_PER_FEED, allJobExecutionIds.size());
+
+        //the batch lookup should agree with what was created
+        Map<String, BatchJobExecution> persisted = metadataAccess.read(() -> new HashMap<>(jobExecutionProvider.findJobExecutionsByFlowFiles(jobExecutionIdsByFlowFile.keySet())),
+                                                                       MetadataAccess.SERVICE);
+        for (Map.Entry<String, Set<Long>> entry : jobExecutionIdsByFlowFile.entrySet()) {
+            Assert.assertEquals(entry.getValue().iterator().next(), persisted.get(entry.getKey()).getJobExecutionId());
+        }
+    }
+
+    private ProvenanceEventRecordDTO newEvent(String feedName, String jobFlowFileId, boolean startOfJob) {
+        ProvenanceEventRecordDTO event = new ProvenanceEventRecordDTO();
+        event.setEventId(eventIds.incrementAndGet());
+        event.setFeedName(feedName);
+        event.setFlowFileUuid(jobFlowFileId);
+        event.setJobFlowFileId(jobFlowFileId);
+        event.setComponentId(UUID.randomUUID().toString());
+        event.setEventType(startOfJob ? "CREATE" : "ATTRIBUTES_MODIFIED");
+        event.setEventTime(DateTime.now());
+        event.setIsStartOfJob(startOfJob);
+        event.setIsBatchJob(true);
+        return event;
+    }
+}
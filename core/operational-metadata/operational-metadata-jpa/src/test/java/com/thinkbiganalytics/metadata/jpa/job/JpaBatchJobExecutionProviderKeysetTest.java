@@ -0,0 +1,186 @@
+package com.thinkbiganalytics.metadata.jpa.job;
+
+/*-
+ * #%L
+ * thinkbig-operational-metadata-jpa
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.metadata.api.MetadataAccess;
+import com.thinkbiganalytics.metadata.api.feed.OpsManagerFeed;
+import com.thinkbiganalytics.metadata.api.feed.OpsManagerFeedProvider;
+import com.thinkbiganalytics.metadata.api.jobrepo.job.BatchJobExecution;
+import com.thinkbiganalytics.metadata.config.OperationalMetadataConfig;
+import com.thinkbiganalytics.metadata.core.feed.BaseFeed;
+import com.thinkbiganalytics.metadata.jpa.TestJpaConfiguration;
+import com.thinkbiganalytics.metadata.jpa.feed.JpaOpsManagerFeed;
+import com.thinkbiganalytics.metadata.jpa.feed.OpsManagerFeedId;
+import com.thinkbiganalytics.metadata.jpa.feed.security.FeedOpsAccessControlRepository;
+import com.thinkbiganalytics.metadata.jpa.feed.security.JpaFeedOpsAclEntry;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.job.JpaBatchJobExecutionProvider;
+import com.thinkbiganalytics.nifi.provenance.model.ProvenanceEventRecordDTO;
+import com.thinkbiganalytics.spring.CommonsSpringConfiguration;
+import com.thinkbiganalytics.test.security.WithMockJaasUser;
+
+import org.joda.time.DateTime;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import javax.inject.Inject;
+
+/**
+ * Verifies the keyset paging of job executions by (START_TIME, JOB_EXECUTION_ID), newest first.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@TestPropertySource(locations = "classpath:test-application.properties")
+@SpringApplicationConfiguration(classes = {CommonsSpringConfiguration.class, OperationalMetadataConfig.class, TestJpaConfiguration.class})
+public class JpaBatchJobExecutionProviderKeysetTest {
+
+    private final AtomicLong eventIds = new AtomicLong(7000L);
+
+    @Inject
+    private JpaBatchJobExecutionProvider jobExecutionProvider;
+
+    @Inject
+    private OpsManagerFeedProvider feedProvider;
+
+    @Inject
+    private FeedOpsAccessControlRepository aclRepo;
+
+    @Inject
+    private MetadataAccess metadataAccess;
+
+    @WithMockJaasUser(username = "dladmin",
+                      password = "secret",
+                      authorities = {"admin", "user"})
+    @Test
+    public void testFindAllAfterForFeed() {
+        String suffix = UUID.randomUUID().toString().replace("-", "");
+        String feedName = "keyset.feed_" + suffix;
+        OpsManagerFeed feed = createFeed(feedName);
+        OpsManagerFeed checkFeed = createFeed("keyset.check_" + suffix);
+        metadataAccess.commit(() -> {
+            JpaOpsManagerFeed parent = (JpaOpsManagerFeed) feedProvider.findById(feed.getId());
+            parent.getCheckDataFeeds().add(feedProvider.findById(checkFeed.getId()));
+            feedProvider.save(Collections.singletonList(parent));
+        }, MetadataAccess.SERVICE);
+
+        //three jobs start at the same time so the job execution id breaks the tie
+        DateTime time = new DateTime(2017, 6, 1, 12, 0);
+        Long newest = createJob(feedName, time.plusMinutes(3));
+        Long check = createJob(checkFeed.getName(), time.plusMinutes(2));
+        Long tie1 = createJob(feedName, time.plusMinutes(1));
+        Long tie2 = createJob(feedName, time.plusMinutes(1));
+        Long tie3 = createJob(feedName, time.plusMinutes(1));
+        Long oldest = createJob(feedName, time);
+        createFeed("keyset.other_" + suffix);
+        createJob("keyset.other_" + suffix, time.plusMinutes(4));
+
+        String filter = "feedName==" + feedName;
+        List<? extends BatchJobExecution> firstPage = findAllAfter(filter, null, 3);
+        Assert.assertEquals(Arrays.asList(newest, check, tie3), ids(firstPage));
+
+        //the next page starts within the jobs sharing a start time
+        List<? extends BatchJobExecution> secondPage = findAllAfter(filter, firstPage.get(2), 3);
+        Assert.assertEquals(Arrays.asList(tie2, tie1, oldest), ids(secondPage));
+
+        Assert.assertTrue(findAllAfter(filter, secondPage.get(2), 3).isEmpty());
+        Assert.assertEquals(6L, (long) metadataAccess.read(() -> jobExecutionProvider.count(filter), MetadataAccess.SERVICE));
+    }
+
+    @WithMockJaasUser(username = "dladmin",
+                      password = "secret",
+                      authorities = {"admin", "user"})
+    @Test
+    public void testFindAllAfterWithoutFeedFilter() {
+        String suffix = UUID.randomUUID().toString().replace("-", "");
+        String feedName = "keyset.feed_" + suffix;
+        createFeed(feedName);
+        createFeed("keyset.hidden_" + suffix, false);
+
+        DateTime time = new DateTime(2017, 7, 1, 12, 0);
+        Long first = createJob(feedName, time);
+        Long second = createJob(feedName, time);
+        createJob("keyset.hidden_" + suffix, time.plusMinutes(1));
+        Long third = createJob(feedName, time.minusMinutes(1));
+
+        //only jobs of feeds accessible to the user are returned
+        String filter = "executionId>=" + first;
+        List<? extends BatchJobExecution> firstPage = findAllAfter(filter, null, 2);
+        Assert.assertEquals(Arrays.asList(second, first), ids(firstPage));
+        Assert.assertEquals(Collections.singletonList(third), ids(findAllAfter(filter, firstPage.get(1), 2)));
+        Assert.assertEquals(3L, (long) metadataAccess.read(() -> jobExecutionProvider.count(filter), MetadataAccess.SERVICE));
+    }
+
+    private List<? extends BatchJobExecution> findAllAfter(String filter, BatchJobExecution after, int limit) {
+        Long afterStartTime = after != null ? after.getStartTime().getMillis() : null;
+        Long afterJobExecutionId = after != null ? after.getJobExecutionId() : null;
+        return metadataAccess.read(() -> jobExecutionProvider.findAllAfter(filter, afterStartTime, afterJobExecutionId, limit), MetadataAccess.SERVICE);
+    }
+
+    private List<Long> ids(List<? extends BatchJobExecution> jobExecutions) {
+        return jobExecutions.stream().map(BatchJobExecution::getJobExecutionId).collect(Collectors.toList());
+    }
+
+    private OpsManagerFeed createFeed(String feedName) {
+        return createFeed(feedName, true);
+    }
+
+    /**
+     * Creates a feed, optionally granting the current user access to it
+     */
+    private OpsManagerFeed createFeed(String feedName, boolean accessible) {
+        OpsManagerFeed feed = metadataAccess.commit(() -> feedProvider.save(OpsManagerFeedId.create(), feedName), MetadataAccess.SERVICE);
+        if (accessible) {
+            metadataAccess.commit(() -> {
+                aclRepo.save(new JpaFeedOpsAclEntry(new BaseFeed.FeedId(UUID.fromString(feed.getId().toString())), "dladmin", JpaFeedOpsAclEntry.PrincipalType.USER));
+            }, MetadataAccess.SERVICE);
+        }
+        return feed;
+    }
+
+    /**
+     * Creates a job for the feed starting at the given time
+     *
+     * @return the job execution id
+     */
+    private Long createJob(String feedName, DateTime startTime) {
+        ProvenanceEventRecordDTO event = new ProvenanceEventRecordDTO();
+        event.setEventId(eventIds.incrementAndGet());
+        event.setFeedName(feedName);
+        String jobFlowFileId = UUID.randomUUID().toString();
+        event.setFlowFileUuid(jobFlowFileId);
+        event.setJobFlowFileId(jobFlowFileId);
+        event.setComponentId(UUID.randomUUID().toString());
+        event.setEventType("CREATE");
+        event.setEventTime(startTime);
+        event.setIsStartOfJob(true);
+        event.setIsBatchJob(true);
+        return metadataAccess.commit(() -> jobExecutionProvider.getOrCreateJobExecution(event), MetadataAccess.SERVICE).getJobExecutionId();
+    }
+}
@@ -0,0 +1,194 @@
+package com.thinkbiganalytics.metadata.jpa.jobrepo.nifi;
+
+/*-
+ * #%L
+ * thinkbig-operational-metadata-jpa
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.querydsl.core.types.Predicate;
+import com.thinkbiganalytics.metadata.api.common.ItemLastModifiedProvider;
+import com.thinkbiganalytics.metadata.api.jobrepo.nifi.NifiFeedProcessorStatisticsProvider.RollupLevel;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tests folding raw stats into the {@link JpaNifiFeedProcessorStatsRollup} buckets, and choosing the rollup level a time window is read from
+ */
+public class JpaNifiFeedProcessorStatsRollupTest {
+
+    private static final DateTime ROLLUP_START = new DateTime(2017, 5, 1, 0, 0, DateTimeZone.UTC);
+
+    private NifiFeedProcessorStatisticsRepository statisticsRepository;
+
+    private NifiFeedProcessorStatsRollupRepository rollupRepository;
+
+    private NifiFeedProcessorStatisticsProvider provider;
+
+    @Before
+    public void setUp() {
+        statisticsRepository = Mockito.mock(NifiFeedProcessorStatisticsRepository.class);
+        rollupRepository = Mockito.mock(NifiFeedProcessorStatsRollupRepository.class);
+        provider = new NifiFeedProcessorStatisticsProvider(statisticsRepository, Mockito.mock(NifiEventRepository.class), rollupRepository);
+        ReflectionTestUtils.setField(provider, "itemLastModifiedProvider", Mockito.mock(ItemLastModifiedProvider.class));
+    }
+
+    @Test
+    public void testBucketStart() {
+        DateTime time = new DateTime(2017, 5, 10, 13, 47, 12, 500, DateTimeZone.UTC);
+        Assert.assertEquals(new DateTime(2017, 5, 10, 13, 47, DateTimeZone.UTC).getMillis(), RollupLevel.MINUTE.bucketStart(time));
+        Assert.assertEquals(new DateTime(2017, 5, 10, 13, 0, DateTimeZone.UTC).getMillis(), RollupLevel.HOUR.bucketStart(time));
+        Assert.assertEquals(new DateTime(2017, 5, 10, 0, 0, DateTimeZone.UTC).getMillis(), RollupLevel.DAY.bucketStart(time));
+    }
+
+    @Test
+    public void testAddStats() {
+        DateTime time = new DateTime(2017, 5, 10, 13, 47, DateTimeZone.UTC);
+        JpaNifiFeedProcessorStatsRollup.RollupId rollupId = new JpaNifiFeedProcessorStatsRollup.RollupId(RollupLevel.HOUR, RollupLevel.HOUR.bucketStart(time), "category.feed", "processor");
+
+        JpaNifiFeedProcessorStatsRollup rollup = new JpaNifiFeedProcessorStatsRollup(rollupId);
+        rollup.add(newStats(time, 10L, 3L, 101L));
+        rollup.add(newStats(time.plusMinutes(5), 20L, 1L, 99L));
+
+        JpaNifiFeedProcessorStatsRollup other = new JpaNifiFeedProcessorStatsRollup(rollupId);
+        other.add(newStats(time.minusMinutes(30), 5L, 0L, 150L));
+        rollup.add(other);
+
+        Assert.assertEquals(Long.valueOf(35L), rollup.getBytesIn());
+        Assert.assertEquals(Long.valueOf(4L), rollup.getJobsFinished());
+        Assert.assertEquals(Long.valueOf(150L), rollup.getMaxEventId());
+        Assert.assertEquals(Long.valueOf(3L), rollup.getStatsCount());
+        Assert.assertEquals(time.minusMinutes(30), rollup.getMinEventTime());
+        Assert.assertEquals(time.plusMinutes(6), rollup.getMaxEventTime());
+        Assert.assertEquals("Processor", rollup.getProcessorName());
+    }
+
+    private JpaNifiFeedProcessorStats newStats(DateTime minEventTime, Long bytesIn, Long jobsFinished, Long maxEventId) {
+        JpaNifiFeedProcessorStats stats = new JpaNifiFeedProcessorStats("category.feed", "processor");
+        stats.setProcessorName("Processor");
+        stats.setMinEventTime(minEventTime);
+        stats.setMaxEventTime(minEventTime.plusMinutes(1));
+        stats.setBytesIn(bytesIn);
+        stats.setJobsFinished(jobsFinished);
+        stats.setMaxEventId(maxEventId);
+        return stats;
+    }
+
+    /**
+     * Windows are read from the coarsest level that spans at least 10 buckets, and from the raw stats when shorter
+     */
+    @Test
+    public void testRollupLevelForWindow() {
+        rollupsStartAt(ROLLUP_START);
+        DateTime start = ROLLUP_START.plusDays(30);
+
+        Assert.assertNull(provider.rollupLevelFor(start, start.plusMinutes(10).minusSeconds(1)));
+        Assert.assertEquals(RollupLevel.MINUTE, provider.rollupLevelFor(start, start.plusMinutes(10)));
+        Assert.assertEquals(RollupLevel.MINUTE, provider.rollupLevelFor(start, start.plusHours(9)));
+        Assert.assertEquals(RollupLevel.HOUR, provider.rollupLevelFor(start, start.plusHours(10)));
+        Assert.assertEquals(RollupLevel.HOUR, provider.rollupLevelFor(start, start.plusDays(5)));
+        Assert.assertEquals(RollupLevel.DAY, provider.rollupLevelFor(start, start.plusDays(10)));
+    }
+
+    /**
+     * Without rollups, or without a bounded window, the raw stats are read
+     */
+    @Test
+    public void testRollupLevelWithoutRollups() {
+        DateTime start = ROLLUP_START.plusDays(30);
+        Assert.assertNull(provider.rollupLevelFor(start, start.plusDays(10)));
+
+        rollupsStartAt(ROLLUP_START);
+        Assert.assertNull(provider.rollupLevelFor(null, start.plusDays(10)));
+        Assert.assertNull(provider.rollupLevelFor(start, null));
+    }
+
+    /**
+     * A window starting before a level was populated is read from a finer level or the raw stats
+     */
+    @Test
+    public void testRawRollupBoundary() {
+        DateTime boundary = ROLLUP_START.plusMinutes(30);
+        rollupsStartAt(boundary);
+
+        //the first minute bucket covers the whole minute the rollups started in
+        Assert.assertEquals(RollupLevel.MINUTE, provider.rollupLevelFor(boundary, boundary.plusHours(1)));
+        Assert.assertEquals(RollupLevel.MINUTE, provider.rollupLevelFor(boundary.plusSeconds(59), boundary.plusHours(1)));
+        Assert.assertNull(provider.rollupLevelFor(boundary.minusMillis(1), boundary.plusHours(1)));
+
+        //the hour and day buckets started later than the window, so a finer level is used
+        Mockito.when(rollupRepository.findMinBucketTime(RollupLevel.HOUR)).thenReturn(ROLLUP_START.plusHours(1).getMillis());
+        Mockito.when(rollupRepository.findMinBucketTime(RollupLevel.DAY)).thenReturn(ROLLUP_START.plusDays(1).getMillis());
+        Assert.assertEquals(RollupLevel.MINUTE, provider.rollupLevelFor(boundary, boundary.plusDays(10)));
+        Assert.assertEquals(RollupLevel.HOUR, provider.rollupLevelFor(ROLLUP_START.plusHours(1), ROLLUP_START.plusDays(10)));
+        Assert.assertEquals(RollupLevel.DAY, provider.rollupLevelFor(ROLLUP_START.plusDays(1), ROLLUP_START.plusDays(11)));
+    }
+
+    /**
+     * The start of each level is cached until its rollups are deleted
+     */
+    @Test
+    public void testRollupStartCached() {
+        rollupsStartAt(ROLLUP_START);
+        DateTime start = ROLLUP_START.plusDays(30);
+        provider.rollupLevelFor(start, start.plusHours(1));
+        provider.rollupLevelFor(start, start.plusHours(1));
+        Mockito.verify(rollupRepository, Mockito.times(1)).findMinBucketTime(RollupLevel.MINUTE);
+
+        //deleting old buckets moves the boundary forward
+        Mockito.when(rollupRepository.findMinBucketTime(RollupLevel.MINUTE)).thenReturn(start.plusMinutes(1).getMillis());
+        provider.deleteRollupsBefore(RollupLevel.MINUTE, start.plusMinutes(1));
+        Assert.assertNull(provider.rollupLevelFor(start, start.plusHours(1)));
+        Mockito.verify(rollupRepository, Mockito.times(2)).findMinBucketTime(RollupLevel.MINUTE);
+    }
+
+    /**
+     * Late arriving stats extend the rollups back to their buckets
+     */
+    @Test
+    public void testLateStatsExtendBoundary() {
+        DateTime boundary = ROLLUP_START.plusDays(1);
+        rollupsStartAt(boundary);
+        Assert.assertNull(provider.rollupLevelFor(ROLLUP_START, ROLLUP_START.plusHours(1)));
+
+        Mockito.when(statisticsRepository.save(Mockito.anyListOf(JpaNifiFeedProcessorStats.class))).thenAnswer(invocation -> invocation.getArguments()[0]);
+        Mockito.when(rollupRepository.findAll(Mockito.any(Predicate.class))).thenReturn(Collections.<JpaNifiFeedProcessorStatsRollup>emptyList());
+        List<JpaNifiFeedProcessorStats> late = Collections.singletonList(newStats(ROLLUP_START.plusSeconds(30), 1L, 1L, 1L));
+        provider.create(late);
+
+        Assert.assertEquals(RollupLevel.MINUTE, provider.rollupLevelFor(ROLLUP_START, ROLLUP_START.plusHours(1)));
+        Mockito.verify(rollupRepository, Mockito.times(1)).findMinBucketTime(RollupLevel.MINUTE);
+    }
+
+    /**
+     * All rollup levels are populated from the given time
+     */
+    private void rollupsStartAt(DateTime start) {
+        for (RollupLevel level : RollupLevel.values()) {
+            Mockito.when(rollupRepository.findMinBucketTime(level)).thenReturn(level.bucketStart(start));
+        }
+    }
+}
@@ -0,0 +1,382 @@
+package com.thinkbiganalytics.metadata.jpa.sla;
+
+/*-
+ * #%L
+ * thinkbig-operational-metadata-jpa
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.metadata.api.MetadataAccess;
+import com.thinkbiganalytics.metadata.api.MetadataAction;
+import com.thinkbiganalytics.metadata.api.MetadataCommand;
+import com.thinkbiganalytics.metadata.api.MetadataRollbackAction;
+import com.thinkbiganalytics.metadata.api.MetadataRollbackCommand;
+import com.thinkbiganalytics.metadata.sla.api.AssessmentResult;
+import com.thinkbiganalytics.metadata.sla.api.Metric;
+import com.thinkbiganalytics.metadata.sla.api.ServiceLevelAgreement;
+import com.thinkbiganalytics.metadata.sla.api.ServiceLevelAssessment;
+import com.thinkbiganalytics.metadata.sla.spi.MetricAssessmentBuilder;
+import com.thinkbiganalytics.metadata.sla.spi.MetricAssessor;
+import com.thinkbiganalytics.metadata.sla.spi.core.InMemorySLAProvider;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.UnexpectedRollbackException;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.io.Serializable;
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+
+import javax.persistence.PersistenceException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class JpaServiceLevelAssessorTest {
+
+    @Mock
+    private JpaServiceLevelAssessmentProvider assessmentProvider;
+
+    @InjectMocks
+    private JpaServiceLevelAssessor assessor = new JpaServiceLevelAssessor();
+
+    private InMemorySLAProvider slaProvider = new InMemorySLAProvider();
+
+    private CountingMetricAssessor metricAssessor = new CountingMetricAssessor();
+
+    private MockMetadataAccess metadataAccess = new MockMetadataAccess();
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        this.assessor.metadataAccess = this.metadataAccess;
+        this.assessor.setTransactionManager(new MockTransactionManager(this.metadataAccess));
+        this.assessor.registerMetricAssessor(this.metricAssessor);
+    }
+
+    /**
+     * Equal metrics referenced by different SLAs in a batch are evaluated once
+     */
+    @Test
+    public void testBatchSharesEqualMetrics() {
+        ServiceLevelAgreement sla1 = createAgreement("sla1", new FeedMetric("feed1"), new FeedMetric("feed2"));
+        ServiceLevelAgreement sla2 = createAgreement("sla2", new FeedMetric("feed1"));
+        ServiceLevelAgreement sla3 = createAgreement("sla3", new FeedMetric("feed2"), new FeedMetric("failed"));
+
+        Map<ServiceLevelAgreement.ID, ServiceLevelAssessment> assessments = this.assessor.assess(Arrays.asList(sla1, sla2, sla3));
+
+        assertThat(assessments.keySet()).containsExactly(sla1.getId(), sla2.getId(), sla3.getId());
+        assertThat(assessments.get(sla1.getId()).getResult()).isEqualTo(AssessmentResult.SUCCESS);
+        assertThat(assessments.get(sla2.getId()).getResult()).isEqualTo(AssessmentResult.SUCCESS);
+        assertThat(assessments.get(sla3.getId()).getResult()).isEqualTo(AssessmentResult.FAILURE);
+        assertThat(assessments.get(sla2.getId()).getObligationAssessments())
+            .flatExtracting("metricAssessments")
+            .hasSize(1)
+            .extracting("message")
+            .containsExactly("Assessed feed1");
+
+        assertThat(this.metricAssessor.evaluations).isEqualTo(3);
+        assertThat(this.assessor.getEvaluatedMetricCount()).isEqualTo(3);
+        assertThat(this.assessor.getReusedMetricCount()).isEqualTo(2);
+        assertThat(this.assessor.getAssessedAgreementCount()).isEqualTo(3);
+        verify(this.assessmentProvider, times(3)).save(any(ServiceLevelAssessment.class));
+    }
+
+    /**
+     * Metric evaluations are not shared between separate assessments
+     */
+    @Test
+    public void testSingleAssessmentsDoNotShareMetrics() {
+        ServiceLevelAgreement sla1 = createAgreement("sla1", new FeedMetric("feed1"));
+        ServiceLevelAgreement sla2 = createAgreement("sla2", new FeedMetric("feed1"));
+
+        this.assessor.assess(sla1);
+        this.assessor.assess(sla2);
+
+        assertThat(this.metricAssessor.evaluations).isEqualTo(2);
+        assertThat(this.assessor.getReusedMetricCount()).isEqualTo(0);
+    }
+
+    /**
+     * An SLA that cannot be assessed does not prevent the rest of the batch from being assessed
+     */
+    @Test
+    public void testBatchSkipsFailedAgreement() {
+        ServiceLevelAgreement sla1 = createAgreement("sla1", new FeedMetric("feed1"));
+        ServiceLevelAgreement sla2 = createAgreement("sla2", new UnknownMetric());
+        ServiceLevelAgreement sla3 = createAgreement("sla3", new FeedMetric("feed1"));
+
+        Map<ServiceLevelAgreement.ID, ServiceLevelAssessment> assessments = this.assessor.assess(Arrays.asList(sla1, sla2, sla3));
+
+        assertThat(assessments.keySet()).containsExactly(sla1.getId(), sla3.getId());
+        assertThat(this.metricAssessor.evaluations).isEqualTo(1);
+    }
+
+    /**
+     * An SLA that fails to be saved does not roll back the assessments of the rest of the batch
+     */
+    @Test
+    public void testBatchCommitsEachAgreement() {
+        ServiceLevelAgreement sla1 = createAgreement("sla1", new FeedMetric("feed1"));
+        ServiceLevelAgreement sla2 = createAgreement("sla2", new FeedMetric("feed1"));
+        ServiceLevelAgreement sla3 = createAgreement("sla3", new FeedMetric("feed1"));
+        failToSave("sla2");
+
+        Map<ServiceLevelAgreement.ID, ServiceLevelAssessment> assessments = this.assessor.assess(Arrays.asList(sla1, sla2, sla3));
+
+        assertThat(assessments.keySet()).containsExactly(sla1.getId(), sla3.getId());
+        assertThat(this.metadataAccess.committed).extracting("agreement.name").containsExactly("sla1", "sla3");
+        assertThat(this.metricAssessor.evaluations).isEqualTo(1);
+        assertThat(this.assessor.getReusedMetricCount()).isEqualTo(2);
+    }
+
+    /**
+     * An SLA that fails to be saved does not roll back the other assessments when the batch is assessed within the caller's transaction
+     */
+    @Test
+    public void testBatchCommitsEachAgreementWithinTransaction() {
+        ServiceLevelAgreement sla1 = createAgreement("sla1", new FeedMetric("feed1"));
+        ServiceLevelAgreement sla2 = createAgreement("sla2", new FeedMetric("feed1"));
+        ServiceLevelAgreement sla3 = createAgreement("sla3", new FeedMetric("feed1"));
+        failToSave("sla2");
+
+        Map<ServiceLevelAgreement.ID, ServiceLevelAssessment> assessments = this.metadataAccess.commit(() -> this.assessor.assess(Arrays.asList(sla1, sla2, sla3)),
+                                                                                                        MetadataAccess.SERVICE);
+
+        assertThat(assessments.keySet()).containsExactly(sla1.getId(), sla3.getId());
+        assertThat(this.metadataAccess.committed).extracting("agreement.name").containsExactly("sla1", "sla3");
+    }
+
+    /**
+     * Fails to save the assessment of the named SLA, saving the others within the current transaction
+     */
+    private void failToSave(String slaName) {
+        doAnswer(invocation -> {
+            ServiceLevelAssessment assessment = (ServiceLevelAssessment) invocation.getArguments()[0];
+            if (assessment.getAgreement().getName().equals(slaName)) {
+                // JPA marks the transaction as rollback-only when a persistence operation fails
+                this.metadataAccess.rollbackOnly = true;
+                throw new PersistenceException("Failed to save " + assessment.getAgreement().getName());
+            }
+            this.metadataAccess.pending.add(assessment);
+            return assessment;
+        }).when(this.assessmentProvider).save(any(ServiceLevelAssessment.class));
+    }
+
+    private ServiceLevelAgreement createAgreement(String name, Metric... metrics) {
+        return this.slaProvider.builder()
+            .name(name)
+            .obligationBuilder()
+            .description(name)
+            .metric(Arrays.asList(metrics))
+            .build()
+            .build();
+    }
+
+    static class FeedMetric implements Metric {
+
+        private String feedName;
+
+        FeedMetric(String feedName) {
+            this.feedName = feedName;
+        }
+
+        public String getFeedName() {
+            return feedName;
+        }
+
+        @Override
+        public String getDescription() {
+            return "Feed metric: " + feedName;
+        }
+    }
+
+    static class UnknownMetric implements Metric {
+
+        @Override
+        public String getDescription() {
+            return "Metric without an assessor";
+        }
+    }
+
+    static class CountingMetricAssessor implements MetricAssessor<FeedMetric, Serializable> {
+
+        private int evaluations;
+
+        @Override
+        public boolean accepts(Metric metric) {
+            return metric instanceof FeedMetric;
+        }
+
+        @Override
+        public void assess(FeedMetric metric, MetricAssessmentBuilder<Serializable> builder) {
+            evaluations++;
+            builder.message("Assessed " + metric.getFeedName())
+                .result("failed".equals(metric.getFeedName()) ? AssessmentResult.FAILURE : AssessmentResult.SUCCESS);
+        }
+    }
+
+    /**
+     * Runs each command in a simulated transaction that is rolled back if it is marked as rollback-only.
+     * Like the JCR and JPA implementations, a commit within another one joins the active transaction.
+     */
+    static class MockMetadataAccess implements MetadataAccess {
+
+        /**
+         * Assessments saved in the current transaction
+         */
+        private final List<ServiceLevelAssessment> pending = new ArrayList<>();
+
+        /**
+         * Assessments saved in committed transactions
+         */
+        private final List<ServiceLevelAssessment> committed = new ArrayList<>();
+
+        /**
+         * Indicates that the current transaction can only be rolled back
+         */
+        private boolean rollbackOnly;
+
+        /**
+         * Indicates that a transaction is active
+         */
+        private boolean active;
+
+        @Override
+        public <R> R commit(MetadataCommand<R> cmd, Principal... principals) {
+            if (active) {
+                return execute(cmd);
+            }
+            active = true;
+            try {
+                R result = execute(cmd);
+                if (rollbackOnly) {
+                    throw new UnexpectedRollbackException("Transaction silently rolled back because it has been marked as rollback-only");
+                }
+                committed.addAll(pending);
+                return result;
+            } finally {
+                pending.clear();
+                rollbackOnly = false;
+                active = false;
+            }
+        }
+
+        private <R> R execute(MetadataCommand<R> cmd) {
+            try {
+                return cmd.execute();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public <R> R commit(MetadataCommand<R> cmd, MetadataRollbackCommand rollbackCmd, Principal... principals) {
+            return commit(cmd, principals);
+        }
+
+        @Override
+        public void commit(MetadataAction action, Principal... principals) {
+            commit(() -> {
+                action.execute();
+                return null;
+            }, principals);
+        }
+
+        @Override
+        public void commit(MetadataAction action, MetadataRollbackAction rollbackAction, Principal... principals) {
+            commit(action, principals);
+        }
+
+        @Override
+        public <R> R read(MetadataCommand<R> cmd, Principal... principals) {
+            return commit(cmd, principals);
+        }
+
+        @Override
+        public void read(MetadataAction cmd, Principal... principals) {
+            commit(cmd, principals);
+        }
+    }
+
+    /**
+     * Starts a new simulated transaction of the {@link MockMetadataAccess} for each transaction requested, suspending the active one until it completes
+     */
+    static class MockTransactionManager implements PlatformTransactionManager {
+
+        private final MockMetadataAccess metadataAccess;
+
+        /**
+         * The assessments saved in each suspended transaction
+         */
+        private final Deque<List<ServiceLevelAssessment>> suspended = new ArrayDeque<>();
+
+        MockTransactionManager(MockMetadataAccess metadataAccess) {
+            this.metadataAccess = metadataAccess;
+        }
+
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) throws TransactionException {
+            assertThat(definition.getPropagationBehavior()).isEqualTo(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+            suspended.push(new ArrayList<>(metadataAccess.pending));
+            assertThat(metadataAccess.rollbackOnly).isFalse();
+            metadataAccess.pending.clear();
+            return new SimpleTransactionStatus(true);
+        }
+
+        @Override
+        public void commit(TransactionStatus status) throws TransactionException {
+            try {
+                if (metadataAccess.rollbackOnly || status.isRollbackOnly()) {
+                    throw new UnexpectedRollbackException("Transaction silently rolled back because it has been marked as rollback-only");
+                }
+                metadataAccess.committed.addAll(metadataAccess.pending);
+            } finally {
+                resume();
+            }
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) throws TransactionException {
+            resume();
+        }
+
+        private void resume() {
+            metadataAccess.pending.clear();
+            metadataAccess.pending.addAll(suspended.pop());
+            metadataAccess.rollbackOnly = false;
+        }
+    }
+}
@@ -22,6 +22,8 @@ package com.thinkbiganalytics.metadata.sla.spi;
 
 import com.thinkbiganalytics.metadata.sla.api.ServiceLevelAgreement;
 
+import java.util.Collection;
+
 /**
  */
 public interface ServiceLevelAgreementChecker {
@@ -30,4 +32,15 @@ public interface ServiceLevelAgreementChecker {
 
     void checkAgreement(ServiceLevelAgreement agreement);
 
+    /**
+     * Check the agreements together so that metrics they have in common are only assessed once
+     *
+     * @param agreements the agreements to check
+     */
+    default void checkAgreements(Collection<? extends ServiceLevelAgreement> agreements) {
+        for (ServiceLevelAgreement agreement : agreements) {
+            checkAgreement(agreement);
+        }
+    }
+
 }
@@ -29,6 +29,9 @@ import com.thinkbiganalytics.metadata.sla.api.ServiceLevelAgreement;
 import com.thinkbiganalytics.metadata.sla.api.ServiceLevelAssessment;
 
 import java.io.Serializable;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * A service for producing assessments SLAs.  It is also used to register obligation and metric assessors
@@ -44,6 +47,20 @@ public interface ServiceLevelAssessor {
      */
     ServiceLevelAssessment assess(ServiceLevelAgreement sla);
 
+    /**
+     * Produces assessments of several SLAs.  Implementations may assess metrics shared by the SLAs only once.
+     *
+     * @param slas the SLAs to be assessed
+     * @return the assessments by SLA id, in the order of the SLAs
+     */
+    default Map<ServiceLevelAgreement.ID, ServiceLevelAssessment> assess(Collection<? extends ServiceLevelAgreement> slas) {
+        Map<ServiceLevelAgreement.ID, ServiceLevelAssessment> assessments = new LinkedHashMap<>();
+        for (ServiceLevelAgreement sla : slas) {
+            assessments.put(sla.getId(), assess(sla));
+        }
+        return assessments;
+    }
+
     ServiceLevelAssessment findLatestAssessment(ServiceLevelAgreement sla);
 
     /**
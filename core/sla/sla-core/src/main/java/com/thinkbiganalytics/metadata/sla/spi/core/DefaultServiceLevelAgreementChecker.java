@@ -35,10 +35,12 @@ import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -81,9 +83,7 @@ public class DefaultServiceLevelAgreementChecker implements ServiceLevelAgreemen
 
         LOG.info("Checking {} service level agreements", list.size());
 
-        for (ServiceLevelAgreement agreement : list) {
-            checkAgreement(agreement);
-        }
+        checkAgreements(list);
 
         LOG.info("Completed checking SLAs");
 
@@ -95,34 +95,57 @@ public class DefaultServiceLevelAgreementChecker implements ServiceLevelAgreemen
      */
     public void checkAgreement(ServiceLevelAgreement agreement) {
         if (agreement != null) {
-            Alert newAlert = null;
             if (isAssessable(agreement)) {
                 LOG.info("Assessing SLA  : " + agreement.getName());
 
                 try {
                     ServiceLevelAssessment assessment = assessor.assess(agreement);
-
-                    if (shouldAlert(agreement, assessment)) {
-                        newAlert = alertManager.create(AssessmentAlerts.VIOLATION_ALERT_TYPE,
-                                                       Alert.Level.FATAL,
-                                                       "Violation of SLA: " + agreement.getName(), assessment.getId());
-
-
-                    }
+                    alertIfViolated(agreement, assessment);
                 } catch (AssessorNotFoundException e) {
                     LOG.info("SLA assessment failed.  Assessor Not found: {} - Exception: {}", agreement.getName(), e);
                 }
             }
-            if (newAlert != null) {
-                // Record this assessment as the latest for this SLA.
-                alertedAssessments.put(agreement.getId(), (ServiceLevelAssessment.ID) newAlert.getContent());
-                LOG.info("SLA assessment failed: {} - generated alert: {}", agreement.getName(), newAlert.getId());
-            }
         }
 
 
     }
 
+    /**
+     * Check the agreements, assessing them together so that metrics they share are only assessed once. Caller needs to wrap this in MetadataAccesss transcation
+     */
+    @Override
+    public void checkAgreements(Collection<? extends ServiceLevelAgreement> agreements) {
+        List<ServiceLevelAgreement> assessable = agreements.stream()
+            .filter(agreement -> agreement != null && isAssessable(agreement))
+            .collect(Collectors.toList());
+        if (assessable.isEmpty()) {
+            return;
+        }
+
+        Map<ServiceLevelAgreement.ID, ServiceLevelAssessment> assessments = assessor.assess(assessable);
+        for (ServiceLevelAgreement agreement : assessable) {
+            ServiceLevelAssessment assessment = assessments.get(agreement.getId());
+            if (assessment != null) {
+                alertIfViolated(agreement, assessment);
+            }
+        }
+    }
+
+    /**
+     * Generate an alert if the assessment is a violation that differs from the last one for the agreement
+     */
+    protected void alertIfViolated(ServiceLevelAgreement agreement, ServiceLevelAssessment assessment) {
+        if (shouldAlert(agreement, assessment)) {
+            Alert newAlert = alertManager.create(AssessmentAlerts.VIOLATION_ALERT_TYPE,
+                                                 Alert.Level.FATAL,
+                                                 "Violation of SLA: " + agreement.getName(), assessment.getId());
+
+            // Record this assessment as the latest for this SLA.
+            alertedAssessments.put(agreement.getId(), (ServiceLevelAssessment.ID) newAlert.getContent());
+            LOG.info("SLA assessment failed: {} - generated alert: {}", agreement.getName(), newAlert.getId());
+        }
+    }
+
 
     /**
      * Determine whether an alert should be generated for this assessment by comparing is to the last one for the same SLA.
@@ -27,12 +27,19 @@ import org.joda.time.DateTimeUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.math.RoundingMode;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 
 /**
  * Provides support for incremental
@@ -45,12 +52,23 @@ public class GetTableDataSupport {
 
     private int timeout;
 
+    private int fetchSize;
+
     public GetTableDataSupport(Connection conn, int timeout) {
         Validate.notNull(conn);
         this.conn = conn;
         this.timeout = timeout;
     }
 
+    /**
+     * Sets the number of rows the JDBC driver should fetch from the database at a time
+     *
+     * @param fetchSize the fetch size hint, or 0 to use the driver default
+     */
+    public void setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
     protected static Date maxAllowableDateFromUnit(Date fromDate, UnitSizes unit) {
         DateTime jodaDate = new DateTime(fromDate);
         switch (unit) {
@@ -84,10 +102,135 @@ public class GetTableDataSupport {
 
         logger.info("Executing full GetTableData query {}", sb.toString());
         st.setQueryTimeout(timeout);
+        applyFetchSize(st);
 
         return st.executeQuery(sb.toString());
     }
 
+    /**
+     * Divides the values of the split field into ranges that can be extracted independently, similar to the Sqoop {@code --split-by} option. An additional range selects the rows where the split
+     * field is null.
+     *
+     * @param tableName  the table
+     * @param splitField a numeric or date field
+     * @param splitCount the maximum number of non-null ranges
+     * @return the ranges, or only the null range if the table is empty
+     */
+    public List<SplitRange> selectSplitRanges(String tableName, String splitField, int splitCount) throws SQLException {
+        final String sql = "SELECT MIN(" + splitField + "), MAX(" + splitField + ") FROM " + tableName;
+        logger.info("Executing GetTableData boundary query {}", sql);
+
+        try (Statement st = conn.createStatement()) {
+            st.setQueryTimeout(timeout);
+            try (ResultSet rs = st.executeQuery(sql)) {
+                Object min = null;
+                Object max = null;
+                if (rs.next()) {
+                    min = rs.getObject(1);
+                    max = rs.getObject(2);
+                }
+                return splitRanges(min, max, splitCount);
+            }
+        }
+    }
+
+    /**
+     * Performs a full extract of the rows within the specified range of the split field
+     */
+    public ResultSet selectFullLoadRange(String tableName, String[] selectFields, String splitField, SplitRange range) throws SQLException {
+        String select = selectStatement(selectFields);
+        StringBuffer sb = new StringBuffer();
+        sb.append("SELECT ").append(select).append(" FROM ").append(tableName).append(" WHERE ").append(range.toWhereClause(splitField));
+
+        PreparedStatement ps = conn.prepareStatement(sb.toString());
+        ps.setQueryTimeout(timeout);
+        applyFetchSize(ps);
+        range.bind(ps);
+
+        logger.info("Executing range GetTableData query {} for {}", sb.toString(), range);
+        return ps.executeQuery();
+    }
+
+    /**
+     * Divides the interval between the minimum and maximum values into at most the specified number of ranges
+     *
+     * @param min        the minimum value of the split field, or null if there are no rows
+     * @param max        the maximum value of the split field, or null if there are no rows
+     * @param splitCount the maximum number of non-null ranges
+     * @return the ranges followed by the null range
+     */
+    protected static List<SplitRange> splitRanges(Object min, Object max, int splitCount) {
+        Validate.isTrue(splitCount > 0, "Split count must be positive");
+        List<SplitRange> ranges = new ArrayList<>(splitCount + 1);
+
+        if (min != null && max != null) {
+            List<Object> bounds = new ArrayList<>(splitCount + 1);
+            if (min instanceof Date && max instanceof Date) {
+                long lower = ((Date) min).getTime();
+                long upper = ((Date) max).getTime();
+                for (int i = 0; i <= splitCount; i++) {
+                    //the last bound keeps any sub-millisecond precision of the maximum so the inclusive last range still contains it
+                    Timestamp bound = (i == splitCount && max instanceof Timestamp) ? (Timestamp) max
+                                                                                     : new Timestamp(lower + BigInteger.valueOf(upper - lower).multiply(BigInteger.valueOf(i))
+                                                                                         .divide(BigInteger.valueOf(splitCount)).longValue());
+                    addBound(bounds, bound);
+                }
+            } else if (min instanceof Number && max instanceof Number) {
+                BigDecimal lower = toBigDecimal((Number) min);
+                BigDecimal upper = toBigDecimal((Number) max);
+                boolean integral = isIntegral((Number) min) && isIntegral((Number) max);
+                BigDecimal width = upper.subtract(lower);
+                for (int i = 0; i <= splitCount; i++) {
+                    BigDecimal offset = width.multiply(BigDecimal.valueOf(i));
+                    offset = integral ? offset.divide(BigDecimal.valueOf(splitCount), 0, RoundingMode.FLOOR) : offset.divide(BigDecimal.valueOf(splitCount), MathContext.DECIMAL64);
+                    BigDecimal bound = (i == splitCount) ? upper : lower.add(offset);
+                    addBound(bounds, integral && bound.toBigInteger().bitLength() < 64 ? (Object) bound.longValueExact() : bound);
+                }
+            } else {
+                throw new IllegalArgumentException("Split field must be numeric or a date but found " + min.getClass().getName());
+            }
+
+            for (int i = 0; i < bounds.size() - 1; i++) {
+                ranges.add(new SplitRange(bounds.get(i), bounds.get(i + 1), i == bounds.size() - 2));
+            }
+            if (bounds.size() == 1) {
+                ranges.add(new SplitRange(bounds.get(0), bounds.get(0), true));
+            }
+        }
+
+        ranges.add(new SplitRange(null, null, true));
+        return ranges;
+    }
+
+    private static void addBound(List<Object> bounds, Object bound) {
+        if (bounds.isEmpty() || !bounds.get(bounds.size() - 1).equals(bound)) {
+            bounds.add(bound);
+        }
+    }
+
+    private static BigDecimal toBigDecimal(Number number) {
+        if (number instanceof BigDecimal) {
+            return (BigDecimal) number;
+        } else if (number instanceof BigInteger) {
+            return new BigDecimal((BigInteger) number);
+        } else if (isIntegral(number)) {
+            return BigDecimal.valueOf(number.longValue());
+        } else {
+            return BigDecimal.valueOf(number.doubleValue());
+        }
+    }
+
+    private static boolean isIntegral(Number number) {
+        return number instanceof Long || number instanceof Integer || number instanceof Short || number instanceof Byte || number instanceof BigInteger
+               || (number instanceof BigDecimal && ((BigDecimal) number).scale() <= 0);
+    }
+
+    private void applyFetchSize(Statement st) throws SQLException {
+        if (fetchSize > 0) {
+            st.setFetchSize(fetchSize);
+        }
+    }
+
     /**
      * Provides an incremental select based on a date field and last status. The overlap time will be subtracted from
      * the last load date. This will cause duplicate records but also pickup records that were missed on the last scan
@@ -115,6 +258,7 @@ public class GetTableDataSupport {
         if (range.getMinDate().before(range.getMaxDate())) {
             PreparedStatement ps = conn.prepareStatement(sb.toString());
             ps.setQueryTimeout(timeout);
+            applyFetchSize(ps);
             ps.setTimestamp(1, new java.sql.Timestamp(range.getMinDate().getTime()));
             ps.setTimestamp(2, new java.sql.Timestamp(range.getMaxDate().getTime()));
 
@@ -148,6 +292,60 @@ public class GetTableDataSupport {
         YEAR
     }
 
+    /**
+     * A range of values of the split field. The lower bound is inclusive and the upper bound is exclusive, except for the last range which includes both. A range without bounds selects the
+     * null values.
+     */
+    public static class SplitRange {
+
+        private final Object lower;
+        private final Object upper;
+        private final boolean last;
+
+        public SplitRange(Object lower, Object upper, boolean last) {
+            this.lower = lower;
+            this.upper = upper;
+            this.last = last;
+        }
+
+        public Object getLower() {
+            return lower;
+        }
+
+        public Object getUpper() {
+            return upper;
+        }
+
+        public boolean isNullRange() {
+            return lower == null && upper == null;
+        }
+
+        /**
+         * Gets the SQL condition for selecting the rows in this range
+         */
+        public String toWhereClause(String splitField) {
+            if (isNullRange()) {
+                return splitField + " IS NULL";
+            } else {
+                return splitField + " >= ? AND " + splitField + (last ? " <= ?" : " < ?");
+            }
+        }
+
+        /**
+         * Sets the parameters of the condition returned by {@link #toWhereClause(String)}
+         */
+        public void bind(PreparedStatement ps) throws SQLException {
+            if (!isNullRange()) {
+                ps.setObject(1, lower);
+                ps.setObject(2, upper);
+            }
+        }
+
+        public String toString() {
+            return isNullRange() ? "null range" : "range [" + lower + ", " + upper + (last ? "]" : ")");
+        }
+    }
+
     protected static class DateRange {
 
         private Date minDate;
@@ -52,8 +52,11 @@ import org.apache.nifi.processor.io.OutputStreamCallback;
 import org.apache.nifi.processor.util.StandardValidators;
 import org.apache.nifi.util.StopWatch;
 
+import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -63,12 +66,21 @@ import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
 import java.util.Vector;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 
 import static com.thinkbiganalytics.nifi.v2.common.CommonProperties.FEED_CATEGORY;
 import static com.thinkbiganalytics.nifi.v2.common.CommonProperties.FEED_NAME;
@@ -84,7 +96,10 @@ import static com.thinkbiganalytics.nifi.v2.ingest.IngestProperties.REL_SUCCESS;
     "Extracts data from a JDBC source table and can optional extract incremental data if provided criteria. Query result will be converted to a delimited format, or to Avro if specified. Streaming is used so arbitrarily large result sets are supported. This processor can be scheduled to run on a timer, or cron expression, using the standard scheduling methods, or it can be triggered by an incoming FlowFile. If it is triggered by an incoming FlowFile, then attributes of that FlowFile will be available when evaluating the select query. FlowFile attribute \'source.row.count\' indicates how many rows were selected.")
 @WritesAttributes({
         @WritesAttribute(attribute = "db.table.output.format", description = "Output format for database table ingested"),
-        @WritesAttribute(attribute = "db.table.avro.schema", description = "Avro schema for the database table ingested")
+        @WritesAttribute(attribute = "db.table.avro.schema", description = "Avro schema for the database table ingested"),
+        @WritesAttribute(attribute = "fragment.identifier", description = "All FlowFiles extracted from the same table by a split load have the same value for this attribute"),
+        @WritesAttribute(attribute = "fragment.index", description = "A sequence number of the FlowFiles extracted from the same table by a split load"),
+        @WritesAttribute(attribute = "fragment.count", description = "The number of FlowFiles extracted from the same table by a split load")
     })
 
 // Implements strategies outlined by https://thebibackend.wordpress.com/2011/05/18/incremental-load-part-i-overview/
@@ -94,6 +109,9 @@ public class GetTableData extends AbstractNiFiProcessor {
     public static final DateTimeFormatter DATE_TIME_FORMAT = DateTimeFormatter.ISO_DATE_TIME;
     public static final String RESULT_ROW_COUNT = "source.row.count";
     public static final String EMPTY_STRING = "";
+    public static final String FRAGMENT_ID = "fragment.identifier";
+    public static final String FRAGMENT_INDEX = "fragment.index";
+    public static final String FRAGMENT_COUNT = "fragment.count";
 
     public static final Relationship REL_NO_DATA = new Relationship.Builder()
         .name("nodata")
@@ -196,6 +214,35 @@ public class GetTableData extends AbstractNiFiProcessor {
         .defaultValue(",")
         .expressionLanguageSupported(true)
         .build();
+    public static final PropertyDescriptor SPLIT_FIELD = new PropertyDescriptor.Builder()
+        .name("Split Field")
+        .description("Numeric or date source field used to split a full load into ranges that are extracted concurrently, similar to the Sqoop --split-by option. Each range is written to "
+                     + "separate FlowFiles with fragment attributes. If empty then the table is extracted by a single query. Not used for incremental loads.")
+        .required(false)
+        .addValidator(StandardValidators.NON_EMPTY_VALIDATOR)
+        .expressionLanguageSupported(true)
+        .build();
+    public static final PropertyDescriptor SPLIT_COUNT = new PropertyDescriptor.Builder()
+        .name("Split Count")
+        .description("The number of ranges, and concurrent queries, to use when a Split Field is specified")
+        .required(true)
+        .defaultValue("4")
+        .addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR)
+        .build();
+    public static final PropertyDescriptor FETCH_SIZE = new PropertyDescriptor.Builder()
+        .name("Fetch Size")
+        .description("The number of rows the JDBC driver should fetch from the database at a time, zero means the driver default is used.")
+        .required(true)
+        .defaultValue("0")
+        .addValidator(StandardValidators.NON_NEGATIVE_INTEGER_VALIDATOR)
+        .build();
+    public static final PropertyDescriptor MAX_ROWS_PER_FLOW_FILE = new PropertyDescriptor.Builder()
+        .name("Max Rows Per Flow File")
+        .description("The maximum number of rows written to each FlowFile when a Split Field is specified, zero means each range is written to a single FlowFile.")
+        .required(true)
+        .defaultValue("0")
+        .addValidator(StandardValidators.NON_NEGATIVE_INTEGER_VALIDATOR)
+        .build();
     private final Set<Relationship> relationships;
     private final List<PropertyDescriptor> propDescriptors;
 
@@ -222,6 +269,10 @@ public class GetTableData extends AbstractNiFiProcessor {
         pds.add(UNIT_SIZE);
         pds.add(OUTPUT_TYPE);
         pds.add(OUTPUT_DELIMITER);
+        pds.add(SPLIT_FIELD);
+        pds.add(SPLIT_COUNT);
+        pds.add(FETCH_SIZE);
+        pds.add(MAX_ROWS_PER_FLOW_FILE);
         this.propDescriptors = Collections.unmodifiableList(pds);
     }
 
@@ -290,6 +341,8 @@ public class GetTableData extends AbstractNiFiProcessor {
         final String outputType = context.getProperty(OUTPUT_TYPE).getValue();
         String outputDelimiter = context.getProperty(OUTPUT_DELIMITER).evaluateAttributeExpressions(incoming).getValue();
         final String delimiter = StringUtils.isBlank(outputDelimiter) ? "," : outputDelimiter;
+        final String splitField = context.getProperty(SPLIT_FIELD).evaluateAttributeExpressions(incoming).getValue();
+        final int fetchSize = context.getProperty(FETCH_SIZE).asInteger();
 
         final PropertyValue waterMarkPropName = context.getProperty(HIGH_WATER_MARK_PROP).evaluateAttributeExpressions(incoming);
 
@@ -298,6 +351,22 @@ public class GetTableData extends AbstractNiFiProcessor {
         final LoadStrategy strategy = LoadStrategy.valueOf(loadStrategy);
         final StopWatch stopWatch = new StopWatch(true);
 
+        if (strategy == LoadStrategy.FULL_LOAD && StringUtils.isNotBlank(splitField)) {
+            final SplitExtractor extractor = new SplitExtractor(dbcpService, tableName, selectFields, splitField, queryTimeout, fetchSize,
+                                                                context.getProperty(MAX_ROWS_PER_FLOW_FILE).asLong(), GetTableDataSupport.OutputType.valueOf(outputType), delimiter);
+            try {
+                extractSplits(session, incoming, extractor, context.getProperty(SPLIT_COUNT).asInteger(), outputType, stopWatch);
+            } catch (final Exception e) {
+                if (incoming == null) {
+                    logger.error("Unable to execute SQL select from table due to {}. No incoming flow file to route to failure", new Object[]{e});
+                } else {
+                    logger.error("Unable to execute SQL select from table due to {}; routing to failure", new Object[]{incoming, e});
+                    session.transfer(incoming, REL_FAILURE);
+                }
+            }
+            return;
+        }
+
         try (final Connection conn = dbcpService.getConnection()) {
 
             FlowFile outgoing = (incoming == null ? session.create() : incoming);
@@ -311,6 +380,7 @@ public class GetTableData extends AbstractNiFiProcessor {
                     ResultSet rs = null;
                     try {
                         GetTableDataSupport support = new GetTableDataSupport(conn, queryTimeout);
+                        support.setFetchSize(fetchSize);
                         if (strategy == LoadStrategy.FULL_LOAD) {
                             rs = support.selectFullLoad(tableName, selectFields);
                         } else if (strategy == LoadStrategy.INCREMENTAL) {
@@ -387,6 +457,97 @@ public class GetTableData extends AbstractNiFiProcessor {
         }
     }
 
+    /**
+     * Extracts the ranges of a split full load concurrently and transfers the results as fragments of the same table
+     */
+    private void extractSplits(final ProcessSession session, final FlowFile incoming, final SplitExtractor extractor, final int splitCount, final String outputType, final StopWatch stopWatch)
+        throws Exception {
+        final ComponentLog logger = getLog();
+
+        final List<GetTableDataSupport.SplitRange> ranges;
+        try (final Connection conn = extractor.dbcpService.getConnection()) {
+            ranges = new GetTableDataSupport(conn, extractor.queryTimeout).selectSplitRanges(extractor.tableName, extractor.splitField, splitCount);
+        }
+        logger.info("Extracting {} using {} ranges of {}", new Object[]{extractor.tableName, ranges.size(), extractor.splitField});
+
+        // Each range is fetched on its own connection and spooled to temporary files, since the session may only be used by this thread
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.min(splitCount, ranges.size()));
+        final AtomicBoolean aborted = new AtomicBoolean(false);
+        final List<Future<List<ExtractedChunk>>> futures = new ArrayList<>(ranges.size());
+        final List<ExtractedChunk> chunks = new ArrayList<>();
+        int collected = 0;
+        try {
+            for (final GetTableDataSupport.SplitRange range : ranges) {
+                futures.add(executor.submit(() -> extractor.extract(range, aborted)));
+            }
+            for (; collected < futures.size(); collected++) {
+                try {
+                    chunks.addAll(futures.get(collected).get());
+                } catch (final ExecutionException e) {
+                    throw (e.getCause() instanceof Exception) ? (Exception) e.getCause() : e;
+                }
+            }
+
+            final long nrOfRows = chunks.stream().mapToLong(chunk -> chunk.rows).sum();
+            List<ExtractedChunk> fragments = chunks.stream().filter(chunk -> chunk.rows > 0).collect(Collectors.toList());
+            if (fragments.isEmpty()) {
+                fragments = chunks.subList(0, 1);
+            }
+
+            final String fragmentId = UUID.randomUUID().toString();
+            for (int index = 0; index < fragments.size(); index++) {
+                final ExtractedChunk chunk = fragments.get(index);
+                FlowFile outgoing = (incoming == null ? session.create() : session.create(incoming));
+                outgoing = session.importFrom(chunk.file, false, outgoing);
+
+                final Map<String, String> attributes = new HashMap<>();
+                attributes.put(RESULT_ROW_COUNT, Long.toString(chunk.rows));
+                attributes.put(ComponentAttributes.NUM_SOURCE_RECORDS.key(), Long.toString(chunk.rows));
+                attributes.put("db.table.output.format", outputType);
+                attributes.put("db.table.avro.schema", (chunk.schema != null) ? JdbcCommon.getAvroSchemaForFeedSetup(chunk.schema) : EMPTY_STRING);
+                attributes.put(FRAGMENT_ID, fragmentId);
+                attributes.put(FRAGMENT_INDEX, Integer.toString(index));
+                attributes.put(FRAGMENT_COUNT, Integer.toString(fragments.size()));
+                outgoing = session.putAllAttributes(outgoing, attributes);
+
+                session.getProvenanceReporter().modifyContent(outgoing, "Retrieved " + chunk.rows + " rows", stopWatch.getElapsed(TimeUnit.MILLISECONDS));
+                session.transfer(outgoing, nrOfRows == 0L ? REL_NO_DATA : REL_SUCCESS);
+            }
+            if (incoming != null) {
+                session.remove(incoming);
+            }
+
+            logger.info("{} contains {} records in {} FlowFiles; transferring to '{}'",
+                        new Object[]{extractor.tableName, nrOfRows, fragments.size(), (nrOfRows == 0L ? REL_NO_DATA : REL_SUCCESS).getName()});
+        } finally {
+            aborted.set(true);
+            executor.shutdownNow();
+
+            // Wait for the remaining ranges so that the files of ranges completed before a failure are deleted too. Ranges still running stop after their current file.
+            for (int index = collected; index < futures.size(); index++) {
+                try {
+                    chunks.addAll(futures.get(index).get());
+                } catch (final ExecutionException e) {
+                    // the range has deleted its own files
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            deleteChunks(chunks);
+        }
+    }
+
+    private static void deleteChunks(List<ExtractedChunk> chunks) {
+        for (ExtractedChunk chunk : chunks) {
+            try {
+                Files.deleteIfExists(chunk.file);
+            } catch (IOException e) {
+                chunk.file.toFile().deleteOnExit();
+            }
+        }
+    }
+
     private String getIncrementalWaterMarkValue(FlowFile ff, PropertyValue waterMarkPropName) {
         if (!waterMarkPropName.isSet()) {
             // TODO validate when scheduled?
@@ -439,6 +600,90 @@ public class GetTableData extends AbstractNiFiProcessor {
         }
     }
 
+    /**
+     * Rows of a split range spooled to a temporary file
+     */
+    static class ExtractedChunk {
+
+        final Path file;
+        final Schema schema;
+        long rows;
+
+        ExtractedChunk(Path file, Schema schema) {
+            this.file = file;
+            this.schema = schema;
+        }
+    }
+
+    /**
+     * Extracts a range of a split full load using its own connection
+     */
+    static class SplitExtractor {
+
+        final DBCPService dbcpService;
+        final String tableName;
+        final String[] selectFields;
+        final String splitField;
+        final int queryTimeout;
+        final int fetchSize;
+        final long maxRows;
+        final GetTableDataSupport.OutputType outputType;
+        final String delimiter;
+
+        SplitExtractor(DBCPService dbcpService, String tableName, String[] selectFields, String splitField, int queryTimeout, int fetchSize, long maxRows,
+                       GetTableDataSupport.OutputType outputType, String delimiter) {
+            this.dbcpService = dbcpService;
+            this.tableName = tableName;
+            this.selectFields = selectFields;
+            this.splitField = splitField;
+            this.queryTimeout = queryTimeout;
+            this.fetchSize = fetchSize;
+            this.maxRows = maxRows;
+            this.outputType = outputType;
+            this.delimiter = delimiter;
+        }
+
+        /**
+         * Writes the rows of the range to one or more temporary files, each containing at most the maximum rows per FlowFile
+         *
+         * @param range   the range of the split field
+         * @param aborted set when the load has failed and the files should be discarded
+         * @return the spooled files
+         */
+        List<ExtractedChunk> extract(GetTableDataSupport.SplitRange range, AtomicBoolean aborted) throws SQLException, IOException {
+            final List<ExtractedChunk> chunks = new ArrayList<>();
+            boolean success = false;
+            try (final Connection conn = dbcpService.getConnection()) {
+                GetTableDataSupport support = new GetTableDataSupport(conn, queryTimeout);
+                support.setFetchSize(fetchSize);
+                ResultSet rs = support.selectFullLoadRange(tableName, selectFields, splitField, range);
+                try {
+                    final Schema schema = (outputType == GetTableDataSupport.OutputType.AVRO) ? JdbcCommon.createSchema(rs) : null;
+                    long rows;
+                    do {
+                        final ExtractedChunk chunk = new ExtractedChunk(Files.createTempFile("GetTableData-", ".tmp"), schema);
+                        chunks.add(chunk);
+                        try (final OutputStream out = new BufferedOutputStream(Files.newOutputStream(chunk.file))) {
+                            rows = (schema != null) ? JdbcCommon.convertToAvroStream(rs, out, null, schema, maxRows) : JdbcCommon.convertToDelimitedStream(rs, out, null, delimiter, maxRows);
+                        }
+                        chunk.rows = rows;
+                    } while (maxRows > 0 && rows == maxRows && !aborted.get());
+                } finally {
+                    if (rs.getStatement() != null) {
+                        rs.getStatement().close();
+                    }
+                    rs.close();
+                }
+                success = !aborted.get();
+            } finally {
+                if (!success) {
+                    deleteChunks(chunks);
+                }
+            }
+            return chunks;
+        }
+    }
+
     /**
      * Track the max date we read
      */
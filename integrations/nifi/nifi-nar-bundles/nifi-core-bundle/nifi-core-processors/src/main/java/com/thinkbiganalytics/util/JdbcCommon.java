@@ -103,6 +103,23 @@ public class JdbcCommon {
      * @throws IOException  if an I/O error occurs while writing to the output stream
      */
     public static long convertToDelimitedStream(final ResultSet rs, final OutputStream outStream, final RowVisitor visitor, String delimiter) throws SQLException, IOException {
+        return convertToDelimitedStream(rs, outStream, visitor, delimiter, 0L);
+    }
+
+    /**
+     * Converts at most the specified number of rows of the SQL result set to a delimited text file written to the specified output stream. The result set is left positioned on the last row
+     * written so that the remaining rows can be written to another stream.
+     *
+     * @param rs        the SQL result set
+     * @param outStream the output stream for the delimited text file
+     * @param visitor   records position of the result set
+     * @param delimiter the column delimiter for the delimited text file
+     * @param maxRows   the maximum number of rows to write, or 0 for no limit
+     * @return the number of rows written
+     * @throws SQLException if a SQL error occurs while reading the result set
+     * @throws IOException  if an I/O error occurs while writing to the output stream
+     */
+    public static long convertToDelimitedStream(final ResultSet rs, final OutputStream outStream, final RowVisitor visitor, String delimiter, long maxRows) throws SQLException, IOException {
         // avoid overflowing log with redundant messages
         int dateConversionWarning = 0;
 
@@ -128,7 +145,7 @@ public class JdbcCommon {
         }
         writer.append(sb.toString());
         long nrOfRows = 0;
-        while (rs.next()) {
+        while ((maxRows <= 0 || nrOfRows < maxRows) && rs.next()) {
             if (visitor != null) {
                 visitor.visitRow(rs);
             }
@@ -205,6 +222,23 @@ public class JdbcCommon {
 
 
     public static long convertToAvroStream(final ResultSet rs, final OutputStream outStream, final RowVisitor visitor, final Schema schema) throws SQLException, IOException {
+        return convertToAvroStream(rs, outStream, visitor, schema, 0L);
+    }
+
+    /**
+     * Converts at most the specified number of rows of the SQL result set to an Avro data file written to the specified output stream. The result set is left positioned on the last row
+     * written so that the remaining rows can be written to another stream.
+     *
+     * @param rs        the SQL result set
+     * @param outStream the output stream for the Avro data file
+     * @param visitor   records position of the result set
+     * @param schema    the Avro schema for the rows
+     * @param maxRows   the maximum number of rows to write, or 0 for no limit
+     * @return the number of rows written
+     * @throws SQLException if a SQL error occurs while reading the result set
+     * @throws IOException  if an I/O error occurs while writing to the output stream
+     */
+    public static long convertToAvroStream(final ResultSet rs, final OutputStream outStream, final RowVisitor visitor, final Schema schema, long maxRows) throws SQLException, IOException {
         int dateConversionWarning = 0;
         final GenericRecord rec = new GenericData.Record(schema);
 
@@ -215,7 +249,7 @@ public class JdbcCommon {
             final ResultSetMetaData meta = rs.getMetaData();
             final int nrOfColumns = meta.getColumnCount();
             long nrOfRows = 0;
-            while (rs.next()) {
+            while ((maxRows <= 0 || nrOfRows < maxRows) && rs.next()) {
                 if (visitor != null) {
                     visitor.visitRow(rs);
                 }
@@ -29,10 +29,13 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.Statement;
+import java.sql.Timestamp;
 import java.util.Date;
+import java.util.List;
 import java.util.TimeZone;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 /**
  */
@@ -131,4 +134,80 @@ public class GetTableDataSupportTest {
         tableDataSupport.selectIncremental("testTable", new String[]{"col1", "col2"}, "col2", overlapTime, lastLoadDate, backoffTime, GetTableDataSupport.UnitSizes.NONE);
     }
 
+    @Test
+    public void testSplitRangesNumeric() throws Exception {
+        List<GetTableDataSupport.SplitRange> ranges = GetTableDataSupport.splitRanges(1, 10, 3);
+        assertEquals(4, ranges.size());
+        assertEquals("range [1, 4)", ranges.get(0).toString());
+        assertEquals("range [4, 7)", ranges.get(1).toString());
+        assertEquals("range [7, 10]", ranges.get(2).toString());
+        assertTrue(ranges.get(3).isNullRange());
+        assertEquals("id >= ? AND id < ?", ranges.get(0).toWhereClause("id"));
+        assertEquals("id >= ? AND id <= ?", ranges.get(2).toWhereClause("id"));
+        assertEquals("id IS NULL", ranges.get(3).toWhereClause("id"));
+
+        // Fewer distinct values than splits
+        ranges = GetTableDataSupport.splitRanges(5L, 6L, 4);
+        assertEquals(2, ranges.size());
+        assertEquals("range [5, 6]", ranges.get(0).toString());
+
+        ranges = GetTableDataSupport.splitRanges(7, 7, 4);
+        assertEquals(2, ranges.size());
+        assertEquals("range [7, 7]", ranges.get(0).toString());
+
+        ranges = GetTableDataSupport.splitRanges(0.0, 1.0, 4);
+        assertEquals(5, ranges.size());
+        assertEquals("range [0.25, 0.5)", ranges.get(1).toString());
+
+        // Empty table
+        ranges = GetTableDataSupport.splitRanges(null, null, 4);
+        assertEquals(1, ranges.size());
+        assertTrue(ranges.get(0).isNullRange());
+    }
+
+    @Test
+    public void testSplitRangesDate() throws Exception {
+        List<GetTableDataSupport.SplitRange> ranges = GetTableDataSupport.splitRanges(new Timestamp(1000L), new Timestamp(3000L), 2);
+        assertEquals(3, ranges.size());
+        assertEquals(new Timestamp(1000L), ranges.get(0).getLower());
+        assertEquals(new Timestamp(2000L), ranges.get(0).getUpper());
+        assertEquals(new Timestamp(3000L), ranges.get(1).getUpper());
+    }
+
+    @Test
+    public void testSplitRangesTimestampNanos() throws Exception {
+        Timestamp min = new Timestamp(1000L);
+        min.setNanos(123456);
+        Timestamp max = new Timestamp(3000L);
+        max.setNanos(789123);
+        List<GetTableDataSupport.SplitRange> ranges = GetTableDataSupport.splitRanges(min, max, 2);
+        assertEquals(3, ranges.size());
+        assertEquals(new Timestamp(1000L), ranges.get(0).getLower());
+        assertEquals(new Timestamp(2000L), ranges.get(0).getUpper());
+        assertEquals(new Timestamp(2000L), ranges.get(1).getLower());
+        assertEquals(max, ranges.get(1).getUpper());
+        assertEquals(789123, ((Timestamp) ranges.get(1).getUpper()).getNanos());
+        assertEquals("ts >= ? AND ts <= ?", ranges.get(1).toWhereClause("ts"));
+
+        //a single value with sub-millisecond precision is still within the range
+        ranges = GetTableDataSupport.splitRanges(max, max, 4);
+        assertEquals(2, ranges.size());
+        assertEquals(max, ranges.get(0).getUpper());
+        assertEquals("ts >= ? AND ts <= ?", ranges.get(0).toWhereClause("ts"));
+    }
+
+    @Test
+    public void testSelectSplitRanges() throws Exception {
+        Statement st = Mockito.mock(Statement.class);
+        ResultSet rs = Mockito.mock(ResultSet.class);
+        Mockito.when(conn.createStatement()).thenReturn(st);
+        Mockito.when(st.executeQuery("SELECT MIN(id), MAX(id) FROM testTable")).thenReturn(rs);
+        Mockito.when(rs.next()).thenReturn(true);
+        Mockito.when(rs.getObject(1)).thenReturn(0);
+        Mockito.when(rs.getObject(2)).thenReturn(100);
+
+        List<GetTableDataSupport.SplitRange> ranges = tableDataSupport.selectSplitRanges("testTable", "id", 4);
+        assertEquals(5, ranges.size());
+        assertEquals("range [75, 100]", ranges.get(3).toString());
+    }
 }
@@ -52,6 +52,10 @@ import org.junit.Test;
 import org.mockito.Mockito;
 
 import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.sql.Connection;
 import java.sql.Date;
 import java.sql.PreparedStatement;
@@ -66,7 +70,9 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
@@ -90,13 +96,18 @@ public class GetTableDataTest {
      */
     private final TestRunner runner = TestRunners.newTestRunner(GetTableData.class);
 
+    /**
+     * JDBC service
+     */
+    private MockDBCPService jdbcService;
+
     /**
      * Initialize instance variables
      */
     @Before
     public void setUp() throws Exception {
         // Setup services
-        final DBCPService jdbcService = new MockDBCPService();
+        jdbcService = new MockDBCPService();
         final MetadataProviderService metadataService = new MockMetadataService();
 
         // Setup test runner
@@ -290,6 +301,96 @@ public class GetTableDataTest {
                                              + "2|Jon|Stephens|Jon.Stephens@sakilastaff.com|2006-02-15T03:57:16.000Z\n");
     }
 
+    /**
+     * Verify a full load split into concurrently extracted ranges.
+     */
+    @Test
+    public void testSplitFullLoad() {
+        runner.setProperty(GetTableData.TABLE_NAME, "customer");
+        runner.setProperty(GetTableData.SPLIT_FIELD, "id");
+        runner.setProperty(GetTableData.SPLIT_COUNT, "2");
+        runner.setProperty(GetTableData.MAX_ROWS_PER_FLOW_FILE, "2");
+        runner.enqueue(new byte[0]);
+        runner.run();
+
+        List<MockFlowFile> flowFiles = runner.getFlowFilesForRelationship(CommonProperties.REL_SUCCESS);
+        Assert.assertEquals(0, runner.getFlowFilesForRelationship(CommonProperties.REL_FAILURE).size());
+        Assert.assertEquals(0, runner.getFlowFilesForRelationship(GetTableData.REL_NO_DATA).size());
+        Assert.assertEquals(3, flowFiles.size());
+
+        final String fragmentId = flowFiles.get(0).getAttribute(GetTableData.FRAGMENT_ID);
+        Assert.assertNotNull(fragmentId);
+        for (int index = 0; index < flowFiles.size(); index++) {
+            Assert.assertEquals(fragmentId, flowFiles.get(index).getAttribute(GetTableData.FRAGMENT_ID));
+            Assert.assertEquals(Integer.toString(index), flowFiles.get(index).getAttribute(GetTableData.FRAGMENT_INDEX));
+            Assert.assertEquals("3", flowFiles.get(index).getAttribute(GetTableData.FRAGMENT_COUNT));
+        }
+
+        // Ranges are [1, 3) and [3, 5] with at most 2 rows per flow file
+        Assert.assertEquals("2", flowFiles.get(0).getAttribute(GetTableData.RESULT_ROW_COUNT));
+        flowFiles.get(0).assertContentEquals("id,first_name,last_name,email,last_updated\n"
+                                             + "1,MARY,SMITH,MARY.SMITH@sakilacustomer.org,2006-02-15T04:32:21.000Z\n"
+                                             + "2,PATRICIA,JOHNSON,PATRICIA.JOHNSON@sakilacustomer.org,2006-02-15T04:25:50.000Z\n");
+        Assert.assertEquals("2", flowFiles.get(1).getAttribute(GetTableData.RESULT_ROW_COUNT));
+        flowFiles.get(1).assertContentEquals("id,first_name,last_name,email,last_updated\n"
+                                             + "3,LINDA,WILLIAMS,LINDA.WILLIAMS@sakilacustomer.org,2006-02-15T04:47:30.000Z\n"
+                                             + "4,BARBARA,JONES,BARBARA.JONES@sakilacustomer.org,2006-02-15T04:57:14.000Z\n");
+        Assert.assertEquals("1", flowFiles.get(2).getAttribute(GetTableData.RESULT_ROW_COUNT));
+        Assert.assertEquals("1", flowFiles.get(2).getAttribute(ComponentAttributes.NUM_SOURCE_RECORDS.key()));
+        flowFiles.get(2).assertContentEquals("id,first_name,last_name,email,last_updated\n"
+                                             + "5,ELIZABETH,BROWN,ELIZABETH.BROWN@sakilacustomer.org,2006-02-15T05:15:33.000Z\n");
+    }
+
+    /**
+     * Verify a split full load of an empty table.
+     */
+    @Test
+    public void testSplitNoData() {
+        runner.setProperty(GetTableData.TABLE_NAME, "empty");
+        runner.setProperty(GetTableData.TABLE_SPECS, "id\nemail");
+        runner.setProperty(GetTableData.SPLIT_FIELD, "id");
+        runner.enqueue(new byte[0]);
+        runner.run();
+
+        List<MockFlowFile> flowFiles = runner.getFlowFilesForRelationship(GetTableData.REL_NO_DATA);
+        Assert.assertEquals(0, runner.getFlowFilesForRelationship(CommonProperties.REL_FAILURE).size());
+        Assert.assertEquals(0, runner.getFlowFilesForRelationship(CommonProperties.REL_SUCCESS).size());
+        Assert.assertEquals(1, flowFiles.size());
+        Assert.assertEquals("0", flowFiles.get(0).getAttribute(GetTableData.RESULT_ROW_COUNT));
+        flowFiles.get(0).assertContentEquals("id,email\n");
+    }
+
+    /**
+     * Verify the files of ranges that completed are deleted when another range fails.
+     */
+    @Test
+    public void testSplitFailure() throws Exception {
+        final Set<Path> tempFiles = getTempFiles();
+        jdbcService.failLowerRange = true;
+        runner.setProperty(GetTableData.TABLE_NAME, "customer");
+        runner.setProperty(GetTableData.SPLIT_FIELD, "id");
+        runner.setProperty(GetTableData.SPLIT_COUNT, "2");
+        runner.setProperty(GetTableData.MAX_ROWS_PER_FLOW_FILE, "2");
+        runner.enqueue(new byte[0]);
+        runner.run();
+
+        Assert.assertEquals(1, runner.getFlowFilesForRelationship(CommonProperties.REL_FAILURE).size());
+        Assert.assertEquals(0, runner.getFlowFilesForRelationship(CommonProperties.REL_SUCCESS).size());
+        Assert.assertEquals(tempFiles, getTempFiles());
+    }
+
+    /**
+     * Lists the files spooled by split full loads.
+     *
+     * @return the temporary files
+     * @throws IOException if the temporary directory cannot be read
+     */
+    private static Set<Path> getTempFiles() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(Paths.get(System.getProperty("java.io.tmpdir")), "GetTableData-*.tmp")) {
+            return StreamSupport.stream(files.spliterator(), false).collect(Collectors.toSet());
+        }
+    }
+
     /**
      * A mock implementation of {@link DBCPService} for unit testing.
      */
@@ -300,6 +401,11 @@ public class GetTableDataTest {
          */
         final Connection connection = Mockito.mock(Connection.class);
 
+        /**
+         * Whether the range below the upper bound fails, after the other range has completed
+         */
+        volatile boolean failLowerRange;
+
         /**
          * A SQL statement
          */
@@ -315,6 +421,20 @@ public class GetTableDataTest {
 
             Mockito.when(statement.executeQuery("SELECT id,email FROM empty")).then(invocation -> getEmptyResults());
             Mockito.when(statement.executeQuery("SELECT id,first_name,last_name,email,last_updated FROM mytable")).then(invocation -> getSimpleResults());
+
+            Mockito.when(statement.executeQuery("SELECT MIN(id), MAX(id) FROM customer")).then(invocation -> getBoundaryResults(1, 5));
+            Mockito.when(statement.executeQuery("SELECT MIN(id), MAX(id) FROM empty")).then(invocation -> getBoundaryResults(null, null));
+            Mockito.when(connection.prepareStatement("SELECT id,first_name,last_name,email,last_updated FROM customer WHERE id >= ? AND id < ?"))
+                .then(invocation -> failLowerRange ? getFailingResults() : getRangeResults(false));
+            Mockito.when(connection.prepareStatement("SELECT id,first_name,last_name,email,last_updated FROM customer WHERE id >= ? AND id <= ?"))
+                .then(invocation -> getRangeResults(true));
+            Mockito.when(connection.prepareStatement("SELECT id,first_name,last_name,email,last_updated FROM customer WHERE id IS NULL"))
+                .then(invocation -> getRangeResults(null));
+            Mockito.when(connection.prepareStatement("SELECT id,email FROM empty WHERE id IS NULL")).then(invocation -> {
+                final PreparedStatement preparedStatement = Mockito.mock(PreparedStatement.class);
+                Mockito.when(preparedStatement.executeQuery()).then(query -> getEmptyResults());
+                return preparedStatement;
+            });
         }
 
         @Override
@@ -443,6 +563,84 @@ public class GetTableDataTest {
             return preparedStatement;
         }
 
+        /**
+         * Creates a result set for a boundary query.
+         *
+         * @param min the minimum value
+         * @param max the maximum value
+         * @return a new result set
+         * @throws SQLException never
+         */
+        ResultSet getBoundaryResults(final Object min, final Object max) throws SQLException {
+            final ResultSetMetaData metadata = Mockito.mock(ResultSetMetaData.class);
+            Mockito.when(metadata.getColumnCount()).thenReturn(2);
+            return getResultSet(metadata, new Object[][]{new Object[]{min, max}});
+        }
+
+        /**
+         * Creates a prepared statement for a range of customer ids.
+         *
+         * @param inclusive {@code true} if the upper bound is inclusive, {@code false} if exclusive, or {@code null} to select null ids
+         * @return a new prepared statement
+         * @throws SQLException never
+         */
+        PreparedStatement getRangeResults(final Boolean inclusive) throws SQLException {
+            final ResultSetMetaData metadata = Mockito.mock(ResultSetMetaData.class);
+            Mockito.when(metadata.getColumnCount()).thenReturn(5);
+            Mockito.when(metadata.getColumnName(1)).thenReturn("id");
+            Mockito.when(metadata.getColumnName(2)).thenReturn("first_name");
+            Mockito.when(metadata.getColumnName(3)).thenReturn("last_name");
+            Mockito.when(metadata.getColumnName(4)).thenReturn("email");
+            Mockito.when(metadata.getColumnName(5)).thenReturn("last_updated");
+            Mockito.when(metadata.getColumnType(1)).thenReturn(Types.TINYINT);
+            Mockito.when(metadata.getColumnType(2)).thenReturn(Types.VARCHAR);
+            Mockito.when(metadata.getColumnType(3)).thenReturn(Types.VARCHAR);
+            Mockito.when(metadata.getColumnType(4)).thenReturn(Types.VARCHAR);
+            Mockito.when(metadata.getColumnType(5)).thenReturn(Types.TIMESTAMP);
+
+            final Object[][] rows = new Object[][]{
+                new Object[]{1, "MARY", "SMITH", "MARY.SMITH@sakilacustomer.org", new Timestamp(1139977941000L)},
+                new Object[]{2, "PATRICIA", "JOHNSON", "PATRICIA.JOHNSON@sakilacustomer.org", new Timestamp(1139977550000L)},
+                new Object[]{3, "LINDA", "WILLIAMS", "LINDA.WILLIAMS@sakilacustomer.org", new Timestamp(1139978850000L)},
+                new Object[]{4, "BARBARA", "JONES", "BARBARA.JONES@sakilacustomer.org", new Timestamp(1139979434000L)},
+                new Object[]{5, "ELIZABETH", "BROWN", "ELIZABETH.BROWN@sakilacustomer.org", new Timestamp(1139980533000L)},
+                };
+
+            final AtomicReference<Long> lower = new AtomicReference<>();
+            final AtomicReference<Long> upper = new AtomicReference<>();
+
+            final PreparedStatement preparedStatement = Mockito.mock(PreparedStatement.class);
+            Mockito.when(preparedStatement.executeQuery()).then(invocation -> {
+                final Predicate<Object[]> inRange = row -> inclusive != null && (Integer) row[0] >= lower.get()
+                                                           && (inclusive ? (Integer) row[0] <= upper.get() : (Integer) row[0] < upper.get());
+                return getResultSet(metadata, Stream.of(rows).filter(inRange).toArray(Object[][]::new));
+            });
+            Mockito.doAnswer(invocation -> {
+                lower.set(((Number) invocation.getArgumentAt(1, Object.class)).longValue());
+                return null;
+            }).when(preparedStatement).setObject(Mockito.eq(1), Mockito.any());
+            Mockito.doAnswer(invocation -> {
+                upper.set(((Number) invocation.getArgumentAt(1, Object.class)).longValue());
+                return null;
+            }).when(preparedStatement).setObject(Mockito.eq(2), Mockito.any());
+            return preparedStatement;
+        }
+
+        /**
+         * Creates a statement whose query fails after waiting for other queries to complete.
+         *
+         * @return a new prepared statement
+         * @throws SQLException never
+         */
+        PreparedStatement getFailingResults() throws SQLException {
+            final PreparedStatement preparedStatement = Mockito.mock(PreparedStatement.class);
+            Mockito.when(preparedStatement.executeQuery()).then(invocation -> {
+                Thread.sleep(500);
+                throw new SQLException("Connection reset");
+            });
+            return preparedStatement;
+        }
+
         /**
          * Creates a simple result set.
          *
@@ -20,49 +20,92 @@ package com.thinkbiganalytics.nifi.v2.elasticsearch;
  * #L%
  */
 
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
 import com.thinkbiganalytics.nifi.processor.AbstractNiFiProcessor;
 
-import org.apache.commons.io.IOUtils;
 import org.apache.nifi.annotation.behavior.InputRequirement;
+import org.apache.nifi.annotation.behavior.WritesAttribute;
+import org.apache.nifi.annotation.behavior.WritesAttributes;
 import org.apache.nifi.annotation.documentation.CapabilityDescription;
 import org.apache.nifi.annotation.documentation.Tags;
+import org.apache.nifi.annotation.lifecycle.OnStopped;
 import org.apache.nifi.components.PropertyDescriptor;
 import org.apache.nifi.flowfile.FlowFile;
 import org.apache.nifi.logging.ComponentLog;
+import org.apache.nifi.processor.DataUnit;
 import org.apache.nifi.processor.ProcessContext;
 import org.apache.nifi.processor.ProcessSession;
 import org.apache.nifi.processor.Relationship;
 import org.apache.nifi.processor.exception.ProcessException;
-import org.apache.nifi.processor.io.InputStreamCallback;
 import org.apache.nifi.processor.util.StandardValidators;
-import org.codehaus.jettison.json.JSONArray;
-import org.codehaus.jettison.json.JSONObject;
-import org.elasticsearch.action.bulk.BulkRequestBuilder;
+import org.elasticsearch.action.ActionRequest;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkProcessor;
+import org.elasticsearch.action.bulk.BulkRequest;
 import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.client.Client;
 import org.elasticsearch.client.transport.TransportClient;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.transport.InetSocketTransportAddress;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
 
+import java.io.BufferedInputStream;
 import java.io.IOException;
-import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.net.InetAddress;
+import java.net.UnknownHostException;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
 /**
  * This processor indexes json data in elasticsearch
+ *
+ * The JSON array is read one document at a time and sent to elasticsearch in bulk requests bounded by a number of documents and a size.  Clients are created once per
+ * host and cluster and kept until the processor is stopped.  Documents that fail to index are routed to failure as a new FlowFile.
  */
 @InputRequirement(InputRequirement.Requirement.INPUT_REQUIRED)
 @Tags({"elasticsearch", "thinkbig"})
 @CapabilityDescription("Write FlowFile from a JSON array to Elasticsearch (V2)")
+@WritesAttributes({
+    @WritesAttribute(attribute = IndexElasticSearch.INDEXED_COUNT_ATTRIBUTE, description = "The number of documents indexed"),
+    @WritesAttribute(attribute = IndexElasticSearch.FAILURE_COUNT_ATTRIBUTE, description = "The number of documents that failed to index"),
+    @WritesAttribute(attribute = IndexElasticSearch.FAILURE_REASON_ATTRIBUTE, description = "The reason the first failed document could not be indexed")
+})
 public class IndexElasticSearch extends AbstractNiFiProcessor {
 
+    /**
+     * Attribute for the number of documents indexed
+     */
+    public static final String INDEXED_COUNT_ATTRIBUTE = "elasticsearch.indexed.count";
+
+    /**
+     * Attribute for the number of documents that failed to index
+     */
+    public static final String FAILURE_COUNT_ATTRIBUTE = "elasticsearch.failure.count";
+
+    /**
+     * Attribute for the reason the first failed document could not be indexed
+     */
+    public static final String FAILURE_REASON_ATTRIBUTE = "elasticsearch.failure.reason";
+
     /**
      * Success Relationship for JSON objects that are successfully indexed in elasticsearch
      */
@@ -134,9 +177,75 @@ public class IndexElasticSearch extends AbstractNiFiProcessor {
         .addValidator(StandardValidators.NON_EMPTY_VALIDATOR)
         .expressionLanguageSupported(true)
         .build();
+    /**
+     * Property for the maximum number of documents sent in one bulk request
+     */
+    public static final PropertyDescriptor BULK_MAX_DOCUMENTS = new PropertyDescriptor.Builder()
+        .name("Bulk Max Documents")
+        .description("The maximum number of documents sent to elasticsearch in one bulk request")
+        .required(true)
+        .defaultValue("1000")
+        .addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR)
+        .build();
+
+    /**
+     * Property for the maximum size of one bulk request
+     */
+    public static final PropertyDescriptor BULK_MAX_SIZE = new PropertyDescriptor.Builder()
+        .name("Bulk Max Size")
+        .description("The maximum size of the documents sent to elasticsearch in one bulk request")
+        .required(true)
+        .defaultValue("5 MB")
+        .addValidator(StandardValidators.DATA_SIZE_VALIDATOR)
+        .build();
+
+    /**
+     * Property for the number of bulk requests that may be in flight while the FlowFile is read
+     */
+    public static final PropertyDescriptor CONCURRENT_BULK_REQUESTS = new PropertyDescriptor.Builder()
+        .name("Concurrent Bulk Requests")
+        .description("The number of bulk requests that may be sent while the next one is read from the FlowFile. Reading waits once this many requests are outstanding. "
+                     + "Zero sends each request before reading the next.")
+        .required(true)
+        .defaultValue("1")
+        .addValidator(StandardValidators.NON_NEGATIVE_INTEGER_VALIDATOR)
+        .build();
+
+    /**
+     * Property for how long to wait for the outstanding bulk requests once the FlowFile is read
+     */
+    public static final PropertyDescriptor BULK_TIMEOUT = new PropertyDescriptor.Builder()
+        .name("Bulk Timeout")
+        .description("How long to wait for the outstanding bulk requests once the FlowFile has been read")
+        .required(true)
+        .defaultValue("5 mins")
+        .addValidator(StandardValidators.TIME_PERIOD_VALIDATOR)
+        .build();
+
+    /**
+     * Property for the maximum number of failed documents written to the failure FlowFile
+     */
+    public static final PropertyDescriptor MAX_FAILED_DOCUMENTS = new PropertyDescriptor.Builder()
+        .name("Max Failed Documents")
+        .description("The maximum number of documents that failed to index written to the failure FlowFile. Further failures are only counted.")
+        .required(true)
+        .defaultValue("1000")
+        .addValidator(StandardValidators.NON_NEGATIVE_INTEGER_VALIDATOR)
+        .build();
+
+    /**
+     * The transport port of elasticsearch
+     */
+    private static final int TRANSPORT_PORT = 9300;
+
     private final Set<Relationship> relationships;
     private final List<PropertyDescriptor> propDescriptors;
 
+    /**
+     * Clients by cluster and host name, kept until the processor is stopped
+     */
+    private final ConcurrentMap<String, Client> clients = new ConcurrentHashMap<>();
+
     /**
      * default constructor constructs the relationship and property collections
      */
@@ -152,6 +261,11 @@ public class IndexElasticSearch extends AbstractNiFiProcessor {
         pds.add(HOST_NAME);
         pds.add(CLUSTER_NAME);
         pds.add(ID_FIELD);
+        pds.add(BULK_MAX_DOCUMENTS);
+        pds.add(BULK_MAX_SIZE);
+        pds.add(CONCURRENT_BULK_REQUESTS);
+        pds.add(BULK_TIMEOUT);
+        pds.add(MAX_FAILED_DOCUMENTS);
         propDescriptors = Collections.unmodifiableList(pds);
     }
 
@@ -165,6 +279,21 @@ public class IndexElasticSearch extends AbstractNiFiProcessor {
         return propDescriptors;
     }
 
+    /**
+     * Close the clients when the processor is stopped
+     */
+    @OnStopped
+    public void closeClients() {
+        for (Client client : clients.values()) {
+            try {
+                client.close();
+            } catch (Exception e) {
+                getLog().warn("Unable to close the Elasticsearch client", e);
+            }
+        }
+        clients.clear();
+    }
+
     @Override
     public void onTrigger(final ProcessContext context, final ProcessSession session) throws ProcessException {
         final ComponentLog logger = getLog();
@@ -173,70 +302,211 @@ public class IndexElasticSearch extends AbstractNiFiProcessor {
             return;
         }
         try {
-              /* Configuration parameters for spark launcher */
             String indexName = context.getProperty(INDEX_NAME).evaluateAttributeExpressions(flowFile).getValue();
             String type = context.getProperty(TYPE).evaluateAttributeExpressions(flowFile).getValue();
             String hostName = context.getProperty(HOST_NAME).evaluateAttributeExpressions(flowFile).getValue();
             String clusterName = context.getProperty(CLUSTER_NAME).evaluateAttributeExpressions(flowFile).getValue();
             String idField = context.getProperty(ID_FIELD).evaluateAttributeExpressions(flowFile).getValue();
 
-            final StringBuffer sb = new StringBuffer();
-            session.read(flowFile, new InputStreamCallback() {
+            final BulkIndexer indexer = new BulkIndexer(getClient(hostName, clusterName), indexName, type, idField, context.getProperty(MAX_FAILED_DOCUMENTS).asInteger());
+            final BulkProcessor bulkProcessor = BulkProcessor.builder(indexer.client, indexer)
+                .setBulkActions(context.getProperty(BULK_MAX_DOCUMENTS).asInteger())
+                .setBulkSize(new ByteSizeValue(context.getProperty(BULK_MAX_SIZE).asDataSize(DataUnit.B).longValue(), ByteSizeUnit.BYTES))
+                .setConcurrentRequests(context.getProperty(CONCURRENT_BULK_REQUESTS).asInteger())
+                .build();
 
-                @Override
-                public void process(InputStream in) throws IOException {
-                    sb.append(IOUtils.toString(in, Charset.defaultCharset()));
+            try {
+                session.read(flowFile, in -> {
+                    try (JsonReader reader = new JsonReader(new InputStreamReader(new BufferedInputStream(in), Charset.defaultCharset()))) {
+                        reader.beginArray();
+                        JsonParser parser = new JsonParser();
+                        while (reader.hasNext()) {
+                            indexer.add(bulkProcessor, parser.parse(reader));
+                        }
+                        reader.endArray();
+                    } catch (JsonParseException | IllegalStateException e) {
+                        throw new IOException("Invalid JSON array: " + e.getMessage(), e);
+                    }
+                });
+            } finally {
+                if (!bulkProcessor.awaitClose(context.getProperty(BULK_TIMEOUT).asTimePeriod(TimeUnit.MILLISECONDS), TimeUnit.MILLISECONDS)) {
+                    indexer.timedOut();
                 }
+            }
 
-            });
-
-            logger.debug("The json that was received is: " + sb.toString());
-
-            boolean success = sendToElasticSearch(sb.toString(), hostName, indexName, type, clusterName, idField);
-
-             /* Wait for job completion */
-            if (!success) {
-                logger.info("*** Completed with failed status ");
-                session.transfer(flowFile, REL_FAILURE);
+            if (indexer.failureCount.get() == 0 && !indexer.timedOut) {
+                logger.info("*** Completed with status: indexed {} documents", new Object[]{indexer.indexed.get()});
+                session.transfer(session.putAllAttributes(flowFile, indexer.getAttributes()), REL_SUCCESS);
+            } else if (indexer.timedOut || indexer.indexed.get() == 0) {
+                logger.error("*** Completed with failed status: {}", new Object[]{indexer.firstFailureReason});
+                session.transfer(session.putAllAttributes(flowFile, indexer.getAttributes()), REL_FAILURE);
             } else {
-                logger.info("*** Completed with status ");
-                session.transfer(flowFile, REL_SUCCESS);
+                logger.warn("*** Completed with status: indexed {} documents, {} failed: {}", new Object[]{indexer.indexed.get(), indexer.failureCount.get(), indexer.firstFailureReason});
+                FlowFile failed = session.create(flowFile);
+                failed = session.write(failed, out -> {
+                    out.write('[');
+                    for (int i = 0; i < indexer.failures.size(); i++) {
+                        if (i > 0) {
+                            out.write(',');
+                        }
+                        out.write(indexer.failures.get(i).getBytes(Charset.defaultCharset()));
+                    }
+                    out.write(']');
+                });
+                session.transfer(session.putAllAttributes(failed, indexer.getAttributes()), REL_FAILURE);
+                session.transfer(session.putAllAttributes(flowFile, indexer.getAttributes()), REL_SUCCESS);
             }
         } catch (final Exception e) {
             logger.error("Unable to execute Elasticsearch job", new Object[]{flowFile, e});
             session.transfer(flowFile, REL_FAILURE);
         }
+    }
 
+    /**
+     * Return the client for the host and cluster, creating it if this is the first use since the processor was started
+     */
+    private Client getClient(String hostName, String clusterName) throws UnknownHostException {
+        String key = clusterName + "@" + hostName;
+        Client client = clients.get(key);
+        if (client == null) {
+            synchronized (clients) {
+                client = clients.get(key);
+                if (client == null) {
+                    client = createClient(hostName, clusterName);
+                    clients.put(key, client);
+                }
+            }
+        }
+        return client;
     }
 
-    private boolean sendToElasticSearch(String json, String hostName, String index, String type, String clusterName, String idField) throws Exception {
-        final ComponentLog logger = getLog();
+    /**
+     * Create a client connected to the elasticsearch host
+     *
+     * @param hostName    the elasticsearch host
+     * @param clusterName the elasticsearch cluster
+     * @return the client
+     * @throws UnknownHostException if the host can not be resolved
+     */
+    protected Client createClient(String hostName, String clusterName) throws UnknownHostException {
         Settings settings = Settings.settingsBuilder()
             .put("cluster.name", clusterName).build();
-        Client client = TransportClient.builder().settings(settings).build()
-            .addTransportAddress(new InetSocketTransportAddress(InetAddress.getByName(hostName), 9300));
+        return TransportClient.builder().settings(settings).build()
+            .addTransportAddress(new InetSocketTransportAddress(InetAddress.getByName(hostName), TRANSPORT_PORT));
+    }
+
+    /**
+     * Adds documents to the bulk requests and collects the documents that fail to index, up to a maximum number.  The listener methods are called from the elasticsearch threads
+     * when requests are sent concurrently.
+     */
+    private static class BulkIndexer implements BulkProcessor.Listener {
+
+        private final Client client;
+        private final String index;
+        private final String type;
+        private final String idField;
+        private final int maxFailures;
 
-        JSONArray array = new JSONArray(json);
-        BulkRequestBuilder bulkRequest = client.prepareBulk();
+        private final AtomicLong indexed = new AtomicLong();
 
-        for (int i = 0; i < array.length(); i++) {
-            JSONObject jsonObj = array.getJSONObject(i);
+        private final AtomicLong failureCount = new AtomicLong();
+
+        /**
+         * the source of the first documents that failed to index
+         */
+        private final List<String> failures = Collections.synchronizedList(new ArrayList<>());
+
+        private volatile String firstFailureReason;
+
+        private volatile boolean timedOut;
+
+        BulkIndexer(Client client, String index, String type, String idField, int maxFailures) {
+            this.client = client;
+            this.index = index;
+            this.type = type;
+            this.idField = idField;
+            this.maxFailures = maxFailures;
+        }
+
+        void add(BulkProcessor bulkProcessor, JsonElement element) {
+            if (!element.isJsonObject()) {
+                failed(element::toString, "Not a JSON object");
+                return;
+            }
+            JsonObject jsonObj = element.getAsJsonObject();
             String id;
             if (idField != null && idField.length() > 0) {
-                id = jsonObj.getString(idField);
+                JsonElement idValue = jsonObj.get(idField);
+                if (idValue == null || !idValue.isJsonPrimitive()) {
+                    failed(jsonObj::toString, "Missing id field " + idField);
+                    return;
+                }
+                id = idValue.getAsString();
             } else {
                 id = UUID.randomUUID().toString();
             }
-            jsonObj.put("post_date", String.valueOf(System.currentTimeMillis()));
-            bulkRequest.add(client.prepareIndex(index, type, id)
-                                .setSource(jsonObj.toString())
-            );
+            jsonObj.addProperty("post_date", String.valueOf(System.currentTimeMillis()));
+            bulkProcessor.add(new IndexRequest(index, type, id).source(jsonObj.toString()));
+        }
+
+        @Override
+        public void beforeBulk(long executionId, BulkRequest request) {
+            // nothing to do
+        }
+
+        @Override
+        public void afterBulk(long executionId, BulkRequest request, BulkResponse response) {
+            List<ActionRequest> requests = request.requests();
+            for (BulkItemResponse item : response.getItems()) {
+                if (item.isFailed()) {
+                    final IndexRequest failedRequest = (IndexRequest) requests.get(item.getItemId());
+                    failed(() -> failedRequest.source().toUtf8(), item.getFailureMessage());
+                } else {
+                    indexed.incrementAndGet();
+                }
+            }
+        }
+
+        @Override
+        public void afterBulk(long executionId, BulkRequest request, Throwable failure) {
+            for (ActionRequest action : request.requests()) {
+                failed(() -> ((IndexRequest) action).source().toUtf8(), failure.toString());
+            }
+        }
+
+        /**
+         * Records that not all bulk requests completed in time.  Their documents are not known to be indexed or failed so the whole FlowFile is failed.
+         */
+        void timedOut() {
+            timedOut = true;
+            if (firstFailureReason == null) {
+                firstFailureReason = "Timed out waiting for the bulk requests";
+            }
         }
-        BulkResponse bulkResponse = bulkRequest.get();
-        if (bulkResponse.hasFailures()) {
-            logger.error("Error occurred while batch updating" + bulkResponse.buildFailureMessage());
-            return false;
+
+        /**
+         * Counts the failed document, keeping its source if fewer than the maximum number of failed documents have been kept
+         */
+        private void failed(Supplier<String> source, String reason) {
+            if (firstFailureReason == null) {
+                firstFailureReason = reason;
+            }
+            failureCount.incrementAndGet();
+            synchronized (failures) {
+                if (failures.size() < maxFailures) {
+                    failures.add(source.get());
+                }
+            }
+        }
+
+        Map<String, String> getAttributes() {
+            Map<String, String> attributes = new HashMap<>();
+            attributes.put(INDEXED_COUNT_ATTRIBUTE, String.valueOf(indexed.get()));
+            attributes.put(FAILURE_COUNT_ATTRIBUTE, String.valueOf(failureCount.get()));
+            if (firstFailureReason != null) {
+                attributes.put(FAILURE_REASON_ATTRIBUTE, firstFailureReason);
+            }
+            return attributes;
         }
-        return true;
     }
 }
@@ -0,0 +1,150 @@
+package com.thinkbiganalytics.nifi;
+
+/*-
+ * #%L
+ * thinkbig-nifi-elasticsearch-processors
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.nifi.v2.elasticsearch.IndexElasticSearch;
+
+import org.apache.nifi.util.MockFlowFile;
+import org.apache.nifi.util.TestRunner;
+import org.apache.nifi.util.TestRunners;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.node.Node;
+import org.elasticsearch.node.NodeBuilder;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Indexes documents into an embedded, local elasticsearch node
+ */
+public class IndexElasticSearchLocalNodeTest {
+
+    private static final String TEST_INDEX = "local-test";
+    private static final String TEST_TYPE = "userdatatest";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Node node;
+
+    private TestRunner runner;
+
+    @Before
+    public void setUp() throws Exception {
+        Settings settings = Settings.settingsBuilder()
+            .put("path.home", folder.getRoot().getAbsolutePath())
+            .put("http.enabled", false)
+            .put("index.number_of_shards", 1)
+            .put("index.number_of_replicas", 0)
+            .build();
+        node = NodeBuilder.nodeBuilder().local(true).clusterName("index-elasticsearch-test").settings(settings).node();
+        node.client().admin().cluster().prepareHealth().setWaitForYellowStatus().get();
+
+        final Client client = node.client();
+        runner = TestRunners.newTestRunner(new IndexElasticSearch() {
+            @Override
+            protected Client createClient(String hostName, String clusterName) {
+                return client;
+            }
+        });
+        runner.setProperty(IndexElasticSearch.HOST_NAME, "localhost");
+        runner.setProperty(IndexElasticSearch.CLUSTER_NAME, "index-elasticsearch-test");
+        runner.setProperty(IndexElasticSearch.INDEX_NAME, TEST_INDEX);
+        runner.setProperty(IndexElasticSearch.TYPE, TEST_TYPE);
+        runner.setProperty(IndexElasticSearch.ID_FIELD, "id");
+    }
+
+    @After
+    public void tearDown() {
+        node.close();
+    }
+
+    @Test
+    public void testIndexInBatches() throws Exception {
+        runner.setProperty(IndexElasticSearch.BULK_MAX_DOCUMENTS, "2");
+        runner.setProperty(IndexElasticSearch.CONCURRENT_BULK_REQUESTS, "0");
+        runner.enqueue(getClass().getClassLoader().getResourceAsStream("elasticsearch/insert.json"));
+        runner.run();
+
+        runner.assertAllFlowFilesTransferred(IndexElasticSearch.REL_SUCCESS, 1);
+        MockFlowFile out = runner.getFlowFilesForRelationship(IndexElasticSearch.REL_SUCCESS).get(0);
+        out.assertAttributeEquals(IndexElasticSearch.INDEXED_COUNT_ATTRIBUTE, "9");
+        out.assertAttributeEquals(IndexElasticSearch.FAILURE_COUNT_ATTRIBUTE, "0");
+
+        node.client().admin().indices().prepareRefresh(TEST_INDEX).get();
+        Assert.assertEquals(9L, node.client().prepareSearch(TEST_INDEX).setSize(0).get().getHits().getTotalHits());
+        Assert.assertEquals("Albert", node.client().prepareGet(TEST_INDEX, TEST_TYPE, "2").get().getSource().get("first_name"));
+    }
+
+    @Test
+    public void testFailedDocumentsRoutedToFailure() throws Exception {
+        node.client().admin().indices().prepareCreate(TEST_INDEX).addMapping(TEST_TYPE, "age", "type=long").get();
+        runner.enqueue("[{\"id\": 1, \"age\": 5}, {\"id\": 2, \"age\": \"abc\"}, {\"age\": 7}, {\"id\": 4, \"age\": 9}]".getBytes(StandardCharsets.UTF_8));
+        runner.run();
+
+        runner.assertTransferCount(IndexElasticSearch.REL_SUCCESS, 1);
+        runner.assertTransferCount(IndexElasticSearch.REL_FAILURE, 1);
+        MockFlowFile out = runner.getFlowFilesForRelationship(IndexElasticSearch.REL_SUCCESS).get(0);
+        out.assertAttributeEquals(IndexElasticSearch.INDEXED_COUNT_ATTRIBUTE, "2");
+        out.assertAttributeEquals(IndexElasticSearch.FAILURE_COUNT_ATTRIBUTE, "2");
+
+        MockFlowFile failed = runner.getFlowFilesForRelationship(IndexElasticSearch.REL_FAILURE).get(0);
+        failed.assertAttributeEquals(IndexElasticSearch.FAILURE_COUNT_ATTRIBUTE, "2");
+        String content = new String(failed.toByteArray(), StandardCharsets.UTF_8);
+        Assert.assertTrue(content.contains("\"abc\""));
+        Assert.assertTrue(content.contains("\"age\":7"));
+        Assert.assertFalse(content.contains("\"age\":5"));
+    }
+
+    @Test
+    public void testFailedDocumentsLimited() throws Exception {
+        node.client().admin().indices().prepareCreate(TEST_INDEX).addMapping(TEST_TYPE, "age", "type=long").get();
+        runner.setProperty(IndexElasticSearch.MAX_FAILED_DOCUMENTS, "1");
+        runner.enqueue("[{\"id\": 1, \"age\": 5}, {\"age\": 7}, {\"id\": 2, \"age\": \"abc\"}, {\"id\": 3, \"age\": \"def\"}]".getBytes(StandardCharsets.UTF_8));
+        runner.run();
+
+        runner.assertTransferCount(IndexElasticSearch.REL_SUCCESS, 1);
+        runner.assertTransferCount(IndexElasticSearch.REL_FAILURE, 1);
+        MockFlowFile failed = runner.getFlowFilesForRelationship(IndexElasticSearch.REL_FAILURE).get(0);
+        failed.assertAttributeEquals(IndexElasticSearch.INDEXED_COUNT_ATTRIBUTE, "1");
+        failed.assertAttributeEquals(IndexElasticSearch.FAILURE_COUNT_ATTRIBUTE, "3");
+
+        // Documents without an id fail before the bulk request is sent
+        String content = new String(failed.toByteArray(), StandardCharsets.UTF_8);
+        Assert.assertTrue(content.contains("\"age\":7"));
+        Assert.assertFalse(content.contains("\"abc\""));
+        Assert.assertFalse(content.contains("\"def\""));
+    }
+
+    @Test
+    public void testInvalidJson() {
+        runner.enqueue("{\"id\": 1}".getBytes(StandardCharsets.UTF_8));
+        runner.run();
+
+        runner.assertAllFlowFilesTransferred(IndexElasticSearch.REL_FAILURE, 1);
+    }
+}
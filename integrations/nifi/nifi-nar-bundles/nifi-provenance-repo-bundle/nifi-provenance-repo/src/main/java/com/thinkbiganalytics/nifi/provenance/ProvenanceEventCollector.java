@@ -124,7 +124,7 @@ public class ProvenanceEventCollector {
                         event.setHasFailedEvents(true);
                         FeedFlowFile feedFlowFile = event.getFeedFlowFile();
                         if (feedFlowFile != null) {
-                            feedFlowFile.checkAndMarkComplete(event);
+                            cacheUtil.checkAndMarkComplete(feedFlowFile, event);
                         }
                         event.getFeedFlowFile().incrementFailedEvents();
                     }
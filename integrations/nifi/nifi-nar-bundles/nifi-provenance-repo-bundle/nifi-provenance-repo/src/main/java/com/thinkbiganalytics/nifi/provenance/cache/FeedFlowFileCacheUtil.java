@@ -159,7 +159,7 @@ public class FeedFlowFileCacheUtil {
         feedFlowFile.addEvent(event);
         KyloProcessorFlowType flowType = provenanceFeedLookup.setProcessorFlowType(event);
         feedFlowFile.checkIfEventStartsTheFlowFile(event);
-        feedFlowFile.checkAndMarkComplete(event);
+        checkAndMarkComplete(feedFlowFile, event);
 
         if (KyloProcessorFlowType.FAILURE.equals(flowType)) {
             if (event.getFeedFlowFile() != null) {
@@ -173,8 +173,19 @@ public class FeedFlowFileCacheUtil {
             log.info("Ending the Job for Feed {} and flowfile: {}.  Event: {}  ", event.getFeedName(), event.getFlowFileUuid(), event);
         }
 
+        //track the change so the flow file is persisted on the next checkpoint
+        flowFileCache.markChanged(feedFlowFile);
         eventCounter.incrementAndGet();
 
 
     }
+
+    /**
+     * Mark the flow file as complete if the event is a DROP event.  If this event completed the feed the root flow file is queued for eviction from the cache.
+     */
+    public void checkAndMarkComplete(FeedFlowFile feedFlowFile, ProvenanceEventRecordDTO event) {
+        if (feedFlowFile.checkAndMarkComplete(event)) {
+            flowFileGuavaCache.markComplete(feedFlowFile);
+        }
+    }
 }
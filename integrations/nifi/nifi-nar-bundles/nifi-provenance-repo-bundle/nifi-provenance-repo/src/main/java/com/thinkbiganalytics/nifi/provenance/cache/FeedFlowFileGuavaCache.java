@@ -36,18 +36,23 @@ import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 
 /**
  * As a feed runs through NiFi the root {@link FeedFlowFile} keeps track of its progress and the status of its child flow files {@link FeedFlowFile#activeChildFlowFiles} and last processed
- * ProvenanceEvent {@link FeedFlowFile#flowFileLastEventTime} When a {@link FeedFlowFile} is marked as the complete {@link FeedFlowFile#isFeedComplete()} it will be removed from this cache via the
- * {@link this#expire()} thread When NiFi shuts down the cache is persisted to disk via the {@link FeedFlowFileMapDbCache#persistFlowFiles()} called by the {@link
+ * ProvenanceEvent {@link FeedFlowFile#flowFileLastEventTime} When a {@link FeedFlowFile} is marked as the complete {@link FeedFlowFile#isFeedComplete()} it is queued via {@link this#markComplete(FeedFlowFile)}
+ * and removed from this cache by the {@link this#expire()} thread, which only drains that queue rather than scanning the whole cache. When NiFi shuts down the cache is persisted to disk via the {@link FeedFlowFileMapDbCache#persistFlowFiles()} called by the {@link
  * com.thinkbiganalytics.nifi.provenance.reporting.KyloProvenanceEventReportingTask#onShutdown(ConfigurationContext)} This is to ensure that on startup of NiFi the tracking of the running flow files
- * is kept in tact When NiFi starts the persisted disk cache is checked and loaded back into this cache via the {@link KyloProvenanceEventReportingTask#onConfigurationRestored()}
+ * is kept in tact When NiFi starts the persisted disk cache is registered via the {@link KyloProvenanceEventReportingTask#onConfigurationRestored()} and persisted flow files are loaded back into this
+ * cache the first time they are looked up
  */
 public class FeedFlowFileGuavaCache {
 
@@ -56,6 +61,18 @@ public class FeedFlowFileGuavaCache {
      * The cache of FeedFlowFiles
      */
     private final Cache<String, FeedFlowFile> cache;
+    /**
+     * The root FeedFlowFiles that have completed and are waiting to be expired
+     */
+    private final Queue<CompletedFeedFlowFile> completedFeedFlowFiles = new ConcurrentLinkedQueue<>();
+    /**
+     * The root FeedFlowFiles that have changed since the last {@link FeedFlowFileMapDbCache#checkpoint()}, keyed by their id
+     */
+    private final Map<String, FeedFlowFile> changedFeedFlowFiles = new ConcurrentHashMap<>();
+    /**
+     * Finds the persisted root FeedFlowFile for a flow file id that is not in this cache
+     */
+    private Function<String, FeedFlowFile> persistedFlowFileLoader;
     /**
      * The amount of time the expire thread should run to check and expire the feed flow files
      */
@@ -88,24 +105,60 @@ public class FeedFlowFileGuavaCache {
         listeners.add(listener);
     }
 
+    /**
+     * Set the function used to load a persisted FeedFlowFile the first time one of its ids is looked up
+     */
+    public void setPersistedFlowFileLoader(Function<String, FeedFlowFile> persistedFlowFileLoader) {
+        this.persistedFlowFileLoader = persistedFlowFileLoader;
+    }
+
     /**
      * Check to see if a given flowfile is in the cache
      *
      * @return true if in the cache, false if not
      */
     public boolean isCached(String flowFileId) {
-        return cache.getIfPresent(flowFileId) != null;
+        return getEntry(flowFileId) != null;
     }
 
 
     /**
-     * Get a FeedFlowFile from the cache.
+     * Get a FeedFlowFile from the cache, loading it from the persisted flow files if needed.
      * If the FeedFlowFile is not there it will return  null
      *
      * @return the FeedFlowFile, or null if not present
      */
     public FeedFlowFile getEntry(String id) {
-        return cache.getIfPresent(id);
+        FeedFlowFile flowFile = cache.getIfPresent(id);
+        if (flowFile == null && persistedFlowFileLoader != null) {
+            flowFile = loadPersisted(id);
+        }
+        return flowFile;
+    }
+
+    /**
+     * Load a persisted root FeedFlowFile and add it to the cache along with its active child flow file ids
+     */
+    private synchronized FeedFlowFile loadPersisted(String id) {
+        FeedFlowFile flowFile = cache.getIfPresent(id);
+        if (flowFile == null) {
+            FeedFlowFile root = persistedFlowFileLoader.apply(id);
+            if (root != null) {
+                FeedFlowFile existing = cache.asMap().putIfAbsent(root.getId(), root);
+                if (existing != null) {
+                    root = existing;
+                } else if (root.isFeedComplete()) {
+                    markComplete(root);
+                }
+                if (root.getActiveChildFlowFiles() != null) {
+                    for (String childId : root.getActiveChildFlowFiles()) {
+                        cache.asMap().putIfAbsent(childId, root);
+                    }
+                }
+                flowFile = cache.getIfPresent(id);
+            }
+        }
+        return flowFile;
     }
 
 
@@ -129,6 +182,7 @@ public class FeedFlowFileGuavaCache {
 
     /**
      * Return all the FeedFlowFiles in the cache that are complete and Done.
+     * This scans the entire cache.  The {@link this#expire()} thread uses the completion queue populated by {@link this#markComplete(FeedFlowFile)} instead.
      *
      * @return the flow files that are completed
      */
@@ -136,6 +190,47 @@ public class FeedFlowFileGuavaCache {
         return getFlowFiles().stream().filter(flowFile -> (flowFile.isFeedComplete())).collect(Collectors.toList());
     }
 
+    /**
+     * Queue a root FeedFlowFile that has just completed so it is removed, along with its children, on the next {@link this#expire()} run
+     *
+     * @param flowFile the root flow file that completed
+     */
+    public void markComplete(FeedFlowFile flowFile) {
+        if (flowFile != null) {
+            completedFeedFlowFiles.add(new CompletedFeedFlowFile(flowFile, System.currentTimeMillis()));
+        }
+    }
+
+    /**
+     * Record that a root FeedFlowFile has changed so it is written on the next {@link FeedFlowFileMapDbCache#checkpoint()}
+     *
+     * @param flowFile the root flow file that changed
+     */
+    public void markChanged(FeedFlowFile flowFile) {
+        changedFeedFlowFiles.put(flowFile.getId(), flowFile);
+    }
+
+    /**
+     * Remove and return the root FeedFlowFiles that changed since this was last called
+     */
+    public List<FeedFlowFile> drainChangedFeedFlowFiles() {
+        List<FeedFlowFile> changed = new ArrayList<>(changedFeedFlowFiles.size());
+        for (String id : changedFeedFlowFiles.keySet()) {
+            FeedFlowFile flowFile = changedFeedFlowFiles.remove(id);
+            if (flowFile != null) {
+                changed.add(flowFile);
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * @return the number of completed FeedFlowFiles waiting to be expired
+     */
+    public int getPendingCompletedCount() {
+        return completedFeedFlowFiles.size();
+    }
+
 
     /**
      * Invalidate and remove the given FeedFlowFile from the cache
@@ -161,20 +256,26 @@ public class FeedFlowFileGuavaCache {
 
 
     /**
-     * Expire any completed FeedFlowFiles checking the {@link FeedFlowFile#isFeedComplete()} to determine if the FeedFlowFile is complete
+     * Expire the FeedFlowFiles queued by {@link this#markComplete(FeedFlowFile)}, checking the {@link FeedFlowFile#isFeedComplete()} again before removing them,
+     * and update the cache gauges in {@link AggregationEventProcessingStats}
      */
     public void expire() {
         try {
             long start = System.currentTimeMillis();
-            List<FeedFlowFile> rootFiles = getCompletedFeedFlowFiles();
-            if (!rootFiles.isEmpty()) {
-                for (FeedFlowFile root : rootFiles) {
-                    invalidate(root);
-                }
+            int expired = 0;
+            long maxLag = 0L;
+            CompletedFeedFlowFile completed;
+            while ((completed = completedFeedFlowFiles.poll()) != null) {
+                maxLag = Math.max(maxLag, start - completed.getCompletedTime());
+                invalidate(completed.getFeedFlowFile());
+                expired++;
+            }
+            long size = cache.size();
+            AggregationEventProcessingStats.setFeedFlowFileCacheSize(size);
+            AggregationEventProcessingStats.setFeedFlowFileEvictionLagMillis(maxLag);
+            if (expired > 0) {
                 long stop = System.currentTimeMillis();
-                if (rootFiles.size() > 0) {
-                    log.info("Time to expire {} flowfile and all references {} ms. FeedFlowFile and references left in cache: {} ", rootFiles.size(), (stop - start), getFlowFiles().size());
-                }
+                log.info("Time to expire {} flowfile and all references {} ms. FeedFlowFile and references left in cache: {} ", expired, (stop - start), size);
             }
             if (lastPrintLogTime == null || (lastPrintLogTime != null && DateTime.now().getMillis() - lastPrintLogTime.getMillis() > (PRINT_LOG_MILLIS))) {
                 printSummary();
@@ -191,7 +292,8 @@ public class FeedFlowFileGuavaCache {
      */
     public void printSummary() {
         Map<String, FeedFlowFile> map = cache.asMap();
-        log.info("FeedFlowFile Cache Size: {}  ", map.size());
+        log.info("FeedFlowFile Cache Size: {}, waiting to expire: {}, last eviction lag: {} ms ", map.size(), completedFeedFlowFiles.size(),
+                 AggregationEventProcessingStats.getFeedFlowFileEvictionLagMillis());
         log.info("ProvenanceEvent JMS Stats:  Sent {} statistics events to JMS.  Sent {} batch events to JMS ", AggregationEventProcessingStats.getStreamingEventsSent(),
                  AggregationEventProcessingStats.getBatchEventsSent());
 
@@ -210,5 +312,28 @@ public class FeedFlowFileGuavaCache {
 
     }
 
+    /**
+     * A root FeedFlowFile and the time it was marked complete
+     */
+    private static class CompletedFeedFlowFile {
+
+        private final FeedFlowFile feedFlowFile;
+
+        private final long completedTime;
+
+        CompletedFeedFlowFile(FeedFlowFile feedFlowFile, long completedTime) {
+            this.feedFlowFile = feedFlowFile;
+            this.completedTime = completedTime;
+        }
+
+        FeedFlowFile getFeedFlowFile() {
+            return feedFlowFile;
+        }
+
+        long getCompletedTime() {
+            return completedTime;
+        }
+    }
+
 
 }
@@ -38,22 +38,21 @@ import java.util.concurrent.TimeUnit;
 import javax.annotation.PostConstruct;
 
 /**
- * Persist any running flowfiles to disk when NiFi shuts down to maintain the processing feed status when NiFi comes back up
+ * Persist the running flowfiles to disk to maintain the processing feed status when NiFi comes back up.
+ *
+ * Root {@link FeedFlowFile}s that changed since the last checkpoint are written using the {@link FeedFlowFileSerializer} every {@link this#checkpointIntervalMillis}, and again when NiFi shuts
+ * down.  On startup nothing is loaded eagerly.  The {@link FeedFlowFileGuavaCache} pages a persisted flow file in the first time one of its ids is looked up.
  */
 public class FeedFlowFileMapDbCache implements FeedFlowFileCacheListener {
 
     private static final Logger log = LoggerFactory.getLogger(FeedFlowFileMapDbCache.class);
 
     /**
-     * the in memory MapDb database
+     * Name of the map used by earlier versions that persisted the flow files with Java serialization
      */
-    private DB inMemoryDb;
-
-    /**
-     * The cache loaded from Disk an put into Memory.
-     */
-    private ConcurrentMap<String, FeedFlowFile> memFeedFlowFileCache;
+    private static final String LEGACY_MAP_NAME = "feedFlowFile";
 
+    private static final int DEFAULT_CHECKPOINT_SECONDS = 30;
 
     /**
      * the persistent mapdb database
@@ -61,10 +60,15 @@ public class FeedFlowFileMapDbCache implements FeedFlowFileCacheListener {
     private DB persistentDb;
 
     /**
-     * The file that will be persisted to disk
+     * The persisted root flow files keyed by their id
      */
     private ConcurrentMap<String, FeedFlowFile> persistentFlowFileCache;
 
+    /**
+     * Index of the root and active child flow file ids to the id of the persisted root flow file
+     */
+    private ConcurrentMap<String, String> persistentFlowFileRoots;
+
 
     @Autowired
     private FeedFlowFileGuavaCache cache;
@@ -73,41 +77,48 @@ public class FeedFlowFileMapDbCache implements FeedFlowFileCacheListener {
 
     private TimeUnit expireAfterUnit = TimeUnit.DAYS;
 
+    /**
+     * How often the changed flow files are written to disk
+     */
+    private long checkpointIntervalMillis;
+
+    private long lastCheckpointTime = System.currentTimeMillis();
+
 
     public FeedFlowFileMapDbCache(String fileLocation) {
-        log.info("Initialize FeedFlowFileMapDbCache cache at: {}, keeping running flowfiles for {} days", fileLocation, expireAfterNumber);
+        this(fileLocation, DEFAULT_CHECKPOINT_SECONDS);
+    }
 
-        try {
-            //delete the file after its loaded/opened
-            inMemoryDb = DBMaker.fileDB(fileLocation).fileMmapEnable()
-                .fileMmapEnableIfSupported() // Only enable mmap on supported platforms
-                .fileMmapPreclearDisable()   // Make mmap file faster
-                .cleanerHackEnable()
-                .checksumHeaderBypass()
-                .fileDeleteAfterOpen()
-                .closeOnJvmShutdown().make();
-            memFeedFlowFileCache =
-                (HTreeMap<String, FeedFlowFile>) inMemoryDb.hashMap("feedFlowFile").keySerializer(Serializer.STRING).valueSerializer(Serializer.JAVA).expireAfterCreate(expireAfterNumber,
-                                                                                                                                                                        expireAfterUnit)
-                    .createOrOpen();
+    public FeedFlowFileMapDbCache(String fileLocation, int checkpointIntervalSeconds) {
+        log.info("Initialize FeedFlowFileMapDbCache cache at: {}, keeping running flowfiles for {} days, checkpointing every {} seconds", fileLocation, expireAfterNumber,
+                 checkpointIntervalSeconds);
+        this.checkpointIntervalMillis = TimeUnit.SECONDS.toMillis(checkpointIntervalSeconds);
 
-            //create a new db that will be used when persisting the data to disk
+        try {
             persistentDb = DBMaker.fileDB(fileLocation).fileMmapEnable()
                 .fileMmapEnableIfSupported() // Only enable mmap on supported platforms
                 .fileMmapPreclearDisable()   // Make mmap file faster
                 .cleanerHackEnable()
                 .checksumHeaderBypass()
+                .transactionEnable()         // a checkpoint is only visible once committed so a crash leaves the last checkpoint intact
                 .closeOnJvmShutdown().make();
             persistentFlowFileCache =
-                (HTreeMap<String, FeedFlowFile>) persistentDb.hashMap("feedFlowFile").keySerializer(Serializer.STRING).valueSerializer(Serializer.JAVA)
+                (HTreeMap<String, FeedFlowFile>) persistentDb.hashMap("feedFlowFiles").keySerializer(Serializer.STRING).valueSerializer(new FeedFlowFileSerializer())
+                    .expireAfterCreate(expireAfterNumber, expireAfterUnit).expireAfterUpdate(expireAfterNumber, expireAfterUnit)
+                    .createOrOpen();
+            persistentFlowFileRoots =
+                (HTreeMap<String, String>) persistentDb.hashMap("feedFlowFileRoots").keySerializer(Serializer.STRING).valueSerializer(Serializer.STRING)
+                    .expireAfterCreate(expireAfterNumber, expireAfterUnit).expireAfterUpdate(expireAfterNumber, expireAfterUnit)
                     .createOrOpen();
+            migrateLegacyCache();
 
-            log.info("Successfully created FeedFlowFileMapDbCache cache at: {},  with starting size of: {} ", fileLocation, memFeedFlowFileCache.size());
+            log.info("Successfully created FeedFlowFileMapDbCache cache at: {},  with starting size of: {} ", fileLocation, persistentFlowFileCache.size());
         } catch (Exception e) {
             log.error("Error creating mapdb cache. {}.  If NiFi goes down with flows in progress Kylo will not be able to connect the running flows on restart to their Kylo job executions",
                       e.getMessage(), e);
-            memFeedFlowFileCache = new ConcurrentHashMap<>();
+            persistentDb = null;
             persistentFlowFileCache = new ConcurrentHashMap<>();
+            persistentFlowFileRoots = new ConcurrentHashMap<>();
         }
     }
 
@@ -117,75 +128,151 @@ public class FeedFlowFileMapDbCache implements FeedFlowFileCacheListener {
         cache.subscribe(this);
     }
 
+    /**
+     * Copy any flow files persisted with Java serialization by an earlier version into the current maps
+     */
+    private void migrateLegacyCache() {
+        if (persistentDb.exists(LEGACY_MAP_NAME)) {
+            HTreeMap<String, FeedFlowFile> legacy = persistentDb.hashMap(LEGACY_MAP_NAME).keySerializer(Serializer.STRING).valueSerializer(Serializer.JAVA).createOrOpen();
+            int migrated = 0;
+            for (FeedFlowFile flowFile : legacy.values()) {
+                cacheFlowFile(flowFile);
+                migrated++;
+            }
+            legacy.clear();
+            persistentDb.commit();
+            log.info("Migrated {} flow files persisted with Java serialization", migrated);
+        }
+    }
+
 
     /**
      * When the {@link FeedFlowFileGuavaCache} is invalidated then it is also removed from the persistent disk storage if it exists.
      */
     public void onInvalidate(FeedFlowFile flowFile) {
-        if (flowFile.isBuiltFromMapDb()) {
+        if (persistentFlowFileCache.remove(flowFile.getId()) != null) {
             log.debug("Removing completed flowfile {} from mapDbCache ", flowFile.getId());
-            memFeedFlowFileCache.remove(flowFile.getId());
+            persistentFlowFileRoots.remove(flowFile.getId());
             //remove any other references to this feed flowfile
             if (flowFile.getChildFlowFiles() != null) {
-                flowFile.getChildFlowFiles().stream().forEach(flowFileId -> memFeedFlowFileCache.remove(flowFileId));
+                flowFile.getChildFlowFiles().stream().forEach(flowFileId -> persistentFlowFileRoots.remove(flowFileId));
             }
         }
     }
 
     /**
-     * Load the persisted cached back into the {@link FeedFlowFileGuavaCache}
+     * Allow the {@link FeedFlowFileGuavaCache} to load the persisted flow files on demand.  Nothing is read from disk until a flow file id is looked up.
+     *
+     * @return the number of persisted root flow files available to be loaded
      */
     public int loadGuavaCache() {
+        cache.setPersistedFlowFileLoader(this::load);
+        return persistentFlowFileCache.size();
+    }
 
-        memFeedFlowFileCache.values().stream().forEach(feedFlowFile -> {
-            feedFlowFile.setBuiltFromMapDb(true);
-            cache.add(feedFlowFile.getId(), feedFlowFile);
-            if (feedFlowFile.getActiveChildFlowFiles() != null) {
-                feedFlowFile.getActiveChildFlowFiles().stream().forEach(feedFlowFileId -> cache.add(feedFlowFileId, feedFlowFile));
+    /**
+     * Find the persisted root flow file for the given flow file id
+     *
+     * @param flowFileId the id of the root or one of its active child flow files
+     * @return the root flow file, or null if it is not persisted
+     */
+    public FeedFlowFile load(String flowFileId) {
+        String rootId = persistentFlowFileRoots.get(flowFileId);
+        if (rootId == null) {
+            return null;
+        }
+        try {
+            FeedFlowFile flowFile = persistentFlowFileCache.get(rootId);
+            if (flowFile != null) {
+                flowFile.setBuiltFromMapDb(true);
+                return flowFile;
             }
-        });
-        return memFeedFlowFileCache.values().size();
-
-
+        } catch (Exception e) {
+            log.error("Unable to load persisted flow file {} for {}. {} ", rootId, flowFileId, e.getMessage(), e);
+            persistentFlowFileCache.remove(rootId);
+        }
+        //the root has expired or could not be read
+        persistentFlowFileRoots.remove(flowFileId);
+        return null;
     }
 
     /**
      * return the size of the MapDB Cache
      */
     public Integer size() {
-        return memFeedFlowFileCache.size();
+        return persistentFlowFileCache.size();
     }
 
 
     public Collection<FeedFlowFile> getCache() {
-        return memFeedFlowFileCache.values();
+        return persistentFlowFileCache.values();
     }
 
     /**
-     * Persist the {@link FeedFlowFileGuavaCache} to disk
+     * Write the changed flow files to disk if the checkpoint interval has elapsed since the last checkpoint
+     *
+     * @return the number of flow files written
      */
-    public int persistFlowFiles() {
-        Collection<FeedFlowFile> flowFiles = cache.getFlowFiles();
-        log.info("About to persist {}  flow files to disk via MapDB ", flowFiles.size());
-        flowFiles.stream().forEach(feedFlowFile -> cacheFlowFile(feedFlowFile));
-        log.info("Successfully persisted {}  flow files to disk via MapDB.  Persisted Map Size is: {} entries ", flowFiles.size(), persistentFlowFileCache.size());
-        if (flowFiles != null && !flowFiles.isEmpty()) {
-            if (inMemoryDb != null) {
-                inMemoryDb.commit();
-                inMemoryDb.close();
-            }
-            if (persistentDb != null) {
-                persistentDb.commit();
-                persistentDb.close();
-                log.info("Successfully closed the flow file MapDB cache file.");
+    public int checkpointIfNecessary() {
+        if (System.currentTimeMillis() - lastCheckpointTime >= checkpointIntervalMillis) {
+            return checkpoint();
+        }
+        return 0;
+    }
+
+    /**
+     * Write the root flow files in the {@link FeedFlowFileGuavaCache} that changed since the last checkpoint to disk.
+     * This should be called from the thread processing the provenance events so the flow files are not modified while they are written.
+     *
+     * @return the number of flow files written
+     */
+    public synchronized int checkpoint() {
+        long start = System.currentTimeMillis();
+        int count = 0;
+        for (FeedFlowFile flowFile : cache.drainChangedFeedFlowFiles()) {
+            if (!flowFile.isFeedComplete()) {
+                try {
+                    cacheFlowFile(flowFile);
+                    count++;
+                } catch (Exception e) {
+                    log.error("Unable to checkpoint flow file {}. It will be retried on the next checkpoint. {} ", flowFile.getId(), e.getMessage(), e);
+                    cache.markChanged(flowFile);
+                }
             }
         }
-        return flowFiles.size();
+        if (persistentDb != null) {
+            persistentDb.commit();
+        }
+        lastCheckpointTime = System.currentTimeMillis();
+        if (count > 0) {
+            log.debug("Checkpointed {} flow files to disk in {} ms. Persisted Map Size is: {} entries ", count, lastCheckpointTime - start, persistentFlowFileCache.size());
+        }
+        return count;
+    }
+
+    /**
+     * Checkpoint any remaining changes and close the MapDB file when NiFi shuts down
+     *
+     * @return the number of root flow files persisted on disk
+     */
+    public int persistFlowFiles() {
+        int checkpointed = checkpoint();
+        int size = persistentFlowFileCache.size();
+        log.info("Successfully persisted {} changed flow files to disk via MapDB.  Persisted Map Size is: {} entries ", checkpointed, size);
+        if (persistentDb != null) {
+            persistentDb.close();
+            log.info("Successfully closed the flow file MapDB cache file.");
+        }
+        return size;
     }
 
 
     public void cacheFlowFile(FeedFlowFile flowFile) {
         persistentFlowFileCache.put(flowFile.getId(), flowFile);
+        persistentFlowFileRoots.put(flowFile.getId(), flowFile.getId());
+        if (flowFile.getActiveChildFlowFiles() != null) {
+            flowFile.getActiveChildFlowFiles().stream().forEach(flowFileId -> persistentFlowFileRoots.put(flowFileId, flowFile.getId()));
+        }
     }
 
 
@@ -51,6 +51,12 @@ public class NifiProvenanceConfig {
     @Value("${kylo.provenance.feedflowfile.mapdb.cache.location:/opt/nifi/feed-flowfile-cache.db}")
     private String feedFlowFileMapDbCacheLocation;
 
+    /**
+     * how often, in seconds, the running flow files that changed are written to the map db cache file
+     **/
+    @Value("${kylo.provenance.feedflowfile.mapdb.checkpoint.seconds:30}")
+    private Integer feedFlowFileMapDbCheckpointSeconds;
+
     @Bean
     public SpringApplicationContext springApplicationContext() {
         return new SpringApplicationContext();
@@ -76,7 +82,7 @@ public class NifiProvenanceConfig {
     @Bean
     public FeedFlowFileMapDbCache feedFlowFileMapDbCache() {
         String location = feedFlowFileMapDbCacheLocation;
-        return new FeedFlowFileMapDbCache(location);
+        return new FeedFlowFileMapDbCache(location, feedFlowFileMapDbCheckpointSeconds);
     }
 
     @Bean
@@ -0,0 +1,50 @@
+package com.thinkbiganalytics.nifi.provenance.jms;
+
+/*-
+ * #%L
+ * thinkbig-nifi-provenance-repo
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * The format used to write provenance events and statistics to the JMS queues
+ */
+public enum JmsMessageFormat {
+
+    /**
+     * Java serialization of the object graph.  Supported by every version of Kylo
+     */
+    JAVA_SERIALIZATION,
+
+    /**
+     * The Kylo provenance binary codec
+     */
+    KYLO_BINARY,
+
+    /**
+     * The Kylo provenance binary codec with a compressed body
+     */
+    KYLO_BINARY_COMPRESSED;
+
+    public boolean isBinary() {
+        return this != JAVA_SERIALIZATION;
+    }
+
+    public boolean isCompressed() {
+        return this == KYLO_BINARY_COMPRESSED;
+    }
+}
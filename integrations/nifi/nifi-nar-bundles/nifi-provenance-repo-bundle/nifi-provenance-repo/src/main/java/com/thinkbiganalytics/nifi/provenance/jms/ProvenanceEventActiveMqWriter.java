@@ -24,6 +24,7 @@ import com.thinkbiganalytics.activemq.SendJmsMessage;
 import com.thinkbiganalytics.nifi.activemq.Queues;
 import com.thinkbiganalytics.nifi.provenance.AggregationEventProcessingStats;
 import com.thinkbiganalytics.nifi.provenance.model.ProvenanceEventRecordDTOHolder;
+import com.thinkbiganalytics.nifi.provenance.model.codec.ProvenanceBinaryCodec;
 import com.thinkbiganalytics.nifi.provenance.model.stats.AggregatedFeedProcessorStatisticsHolder;
 
 import org.slf4j.Logger;
@@ -54,6 +55,11 @@ public class ProvenanceEventActiveMqWriter {
 
     private Map<String, Set<JmsSendListener>> listeners = new HashMap<>();
 
+    /**
+     * The format used to write messages to JMS. Java serialization is the default as it is understood by all versions of Kylo
+     */
+    private JmsMessageFormat messageFormat = JmsMessageFormat.JAVA_SERIALIZATION;
+
     public ProvenanceEventActiveMqWriter() {
 
     }
@@ -67,6 +73,14 @@ public class ProvenanceEventActiveMqWriter {
 
     }
 
+    public JmsMessageFormat getMessageFormat() {
+        return messageFormat;
+    }
+
+    public void setMessageFormat(JmsMessageFormat messageFormat) {
+        this.messageFormat = messageFormat != null ? messageFormat : JmsMessageFormat.JAVA_SERIALIZATION;
+    }
+
     /**
      * Notify any listeners of a successful JMS send
      */
@@ -94,7 +108,12 @@ public class ProvenanceEventActiveMqWriter {
         try {
             if (stats.getEventCount().get() > 0) {
                 logger.info("SENDING AGGREGATED STAT to JMS {} ", stats);
-                sendJmsMessage.sendSerializedObjectToQueue(Queues.PROVENANCE_EVENT_STATS_QUEUE, stats);
+                if (messageFormat.isBinary()) {
+                    byte[] payload = ProvenanceBinaryCodec.encodeStats(stats, messageFormat.isCompressed());
+                    sendJmsMessage.sendBytesToQueue(Queues.PROVENANCE_EVENT_STATS_QUEUE, payload, ProvenanceBinaryCodec.CODEC_NAME);
+                } else {
+                    sendJmsMessage.sendSerializedObjectToQueue(Queues.PROVENANCE_EVENT_STATS_QUEUE, stats);
+                }
                 AggregationEventProcessingStats.addStreamingEvents(stats.getEventCount().intValue());
                 notifySuccess(Queues.PROVENANCE_EVENT_STATS_QUEUE, stats);
             }
@@ -112,7 +131,12 @@ public class ProvenanceEventActiveMqWriter {
     public void writeBatchEvents(ProvenanceEventRecordDTOHolder events) {
         try {
             logger.info("SENDING Events to JMS {} ", events);
-            sendJmsMessage.sendSerializedObjectToQueue(Queues.FEED_MANAGER_QUEUE, events);
+            if (messageFormat.isBinary()) {
+                byte[] payload = ProvenanceBinaryCodec.encodeEvents(events, messageFormat.isCompressed());
+                sendJmsMessage.sendBytesToQueue(Queues.FEED_MANAGER_QUEUE, payload, ProvenanceBinaryCodec.CODEC_NAME);
+            } else {
+                sendJmsMessage.sendSerializedObjectToQueue(Queues.FEED_MANAGER_QUEUE, events);
+            }
             AggregationEventProcessingStats.addBatchEvents(events.getEvents().size());
             notifySuccess(Queues.FEED_MANAGER_QUEUE, events);
         } catch (Exception e) {
@@ -28,6 +28,7 @@ import com.thinkbiganalytics.nifi.provenance.ProvenanceEventObjectPool;
 import com.thinkbiganalytics.nifi.provenance.ProvenanceEventRecordConverter;
 import com.thinkbiganalytics.nifi.provenance.ProvenanceFeedLookup;
 import com.thinkbiganalytics.nifi.provenance.cache.FeedFlowFileMapDbCache;
+import com.thinkbiganalytics.nifi.provenance.jms.JmsMessageFormat;
 import com.thinkbiganalytics.nifi.provenance.jms.ProvenanceEventActiveMqWriter;
 import com.thinkbiganalytics.nifi.provenance.model.ProvenanceEventRecordDTO;
 import com.thinkbiganalytics.nifi.provenance.util.SpringApplicationContext;
@@ -57,7 +58,6 @@ import org.springframework.beans.BeansException;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
@@ -128,6 +128,26 @@ public class KyloProvenanceEventReportingTask extends AbstractReportingTask {
         .addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR)
         .expressionLanguageSupported(true)
         .build();
+    protected static final PropertyDescriptor PREFETCH_BATCHES = new PropertyDescriptor.Builder()
+        .name("Prefetch batches")
+        .description("The number of processing batches to query from NiFi provenance ahead of the batch being processed and sent to Kylo.  This overlaps the provenance queries with the "
+                     + "processing when there are many events to process.  Each prefetched batch holds up to 'Processing batch size' events in memory.  Set to 0 to query each batch only when it is "
+                     + "processed.")
+        .defaultValue("1")
+        .required(false)
+        .addValidator(StandardValidators.NON_NEGATIVE_INTEGER_VALIDATOR)
+        .expressionLanguageSupported(true)
+        .build();
+    protected static final PropertyDescriptor JMS_MESSAGE_FORMAT = new PropertyDescriptor.Builder()
+        .name("JMS message format")
+        .description("The format used to send events and statistics to Kylo."
+                     + "\nJAVA_SERIALIZATION: Java serialization of the event objects. This is understood by all versions of Kylo."
+                     + "\nKYLO_BINARY: a compact binary encoding.  Kylo detects the format of each message so this can be changed at any time once Kylo supports it."
+                     + "\nKYLO_BINARY_COMPRESSED: the binary encoding with a compressed body. This uses less network and broker storage at the cost of some CPU.")
+        .allowableValues(JmsMessageFormat.values())
+        .required(true)
+        .defaultValue(JmsMessageFormat.JAVA_SERIALIZATION.toString())
+        .build();
     PropertyDescriptor METADATA_SERVICE = new PropertyDescriptor.Builder()
         .name("Metadata Service")
         .description("Think Big metadata service")
@@ -186,6 +206,10 @@ public class KyloProvenanceEventReportingTask extends AbstractReportingTask {
      * value from PROCESSING_BATCH_SIZE
      */
     private Integer processingBatchSize;
+    /**
+     * value from PREFETCH_BATCHES
+     */
+    private Integer prefetchBatches;
     /**
      * value from LAST_EVENT_ID_NOT_FOUND_VALUE
      */
@@ -230,6 +254,8 @@ public class KyloProvenanceEventReportingTask extends AbstractReportingTask {
         properties.add(LAST_EVENT_ID_NOT_FOUND_VALUE);
         properties.add(INITIAL_EVENT_ID_VALUE);
         properties.add(PROCESSING_BATCH_SIZE);
+        properties.add(PREFETCH_BATCHES);
+        properties.add(JMS_MESSAGE_FORMAT);
         return properties;
     }
 
@@ -242,9 +268,11 @@ public class KyloProvenanceEventReportingTask extends AbstractReportingTask {
         this.jmsEventGroupSize = context.getProperty(JMS_EVENT_GROUP_SIZE).asInteger();
         getProvenanceEventCollector().setMaxBatchFeedJobEventsPerSecond(this.maxBatchFeedJobEventsPerSecond);
         getProvenanceEventCollector().setJmsEventGroupSize(this.jmsEventGroupSize);
+        getProvenanceEventActiveMqWriter().setMessageFormat(JmsMessageFormat.valueOf(context.getProperty(JMS_MESSAGE_FORMAT).getValue()));
         Boolean rebuildOnRestart = context.getProperty(REBUILD_CACHE_ON_RESTART).asBoolean();
 
         this.processingBatchSize = context.getProperty(PROCESSING_BATCH_SIZE).asInteger();
+        this.prefetchBatches = context.getProperty(PREFETCH_BATCHES).evaluateAttributeExpressions().asInteger();
         this.lastEventIdNotFoundValue = LAST_EVENT_ID_NOT_FOUND_OPTION.valueOf(context.getProperty(LAST_EVENT_ID_NOT_FOUND_VALUE).getValue());
         this.initialEventIdValue = INITIAL_EVENT_ID_OPTION.valueOf(context.getProperty(INITIAL_EVENT_ID_VALUE).getValue());
 
@@ -308,11 +336,23 @@ public class KyloProvenanceEventReportingTask extends AbstractReportingTask {
     }
 
     /**
-     * attempt to load the data from disk into the Guava Cache
+     * attempt to load the data from disk into the Guava Cache.  The persisted flow files are loaded on demand the first time they are looked up.
      */
     private void initializeFlowFilesFromMapDbCache() {
-        int loadedRootFlowFiles = getFlowFileMapDbCache().loadGuavaCache();
-        getLogger().info("initializeFlowFilesFromMapDbCache: Finished loading {} persisted files from disk into the Guava Cache", new Object[]{loadedRootFlowFiles});
+        int persistedRootFlowFiles = getFlowFileMapDbCache().loadGuavaCache();
+        getLogger().info("initializeFlowFilesFromMapDbCache: {} persisted files on disk will be loaded into the Guava Cache as they are needed", new Object[]{persistedRootFlowFiles});
+    }
+
+    /**
+     * Write the running flow files that changed during this trigger to disk if the checkpoint interval has elapsed.
+     * This runs on the trigger thread so the flow files are not modified while being written
+     */
+    private void checkpointFlowFiles() {
+        try {
+            getFlowFileMapDbCache().checkpointIfNecessary();
+        } catch (Exception e) {
+            getLogger().warn("Unable to checkpoint the running flow files to disk: {} ", new Object[]{e.getMessage()}, e);
+        }
     }
 
     /**
@@ -547,20 +587,26 @@ public class KyloProvenanceEventReportingTask extends AbstractReportingTask {
 
                 //reset the queryTime holder
                 nifiQueryTime = 0L;
-                while (recordCount > 0) {
-                    if (!isProcessing()) {
-                        break;
-                    }
-                    long min = lastEventId + 1;
-                    long max = (min + (batchSize - 1)) > maxEventId ? maxEventId : (min + (batchSize - 1));
-                    int batchAmount = new Long(max - (min < 0 ? 0 : min)).intValue() + 1;
-                    if (batchAmount <= 0) {
-                        break;
-                    } else {
-                        lastEventId = processEventsInRange(provenance, min, max);
-                        recordCount -= batchAmount;
-                        recordCount = recordCount < 0 ? 0 : recordCount;
+                long waitTime = 0L;
+                //the next range is queried from provenance while the current range is processed and sent to Kylo
+                int prefetch = prefetchBatches == null || prefetchBatches < 0 ? 1 : prefetchBatches;
+                try (ProvenanceEventRangePrefetcher prefetcher = new ProvenanceEventRangePrefetcher(provenance, nextId, maxEventId, batchSize, prefetch)) {
+                    while (recordCount > 0 && isProcessing()) {
+                        long waitStart = System.currentTimeMillis();
+                        ProvenanceEventRangePrefetcher.EventRange range = prefetcher.next();
+                        waitTime += System.currentTimeMillis() - waitStart;
+                        if (range == null) {
+                            break;
+                        }
+                        currentProcessingMessage = "Finding all Events between " + range.getMinEventId() + " - " + range.getMaxEventId();
+
+                        //only checkpoint the range once all of its events have been processed and sent
+                        if (!processEventsInRange(range)) {
+                            break;
+                        }
+                        lastEventId = range.getMaxEventId();
                         setLastEventId(lastEventId);
+                        recordCount = (int) (maxEventId - lastEventId);
 
                         if (lastLogTime == null || (DateTime.now().getMillis() - lastLogTime.getMillis() > logReportingTimeMs)) {
                             lastLogTime = DateTime.now();
@@ -569,17 +615,13 @@ public class KyloProvenanceEventReportingTask extends AbstractReportingTask {
                                 new Object[]{lastEventId, recordCount});
                         }
                     }
-                    if (!isProcessing()) {
-                        break;
-                    }
-
-
+                    nifiQueryTime = prefetcher.getQueryTime();
                 }
                 if (totalRecords > 0 && isProcessing()) {
                     long processingTime = (System.currentTimeMillis() - start);
                     getLogger().info(
-                        "KyloProvenanceEventReportingTask onTrigger Info: ReportingTask finished. Last Event id: {}. Total time to process {} events was {} ms.  Total time spent querying for events in Nifi was {} ms.  Kylo ProcessingTime: {} ms ",
-                        new Object[]{lastEventId, totalRecords, processingTime, nifiQueryTime, processingTime - nifiQueryTime});
+                        "KyloProvenanceEventReportingTask onTrigger Info: ReportingTask finished. Last Event id: {}. Total time to process {} events was {} ms.  Total time spent querying for events in Nifi was {} ms, of which {} ms was spent waiting.  Kylo ProcessingTime: {} ms ",
+                        new Object[]{lastEventId, totalRecords, processingTime, nifiQueryTime, waitTime, processingTime - waitTime});
                 }
 
                 finishProcessing(totalRecords);
@@ -587,6 +629,7 @@ public class KyloProvenanceEventReportingTask extends AbstractReportingTask {
             } catch (IOException e) {
                 getLogger().error(e.getMessage(), e);
             } finally {
+                checkpointFlowFiles();
                 abortProcessing();
             }
         } else {
@@ -735,29 +778,18 @@ public class KyloProvenanceEventReportingTask extends AbstractReportingTask {
     }
 
     /**
-     * processes all events inclusive in the range
+     * processes all events queried for the range
      *
-     * @param provenance the repository to query
-     * @param minEventId the minEventId to query
-     * @param maxEventId the maxEvent id to query
-     * @return the lastEventId processed
+     * @param range the events in the range, sorted by event id
+     * @return true if all of the events were processed and sent to JMS, false if processing was aborted
      */
-    private Long processEventsInRange(ProvenanceEventRepository provenance, Long minEventId, Long maxEventId) throws IOException {
+    private boolean processEventsInRange(ProvenanceEventRangePrefetcher.EventRange range) {
         Long lastEventId = null;
-
-        int recordCount = new Long(maxEventId - (minEventId < 0 ? 0 : minEventId)).intValue();
-        currentProcessingMessage = "Finding all Events between " + minEventId + " - " + maxEventId;
-
-        //add one to the record count to get the correct number in the range including the maxEventId
-        recordCount += 1;
-        long start = System.currentTimeMillis();
-        final List<ProvenanceEventRecord> events = provenance.getEvents(minEventId, recordCount);
+        boolean completed = false;
 
         updateNifiFlowCache();
 
-        long end = System.currentTimeMillis();
-        nifiQueryTime += (end - start);
-        Collections.sort(events, new ProvenanceEventRecordComparator());
+        final List<ProvenanceEventRecord> events = range.getEvents();
         ProvenanceEventObjectPool pool = getProvenanceEventObjectPool();
         List<ProvenanceEventRecordDTO> pooledEvents = new ArrayList<>(events.size());
         try {
@@ -775,6 +807,7 @@ public class KyloProvenanceEventReportingTask extends AbstractReportingTask {
             }
             //Send JMS off
             getProvenanceEventCollector().sendToJms();
+            completed = isProcessing();
         } catch (Exception e) {
             getLogger().error("Error processing Kylo ProvenanceEvent ", e);
             abortProcessing();
@@ -795,8 +828,7 @@ public class KyloProvenanceEventReportingTask extends AbstractReportingTask {
         }
         getLogger().info("ProvenanceEventPool: Pool Stats: Created:[" + pool.getCreatedCount() + "], Borrowed:[" + pool.getBorrowedCount() + "]");
 
-        return lastEventId == null ? minEventId : lastEventId;
-
+        return completed;
     }
 
     /**
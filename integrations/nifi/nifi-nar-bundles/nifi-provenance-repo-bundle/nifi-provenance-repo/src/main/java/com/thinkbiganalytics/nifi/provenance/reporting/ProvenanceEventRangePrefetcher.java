@@ -0,0 +1,241 @@
+package com.thinkbiganalytics.nifi.provenance.reporting;
+
+/*-
+ * #%L
+ * thinkbig-nifi-provenance-repo
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.apache.nifi.provenance.ProvenanceEventRecord;
+import org.apache.nifi.provenance.ProvenanceEventRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Queries consecutive ranges of provenance events on a background thread so that the next range is fetched from the NiFi provenance repository while the current range is being processed and sent
+ * to Kylo.
+ *
+ * <p>At most {@code prefetchRanges} ranges are held in memory ahead of the consumer. Ranges are always returned in order and each contains only the events with ids inside the range, so a range
+ * can be checkpointed once it has been processed.</p>
+ */
+public class ProvenanceEventRangePrefetcher implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ProvenanceEventRangePrefetcher.class);
+
+    /**
+     * Marks the end of the ranges in the queue
+     */
+    private static final EventRange END = new EventRange(-1L, -1L, Collections.<ProvenanceEventRecord>emptyList(), null);
+
+    private final ProvenanceEventRepository provenance;
+
+    private final long maxEventId;
+
+    private final int batchSize;
+
+    /**
+     * the next event id to be queried
+     */
+    private long nextEventId;
+
+    /**
+     * ranges fetched ahead of the consumer, or null if the ranges are queried by the consumer
+     */
+    private final BlockingQueue<EventRange> queue;
+
+    private final Thread producer;
+
+    /**
+     * total time spent querying the provenance repository
+     */
+    private final AtomicLong queryTime = new AtomicLong(0L);
+
+    private volatile boolean closed = false;
+
+    private boolean finished = false;
+
+    /**
+     * Creates a prefetcher for the events between {@code firstEventId} and {@code maxEventId}, inclusive
+     *
+     * @param provenance     the repository to query
+     * @param firstEventId   the first event id to query
+     * @param maxEventId     the last event id to query
+     * @param batchSize      the number of event ids in each range
+     * @param prefetchRanges the number of ranges to query ahead of the consumer, or 0 to query each range when it is requested
+     */
+    public ProvenanceEventRangePrefetcher(ProvenanceEventRepository provenance, long firstEventId, long maxEventId, int batchSize, int prefetchRanges) {
+        this.provenance = provenance;
+        this.nextEventId = firstEventId < 0 ? 0 : firstEventId;
+        this.maxEventId = maxEventId;
+        this.batchSize = batchSize;
+
+        if (prefetchRanges > 0) {
+            queue = new ArrayBlockingQueue<>(prefetchRanges);
+            producer = new Thread(this::produce, "KyloProvenancePrefetch");
+            producer.setDaemon(true);
+            producer.start();
+        } else {
+            queue = null;
+            producer = null;
+        }
+    }
+
+    /**
+     * Gets the next range of events, waiting for it to be queried if necessary
+     *
+     * @return the next range, or null if there are no more ranges
+     * @throws IOException if the provenance repository could not be queried
+     */
+    public EventRange next() throws IOException {
+        if (finished || closed) {
+            return null;
+        }
+
+        EventRange range;
+        if (queue == null) {
+            range = hasNextRange() ? fetchNextRange() : END;
+        } else {
+            try {
+                range = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for provenance events", e);
+            }
+        }
+
+        if (range == END) {
+            finished = true;
+            return null;
+        } else if (range.getError() != null) {
+            finished = true;
+            throw range.getError();
+        } else {
+            return range;
+        }
+    }
+
+    /**
+     * Total time in milliseconds spent querying the provenance repository
+     */
+    public long getQueryTime() {
+        return queryTime.get();
+    }
+
+    /**
+     * Stops querying for ranges and releases any that have been fetched
+     */
+    @Override
+    public void close() {
+        closed = true;
+        if (producer != null) {
+            producer.interrupt();
+            queue.clear();
+        }
+    }
+
+    private void produce() {
+        try {
+            while (!closed && hasNextRange()) {
+                EventRange range;
+                try {
+                    range = fetchNextRange();
+                } catch (IOException | RuntimeException e) {
+                    range = new EventRange(nextEventId, nextEventId, Collections.<ProvenanceEventRecord>emptyList(), e instanceof IOException ? (IOException) e : new IOException(e));
+                    queue.put(range);
+                    return;
+                }
+                queue.put(range);
+            }
+            queue.put(END);
+        } catch (InterruptedException e) {
+            log.debug("Stopped prefetching provenance events before event id {}", nextEventId);
+        }
+    }
+
+    private boolean hasNextRange() {
+        return nextEventId <= maxEventId;
+    }
+
+    /**
+     * Queries the next range of events, dropping any events outside of the range
+     */
+    private EventRange fetchNextRange() throws IOException {
+        final long min = nextEventId;
+        final long max = Math.min(maxEventId, min + batchSize - 1);
+
+        long start = System.currentTimeMillis();
+        List<ProvenanceEventRecord> events = provenance.getEvents(min, (int) (max - min + 1));
+        queryTime.addAndGet(System.currentTimeMillis() - start);
+
+        List<ProvenanceEventRecord> rangeEvents = new ArrayList<>(events.size());
+        for (ProvenanceEventRecord event : events) {
+            if (event != null && event.getEventId() >= min && event.getEventId() <= max) {
+                rangeEvents.add(event);
+            }
+        }
+        rangeEvents.sort(Comparator.comparingLong(ProvenanceEventRecord::getEventId));
+
+        nextEventId = max + 1;
+        return new EventRange(min, max, rangeEvents, null);
+    }
+
+    /**
+     * The events queried for a range of event ids
+     */
+    public static class EventRange {
+
+        private final long minEventId;
+        private final long maxEventId;
+        private final List<ProvenanceEventRecord> events;
+        private final IOException error;
+
+        EventRange(long minEventId, long maxEventId, List<ProvenanceEventRecord> events, IOException error) {
+            this.minEventId = minEventId;
+            this.maxEventId = maxEventId;
+            this.events = events;
+            this.error = error;
+        }
+
+        public long getMinEventId() {
+            return minEventId;
+        }
+
+        public long getMaxEventId() {
+            return maxEventId;
+        }
+
+        /**
+         * the events in the range, sorted by event id
+         */
+        public List<ProvenanceEventRecord> getEvents() {
+            return events;
+        }
+
+        IOException getError() {
+            return error;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.thinkbiganalytics.nifi.provenance.cache;
+
+/*-
+ * #%L
+ * thinkbig-nifi-provenance-repo
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.nifi.provenance.AggregationEventProcessingStats;
+import com.thinkbiganalytics.nifi.provenance.model.FeedFlowFile;
+import com.thinkbiganalytics.nifi.provenance.model.ProvenanceEventRecordDTO;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class FeedFlowFileGuavaCacheTest {
+
+    /**
+     * Verify only the roots queued on completion are expired, along with their children.
+     */
+    @Test
+    public void testExpireCompleted() {
+        FeedFlowFileGuavaCache cache = new FeedFlowFileGuavaCache();
+
+        FeedFlowFile running = new FeedFlowFile("running");
+        cache.add(running.getId(), running);
+
+        FeedFlowFile root = new FeedFlowFile("root");
+        root.addChildFlowFile("child");
+        cache.add(root.getId(), root);
+        cache.add("child", root);
+
+        // dropping the root leaves the child active so the feed is not complete
+        Assert.assertFalse(root.checkAndMarkComplete(dropEvent("root")));
+        Assert.assertTrue(root.checkAndMarkComplete(dropEvent("child")));
+        Assert.assertFalse(root.checkAndMarkComplete(dropEvent("child")));
+        cache.markComplete(root);
+        Assert.assertEquals(1, cache.getPendingCompletedCount());
+
+        cache.expire();
+        Assert.assertEquals(0, cache.getPendingCompletedCount());
+        Assert.assertFalse(cache.isCached("root"));
+        Assert.assertFalse(cache.isCached("child"));
+        Assert.assertTrue(cache.isCached("running"));
+        Assert.assertEquals(1L, AggregationEventProcessingStats.getFeedFlowFileCacheSize().longValue());
+    }
+
+    /**
+     * Verify a queued root that is no longer complete stays in the cache.
+     */
+    @Test
+    public void testExpireIncomplete() {
+        FeedFlowFileGuavaCache cache = new FeedFlowFileGuavaCache();
+        FeedFlowFile root = new FeedFlowFile("root");
+        cache.add(root.getId(), root);
+        cache.markComplete(root);
+
+        cache.expire();
+        Assert.assertTrue(cache.isCached("root"));
+        Assert.assertEquals(0, cache.getPendingCompletedCount());
+    }
+
+    private ProvenanceEventRecordDTO dropEvent(String flowFileId) {
+        ProvenanceEventRecordDTO event = new ProvenanceEventRecordDTO();
+        event.setEventType("DROP");
+        event.setFlowFileUuid(flowFileId);
+        return event;
+    }
+}
@@ -0,0 +1,89 @@
+package com.thinkbiganalytics.nifi.provenance.cache;
+
+/*-
+ * #%L
+ * thinkbig-nifi-provenance-repo
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.nifi.provenance.model.FeedFlowFile;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+
+public class FeedFlowFileMapDbCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Verify only changed flow files are checkpointed and that they are loaded on demand after a restart.
+     */
+    @Test
+    public void testCheckpointAndLazyLoad() throws Exception {
+        String location = new File(folder.getRoot(), "feed-flowfile-cache.db").getAbsolutePath();
+
+        FeedFlowFileGuavaCache guavaCache = new FeedFlowFileGuavaCache();
+        FeedFlowFileMapDbCache mapDbCache = newMapDbCache(location, guavaCache);
+
+        FeedFlowFile root = new FeedFlowFile("root");
+        root.setFeedName("category.feed");
+        root.addChildFlowFile("child");
+        guavaCache.add(root.getId(), root);
+        guavaCache.add("child", root);
+
+        Assert.assertEquals(0, mapDbCache.checkpoint());
+        guavaCache.markChanged(root);
+        Assert.assertEquals(1, mapDbCache.checkpoint());
+        Assert.assertEquals(0, mapDbCache.checkpoint());
+        Assert.assertEquals(1, mapDbCache.persistFlowFiles());
+
+        // restart
+        guavaCache = new FeedFlowFileGuavaCache();
+        mapDbCache = newMapDbCache(location, guavaCache);
+        Assert.assertFalse(guavaCache.isCached("child"));
+        Assert.assertEquals(1, mapDbCache.loadGuavaCache());
+
+        FeedFlowFile loaded = guavaCache.getEntry("child");
+        Assert.assertNotNull(loaded);
+        Assert.assertEquals("root", loaded.getId());
+        Assert.assertEquals("category.feed", loaded.getFeedName());
+        Assert.assertTrue(loaded.isBuiltFromMapDb());
+        Assert.assertSame(loaded, guavaCache.getEntry("root"));
+        Assert.assertNull(guavaCache.getEntry("unknown"));
+
+        // once complete the flow file is removed from disk
+        loaded.setCurrentFlowFileComplete(true);
+        loaded.getActiveChildFlowFiles().clear();
+        guavaCache.invalidate(loaded);
+        Assert.assertEquals(0, mapDbCache.size().intValue());
+        Assert.assertNull(mapDbCache.load("child"));
+        mapDbCache.persistFlowFiles();
+    }
+
+    private FeedFlowFileMapDbCache newMapDbCache(String location, FeedFlowFileGuavaCache guavaCache) {
+        FeedFlowFileMapDbCache mapDbCache = new FeedFlowFileMapDbCache(location, 30);
+        ReflectionTestUtils.setField(mapDbCache, "cache", guavaCache);
+        guavaCache.subscribe(mapDbCache);
+        return mapDbCache;
+    }
+}
@@ -0,0 +1,99 @@
+package com.thinkbiganalytics.nifi.provenance.reporting;
+
+/*-
+ * #%L
+ * thinkbig-nifi-provenance-repo
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.apache.nifi.provenance.ProvenanceEventRecord;
+import org.apache.nifi.provenance.ProvenanceEventRepository;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+public class ProvenanceEventRangePrefetcherTest {
+
+    /**
+     * Verify ranges are returned in order with only the events inside of each range.
+     */
+    @Test
+    public void testRanges() throws Exception {
+        for (int prefetch = 0; prefetch <= 2; prefetch++) {
+            // Event 4 is missing so the query for the second range also returns event 6
+            ProvenanceEventRepository provenance = mockRepository(LongStream.rangeClosed(0, 9).filter(id -> id != 4).toArray());
+
+            try (ProvenanceEventRangePrefetcher prefetcher = new ProvenanceEventRangePrefetcher(provenance, 0, 9, 3, prefetch)) {
+                assertRange(prefetcher.next(), 0, 2, 0, 1, 2);
+                assertRange(prefetcher.next(), 3, 5, 3, 5);
+                assertRange(prefetcher.next(), 6, 8, 6, 7, 8);
+                assertRange(prefetcher.next(), 9, 9, 9);
+                Assert.assertNull(prefetcher.next());
+            }
+        }
+    }
+
+    /**
+     * Verify a failed query is reported after the ranges fetched before it.
+     */
+    @Test
+    public void testQueryError() throws Exception {
+        ProvenanceEventRepository provenance = mockRepository(0, 1, 2);
+        Mockito.when(provenance.getEvents(Mockito.eq(3L), Mockito.anyInt())).thenThrow(new IOException("repository closed"));
+
+        try (ProvenanceEventRangePrefetcher prefetcher = new ProvenanceEventRangePrefetcher(provenance, 0, 5, 3, 1)) {
+            assertRange(prefetcher.next(), 0, 2, 0, 1, 2);
+            try {
+                prefetcher.next();
+                Assert.fail("Expected IOException");
+            } catch (IOException e) {
+                Assert.assertEquals("repository closed", e.getMessage());
+            }
+            Assert.assertNull(prefetcher.next());
+        }
+    }
+
+    private static void assertRange(ProvenanceEventRangePrefetcher.EventRange range, long min, long max, long... eventIds) {
+        Assert.assertNotNull(range);
+        Assert.assertEquals(min, range.getMinEventId());
+        Assert.assertEquals(max, range.getMaxEventId());
+        Assert.assertArrayEquals(eventIds, range.getEvents().stream().mapToLong(ProvenanceEventRecord::getEventId).toArray());
+    }
+
+    /**
+     * Creates a repository that returns up to the requested number of events starting at the first event id, like the NiFi provenance repository.
+     */
+    private static ProvenanceEventRepository mockRepository(long... eventIds) throws IOException {
+        ProvenanceEventRepository provenance = Mockito.mock(ProvenanceEventRepository.class);
+        Mockito.when(provenance.getEvents(Mockito.anyLong(), Mockito.anyInt())).then(invocation -> {
+            long first = invocation.getArgumentAt(0, Long.class);
+            int max = invocation.getArgumentAt(1, Integer.class);
+            List<ProvenanceEventRecord> events = LongStream.of(eventIds).filter(id -> id >= first).limit(max).mapToObj(id -> {
+                ProvenanceEventRecord event = Mockito.mock(ProvenanceEventRecord.class);
+                Mockito.when(event.getEventId()).thenReturn(id);
+                return event;
+            }).collect(Collectors.toList());
+            return events;
+        });
+        return provenance;
+    }
+}
@@ -27,6 +27,8 @@ import com.thinkbiganalytics.nifi.security.KerberosProperties;
 import com.thinkbiganalytics.nifi.security.SecurityUtil;
 import com.thinkbiganalytics.nifi.security.SpringSecurityContextLoader;
 import com.thinkbiganalytics.nifi.util.InputStreamReaderRunnable;
+import com.thinkbiganalytics.nifi.v2.spark.driver.SparkExecutionService;
+import com.thinkbiganalytics.nifi.v2.spark.driver.SparkJobRequest;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.hadoop.conf.Configuration;
@@ -52,11 +54,14 @@ import org.apache.spark.launcher.SparkLauncher;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import javax.annotation.Nonnull;
 
@@ -195,6 +200,21 @@ public class ExecutePySpark extends AbstractNiFiProcessor {
         .addValidator(StandardValidators.NON_EMPTY_VALIDATOR)
         .expressionLanguageSupported(true)
         .build();
+    public static final PropertyDescriptor SPARK_EXECUTION_SERVICE = new PropertyDescriptor.Builder()
+        .name("Spark Execution Service")
+        .description("Runs the PySpark job on a warm Spark driver instead of launching a new Spark application. The Spark settings of the service are used instead of the Spark settings "
+                     + "of this processor.")
+        .required(false)
+        .identifiesControllerService(SparkExecutionService.class)
+        .build();
+    public static final PropertyDescriptor PROCESS_TIMEOUT = new PropertyDescriptor.Builder()
+        .name("Spark Process Timeout")
+        .description("Time to wait for the PySpark job to complete on the Spark Execution Service. Routes to failure if the job runs for longer than expected here")
+        .required(true)
+        .defaultValue("1 hr")
+        .addValidator(StandardValidators.TIME_PERIOD_VALIDATOR)
+        .expressionLanguageSupported(true)
+        .build();
     /* Processor relationships */
     public static final Relationship REL_SUCCESS = new Relationship.Builder()
         .name("success")
@@ -311,6 +331,8 @@ public class ExecutePySpark extends AbstractNiFiProcessor {
         properties.add(EXECUTOR_CORES);
         properties.add(NETWORK_TIMEOUT);
         properties.add(ADDITIONAL_SPARK_CONFIG_OPTIONS);
+        properties.add(SPARK_EXECUTION_SERVICE);
+        properties.add(PROCESS_TIMEOUT);
         this.properties = Collections.unmodifiableList(properties);
 
          /* Create list of relationships */
@@ -359,6 +381,8 @@ public class ExecutePySpark extends AbstractNiFiProcessor {
             final String executorCores = context.getProperty(EXECUTOR_CORES).evaluateAttributeExpressions(flowFile).getValue();
             final String networkTimeout = context.getProperty(NETWORK_TIMEOUT).evaluateAttributeExpressions(flowFile).getValue();
             final String additionalSparkConfigOptions = context.getProperty(ADDITIONAL_SPARK_CONFIG_OPTIONS).evaluateAttributeExpressions(flowFile).getValue();
+            final SparkExecutionService executionService = context.getProperty(SPARK_EXECUTION_SERVICE).asControllerService(SparkExecutionService.class);
+            final long processTimeout = context.getProperty(PROCESS_TIMEOUT).evaluateAttributeExpressions(flowFile).asTimePeriod(TimeUnit.SECONDS);
 
             PySparkUtils pySparkUtils = new PySparkUtils();
 
@@ -433,6 +457,24 @@ public class ExecutePySpark extends AbstractNiFiProcessor {
                 }
             }
 
+            /* Run PySpark job on a warm driver */
+            if (executionService != null) {
+                final List<String> pyFiles = (pySparkAdditionalFilesArray != null) ? Arrays.asList(pySparkAdditionalFilesArray) : Collections.<String>emptyList();
+                final List<String> appArgs = (pySparkAppArgsArray != null) ? Arrays.asList(pySparkAppArgsArray) : Collections.<String>emptyList();
+
+                logger.info("Waiting for PySpark job to complete on Spark Execution Service");
+                final int exitCode;
+                try {
+                    exitCode = executionService.execute(SparkJobRequest.forPythonApp(pySparkAppFile, pyFiles, appArgs), processTimeout, TimeUnit.SECONDS, logger::info);
+                } catch (final TimeoutException e) {
+                    logger.error("PySpark job timed out after {} seconds using flow file: {}", new Object[]{processTimeout, flowFile});
+                    session.transfer(flowFile, REL_FAILURE);
+                    return;
+                }
+                transferResult(session, flowFile, exitCode);
+                return;
+            }
+
             /* Build and launch PySpark Job */
             logger.info("Configuring PySpark job for execution");
             SparkLauncher pySparkLauncher = new SparkLauncher()
@@ -520,20 +562,24 @@ public class ExecutePySpark extends AbstractNiFiProcessor {
 
             logger.info("Waiting for PySpark job to complete");
 
-            int exitCode = pySparkProcess.waitFor();
-            if (exitCode != 0) {
-                logger.info("Finished execution of PySpark job [FAILURE] [Status code: {}]", new Object[]{exitCode});
-                session.transfer(flowFile, REL_FAILURE);
-            } else {
-                logger.info("Finished execution of PySpark job [SUCCESS] [Status code: {}]", new Object[]{exitCode});
-                session.transfer(flowFile, REL_SUCCESS);
-            }
+            transferResult(session, flowFile, pySparkProcess.waitFor());
         } catch (final Exception e) {
             logger.error("Unable to execute PySpark job [FAILURE]", new Object[]{flowFile, e});
             session.transfer(flowFile, REL_FAILURE);
         }
     }
 
+    /* Routes the flow file based on the exit code of the PySpark job */
+    private void transferResult(ProcessSession session, FlowFile flowFile, int exitCode) {
+        if (exitCode != 0) {
+            getLog().info("Finished execution of PySpark job [FAILURE] [Status code: {}]", new Object[]{exitCode});
+            session.transfer(flowFile, REL_FAILURE);
+        } else {
+            getLog().info("Finished execution of PySpark job [SUCCESS] [Status code: {}]", new Object[]{exitCode});
+            session.transfer(flowFile, REL_SUCCESS);
+        }
+    }
+
     @Override
     protected Collection<ValidationResult> customValidate(ValidationContext validationContext) {
         final List<ValidationResult> results = new ArrayList<>();
@@ -30,6 +30,8 @@ import com.thinkbiganalytics.nifi.security.ApplySecurityPolicy;
 import com.thinkbiganalytics.nifi.security.KerberosProperties;
 import com.thinkbiganalytics.nifi.security.SecurityUtil;
 import com.thinkbiganalytics.nifi.security.SpringSecurityContextLoader;
+import com.thinkbiganalytics.nifi.v2.spark.driver.SparkExecutionService;
+import com.thinkbiganalytics.nifi.v2.spark.driver.SparkJobRequest;
 import com.thinkbiganalytics.nifi.util.InputStreamReaderRunnable;
 
 import org.apache.commons.lang3.StringUtils;
@@ -66,6 +68,7 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.regex.Pattern;
 
 import javax.annotation.Nonnull;
@@ -235,6 +238,13 @@ public class ExecuteSparkJob extends AbstractNiFiProcessor {
         .required(false)
         .identifiesControllerService(MetadataProviderService.class)
         .build();
+    public static final PropertyDescriptor SPARK_EXECUTION_SERVICE = new PropertyDescriptor.Builder()
+        .name("Spark Execution Service")
+        .description("Runs the Spark job on a warm Spark driver instead of launching a new Spark application. The Spark settings of the service are used instead of the Spark settings of "
+                     + "this processor. Jobs using Data Sources are always launched as a new Spark application.")
+        .required(false)
+        .identifiesControllerService(SparkExecutionService.class)
+        .build();
 
     /**
      * Matches a comma-separated list of UUIDs
@@ -348,6 +358,7 @@ public class ExecuteSparkJob extends AbstractNiFiProcessor {
         pds.add(EXTRA_SPARK_FILES);
         pds.add(DATASOURCES);
         pds.add(METADATA_SERVICE);
+        pds.add(SPARK_EXECUTION_SERVICE);
         propDescriptors = Collections.unmodifiableList(pds);
     }
 
@@ -397,6 +408,7 @@ public class ExecuteSparkJob extends AbstractNiFiProcessor {
             Integer sparkProcessTimeout = context.getProperty(PROCESS_TIMEOUT).evaluateAttributeExpressions(flowFile).asTimePeriod(TimeUnit.SECONDS).intValue();
             String datasourceIds = context.getProperty(DATASOURCES).evaluateAttributeExpressions(flowFile).getValue();
             MetadataProviderService metadataService = context.getProperty(METADATA_SERVICE).asControllerService(MetadataProviderService.class);
+            SparkExecutionService executionService = context.getProperty(SPARK_EXECUTION_SERVICE).asControllerService(SparkExecutionService.class);
 
             String[] confs = null;
             if (!StringUtils.isEmpty(sparkConfs)) {
@@ -495,6 +507,27 @@ public class ExecuteSparkJob extends AbstractNiFiProcessor {
                 env.put("DATASOURCES", datasources.toString());
             }
 
+            /* Run the spark job on a warm driver */
+            if (executionService != null && env.isEmpty()) {
+                final List<String> jars = new ArrayList<>();
+                jars.add(appJar);
+                jars.addAll(extraJarPaths);
+                final SparkJobRequest request = new SparkJobRequest(mainClass, jars, (args != null) ? Arrays.asList(args) : Collections.<String>emptyList());
+
+                logger.info("Waiting for Spark job to complete on Spark Execution Service");
+                final int exitCode;
+                try {
+                    exitCode = executionService.execute(request, sparkProcessTimeout, TimeUnit.SECONDS, logger::info);
+                } catch (final TimeoutException e) {
+                    getLog().error("Spark job timed out after {} seconds using flow file: {}  ", new Object[]{sparkProcessTimeout, flowFile});
+                    session.transfer(flowFile, REL_FAILURE);
+                    return;
+                }
+
+                transferResult(context, session, flowFile, exitCode, PROVENANCE_JOB_STATUS_KEY, PROVENANCE_SPARK_EXIT_CODE_KEY);
+                return;
+            }
+
              /* Launch the spark job as a child process */
             SparkLauncher launcher = new SparkLauncher(env)
                 .setAppResource(appJar)
@@ -559,18 +592,7 @@ public class ExecuteSparkJob extends AbstractNiFiProcessor {
                 return;
             }
 
-            int exitCode = spark.exitValue();
-
-            flowFile = session.putAttribute(flowFile, PROVENANCE_SPARK_EXIT_CODE_KEY, exitCode + "");
-            if (exitCode != 0) {
-                logger.error("ExecuteSparkJob for {} and flowfile: {} completed with failed status {} ", new Object[]{context.getName(), flowFile, exitCode});
-                flowFile = session.putAttribute(flowFile, PROVENANCE_JOB_STATUS_KEY, "Failed");
-                session.transfer(flowFile, REL_FAILURE);
-            } else {
-                logger.info("ExecuteSparkJob for {} and flowfile: {} completed with success status {} ", new Object[]{context.getName(), flowFile, exitCode});
-                flowFile = session.putAttribute(flowFile, PROVENANCE_JOB_STATUS_KEY, "Success");
-                session.transfer(flowFile, REL_SUCCESS);
-            }
+            transferResult(context, session, flowFile, spark.exitValue(), PROVENANCE_JOB_STATUS_KEY, PROVENANCE_SPARK_EXIT_CODE_KEY);
         } catch (final Exception e) {
             logger.error("Unable to execute Spark job {},{}", new Object[]{flowFile, e.getMessage()}, e);
             flowFile = session.putAttribute(flowFile, PROVENANCE_JOB_STATUS_KEY, "Failed With Exception");
@@ -579,6 +601,24 @@ public class ExecuteSparkJob extends AbstractNiFiProcessor {
         }
     }
 
+    /**
+     * Records the exit code of the Spark job and routes the flow file to success or failure.
+     */
+    private void transferResult(@Nonnull final ProcessContext context, @Nonnull final ProcessSession session, @Nonnull FlowFile flowFile, final int exitCode,
+                                @Nonnull final String jobStatusKey, @Nonnull final String exitCodeKey) {
+        final ComponentLog logger = getLog();
+        flowFile = session.putAttribute(flowFile, exitCodeKey, exitCode + "");
+        if (exitCode != 0) {
+            logger.error("ExecuteSparkJob for {} and flowfile: {} completed with failed status {} ", new Object[]{context.getName(), flowFile, exitCode});
+            flowFile = session.putAttribute(flowFile, jobStatusKey, "Failed");
+            session.transfer(flowFile, REL_FAILURE);
+        } else {
+            logger.info("ExecuteSparkJob for {} and flowfile: {} completed with success status {} ", new Object[]{context.getName(), flowFile, exitCode});
+            flowFile = session.putAttribute(flowFile, jobStatusKey, "Success");
+            session.transfer(flowFile, REL_SUCCESS);
+        }
+    }
+
     @Override
     protected Collection<ValidationResult> customValidate(@Nonnull final ValidationContext validationContext) {
         final Set<ValidationResult> results = new HashSet<>();
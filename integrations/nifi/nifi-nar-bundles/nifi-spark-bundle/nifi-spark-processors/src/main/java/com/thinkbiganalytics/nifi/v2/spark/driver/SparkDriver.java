@@ -0,0 +1,178 @@
+package com.thinkbiganalytics.nifi.v2.spark.driver;
+
+/*-
+ * #%L
+ * thinkbig-nifi-spark-processors
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * A connection from a {@link SparkDriverPool} to a {@link SparkDriverHost}.
+ *
+ * <p>A driver runs one job at a time. After an I/O error or a timeout the driver is in an unknown state and should be closed.</p>
+ */
+class SparkDriver implements Closeable {
+
+    /**
+     * Spark driver process, or {@code null} if the driver is not a child process
+     */
+    @Nullable
+    private final Process process;
+
+    /**
+     * Connection to the driver
+     */
+    @Nonnull
+    private final Socket socket;
+
+    private final DataInputStream in;
+    private final DataOutputStream out;
+
+    /**
+     * Indicates that the connection is in an unknown state
+     */
+    private volatile boolean broken;
+
+    SparkDriver(@Nullable final Process process, @Nonnull final Socket socket) throws IOException {
+        this.process = process;
+        this.socket = socket;
+        this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+    }
+
+    /**
+     * Waits for the driver to start its Spark context.
+     *
+     * @param timeoutMillis the maximum time to wait
+     * @throws IOException      if the driver cannot be reached
+     * @throws TimeoutException if the driver is not ready within the timeout
+     */
+    void awaitReady(final long timeoutMillis) throws IOException, TimeoutException {
+        final int message = readMessage(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis));
+        if (message != SparkDriverProtocol.READY) {
+            broken = true;
+            throw new IOException("Unexpected message from Spark driver: " + message);
+        }
+    }
+
+    /**
+     * Runs the specified job on the driver and waits for it to complete.
+     *
+     * @param request       the job
+     * @param timeoutMillis the maximum time to wait for the job
+     * @param logHandler    receives the log messages of the job
+     * @return the exit code of the job
+     * @throws IOException      if the driver cannot be reached
+     * @throws TimeoutException if the job does not complete within the timeout
+     */
+    synchronized int execute(@Nonnull final SparkJobRequest request, final long timeoutMillis, @Nonnull final Consumer<String> logHandler) throws IOException, TimeoutException {
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        try {
+            SparkDriverProtocol.writeRequest(out, request);
+            out.flush();
+        } catch (IOException e) {
+            broken = true;
+            throw e;
+        }
+
+        while (true) {
+            final int message = readMessage(deadline);
+            try {
+                if (message == SparkDriverProtocol.LOG) {
+                    logHandler.accept(SparkDriverProtocol.readString(in));
+                } else if (message == SparkDriverProtocol.EXIT) {
+                    return in.readInt();
+                } else {
+                    throw new IOException("Unexpected message from Spark driver: " + message);
+                }
+            } catch (IOException e) {
+                broken = true;
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Indicates that the driver can accept another job.
+     */
+    boolean isAlive() {
+        return !broken && !socket.isClosed() && (process == null || process.isAlive());
+    }
+
+    /**
+     * Closes the connection and stops the driver process.
+     */
+    @Override
+    public void close() {
+        broken = true;
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // ignored
+        }
+
+        if (process != null) {
+            process.destroy();
+            try {
+                if (!process.waitFor(10, TimeUnit.SECONDS)) {
+                    process.destroyForcibly();
+                }
+            } catch (InterruptedException e) {
+                process.destroyForcibly();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Reads the type of the next message from the driver.
+     *
+     * @param deadline the {@link System#nanoTime()} to wait until
+     * @return the message type
+     */
+    private int readMessage(final long deadline) throws IOException, TimeoutException {
+        try {
+            final long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remaining <= 0) {
+                throw new SocketTimeoutException();
+            }
+            socket.setSoTimeout((int) Math.min(remaining, Integer.MAX_VALUE));
+            return in.readUnsignedByte();
+        } catch (SocketTimeoutException e) {
+            broken = true;
+            throw new TimeoutException("Timed out waiting for Spark driver");
+        } catch (IOException e) {
+            broken = true;
+            throw e;
+        }
+    }
+}
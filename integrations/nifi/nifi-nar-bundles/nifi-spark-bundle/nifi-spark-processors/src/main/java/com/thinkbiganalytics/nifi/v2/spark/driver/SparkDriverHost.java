@@ -0,0 +1,394 @@
+package com.thinkbiganalytics.nifi.v2.spark.driver;
+
+/*-
+ * #%L
+ * thinkbig-nifi-spark-processors
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.Charset;
+import java.security.Permission;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A long-lived Spark driver that runs Spark applications submitted by a {@link SparkDriverPool}.
+ *
+ * <p>The driver is started with {@code spark-submit} in client mode and connects back to the pool over a loopback socket. A Spark context is created before the driver reports that it is ready
+ * and is reused by applications that call {@code SparkContext.getOrCreate()}. Each application is run by invoking its main method on a new thread with its jars in a separate class loader. Lines
+ * written to standard output and standard error are sent to the pool, and calls to {@code System.exit()} are trapped and reported as the exit code of the application.</p>
+ *
+ * <p>This class only depends on the JDK and uses reflection to access Spark, so that it can be run from the processors jar by {@code spark-submit}.</p>
+ */
+public class SparkDriverHost implements Runnable {
+
+    private static final String SPARK_CONF_CLASS = "org.apache.spark.SparkConf";
+    private static final String SPARK_CONTEXT_CLASS = "org.apache.spark.SparkContext";
+
+    /**
+     * Port of the pool on the loopback address
+     */
+    private final int port;
+
+    /**
+     * Secret identifying this driver to the pool
+     */
+    private final String secret;
+
+    /**
+     * Spark context created by this driver, or {@code null} if not started
+     */
+    private Object sparkContext;
+
+    /**
+     * Constructs a {@code SparkDriverHost}.
+     *
+     * @param port   the port of the pool on the loopback address
+     * @param secret the secret identifying this driver to the pool
+     */
+    public SparkDriverHost(int port, String secret) {
+        this.port = port;
+        this.secret = secret;
+    }
+
+    /**
+     * Runs a driver for the pool listening on the port given as the only argument. The secret is read from the environment.
+     */
+    public static void main(String[] args) {
+        final String secret = System.getenv(SparkDriverProtocol.SECRET_ENV);
+        if (args.length != 1 || secret == null) {
+            System.err.println("Usage: SparkDriverHost <port> (with " + SparkDriverProtocol.SECRET_ENV + " set in the environment)");
+            System.exit(1);
+        }
+
+        new SparkDriverHost(Integer.parseInt(args[0]), secret).run();
+        System.exit(0);
+    }
+
+    @Override
+    public void run() {
+        ExitTrap.install();
+
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            final DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            SparkDriverProtocol.writeString(out, secret);
+            out.flush();
+
+            // Start the Spark context before accepting requests
+            getOrCreateSparkContext();
+            out.writeByte(SparkDriverProtocol.READY);
+            out.flush();
+
+            while (true) {
+                final SparkJobRequest request;
+                try {
+                    request = SparkDriverProtocol.readRequest(in);
+                } catch (EOFException e) {
+                    break;
+                }
+
+                final int exitCode = execute(request, out);
+                synchronized (out) {
+                    out.writeByte(SparkDriverProtocol.EXIT);
+                    out.writeInt(exitCode);
+                    out.flush();
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Spark driver lost connection to pool: " + e);
+        } finally {
+            stopSparkContext();
+        }
+    }
+
+    /**
+     * Runs the specified application and waits for it to complete.
+     *
+     * @param request the application
+     * @param out     the stream for sending log messages
+     * @return the exit code of the application
+     */
+    private int execute(final SparkJobRequest request, final DataOutputStream out) {
+        final PrintStream stdout = System.out;
+        final PrintStream stderr = System.err;
+        final PrintStream log = new PrintStream(new LogOutputStream(out), true);
+        System.setOut(log);
+        System.setErr(log);
+
+        final ExitTrap.Job job = new ExitTrap.Job();
+        try (URLClassLoader classLoader = new URLClassLoader(toUrls(request.getJars()), getClass().getClassLoader())) {
+            if (request.isSharedContext()) {
+                final Object context = getOrCreateSparkContext();
+                if (context != null) {
+                    final Method addJar = context.getClass().getMethod("addJar", String.class);
+                    for (final String jar : request.getJars()) {
+                        addJar.invoke(context, jar);
+                    }
+                }
+            } else {
+                stopSparkContext();
+            }
+
+            final Method main = Class.forName(request.getMainClass(), true, classLoader).getMethod("main", String[].class);
+            final String[] args = request.getArgs().toArray(new String[request.getArgs().size()]);
+            final Thread thread = new Thread(() -> {
+                ExitTrap.enter(job);
+                try {
+                    main.invoke(null, (Object) args);
+                } catch (InvocationTargetException e) {
+                    if (!(e.getCause() instanceof ExitTrap.ExitError)) {
+                        e.getCause().printStackTrace();
+                        job.exit(1);
+                    }
+                } catch (ExitTrap.ExitError e) {
+                    // exit code already recorded
+                } catch (Throwable t) {
+                    t.printStackTrace();
+                    job.exit(1);
+                }
+            }, "spark-driver-job");
+            thread.setContextClassLoader(classLoader);
+            thread.setDaemon(true);
+            thread.start();
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.exit(1);
+        } catch (Exception e) {
+            e.printStackTrace();
+            job.exit(1);
+        } finally {
+            job.finish();
+            log.flush();
+            System.setOut(stdout);
+            System.setErr(stderr);
+        }
+        return job.getExitCode();
+    }
+
+    /**
+     * Gets the active Spark context or creates a new one using the configuration from {@code spark-submit}.
+     *
+     * @return the Spark context, or {@code null} if Spark is not available
+     */
+    private Object getOrCreateSparkContext() {
+        try {
+            final Class<?> confClass = Class.forName(SPARK_CONF_CLASS);
+            sparkContext = Class.forName(SPARK_CONTEXT_CLASS).getMethod("getOrCreate", confClass).invoke(null, confClass.newInstance());
+        } catch (ClassNotFoundException e) {
+            sparkContext = null;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Unable to create Spark context", e);
+        }
+        return sparkContext;
+    }
+
+    /**
+     * Stops the Spark context created by this driver.
+     */
+    private void stopSparkContext() {
+        if (sparkContext != null) {
+            try {
+                sparkContext.getClass().getMethod("stop").invoke(sparkContext);
+            } catch (ReflectiveOperationException e) {
+                System.err.println("Unable to stop Spark context: " + e);
+            }
+            sparkContext = null;
+        }
+    }
+
+    /**
+     * Converts the specified local jar paths to URLs.
+     */
+    private static URL[] toUrls(List<String> jars) throws IOException {
+        final URL[] urls = new URL[jars.size()];
+        for (int i = 0; i < urls.length; ++i) {
+            final String jar = jars.get(i);
+            try {
+                final URI uri = new URI(jar);
+                if (uri.getScheme() == null) {
+                    urls[i] = new File(jar).toURI().toURL();
+                } else if ("file".equals(uri.getScheme()) || "local".equals(uri.getScheme())) {
+                    urls[i] = new File(uri.getPath()).toURI().toURL();
+                } else {
+                    throw new IOException("Only local jars can be run by a Spark driver: " + jar);
+                }
+            } catch (URISyntaxException e) {
+                urls[i] = new File(jar).toURI().toURL();
+            }
+        }
+        return urls;
+    }
+
+    /**
+     * Sends each line written to the stream as a {@link SparkDriverProtocol#LOG} message.
+     */
+    private static class LogOutputStream extends OutputStream {
+
+        private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+        private final DataOutputStream out;
+
+        LogOutputStream(DataOutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public synchronized void write(int b) throws IOException {
+            if (b == '\n') {
+                flushLine();
+            } else if (b != '\r') {
+                line.write(b);
+            }
+        }
+
+        @Override
+        public synchronized void flush() throws IOException {
+            if (line.size() > 0) {
+                flushLine();
+            }
+        }
+
+        private void flushLine() throws IOException {
+            final String value = new String(line.toByteArray(), Charset.defaultCharset());
+            line.reset();
+            synchronized (out) {
+                out.writeByte(SparkDriverProtocol.LOG);
+                SparkDriverProtocol.writeString(out, value);
+                out.flush();
+            }
+        }
+    }
+
+    /**
+     * Traps calls to {@code System.exit()} from applications so that the driver keeps running.
+     */
+    private static class ExitTrap extends SecurityManager {
+
+        /**
+         * The application run by the current thread and threads started by it
+         */
+        private static final InheritableThreadLocal<Job> JOB = new InheritableThreadLocal<>();
+
+        /**
+         * Security manager that was installed before this one
+         */
+        private final SecurityManager delegate;
+
+        private ExitTrap(SecurityManager delegate) {
+            this.delegate = delegate;
+        }
+
+        static synchronized void install() {
+            final SecurityManager current = System.getSecurityManager();
+            if (!(current instanceof ExitTrap)) {
+                System.setSecurityManager(new ExitTrap(current));
+            }
+        }
+
+        static void enter(Job job) {
+            JOB.set(job);
+        }
+
+        @Override
+        public void checkExit(int status) {
+            final Job job = JOB.get();
+            if (job != null && job.isActive()) {
+                job.exit(status);
+                throw new ExitError(status);
+            } else if (delegate != null) {
+                delegate.checkExit(status);
+            }
+        }
+
+        @Override
+        public void checkPermission(Permission perm) {
+            if (delegate != null) {
+                delegate.checkPermission(perm);
+            }
+        }
+
+        @Override
+        public void checkPermission(Permission perm, Object context) {
+            if (delegate != null) {
+                delegate.checkPermission(perm, context);
+            }
+        }
+
+        /**
+         * Exit status of an application.
+         */
+        static class Job {
+
+            private final AtomicReference<Integer> exitCode = new AtomicReference<>();
+            private volatile boolean active = true;
+
+            boolean isActive() {
+                return active;
+            }
+
+            /**
+             * Records the exit code, if one has not already been recorded.
+             */
+            void exit(int status) {
+                exitCode.compareAndSet(null, status);
+            }
+
+            /**
+             * Stops trapping exits from threads started by the application.
+             */
+            void finish() {
+                active = false;
+            }
+
+            int getExitCode() {
+                final Integer value = exitCode.get();
+                return (value != null) ? value : 0;
+            }
+        }
+
+        /**
+         * Thrown to unwind an application that called {@code System.exit()}. Extends {@link Error} so that it is not caught by {@code catch (Exception e)} blocks.
+         */
+        static class ExitError extends Error {
+
+            private static final long serialVersionUID = 6052950264478101716L;
+
+            ExitError(int status) {
+                super("System.exit(" + status + ")");
+            }
+        }
+    }
+}
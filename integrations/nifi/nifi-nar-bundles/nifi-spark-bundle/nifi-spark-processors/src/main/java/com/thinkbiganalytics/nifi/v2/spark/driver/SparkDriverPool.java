@@ -0,0 +1,376 @@
+package com.thinkbiganalytics.nifi.v2.spark.driver;
+
+/*-
+ * #%L
+ * thinkbig-nifi-spark-processors
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * A pool of warm Spark drivers.
+ *
+ * <p>The pool listens on an ephemeral port of the loopback address. Each driver is started by a {@link Launcher} and connects back to the pool, identifying itself with a random secret. Drivers
+ * are started in the background when the pool starts and are replaced when they fail or time out. A job waiting for a driver fails as soon as no driver is running or starting
+ * after a driver failed to start, and the next job tries to start a driver again.</p>
+ */
+class SparkDriverPool implements Closeable {
+
+    /**
+     * Maximum time to wait for a new connection to send its secret
+     */
+    private static final int HANDSHAKE_TIMEOUT_MILLIS = 10000;
+
+    /**
+     * Maximum time to wait for a job
+     */
+    private static final long MAX_TIMEOUT_NANOS = Long.MAX_VALUE / 4;
+
+    /**
+     * Interval for checking whether a waiting job can still get a driver
+     */
+    private static final long DRIVER_CHECK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    /**
+     * Starts a driver that connects to the pool.
+     */
+    @FunctionalInterface
+    interface Launcher {
+
+        /**
+         * Starts a {@link SparkDriverHost} for the specified port and secret.
+         *
+         * @param port   the port of the pool on the loopback address
+         * @param secret the secret to identify the driver
+         * @return the driver process, or {@code null} if the driver is not a child process
+         * @throws IOException if the driver cannot be started
+         */
+        @Nullable
+        Process launch(int port, @Nonnull String secret) throws IOException;
+    }
+
+    /**
+     * Starts new drivers
+     */
+    @Nonnull
+    private final Launcher launcher;
+
+    /**
+     * Number of drivers to keep running
+     */
+    private final int size;
+
+    /**
+     * Maximum time for a driver to start
+     */
+    private final long startupTimeoutMillis;
+
+    /**
+     * Accepts connections from drivers
+     */
+    @Nonnull
+    private final ServerSocket serverSocket;
+
+    /**
+     * Drivers waiting to connect, by secret
+     */
+    private final Map<String, CompletableFuture<Socket>> pending = new ConcurrentHashMap<>();
+
+    /**
+     * Drivers ready to accept a job
+     */
+    private final BlockingQueue<SparkDriver> idle = new LinkedBlockingQueue<>();
+
+    /**
+     * All running drivers
+     */
+    private final Set<SparkDriver> drivers = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Number of drivers that are running or starting
+     */
+    private final AtomicInteger count = new AtomicInteger();
+
+    /**
+     * Runs the accept loop and starts drivers
+     */
+    private final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+        final Thread thread = new Thread(runnable, "spark-driver-pool");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Last error from starting a driver
+     */
+    @Nullable
+    private volatile Exception lastError;
+
+    private volatile boolean closed;
+
+    /**
+     * Constructs a {@code SparkDriverPool}.
+     *
+     * @param launcher             starts new drivers
+     * @param size                 the number of drivers to keep running
+     * @param startupTimeoutMillis the maximum time for a driver to start
+     * @throws IOException if the pool cannot listen for connections
+     */
+    SparkDriverPool(@Nonnull final Launcher launcher, final int size, final long startupTimeoutMillis) throws IOException {
+        this.launcher = launcher;
+        this.size = size;
+        this.startupTimeoutMillis = startupTimeoutMillis;
+        this.serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        executor.execute(this::acceptConnections);
+    }
+
+    /**
+     * Starts drivers in the background until the pool is full.
+     */
+    void start() {
+        while (true) {
+            final int current = count.get();
+            if (closed || current >= size) {
+                return;
+            }
+            if (count.compareAndSet(current, current + 1)) {
+                executor.execute(this::startDriver);
+            }
+        }
+    }
+
+    /**
+     * Runs the specified job on a driver from the pool.
+     *
+     * @param request    the job
+     * @param timeout    the maximum time to wait for a driver and for the job to complete
+     * @param unit       the unit of the timeout
+     * @param logHandler receives the log messages of the job
+     * @return the exit code of the job
+     * @throws IOException          if no driver could be started or the driver cannot be reached
+     * @throws InterruptedException if interrupted while waiting for a driver
+     * @throws TimeoutException     if the job does not complete within the timeout
+     */
+    int execute(@Nonnull final SparkJobRequest request, final long timeout, @Nonnull final TimeUnit unit, @Nonnull final Consumer<String> logHandler)
+        throws IOException, InterruptedException, TimeoutException {
+        // Cap the timeout so that the deadline does not overflow
+        final long deadline = System.nanoTime() + Math.min(unit.toNanos(timeout), MAX_TIMEOUT_NANOS);
+        final SparkDriver driver = acquire(deadline);
+        try {
+            final int exitCode = driver.execute(request, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()), logHandler);
+            release(driver);
+            return exitCode;
+        } catch (IOException | TimeoutException | RuntimeException e) {
+            discard(driver);
+            throw e;
+        }
+    }
+
+    /**
+     * Gets the number of drivers ready to accept a job.
+     */
+    int getIdleCount() {
+        return idle.size();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            // ignored
+        }
+        executor.shutdownNow();
+        pending.values().forEach(future -> future.cancel(true));
+        drivers.forEach(SparkDriver::close);
+        drivers.clear();
+        idle.clear();
+    }
+
+    /**
+     * Waits for an idle driver.
+     */
+    @Nonnull
+    private SparkDriver acquire(final long deadline) throws IOException, InterruptedException, TimeoutException {
+        start();
+        while (true) {
+            if (closed) {
+                throw new IllegalStateException("Spark driver pool is closed");
+            }
+
+            final long remaining = deadline - System.nanoTime();
+            final SparkDriver driver = idle.poll(Math.min(remaining, DRIVER_CHECK_NANOS), TimeUnit.NANOSECONDS);
+            if (driver != null) {
+                if (driver.isAlive()) {
+                    return driver;
+                }
+                discard(driver);
+                continue;
+            }
+
+            // Fail fast when a driver failed to start and no other driver will become available
+            final Exception error = lastError;
+            if (error != null && count.get() == 0) {
+                throw new IOException("No Spark driver available: " + error, error);
+            }
+            if (remaining <= DRIVER_CHECK_NANOS) {
+                throw new TimeoutException("No Spark driver available" + ((error != null) ? ": " + error : ""));
+            }
+        }
+    }
+
+    /**
+     * Returns the specified driver to the pool.
+     */
+    private void release(@Nonnull final SparkDriver driver) {
+        if (!closed && driver.isAlive()) {
+            idle.add(driver);
+        } else {
+            discard(driver);
+        }
+    }
+
+    /**
+     * Stops the specified driver and starts a replacement.
+     */
+    private void discard(@Nonnull final SparkDriver driver) {
+        if (drivers.remove(driver)) {
+            count.decrementAndGet();
+        }
+        driver.close();
+        start();
+    }
+
+    /**
+     * Starts a new driver and adds it to the pool.
+     */
+    private void startDriver() {
+        final String secret = UUID.randomUUID().toString();
+        final CompletableFuture<Socket> connection = new CompletableFuture<>();
+        pending.put(secret, connection);
+
+        Process process = null;
+        SparkDriver driver = null;
+        try {
+            final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(startupTimeoutMillis);
+            process = launcher.launch(serverSocket.getLocalPort(), secret);
+            driver = new SparkDriver(process, awaitConnection(connection, process, deadline));
+            driver.awaitReady(TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()));
+
+            drivers.add(driver);
+            if (closed) {
+                discard(driver);
+            } else {
+                idle.add(driver);
+                lastError = null;
+            }
+        } catch (Exception e) {
+            // Set the error before the count so that waiting jobs see the error once no driver is starting
+            lastError = e;
+            count.decrementAndGet();
+            if (driver != null) {
+                driver.close();
+            } else if (process != null) {
+                process.destroyForcibly();
+            }
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+        } finally {
+            pending.remove(secret);
+        }
+    }
+
+    /**
+     * Waits for the driver to connect to the pool.
+     */
+    @Nonnull
+    private Socket awaitConnection(@Nonnull final CompletableFuture<Socket> connection, @Nullable final Process process, final long deadline)
+        throws IOException, InterruptedException, TimeoutException {
+        while (true) {
+            final long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remaining <= 0) {
+                throw new TimeoutException("Spark driver did not start within " + startupTimeoutMillis + " ms");
+            }
+            try {
+                return connection.get(Math.min(remaining, 1000), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                if (process != null && !process.isAlive()) {
+                    throw new IOException("Spark driver exited with code " + process.exitValue());
+                }
+            } catch (ExecutionException e) {
+                throw new IOException("Spark driver failed to connect", e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Accepts connections from drivers and matches them to pending drivers by secret.
+     */
+    private void acceptConnections() {
+        while (!closed) {
+            final Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                if (!closed) {
+                    lastError = e;
+                }
+                return;
+            }
+
+            try {
+                socket.setSoTimeout(HANDSHAKE_TIMEOUT_MILLIS);
+                final String secret = SparkDriverProtocol.readSecret(new DataInputStream(socket.getInputStream()));
+                final CompletableFuture<Socket> connection = pending.remove(secret);
+                if (connection == null || !connection.complete(socket)) {
+                    socket.close();
+                }
+            } catch (IOException e) {
+                try {
+                    socket.close();
+                } catch (IOException ignored) {
+                    // ignored
+                }
+            }
+        }
+    }
+}
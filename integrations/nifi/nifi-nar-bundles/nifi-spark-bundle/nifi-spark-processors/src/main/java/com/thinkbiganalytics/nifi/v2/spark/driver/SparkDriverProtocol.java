@@ -0,0 +1,123 @@
+package com.thinkbiganalytics.nifi.v2.spark.driver;
+
+/*-
+ * #%L
+ * thinkbig-nifi-spark-processors
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Messages exchanged between a {@link SparkDriverPool} and a {@link SparkDriverHost} over a loopback socket.
+ *
+ * <p>The driver connects to the pool and sends its secret, followed by {@link #READY} once its Spark context has started. The pool then sends one request at a time and the driver replies with
+ * any number of {@link #LOG} messages followed by a single {@link #EXIT} message. Closing the socket stops the driver.</p>
+ */
+final class SparkDriverProtocol {
+
+    /**
+     * Environment variable containing the secret that a driver sends when connecting to the pool
+     */
+    static final String SECRET_ENV = "KYLO_SPARK_DRIVER_SECRET";
+
+    /**
+     * Sent by the driver when it is ready to accept requests
+     */
+    static final int READY = 0;
+
+    /**
+     * Sent by the driver for each line written by a job, followed by the line
+     */
+    static final int LOG = 1;
+
+    /**
+     * Sent by the driver when a job completes, followed by the exit code
+     */
+    static final int EXIT = 2;
+
+    /**
+     * Maximum length of the secret
+     */
+    private static final int MAX_SECRET_LENGTH = 1024;
+
+    private SparkDriverProtocol() {
+        throw new UnsupportedOperationException();
+    }
+
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        return readString(in, Integer.MAX_VALUE);
+    }
+
+    static String readSecret(DataInputStream in) throws IOException {
+        return readString(in, MAX_SECRET_LENGTH);
+    }
+
+    static void writeRequest(DataOutputStream out, SparkJobRequest request) throws IOException {
+        writeString(out, request.getMainClass());
+        writeStrings(out, request.getJars());
+        writeStrings(out, request.getArgs());
+        out.writeBoolean(request.isSharedContext());
+    }
+
+    static SparkJobRequest readRequest(DataInputStream in) throws IOException {
+        final String mainClass = readString(in);
+        final List<String> jars = readStrings(in);
+        final List<String> args = readStrings(in);
+        return new SparkJobRequest(mainClass, jars, args, in.readBoolean());
+    }
+
+    private static String readString(DataInputStream in, int maxLength) throws IOException {
+        final int length = in.readInt();
+        if (length < 0 || length > maxLength) {
+            throw new IOException("Invalid string length in Spark driver message: " + length);
+        }
+        final byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeStrings(DataOutputStream out, List<String> values) throws IOException {
+        out.writeInt(values.size());
+        for (final String value : values) {
+            writeString(out, value);
+        }
+    }
+
+    private static List<String> readStrings(DataInputStream in) throws IOException {
+        final int size = in.readInt();
+        if (size < 0) {
+            throw new IOException("Invalid list size in Spark driver message: " + size);
+        }
+        final List<String> values = new ArrayList<>(size);
+        for (int i = 0; i < size; ++i) {
+            values.add(readString(in));
+        }
+        return values;
+    }
+}
@@ -0,0 +1,51 @@
+package com.thinkbiganalytics.nifi.v2.spark.driver;
+
+/*-
+ * #%L
+ * thinkbig-nifi-spark-processors
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.apache.nifi.annotation.documentation.CapabilityDescription;
+import org.apache.nifi.annotation.documentation.Tags;
+import org.apache.nifi.controller.ControllerService;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+import javax.annotation.Nonnull;
+
+@Tags({"spark", "thinkbig"})
+@CapabilityDescription("Executes Spark jobs on long-lived Spark drivers.")
+public interface SparkExecutionService extends ControllerService {
+
+    /**
+     * Executes the specified Spark job on a warm Spark driver.
+     *
+     * @param request    the Spark job
+     * @param timeout    the maximum time to wait for a driver and for the job to complete
+     * @param unit       the unit of the timeout
+     * @param logHandler receives each line written to standard output or standard error by the job
+     * @return the exit code of the job
+     * @throws IOException          if the driver cannot be reached
+     * @throws InterruptedException if interrupted while waiting for the job
+     * @throws TimeoutException     if the job does not complete within the timeout
+     */
+    int execute(@Nonnull SparkJobRequest request, long timeout, @Nonnull TimeUnit unit, @Nonnull Consumer<String> logHandler) throws IOException, InterruptedException, TimeoutException;
+}
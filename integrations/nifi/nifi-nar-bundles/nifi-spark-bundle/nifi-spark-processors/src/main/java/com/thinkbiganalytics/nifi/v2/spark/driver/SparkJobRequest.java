@@ -0,0 +1,122 @@
+package com.thinkbiganalytics.nifi.v2.spark.driver;
+
+/*-
+ * #%L
+ * thinkbig-nifi-spark-processors
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+
+/**
+ * A Spark application to be executed by a {@link SparkExecutionService}.
+ */
+public class SparkJobRequest {
+
+    /**
+     * Main class for running PySpark applications
+     */
+    static final String PYTHON_RUNNER = "org.apache.spark.deploy.PythonRunner";
+
+    /**
+     * Qualified name of the application class
+     */
+    @Nonnull
+    private final String mainClass;
+
+    /**
+     * Local jar files containing the application and its dependencies
+     */
+    @Nonnull
+    private final List<String> jars;
+
+    /**
+     * Arguments for the main method
+     */
+    @Nonnull
+    private final List<String> args;
+
+    /**
+     * Indicates that the application uses the Spark context of the driver
+     */
+    private final boolean sharedContext;
+
+    /**
+     * Constructs a {@code SparkJobRequest} for a Java or Scala application.
+     *
+     * @param mainClass the qualified name of the application class
+     * @param jars      the local jar files containing the application and its dependencies
+     * @param args      the arguments for the main method
+     */
+    public SparkJobRequest(@Nonnull final String mainClass, @Nonnull final List<String> jars, @Nonnull final List<String> args) {
+        this(mainClass, jars, args, true);
+    }
+
+    SparkJobRequest(@Nonnull final String mainClass, @Nonnull final List<String> jars, @Nonnull final List<String> args, final boolean sharedContext) {
+        this.mainClass = mainClass;
+        this.jars = Collections.unmodifiableList(new ArrayList<>(jars));
+        this.args = Collections.unmodifiableList(new ArrayList<>(args));
+        this.sharedContext = sharedContext;
+    }
+
+    /**
+     * Constructs a {@code SparkJobRequest} for a PySpark application.
+     *
+     * <p>PySpark applications create their own Spark context, so the driver stops its Spark context before running the application.</p>
+     *
+     * @param appFile the Python file containing the application
+     * @param pyFiles the additional Python files, zips, or eggs
+     * @param args    the arguments for the application
+     * @return the request
+     */
+    @Nonnull
+    public static SparkJobRequest forPythonApp(@Nonnull final String appFile, @Nonnull final List<String> pyFiles, @Nonnull final List<String> args) {
+        final List<String> runnerArgs = new ArrayList<>(args.size() + 2);
+        runnerArgs.add(appFile);
+        runnerArgs.add(String.join(",", pyFiles));
+        runnerArgs.addAll(args);
+        return new SparkJobRequest(PYTHON_RUNNER, Collections.emptyList(), runnerArgs, false);
+    }
+
+    @Nonnull
+    public String getMainClass() {
+        return mainClass;
+    }
+
+    @Nonnull
+    public List<String> getJars() {
+        return jars;
+    }
+
+    @Nonnull
+    public List<String> getArgs() {
+        return args;
+    }
+
+    public boolean isSharedContext() {
+        return sharedContext;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "{mainClass=" + mainClass + ", jars=" + jars + ", args=" + args + '}';
+    }
+}
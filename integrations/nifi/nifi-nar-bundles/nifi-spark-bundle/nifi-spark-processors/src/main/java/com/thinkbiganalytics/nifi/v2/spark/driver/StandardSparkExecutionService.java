@@ -0,0 +1,279 @@
+package com.thinkbiganalytics.nifi.v2.spark.driver;
+
+/*-
+ * #%L
+ * thinkbig-nifi-spark-processors
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.nifi.util.InputStreamReaderRunnable;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.nifi.annotation.documentation.CapabilityDescription;
+import org.apache.nifi.annotation.documentation.Tags;
+import org.apache.nifi.annotation.lifecycle.OnDisabled;
+import org.apache.nifi.annotation.lifecycle.OnEnabled;
+import org.apache.nifi.components.PropertyDescriptor;
+import org.apache.nifi.components.ValidationContext;
+import org.apache.nifi.components.ValidationResult;
+import org.apache.nifi.controller.AbstractControllerService;
+import org.apache.nifi.controller.ConfigurationContext;
+import org.apache.nifi.logging.LogLevel;
+import org.apache.nifi.processor.util.StandardValidators;
+import org.apache.nifi.reporting.InitializationException;
+import org.apache.spark.launcher.SparkLauncher;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Keeps a pool of running Spark drivers and executes Spark jobs on them.
+ *
+ * <p>Each driver is a Spark application running {@link SparkDriverHost} in client mode. Jobs run on a driver use the Spark configuration of this service.</p>
+ */
+@Tags({"spark", "thinkbig"})
+@CapabilityDescription("Keeps a pool of running Spark drivers and executes Spark jobs on them, avoiding the cost of starting a new Spark application for each job.")
+public class StandardSparkExecutionService extends AbstractControllerService implements SparkExecutionService {
+
+    public static final PropertyDescriptor SPARK_HOME = new PropertyDescriptor.Builder()
+        .name("Spark Home")
+        .description("Path to the Spark Client directory")
+        .required(true)
+        .defaultValue("/usr/hdp/current/spark-client/")
+        .addValidator(StandardValidators.NON_EMPTY_VALIDATOR)
+        .build();
+    public static final PropertyDescriptor SPARK_MASTER = new PropertyDescriptor.Builder()
+        .name("Spark Master")
+        .description("The Spark master. The drivers always run on this host in client mode.")
+        .required(true)
+        .defaultValue("local[*]")
+        .addValidator(StandardValidators.NON_EMPTY_VALIDATOR)
+        .build();
+    public static final PropertyDescriptor DRIVER_MEMORY = new PropertyDescriptor.Builder()
+        .name("Driver Memory")
+        .description("How much RAM to allocate to each driver")
+        .required(true)
+        .defaultValue("512m")
+        .addValidator(StandardValidators.NON_EMPTY_VALIDATOR)
+        .build();
+    public static final PropertyDescriptor EXECUTOR_MEMORY = new PropertyDescriptor.Builder()
+        .name("Executor Memory")
+        .description("How much RAM to allocate to each executor")
+        .required(true)
+        .defaultValue("512m")
+        .addValidator(StandardValidators.NON_EMPTY_VALIDATOR)
+        .build();
+    public static final PropertyDescriptor NUMBER_EXECUTORS = new PropertyDescriptor.Builder()
+        .name("Number of Executors")
+        .description("The number of executors for each driver")
+        .required(true)
+        .defaultValue("1")
+        .addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR)
+        .build();
+    public static final PropertyDescriptor EXECUTOR_CORES = new PropertyDescriptor.Builder()
+        .name("Executor Cores")
+        .description("The number of cores for each executor")
+        .required(true)
+        .defaultValue("1")
+        .addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR)
+        .build();
+    public static final PropertyDescriptor SPARK_CONFS = new PropertyDescriptor.Builder()
+        .name("Spark Configurations")
+        .description("Pipe separated configurations for the drivers i.e <CONF1>=<VALUE1>|<CONF2>=<VALUE2>.. Use spark.yarn.queue, spark.yarn.principal and spark.yarn.keytab to select a YARN "
+                     + "queue or a Kerberos identity.")
+        .required(false)
+        .addValidator(StandardValidators.NON_EMPTY_VALIDATOR)
+        .build();
+    public static final PropertyDescriptor POOL_SIZE = new PropertyDescriptor.Builder()
+        .name("Number of Drivers")
+        .description("The number of Spark drivers to keep running. Each driver runs one job at a time.")
+        .required(true)
+        .defaultValue("1")
+        .addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR)
+        .build();
+    public static final PropertyDescriptor STARTUP_TIMEOUT = new PropertyDescriptor.Builder()
+        .name("Driver Startup Timeout")
+        .description("Time to wait for a Spark driver to start before it is stopped and replaced")
+        .required(true)
+        .defaultValue("5 min")
+        .addValidator(StandardValidators.TIME_PERIOD_VALIDATOR)
+        .build();
+
+    /**
+     * Name of the Spark applications running the drivers
+     */
+    private static final String APP_NAME = "Kylo Spark Driver";
+
+    /**
+     * List of properties
+     */
+    private static final List<PropertyDescriptor> PROPERTIES = Collections.unmodifiableList(new ArrayList<PropertyDescriptor>() {{
+        add(SPARK_HOME);
+        add(SPARK_MASTER);
+        add(DRIVER_MEMORY);
+        add(EXECUTOR_MEMORY);
+        add(NUMBER_EXECUTORS);
+        add(EXECUTOR_CORES);
+        add(SPARK_CONFS);
+        add(POOL_SIZE);
+        add(STARTUP_TIMEOUT);
+    }});
+
+    /**
+     * Pool of drivers, or {@code null} if not enabled
+     */
+    private volatile SparkDriverPool pool;
+
+    @Override
+    protected List<PropertyDescriptor> getSupportedPropertyDescriptors() {
+        return PROPERTIES;
+    }
+
+    /**
+     * Starts the Spark drivers.
+     *
+     * @param context the configuration context
+     * @throws InitializationException if the pool cannot be created
+     */
+    @OnEnabled
+    public void onEnabled(@Nonnull final ConfigurationContext context) throws InitializationException {
+        final String appResource = getAppResource();
+        final String sparkHome = context.getProperty(SPARK_HOME).getValue();
+        final String sparkMaster = context.getProperty(SPARK_MASTER).getValue().trim();
+        final String driverMemory = context.getProperty(DRIVER_MEMORY).getValue();
+        final String executorMemory = context.getProperty(EXECUTOR_MEMORY).getValue();
+        final String numberOfExecutors = context.getProperty(NUMBER_EXECUTORS).getValue();
+        final String executorCores = context.getProperty(EXECUTOR_CORES).getValue();
+        final String sparkConfs = context.getProperty(SPARK_CONFS).getValue();
+        final int poolSize = context.getProperty(POOL_SIZE).asInteger();
+        final long startupTimeout = context.getProperty(STARTUP_TIMEOUT).asTimePeriod(TimeUnit.MILLISECONDS);
+
+        final SparkDriverPool.Launcher launcher = (port, secret) -> {
+            final Map<String, String> env = new HashMap<>();
+            env.put(SparkDriverProtocol.SECRET_ENV, secret);
+
+            final SparkLauncher sparkLauncher = new SparkLauncher(env)
+                .setAppResource(appResource)
+                .setMainClass(SparkDriverHost.class.getName())
+                .setMaster(sparkMaster)
+                .setDeployMode("client")
+                .setConf(SparkLauncher.DRIVER_MEMORY, driverMemory)
+                .setConf("spark.executor.instances", numberOfExecutors)
+                .setConf(SparkLauncher.EXECUTOR_MEMORY, executorMemory)
+                .setConf(SparkLauncher.EXECUTOR_CORES, executorCores)
+                .setSparkHome(sparkHome)
+                .setAppName(APP_NAME)
+                .addAppArgs(Integer.toString(port));
+            if (StringUtils.isNotEmpty(sparkConfs)) {
+                for (final String conf : sparkConfs.split("\\|")) {
+                    sparkLauncher.addSparkArg("--conf", conf);
+                }
+            }
+
+            final Process process = sparkLauncher.launch();
+            startStreamReader(process.getInputStream(), "stream input");
+            startStreamReader(process.getErrorStream(), "stream error");
+            return process;
+        };
+
+        try {
+            pool = new SparkDriverPool(launcher, poolSize, startupTimeout);
+            pool.start();
+        } catch (final IOException e) {
+            throw new InitializationException("Unable to start Spark driver pool: " + e, e);
+        }
+        getLogger().info("Starting {} Spark drivers on {}", new Object[]{poolSize, sparkMaster});
+    }
+
+    /**
+     * Stops the Spark drivers.
+     */
+    @OnDisabled
+    public void onDisabled() {
+        final SparkDriverPool current = pool;
+        pool = null;
+        if (current != null) {
+            current.close();
+        }
+    }
+
+    @Override
+    public int execute(@Nonnull final SparkJobRequest request, final long timeout, @Nonnull final TimeUnit unit, @Nonnull final Consumer<String> logHandler)
+        throws IOException, InterruptedException, TimeoutException {
+        final SparkDriverPool current = pool;
+        if (current == null) {
+            throw new IllegalStateException("Spark Execution Service is not enabled");
+        }
+
+        final long start = System.nanoTime();
+        final int exitCode = current.execute(request, timeout, unit, logHandler);
+        getLogger().debug("Spark job {} completed with exit code {} in {} ms", new Object[]{request.getMainClass(), exitCode, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)});
+        return exitCode;
+    }
+
+    @Override
+    protected Collection<ValidationResult> customValidate(@Nonnull final ValidationContext validationContext) {
+        final List<ValidationResult> results = new ArrayList<>();
+        final String sparkMaster = validationContext.getProperty(SPARK_MASTER).getValue();
+        final String sparkConfs = validationContext.getProperty(SPARK_CONFS).getValue();
+
+        if ((sparkMaster != null && sparkMaster.trim().equals("yarn-cluster")) || (sparkConfs != null && sparkConfs.replace(" ", "").contains("spark.submit.deployMode=cluster"))) {
+            results.add(new ValidationResult.Builder()
+                            .subject(SPARK_MASTER.getName())
+                            .input(sparkMaster)
+                            .valid(false)
+                            .explanation("Spark drivers must run on this host in client mode")
+                            .build());
+        }
+
+        return results;
+    }
+
+    /**
+     * Gets the path to the jar containing {@link SparkDriverHost}.
+     */
+    @Nonnull
+    private static String getAppResource() throws InitializationException {
+        try {
+            return new File(SparkDriverHost.class.getProtectionDomain().getCodeSource().getLocation().toURI()).getAbsolutePath();
+        } catch (final URISyntaxException | RuntimeException e) {
+            throw new InitializationException("Unable to locate Spark driver jar: " + e, e);
+        }
+    }
+
+    /**
+     * Reads and clears the output of a driver process.
+     */
+    private void startStreamReader(@Nonnull final InputStream stream, @Nonnull final String name) {
+        final Thread thread = new Thread(new InputStreamReaderRunnable(LogLevel.DEBUG, getLogger(), stream), name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+}
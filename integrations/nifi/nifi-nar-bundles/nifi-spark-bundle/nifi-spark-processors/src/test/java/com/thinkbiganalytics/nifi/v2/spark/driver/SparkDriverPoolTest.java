@@ -0,0 +1,315 @@
+package com.thinkbiganalytics.nifi.v2.spark.driver;
+
+/*-
+ * #%L
+ * kylo-nifi-spark-processors
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.apache.spark.SparkContext;
+import org.apache.spark.api.java.JavaSparkContext;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs jobs on {@link SparkDriverHost} threads in this JVM using a local Spark master.
+ */
+public class SparkDriverPoolTest {
+
+    /**
+     * Maximum time to wait for a job
+     */
+    private static final long TIMEOUT_SECONDS = 120;
+
+    /**
+     * Blocks the sleep job until released
+     */
+    private static volatile CountDownLatch sleepLatch;
+
+    /**
+     * Driver threads started by the pool
+     */
+    private final List<Thread> hosts = new CopyOnWriteArrayList<>();
+
+    /**
+     * Pool under test
+     */
+    private SparkDriverPool pool;
+
+    /**
+     * Configures Spark for local mode.
+     */
+    @BeforeClass
+    public static void setUpClass() {
+        System.setProperty("spark.master", "local[*]");
+        System.setProperty("spark.app.name", "SparkDriverPoolTest");
+        System.setProperty("spark.ui.enabled", "false");
+    }
+
+    /**
+     * Clears the Spark configuration.
+     */
+    @AfterClass
+    public static void tearDownClass() {
+        System.clearProperty("spark.master");
+        System.clearProperty("spark.app.name");
+        System.clearProperty("spark.ui.enabled");
+    }
+
+    /**
+     * Stops the pool and waits for the drivers to exit.
+     */
+    @After
+    public void tearDown() throws Exception {
+        if (sleepLatch != null) {
+            sleepLatch.countDown();
+            sleepLatch = null;
+        }
+        if (pool != null) {
+            pool.close();
+        }
+        for (final Thread host : hosts) {
+            host.join(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+        }
+    }
+
+    /**
+     * Verify running jobs on a warm driver.
+     */
+    @Test
+    public void testExecute() throws Exception {
+        pool = createPool();
+
+        final List<String> log = new ArrayList<>();
+        Assert.assertEquals(0, pool.execute(request(CountJob.class), TIMEOUT_SECONDS, TimeUnit.SECONDS, log::add));
+        Assert.assertTrue(log.contains("count=3"));
+
+        // Driver should be reused
+        Assert.assertEquals(0, pool.execute(request(CountJob.class), TIMEOUT_SECONDS, TimeUnit.SECONDS, log::add));
+        Assert.assertEquals(1, pool.getIdleCount());
+        Assert.assertEquals(1, hosts.size());
+    }
+
+    /**
+     * Verify calls to {@code System.exit()} are reported as the exit code.
+     */
+    @Test
+    public void testExecuteWithExit() throws Exception {
+        pool = createPool();
+
+        Assert.assertEquals(3, pool.execute(request(ExitJob.class), TIMEOUT_SECONDS, TimeUnit.SECONDS, line -> {
+        }));
+        Assert.assertEquals(0, pool.execute(request(CountJob.class), TIMEOUT_SECONDS, TimeUnit.SECONDS, line -> {
+        }));
+        Assert.assertEquals(1, hosts.size());
+    }
+
+    /**
+     * Verify exceptions thrown by a job are reported as a failure.
+     */
+    @Test
+    public void testExecuteWithException() throws Exception {
+        pool = createPool();
+
+        final List<String> log = new ArrayList<>();
+        Assert.assertEquals(1, pool.execute(request(FailJob.class), TIMEOUT_SECONDS, TimeUnit.SECONDS, log::add));
+        Assert.assertTrue(log.stream().anyMatch(line -> line.contains("Expected failure")));
+    }
+
+    /**
+     * Verify jobs that exceed the timeout are stopped and the driver is replaced.
+     */
+    @Test
+    public void testExecuteWithTimeout() throws Exception {
+        pool = createPool();
+        Assert.assertEquals(0, pool.execute(request(CountJob.class), TIMEOUT_SECONDS, TimeUnit.SECONDS, line -> {
+        }));
+
+        sleepLatch = new CountDownLatch(1);
+        try {
+            pool.execute(request(SleepJob.class), 1, TimeUnit.SECONDS, line -> {
+            });
+            Assert.fail("Expected TimeoutException");
+        } catch (final TimeoutException e) {
+            // expected
+        }
+        sleepLatch.countDown();
+
+        hosts.get(0).join(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+        Assert.assertEquals(0, pool.execute(request(CountJob.class), TIMEOUT_SECONDS, TimeUnit.SECONDS, line -> {
+        }));
+        Assert.assertEquals(2, hosts.size());
+    }
+
+    /**
+     * Compare the latency of the first job, which includes starting the Spark context, with jobs on a warm driver.
+     */
+    @Test
+    public void testLatency() throws Exception {
+        final long coldStart = System.nanoTime();
+        pool = createPool();
+        Assert.assertEquals(0, pool.execute(request(CountJob.class), TIMEOUT_SECONDS, TimeUnit.SECONDS, line -> {
+        }));
+        final long cold = System.nanoTime() - coldStart;
+
+        final int runs = 5;
+        final long warmStart = System.nanoTime();
+        for (int i = 0; i < runs; ++i) {
+            Assert.assertEquals(0, pool.execute(request(CountJob.class), TIMEOUT_SECONDS, TimeUnit.SECONDS, line -> {
+            }));
+        }
+        final long warm = (System.nanoTime() - warmStart) / runs;
+
+        Assert.assertTrue("Expected warm job (" + TimeUnit.NANOSECONDS.toMillis(warm) + " ms) to be faster than cold job (" + TimeUnit.NANOSECONDS.toMillis(cold) + " ms)",
+                          warm < cold);
+    }
+
+    /**
+     * Verify waiting jobs fail without waiting for their timeout when the drivers cannot be started, and that the next job starts the drivers again.
+     */
+    @Test
+    public void testExecuteWithLaunchFailure() throws Exception {
+        final CountDownLatch launchLatch = new CountDownLatch(1);
+        final AtomicInteger launches = new AtomicInteger();
+        pool = new SparkDriverPool((port, secret) -> {
+            launches.incrementAndGet();
+            try {
+                launchLatch.await();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            throw new IOException("Expected failure");
+        }, 2, TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+        pool.start();
+
+        // Jobs waiting for a driver fail once every driver has failed to start
+        final ExecutorService jobs = Executors.newFixedThreadPool(3);
+        try {
+            final List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < 3; ++i) {
+                results.add(jobs.submit(() -> pool.execute(request(CountJob.class), Long.MAX_VALUE, TimeUnit.MILLISECONDS, line -> {
+                })));
+            }
+            launchLatch.countDown();
+
+            for (final Future<Integer> result : results) {
+                try {
+                    result.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                    Assert.fail("Expected IOException");
+                } catch (final ExecutionException e) {
+                    Assert.assertTrue(e.getCause() instanceof IOException);
+                    Assert.assertTrue(e.getCause().getMessage(), e.getCause().getMessage().contains("Expected failure"));
+                }
+            }
+        } finally {
+            jobs.shutdownNow();
+        }
+
+        // Next job tries to start the drivers again
+        final int failedLaunches = launches.get();
+        try {
+            pool.execute(request(CountJob.class), Long.MAX_VALUE, TimeUnit.MILLISECONDS, line -> {
+            });
+            Assert.fail("Expected IOException");
+        } catch (final IOException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains("Expected failure"));
+        }
+        Assert.assertEquals(failedLaunches + 2, launches.get());
+        Assert.assertEquals(0, pool.getIdleCount());
+    }
+
+    /**
+     * Creates a pool with a single driver running in this JVM.
+     */
+    private SparkDriverPool createPool() throws Exception {
+        final SparkDriverPool newPool = new SparkDriverPool((port, secret) -> {
+            final Thread host = new Thread(new SparkDriverHost(port, secret), "spark-driver-host");
+            host.setDaemon(true);
+            host.start();
+            hosts.add(host);
+            return null;
+        }, 1, TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+        newPool.start();
+        return newPool;
+    }
+
+    /**
+     * Creates a request for the specified job class on the test class path.
+     */
+    private static SparkJobRequest request(final Class<?> jobClass, final String... args) {
+        return new SparkJobRequest(jobClass.getName(), Collections.<String>emptyList(), Arrays.asList(args));
+    }
+
+    /**
+     * Counts the elements of a small RDD.
+     */
+    public static class CountJob {
+
+        public static void main(final String[] args) {
+            final JavaSparkContext context = new JavaSparkContext(SparkContext.getOrCreate());
+            System.out.println("count=" + context.parallelize(Arrays.asList(1, 2, 3)).count());
+        }
+    }
+
+    /**
+     * Exits with status 3.
+     */
+    public static class ExitJob {
+
+        public static void main(final String[] args) {
+            System.exit(3);
+        }
+    }
+
+    /**
+     * Throws an exception.
+     */
+    public static class FailJob {
+
+        public static void main(final String[] args) {
+            throw new IllegalStateException("Expected failure");
+        }
+    }
+
+    /**
+     * Waits until released by the test.
+     */
+    public static class SleepJob {
+
+        public static void main(final String[] args) throws InterruptedException {
+            sleepLatch.await();
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.thinkbiganalytics.nifi.v2.core.metadata;
+
+/*-
+ * #%L
+ * thinkbig-nifi-core-service
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Caches the results of metadata lookups.
+ *
+ * <p>Values that were found are kept for the value expiration. Lookups that found nothing are kept for the shorter missing expiration so that feeds or datasources created later are
+ * seen soon after. Concurrent lookups of the same key that are not cached share a single call to the loader.</p>
+ *
+ * @param <K> the type of key
+ * @param <V> the type of value
+ */
+class MetadataCache<K, V> {
+
+    /**
+     * Values that were found
+     */
+    private final Cache<K, V> values;
+
+    /**
+     * Keys that were not found
+     */
+    private final Cache<K, Boolean> missing;
+
+    /**
+     * Lookups that are in progress
+     */
+    private final ConcurrentMap<K, CompletableFuture<V>> loading = new ConcurrentHashMap<>();
+
+    /**
+     * Incremented whenever the cache is changed by a write so that lookups started earlier do not cache old values
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong loadNanos = new AtomicLong();
+
+    /**
+     * Constructs a {@code MetadataCache}.
+     *
+     * @param valueExpireMillis   time to keep values that were found
+     * @param missingExpireMillis time to keep keys that were not found
+     * @param maximumSize         maximum number of keys to keep
+     */
+    MetadataCache(final long valueExpireMillis, final long missingExpireMillis, final long maximumSize) {
+        values = CacheBuilder.newBuilder().expireAfterWrite(valueExpireMillis, TimeUnit.MILLISECONDS).maximumSize(maximumSize).build();
+        missing = CacheBuilder.newBuilder().expireAfterWrite(missingExpireMillis, TimeUnit.MILLISECONDS).maximumSize(maximumSize).build();
+    }
+
+    /**
+     * Gets the value for the specified key, calling the loader if it is not cached.
+     *
+     * @param key    the key
+     * @param loader returns the value for the key, or {@code null} if not found
+     * @return the value, or {@code null} if not found
+     */
+    @Nullable
+    V get(@Nonnull final K key, @Nonnull final Function<K, V> loader) {
+        final V value = values.getIfPresent(key);
+        if (value != null || missing.getIfPresent(key) != null) {
+            hitCount.incrementAndGet();
+            return value;
+        }
+
+        // Wait for a lookup already in progress
+        final CompletableFuture<V> future = new CompletableFuture<>();
+        final CompletableFuture<V> existing = loading.putIfAbsent(key, future);
+        if (existing != null) {
+            hitCount.incrementAndGet();
+            try {
+                return existing.join();
+            } catch (final CompletionException e) {
+                throw (e.getCause() instanceof RuntimeException) ? (RuntimeException) e.getCause() : e;
+            }
+        }
+
+        // Load the value
+        missCount.incrementAndGet();
+        final long start = System.nanoTime();
+        final long loadGeneration = generation.get();
+        try {
+            final V loaded = loader.apply(key);
+            if (generation.get() == loadGeneration) {
+                if (loaded != null) {
+                    values.put(key, loaded);
+                } else {
+                    missing.put(key, Boolean.TRUE);
+                }
+            }
+            future.complete(loaded);
+            return loaded;
+        } catch (final RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, future);
+            loadNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Replaces the cached value of the specified key with a value that was just written.
+     */
+    void put(@Nonnull final K key, @Nullable final V value) {
+        generation.incrementAndGet();
+        missing.invalidate(key);
+        if (value != null) {
+            values.put(key, value);
+        } else {
+            values.invalidate(key);
+        }
+    }
+
+    /**
+     * Removes the specified key from the cache.
+     */
+    void invalidate(@Nonnull final K key) {
+        generation.incrementAndGet();
+        values.invalidate(key);
+        missing.invalidate(key);
+    }
+
+    /**
+     * Removes all keys from the cache.
+     */
+    void invalidateAll() {
+        generation.incrementAndGet();
+        values.invalidateAll();
+        missing.invalidateAll();
+    }
+
+    /**
+     * Gets the number of lookups that did not call the loader.
+     */
+    long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * Gets the number of lookups that called the loader.
+     */
+    long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * Gets the total time spent in the loader, in nanoseconds.
+     */
+    long getLoadNanos() {
+        return loadNanos.get();
+    }
+}
@@ -47,14 +47,45 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 import java.util.Properties;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Nonnull;
 
 
 public class MetadataClientProvider implements MetadataProvider {
 
+    /**
+     * Default time to cache feeds, datasources, and feed properties that were found
+     */
+    public static final long DEFAULT_CACHE_EXPIRE_MILLIS = TimeUnit.SECONDS.toMillis(60);
+
+    /**
+     * Default time to cache feeds and datasources that were not found
+     */
+    public static final long DEFAULT_MISSING_CACHE_EXPIRE_MILLIS = TimeUnit.SECONDS.toMillis(5);
+
+    /**
+     * Default maximum number of entries in each cache
+     */
+    public static final long DEFAULT_CACHE_SIZE = 1000;
+
     private MetadataClient client;
 
+    /**
+     * Feed ids by category and feed system name
+     */
+    private final MetadataCache<String, String> feedIdCache;
+
+    /**
+     * Datasources by name
+     */
+    private final MetadataCache<String, Datasource> datasourceCache;
+
+    /**
+     * Feed properties by feed id
+     */
+    private final MetadataCache<String, Properties> feedPropertiesCache;
+
     /**
      * constructor creates a MetaDataClientProvider with the default URI constant
      */
@@ -81,19 +112,36 @@ public class MetadataClientProvider implements MetadataProvider {
      * @param client the MetadataClient will be used to connect with the Metadata store
      */
     public MetadataClientProvider(MetadataClient client) {
+        this(client, DEFAULT_CACHE_EXPIRE_MILLIS, DEFAULT_MISSING_CACHE_EXPIRE_MILLIS, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * constructor creates a MetadataClientProvider with the required {@link MetadataClient} that caches lookups for the specified times
+     *
+     * @param client              the MetadataClient will be used to connect with the Metadata store
+     * @param cacheExpireMillis   time to cache feeds, datasources, and feed properties that were found
+     * @param missingExpireMillis time to cache feeds and datasources that were not found
+     * @param cacheSize           maximum number of entries in each cache
+     */
+    public MetadataClientProvider(MetadataClient client, long cacheExpireMillis, long missingExpireMillis, long cacheSize) {
         super();
         this.client = client;
+        this.feedIdCache = new MetadataCache<>(cacheExpireMillis, missingExpireMillis, cacheSize);
+        this.datasourceCache = new MetadataCache<>(cacheExpireMillis, missingExpireMillis, cacheSize);
+        this.feedPropertiesCache = new MetadataCache<>(cacheExpireMillis, missingExpireMillis, cacheSize);
     }
 
     @Override
     public String getFeedId(String category, String feedName) {
-        List<Feed> feeds = this.client.getFeeds(this.client.feedCriteria().category(category).name(feedName));
-
-        if (feeds.isEmpty()) {
-            return null;
-        } else {
-            return feeds.get(0).getId();
-        }
+        return feedIdCache.get(feedKey(category, feedName), key -> {
+            List<Feed> feeds = this.client.getFeeds(this.client.feedCriteria().category(category).name(feedName));
+
+            if (feeds.isEmpty()) {
+                return null;
+            } else {
+                return feeds.get(0).getId();
+            }
+        });
     }
 
     @Override
@@ -106,10 +154,12 @@ public class MetadataClientProvider implements MetadataProvider {
      */
     @Override
     public Feed ensureFeed(String categoryName, String feedName, String descr) {
-        return this.client
+        Feed feed = this.client
             .buildFeed(categoryName, feedName)
             .description(descr)
             .post();
+        feedIdCache.put(feedKey(categoryName, feedName), feed != null ? feed.getId() : null);
+        return feed;
     }
 
     /* (non-Javadoc)
@@ -117,14 +167,16 @@ public class MetadataClientProvider implements MetadataProvider {
      */
     @Override
     public Datasource getDatasourceByName(String dsName) {
-        DatasourceCriteria criteria = this.client.datasourceCriteria().name(dsName);
-        List<Datasource> list = this.client.getDatasources(criteria);
-
-        if (list.isEmpty()) {
-            return null;
-        } else {
-            return list.get(0);
-        }
+        return datasourceCache.get(dsName, key -> {
+            DatasourceCriteria criteria = this.client.datasourceCriteria().name(dsName);
+            List<Datasource> list = this.client.getDatasources(criteria);
+
+            if (list.isEmpty()) {
+                return null;
+            } else {
+                return list.get(0);
+            }
+        });
     }
 
     /* (non-Javadoc)
@@ -145,7 +197,7 @@ public class MetadataClientProvider implements MetadataProvider {
 
     @Override
     public Properties updateFeedProperties(String feedId, Properties props) {
-        return this.client.mergeFeedProperties(feedId, props);
+        return mergeFeedProperties(feedId, props);
     }
 
     @Override
@@ -158,10 +210,12 @@ public class MetadataClientProvider implements MetadataProvider {
      */
     @Override
     public DirectoryDatasource ensureDirectoryDatasource(String datasetName, String descr, Path path) {
-        return this.client.buildDirectoryDatasource(datasetName)
+        DirectoryDatasource datasource = this.client.buildDirectoryDatasource(datasetName)
             .description(descr)
             .path(path.toString())
             .post();
+        datasourceCache.put(datasetName, datasource);
+        return datasource;
     }
 
     /* (non-Javadoc)
@@ -169,11 +223,13 @@ public class MetadataClientProvider implements MetadataProvider {
      */
     @Override
     public HiveTableDatasource ensureHiveTableDatasource(String dsName, String descr, String databaseName, String tableName) {
-        return this.client.buildHiveTableDatasource(dsName)
+        HiveTableDatasource datasource = this.client.buildHiveTableDatasource(dsName)
             .description(descr)
             .database(databaseName)
             .tableName(tableName)
             .post();
+        datasourceCache.put(dsName, datasource);
+        return datasource;
     }
 
     @Override
@@ -229,16 +285,65 @@ public class MetadataClientProvider implements MetadataProvider {
 
     @Override
     public Properties getFeedProperties(@Nonnull String id) {
-        return client.getFeedProperties(id);
+        return copy(feedPropertiesCache.get(id, client::getFeedProperties));
     }
 
     @Override
     public Properties mergeFeedProperties(@Nonnull String id, @Nonnull Properties props) {
-        return client.mergeFeedProperties(id, props);
+        Properties merged = client.mergeFeedProperties(id, props);
+        feedPropertiesCache.put(id, copy(merged));
+        return merged;
     }
 
     @Override
     public Optional<Datasource> getDatasource(@Nonnull final String id) {
         return client.getDatasource(id);
     }
+
+    /**
+     * Removes all cached feeds, datasources, and feed properties.
+     */
+    public void invalidateCache() {
+        feedIdCache.invalidateAll();
+        datasourceCache.invalidateAll();
+        feedPropertiesCache.invalidateAll();
+    }
+
+    /**
+     * Gets the number of feed, datasource, and feed property lookups that were served from the cache.
+     */
+    public long getCacheHitCount() {
+        return feedIdCache.getHitCount() + datasourceCache.getHitCount() + feedPropertiesCache.getHitCount();
+    }
+
+    /**
+     * Gets the number of feed, datasource, and feed property lookups that required a request to the metadata server.
+     */
+    public long getCacheMissCount() {
+        return feedIdCache.getMissCount() + datasourceCache.getMissCount() + feedPropertiesCache.getMissCount();
+    }
+
+    /**
+     * Gets the total time spent in requests to the metadata server for cache misses, in milliseconds.
+     */
+    public long getCacheLoadTimeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(feedIdCache.getLoadNanos() + datasourceCache.getLoadNanos() + feedPropertiesCache.getLoadNanos());
+    }
+
+    private static String feedKey(String category, String feedName) {
+        return category + "." + feedName;
+    }
+
+    /**
+     * Copies the properties so that callers cannot change the cached instance.
+     */
+    private static Properties copy(Properties properties) {
+        if (properties == null) {
+            return null;
+        }
+        Properties copy = new Properties();
+        copy.putAll(properties);
+        return copy;
+    }
+
 }
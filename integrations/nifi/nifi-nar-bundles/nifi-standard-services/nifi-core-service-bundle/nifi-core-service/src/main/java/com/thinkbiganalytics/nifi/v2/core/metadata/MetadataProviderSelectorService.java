@@ -53,6 +53,7 @@ import java.security.cert.CertificateException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import javax.net.ssl.SSLContext;
 
@@ -92,6 +93,30 @@ public class MetadataProviderSelectorService extends AbstractControllerService i
         .required(false)
         .identifiesControllerService(SSLContextService.class)
         .build();
+    public static final PropertyDescriptor CACHE_EXPIRATION = new PropertyDescriptor.Builder()
+        .name("cache-expiration")
+        .displayName("Cache Expiration")
+        .description("Time to cache feed ids, datasources, and feed properties read from the metadata server")
+        .defaultValue("60 sec")
+        .addValidator(StandardValidators.TIME_PERIOD_VALIDATOR)
+        .required(true)
+        .build();
+    public static final PropertyDescriptor MISSING_CACHE_EXPIRATION = new PropertyDescriptor.Builder()
+        .name("missing-cache-expiration")
+        .displayName("Not Found Cache Expiration")
+        .description("Time to cache feeds and datasources that were not found on the metadata server")
+        .defaultValue("5 sec")
+        .addValidator(StandardValidators.TIME_PERIOD_VALIDATOR)
+        .required(true)
+        .build();
+    public static final PropertyDescriptor CACHE_SIZE = new PropertyDescriptor.Builder()
+        .name("cache-size")
+        .displayName("Cache Size")
+        .description("Maximum number of feed ids, datasources, or feed properties to cache")
+        .defaultValue("1000")
+        .addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR)
+        .required(true)
+        .build();
     private static final AllowableValue[] ALLOWABLE_IMPLEMENATIONS = {
         new AllowableValue("LOCAL", "Local, In-memory storage", "An implemenation that stores metadata locally in memory (for development-only)"),
         new AllowableValue("REMOTE", "REST API", "An implementation that accesses metadata via the metadata service REST API")
@@ -113,6 +138,9 @@ public class MetadataProviderSelectorService extends AbstractControllerService i
         props.add(CLIENT_USERNAME);
         props.add(CLIENT_PASSWORD);
         props.add(SSL_CONTEXT_SERVICE);
+        props.add(CACHE_EXPIRATION);
+        props.add(MISSING_CACHE_EXPIRATION);
+        props.add(CACHE_SIZE);
         properties = Collections.unmodifiableList(props);
     }
 
@@ -153,7 +181,9 @@ public class MetadataProviderSelectorService extends AbstractControllerService i
                 client = new MetadataClient(uri, user, password, sslContext);
             }
 
-            this.provider = new MetadataClientProvider(client);
+            this.provider = new MetadataClientProvider(client, context.getProperty(CACHE_EXPIRATION).asTimePeriod(TimeUnit.MILLISECONDS),
+                                                       context.getProperty(MISSING_CACHE_EXPIRATION).asTimePeriod(TimeUnit.MILLISECONDS),
+                                                       context.getProperty(CACHE_SIZE).asInteger());
             this.recorder = new MetadataClientRecorder(client);
             this.kyloProvenanceClientProvider = new KyloProvenanceClientProvider(client);
         } else {
@@ -176,6 +206,27 @@ public class MetadataProviderSelectorService extends AbstractControllerService i
         return this.kyloProvenanceClientProvider;
     }
 
+    /**
+     * Gets the number of metadata lookups that were served from the cache.
+     */
+    public long getCacheHitCount() {
+        return (provider instanceof MetadataClientProvider) ? ((MetadataClientProvider) provider).getCacheHitCount() : 0;
+    }
+
+    /**
+     * Gets the number of metadata lookups that required a request to the metadata server.
+     */
+    public long getCacheMissCount() {
+        return (provider instanceof MetadataClientProvider) ? ((MetadataClientProvider) provider).getCacheMissCount() : 0;
+    }
+
+    /**
+     * Gets the total time spent in requests to the metadata server for cache misses, in milliseconds.
+     */
+    public long getCacheLoadTimeMillis() {
+        return (provider instanceof MetadataClientProvider) ? ((MetadataClientProvider) provider).getCacheLoadTimeMillis() : 0;
+    }
+
 
     /**
      * Taken from NiFi GetHttp Processor
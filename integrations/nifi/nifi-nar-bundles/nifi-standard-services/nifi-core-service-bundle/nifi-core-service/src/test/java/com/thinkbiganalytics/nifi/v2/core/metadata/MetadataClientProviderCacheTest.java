@@ -0,0 +1,236 @@
+package com.thinkbiganalytics.nifi.v2.core.metadata;
+
+/*-
+ * #%L
+ * thinkbig-nifi-core-service
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.thinkbiganalytics.metadata.rest.client.MetadataClient;
+import com.thinkbiganalytics.metadata.rest.model.data.Datasource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests the caching of lookups by {@link MetadataClientProvider} against an embedded HTTP server that counts requests.
+ */
+public class MetadataClientProviderCacheTest {
+
+    /**
+     * Number of requests by method and path
+     */
+    private final Map<String, AtomicInteger> requests = new ConcurrentHashMap<>();
+
+    /**
+     * JSON response by method and path
+     */
+    private final Map<String, String> responses = new ConcurrentHashMap<>();
+
+    /**
+     * Delays responses until released
+     */
+    private volatile CountDownLatch release = new CountDownLatch(0);
+
+    private HttpServer server;
+
+    private ExecutorService executor;
+
+    private MetadataClientProvider provider;
+
+    @Before
+    public void setUp() throws IOException {
+        executor = Executors.newCachedThreadPool();
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/api/v1/metadata", this::handle);
+        server.setExecutor(executor);
+        server.start();
+
+        final URI uri = URI.create("http://localhost:" + server.getAddress().getPort() + "/api/v1/metadata");
+        provider = new MetadataClientProvider(new MetadataClient(uri), TimeUnit.MINUTES.toMillis(1), 200, 100);
+
+        responses.put("GET /api/v1/metadata/feed", "[]");
+        responses.put("GET /api/v1/metadata/datasource", "[]");
+    }
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * Verify that a feed id is only requested once.
+     */
+    @Test
+    public void getFeedId() {
+        responses.put("GET /api/v1/metadata/feed", "[{\"id\":\"feed-1\",\"systemName\":\"orders\"}]");
+
+        assertThat(provider.getFeedId("sales", "orders")).isEqualTo("feed-1");
+        assertThat(provider.getFeedId("sales", "orders")).isEqualTo("feed-1");
+        assertThat(provider.getFeedId("sales", "orders")).isEqualTo("feed-1");
+
+        assertThat(getRequestCount("GET /api/v1/metadata/feed")).isEqualTo(1);
+        assertThat(provider.getCacheHitCount()).isEqualTo(2);
+        assertThat(provider.getCacheMissCount()).isEqualTo(1);
+        assertThat(provider.getCacheLoadTimeMillis()).isGreaterThanOrEqualTo(0);
+    }
+
+    /**
+     * Verify that a missing feed is only cached for the shorter expiration.
+     */
+    @Test
+    public void getFeedIdNotFound() throws Exception {
+        assertThat(provider.getFeedId("sales", "orders")).isNull();
+        assertThat(provider.getFeedId("sales", "orders")).isNull();
+        assertThat(getRequestCount("GET /api/v1/metadata/feed")).isEqualTo(1);
+
+        responses.put("GET /api/v1/metadata/feed", "[{\"id\":\"feed-1\",\"systemName\":\"orders\"}]");
+        Thread.sleep(300);
+
+        assertThat(provider.getFeedId("sales", "orders")).isEqualTo("feed-1");
+        assertThat(getRequestCount("GET /api/v1/metadata/feed")).isEqualTo(2);
+    }
+
+    /**
+     * Verify that concurrent lookups of the same datasource make a single request.
+     */
+    @Test
+    public void getDatasourceByNameConcurrent() throws Exception {
+        responses.put("GET /api/v1/metadata/datasource", "[{\"@type\":\"DirectoryDatasource\",\"id\":\"ds-1\",\"name\":\"files\",\"path\":\"/tmp/files\"}]");
+        release = new CountDownLatch(1);
+
+        final List<Future<Datasource>> results = new ArrayList<>();
+        final ExecutorService callers = Executors.newFixedThreadPool(8);
+        try {
+            final Callable<Datasource> lookup = () -> provider.getDatasourceByName("files");
+            for (int i = 0; i < 8; ++i) {
+                results.add(callers.submit(lookup));
+            }
+
+            // Wait for the first request then let it complete
+            while (getRequestCount("GET /api/v1/metadata/datasource") == 0) {
+                Thread.sleep(10);
+            }
+            Thread.sleep(100);
+            release.countDown();
+
+            for (final Future<Datasource> result : results) {
+                assertThat(result.get(10, TimeUnit.SECONDS).getId()).isEqualTo("ds-1");
+            }
+        } finally {
+            callers.shutdownNow();
+        }
+
+        assertThat(getRequestCount("GET /api/v1/metadata/datasource")).isEqualTo(1);
+        assertThat(provider.getCacheMissCount()).isEqualTo(1);
+        assertThat(provider.getCacheHitCount()).isEqualTo(7);
+    }
+
+    /**
+     * Verify that merged feed properties replace the cached properties.
+     */
+    @Test
+    public void mergeFeedProperties() {
+        responses.put("GET /api/v1/metadata/feed/feed-1/props", "{\"a\":\"1\"}");
+        responses.put("POST /api/v1/metadata/feed/feed-1/props", "{\"a\":\"1\",\"b\":\"2\"}");
+
+        assertThat(provider.getFeedProperties("feed-1")).containsOnlyKeys("a");
+
+        final Properties props = new Properties();
+        props.setProperty("b", "2");
+        provider.mergeFeedProperties("feed-1", props);
+
+        final Properties cached = provider.getFeedProperties("feed-1");
+        assertThat(cached).containsOnlyKeys("a", "b");
+        cached.setProperty("c", "3");
+        assertThat(provider.getFeedProperties("feed-1")).containsOnlyKeys("a", "b");
+
+        assertThat(getRequestCount("GET /api/v1/metadata/feed/feed-1/props")).isEqualTo(1);
+        assertThat(getRequestCount("POST /api/v1/metadata/feed/feed-1/props")).isEqualTo(1);
+    }
+
+    /**
+     * Verify that invalidating the cache requests the feed again.
+     */
+    @Test
+    public void invalidateCache() {
+        responses.put("GET /api/v1/metadata/feed", "[{\"id\":\"feed-1\",\"systemName\":\"orders\"}]");
+
+        provider.getFeedId("sales", "orders");
+        provider.invalidateCache();
+        provider.getFeedId("sales", "orders");
+
+        assertThat(getRequestCount("GET /api/v1/metadata/feed")).isEqualTo(2);
+    }
+
+    private int getRequestCount(final String request) {
+        final AtomicInteger count = requests.get(request);
+        return (count != null) ? count.get() : 0;
+    }
+
+    /**
+     * Responds to a request with the JSON registered for its method and path.
+     */
+    private void handle(final HttpExchange exchange) throws IOException {
+        final String request = exchange.getRequestMethod() + " " + exchange.getRequestURI().getPath();
+        requests.computeIfAbsent(request, key -> new AtomicInteger()).incrementAndGet();
+
+        try {
+            release.await(10, TimeUnit.SECONDS);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        final String response = responses.get(request);
+        if (response == null) {
+            exchange.sendResponseHeaders(404, -1);
+        } else {
+            final byte[] body = response.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+        exchange.close();
+    }
+}
@@ -23,7 +23,7 @@ package com.thinkbiganalytics.nifi.provenance;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * Track event counts sent to the JMS queue
+ * Track event counts sent to the JMS queue and gauges for the FeedFlowFile cache
  */
 public class AggregationEventProcessingStats {
 
@@ -31,6 +31,10 @@ public class AggregationEventProcessingStats {
 
     private static AtomicLong batchEventsSentToJms = new AtomicLong(0L);
 
+    private static AtomicLong feedFlowFileCacheSize = new AtomicLong(0L);
+
+    private static AtomicLong feedFlowFileEvictionLagMillis = new AtomicLong(0L);
+
 
     public static Long addStreamingEvents(int num) {
         return streamingEventsSentToJms.addAndGet(new Long(num));
@@ -48,4 +52,26 @@ public class AggregationEventProcessingStats {
         return batchEventsSentToJms.get();
     }
 
+    public static void setFeedFlowFileCacheSize(long size) {
+        feedFlowFileCacheSize.set(size);
+    }
+
+    /**
+     * @return the number of flow file ids held in the FeedFlowFile cache as of the last eviction cycle
+     */
+    public static Long getFeedFlowFileCacheSize() {
+        return feedFlowFileCacheSize.get();
+    }
+
+    public static void setFeedFlowFileEvictionLagMillis(long millis) {
+        feedFlowFileEvictionLagMillis.set(millis);
+    }
+
+    /**
+     * @return the longest time, in millis, a completed FeedFlowFile waited to be evicted during the last eviction cycle
+     */
+    public static Long getFeedFlowFileEvictionLagMillis() {
+        return feedFlowFileEvictionLagMillis.get();
+    }
+
 }
@@ -133,14 +133,26 @@ public class FeedFlowFile implements Serializable {
         return firstEventId;
     }
 
+    public void setFirstEventId(Long firstEventId) {
+        this.firstEventId = firstEventId;
+    }
+
     public Long getFirstEventStartTime() {
         return firstEventStartTime;
     }
 
+    public void setFirstEventStartTime(Long firstEventStartTime) {
+        this.firstEventStartTime = firstEventStartTime;
+    }
+
     public String getFirstEventProcessorId() {
         return firstEventProcessorId;
     }
 
+    public void setFirstEventProcessorId(String firstEventProcessorId) {
+        this.firstEventProcessorId = firstEventProcessorId;
+    }
+
     public boolean isStream() {
         return isStream;
     }
@@ -169,22 +181,93 @@ public class FeedFlowFile implements Serializable {
         return activeChildFlowFiles;
     }
 
+    public void setActiveChildFlowFiles(Set<String> activeChildFlowFiles) {
+        this.activeChildFlowFiles = activeChildFlowFiles;
+    }
+
     public Set<String> getChildFlowFiles() {
         return childFlowFiles;
     }
 
+    public void setChildFlowFiles(Set<String> childFlowFiles) {
+        this.childFlowFiles = childFlowFiles;
+    }
+
     public Long getLastEventId() {
         return lastEventId;
     }
 
+    public void setLastEventId(Long lastEventId) {
+        this.lastEventId = lastEventId;
+    }
+
     public String getLastEventProcessorId() {
         return lastEventProcessorId;
     }
 
+    public void setLastEventProcessorId(String lastEventProcessorId) {
+        this.lastEventProcessorId = lastEventProcessorId;
+    }
+
     public Long getLastEventTime() {
         return lastEventTime;
     }
 
+    public void setLastEventTime(Long lastEventTime) {
+        this.lastEventTime = lastEventTime;
+    }
+
+    /**
+     * flag to determine if the flow file with the same id as this feed flow file has been dropped
+     */
+    public boolean isCurrentFlowFileComplete() {
+        return isCurrentFlowFileComplete;
+    }
+
+    public void setCurrentFlowFileComplete(boolean currentFlowFileComplete) {
+        isCurrentFlowFileComplete = currentFlowFileComplete;
+    }
+
+    public int getFailedEventCount() {
+        return failedEvents.get();
+    }
+
+    public void setFailedEventCount(int failedEventCount) {
+        failedEvents.set(failedEventCount);
+    }
+
+    public Set<String> getFlowfilesStarted() {
+        return flowfilesStarted;
+    }
+
+    public void setFlowfilesStarted(Set<String> flowfilesStarted) {
+        this.flowfilesStarted = flowfilesStarted;
+    }
+
+    public Map<String, Long> getFlowFileLastEventTime() {
+        return flowFileLastEventTime;
+    }
+
+    public void setFlowFileLastEventTime(Map<String, Long> flowFileLastEventTime) {
+        this.flowFileLastEventTime = flowFileLastEventTime;
+    }
+
+    public Map<String, Long> getChildFlowFileStartTimes() {
+        return childFlowFileStartTimes;
+    }
+
+    public void setChildFlowFileStartTimes(Map<String, Long> childFlowFileStartTimes) {
+        this.childFlowFileStartTimes = childFlowFileStartTimes;
+    }
+
+    public Map<String, String> getFlowFileIdToParentFlowFileId() {
+        return flowFileIdToParentFlowFileId;
+    }
+
+    public void setFlowFileIdToParentFlowFileId(Map<String, String> flowFileIdToParentFlowFileId) {
+        this.flowFileIdToParentFlowFileId = flowFileIdToParentFlowFileId;
+    }
+
 
     /**
      * flag to determine if this was build from the persistent cache
@@ -256,15 +339,19 @@ public class FeedFlowFile implements Serializable {
 
     /**
      * If the event is a "DROP" event that mark the correct flow file as complete.
+     *
+     * @return true if this event is the one that completed the feed, false if the feed was already complete or is still running
      */
-    public void checkAndMarkComplete(ProvenanceEventRecordDTO event) {
+    public boolean checkAndMarkComplete(ProvenanceEventRecordDTO event) {
+        boolean wasComplete = isFeedComplete();
         if ("DROP".equalsIgnoreCase(event.getEventType())) {
             if (event.getFlowFileUuid().equals(this.getId())) {
                 isCurrentFlowFileComplete = true;
-            } else {
+            } else if (activeChildFlowFiles != null) {
                 activeChildFlowFiles.remove(event.getFlowFileUuid());
             }
         }
+        return !wasComplete && isFeedComplete();
     }
 
     public void addChildFlowFile(String childFlowFileId) {
@@ -437,10 +437,18 @@ public class ProvenanceEventRecordDTO implements Serializable {
         return previousEventId;
     }
 
+    public void setPreviousEventId(Long previousEventId) {
+        this.previousEventId = previousEventId;
+    }
+
     public DateTime getPreviousEventTime() {
         return previousEventTime;
     }
 
+    public void setPreviousEventTime(DateTime previousEventTime) {
+        this.previousEventTime = previousEventTime;
+    }
+
 
     public DateTime getEventTime() {
         return eventTime;
@@ -582,7 +590,7 @@ public class ProvenanceEventRecordDTO implements Serializable {
 
     public void setIsFinalJobEvent(boolean isFinalJobEvent) {
         this.isFinalJobEvent = isFinalJobEvent;
-        if (this.isFinalJobEvent) {
+        if (this.isFinalJobEvent && getFeedFlowFile() != null) {
             this.hasFailedEvents = getFeedFlowFile().hasFailedEvents();
         }
     }
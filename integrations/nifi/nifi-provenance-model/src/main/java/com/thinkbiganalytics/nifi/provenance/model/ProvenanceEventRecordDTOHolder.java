@@ -99,4 +99,11 @@ public class ProvenanceEventRecordDTOHolder implements Serializable {
         return batchId;
     }
 
+    /**
+     * set the Unique Id for this collection of events
+     */
+    public void setBatchId(String batchId) {
+        this.batchId = batchId;
+    }
+
 }
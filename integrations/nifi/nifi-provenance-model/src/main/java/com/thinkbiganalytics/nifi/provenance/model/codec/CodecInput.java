@@ -0,0 +1,167 @@
+package com.thinkbiganalytics.nifi.provenance.model.codec;
+
+/*-
+ * #%L
+ * thinkbig-nifi-provenance-model
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.joda.time.DateTime;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reads the primitive types written by the {@link CodecOutput}
+ */
+class CodecInput {
+
+    private final byte[] buffer;
+
+    private int position;
+
+    private final List<String> dictionary = new ArrayList<>();
+
+    private long lastTime = 0L;
+
+    CodecInput(byte[] buffer, int offset) {
+        this.buffer = buffer;
+        this.position = offset;
+    }
+
+    int readByte() throws IOException {
+        if (position >= buffer.length) {
+            throw new EOFException("Unexpected end of provenance payload at position " + position);
+        }
+        return buffer[position++] & 0xFF;
+    }
+
+    long readVarLong() throws IOException {
+        long result = 0L;
+        int shift = 0;
+        while (shift < 64) {
+            int b = readByte();
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+            shift += 7;
+        }
+        throw new IOException("Malformed variable length number in provenance payload");
+    }
+
+    int readVarInt() throws IOException {
+        return (int) readVarLong();
+    }
+
+    long readLong() throws IOException {
+        long raw = readVarLong();
+        return (raw >>> 1) ^ -(raw & 1);
+    }
+
+    Long readNullableLong() throws IOException {
+        return readByte() == 0 ? null : readLong();
+    }
+
+    String readString() throws IOException {
+        int marker = readVarInt();
+        if (marker == 0) {
+            return null;
+        } else if (marker == 1) {
+            int length = readVarInt();
+            if (length < 0 || position + length > buffer.length) {
+                throw new EOFException("String length " + length + " exceeds the provenance payload");
+            }
+            String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+            position += length;
+            dictionary.add(value);
+            return value;
+        } else {
+            int index = marker - 2;
+            if (index >= dictionary.size()) {
+                throw new IOException("Invalid dictionary reference " + index + " in provenance payload");
+            }
+            return dictionary.get(index);
+        }
+    }
+
+    DateTime readTime() throws IOException {
+        if (readByte() == 0) {
+            return null;
+        }
+        lastTime += readLong();
+        return new DateTime(lastTime);
+    }
+
+    Long readTimeMillis() throws IOException {
+        if (readByte() == 0) {
+            return null;
+        }
+        lastTime += readLong();
+        return lastTime;
+    }
+
+    List<String> readStringList() throws IOException {
+        int size = readVarInt();
+        if (size == 0) {
+            return null;
+        }
+        List<String> values = new ArrayList<>(size - 1);
+        for (int i = 1; i < size; i++) {
+            values.add(readString());
+        }
+        return values;
+    }
+
+    Set<String> readStringSet() throws IOException {
+        List<String> values = readStringList();
+        return values == null ? null : new HashSet<>(values);
+    }
+
+    Map<String, String> readStringMap() throws IOException {
+        int size = readVarInt();
+        if (size == 0) {
+            return null;
+        }
+        Map<String, String> map = new HashMap<>(size * 2);
+        for (int i = 1; i < size; i++) {
+            String key = readString();
+            map.put(key, readString());
+        }
+        return map;
+    }
+
+    Map<String, Long> readTimeMap() throws IOException {
+        int size = readVarInt();
+        if (size == 0) {
+            return null;
+        }
+        Map<String, Long> map = new HashMap<>(size * 2);
+        for (int i = 1; i < size; i++) {
+            String key = readString();
+            map.put(key, readTimeMillis());
+        }
+        return map;
+    }
+}
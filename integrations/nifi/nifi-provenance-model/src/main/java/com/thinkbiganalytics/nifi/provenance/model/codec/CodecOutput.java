@@ -0,0 +1,179 @@
+package com.thinkbiganalytics.nifi.provenance.model.codec;
+
+/*-
+ * #%L
+ * thinkbig-nifi-provenance-model
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.joda.time.DateTime;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes the primitive types used by the {@link ProvenanceBinaryCodec}.
+ *
+ * Numbers are written as variable length (zig-zag) integers, strings are dictionary encoded so that repeated values such as feed names, component ids and attribute keys are only written once
+ * per message, and timestamps are written as the delta from the previously written timestamp.
+ */
+class CodecOutput {
+
+    private final ByteArrayOutputStream out;
+
+    /**
+     * strings already written to this message, mapped to their dictionary index
+     */
+    private final Map<String, Integer> dictionary = new HashMap<>();
+
+    private long lastTime = 0L;
+
+    CodecOutput(int initialSize) {
+        this.out = new ByteArrayOutputStream(initialSize);
+    }
+
+    void writeByte(int b) {
+        out.write(b);
+    }
+
+    void writeVarLong(long value) {
+        while ((value & ~0x7FL) != 0L) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    void writeVarInt(int value) {
+        writeVarLong(value & 0xFFFFFFFFL);
+    }
+
+    void writeLong(long value) {
+        writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    /**
+     * Write a nullable Long preceded by a presence marker
+     */
+    void writeNullableLong(Long value) {
+        if (value == null) {
+            out.write(0);
+        } else {
+            out.write(1);
+            writeLong(value);
+        }
+    }
+
+    /**
+     * Write a string.  The first occurrence is written inline and added to the dictionary, later occurrences are written as a reference.
+     * Marker values: 0 = null, 1 = literal, n &gt;= 2 = dictionary entry n - 2
+     */
+    void writeString(String value) {
+        if (value == null) {
+            out.write(0);
+            return;
+        }
+        Integer index = dictionary.get(value);
+        if (index != null) {
+            writeVarInt(index + 2);
+        } else {
+            dictionary.put(value, dictionary.size());
+            out.write(1);
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(bytes.length);
+            out.write(bytes, 0, bytes.length);
+        }
+    }
+
+    /**
+     * Write a nullable timestamp as the delta from the last timestamp written
+     */
+    void writeTime(DateTime time) {
+        if (time == null) {
+            out.write(0);
+        } else {
+            out.write(1);
+            writeMillis(time.getMillis());
+        }
+    }
+
+    /**
+     * Write a nullable timestamp, in millis, as the delta from the last timestamp written
+     */
+    void writeTime(Long millis) {
+        if (millis == null) {
+            out.write(0);
+        } else {
+            out.write(1);
+            writeMillis(millis);
+        }
+    }
+
+    private void writeMillis(long millis) {
+        writeLong(millis - lastTime);
+        lastTime = millis;
+    }
+
+    void writeStrings(Collection<String> values) {
+        if (values == null) {
+            writeVarInt(0);
+        } else {
+            writeVarInt(values.size() + 1);
+            for (String value : values) {
+                writeString(value);
+            }
+        }
+    }
+
+    void writeStringMap(Map<String, String> map) {
+        if (map == null) {
+            writeVarInt(0);
+        } else {
+            writeVarInt(map.size() + 1);
+            for (Map.Entry<String, String> entry : map.entrySet()) {
+                writeString(entry.getKey());
+                writeString(entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Write a map of strings to timestamps.  Each value is written as the delta from the last timestamp written
+     */
+    void writeTimeMap(Map<String, Long> map) {
+        if (map == null) {
+            writeVarInt(0);
+        } else {
+            writeVarInt(map.size() + 1);
+            for (Map.Entry<String, Long> entry : map.entrySet()) {
+                writeString(entry.getKey());
+                writeTime(entry.getValue());
+            }
+        }
+    }
+
+    int size() {
+        return out.size();
+    }
+
+    byte[] toByteArray() {
+        return out.toByteArray();
+    }
+}
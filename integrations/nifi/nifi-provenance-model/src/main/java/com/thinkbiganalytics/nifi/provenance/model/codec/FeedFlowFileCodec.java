@@ -0,0 +1,121 @@
+package com.thinkbiganalytics.nifi.provenance.model.codec;
+
+/*-
+ * #%L
+ * thinkbig-nifi-provenance-model
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.nifi.provenance.model.FeedFlowFile;
+
+import java.io.IOException;
+
+/**
+ * Compact binary encoding of a running {@link FeedFlowFile} graph used when persisting it to disk.
+ *
+ * Flow file ids repeat across the child sets and maps of a FeedFlowFile, so the strings are dictionary encoded per entry and the event times are written as deltas.
+ *
+ * Layout: {@code [version:1][flags:1][body]}
+ */
+public final class FeedFlowFileCodec {
+
+    /**
+     * The current version of the format written by this codec
+     */
+    public static final int VERSION = 1;
+
+    private static final int FLAG_STREAM = 1;
+    private static final int FLAG_CURRENT_FLOW_FILE_COMPLETE = 1 << 1;
+
+    private FeedFlowFileCodec() {
+
+    }
+
+    /**
+     * Encode the flow file
+     *
+     * @param flowFile the flow file to encode
+     * @return the encoded bytes
+     */
+    public static byte[] encode(FeedFlowFile flowFile) {
+        int children = flowFile.getChildFlowFiles() != null ? flowFile.getChildFlowFiles().size() : 0;
+        CodecOutput out = new CodecOutput(128 + children * 64);
+        out.writeByte(VERSION);
+        int flags = 0;
+        flags |= flowFile.isStream() ? FLAG_STREAM : 0;
+        flags |= flowFile.isCurrentFlowFileComplete() ? FLAG_CURRENT_FLOW_FILE_COMPLETE : 0;
+        out.writeByte(flags);
+
+        out.writeString(flowFile.getId());
+        out.writeString(flowFile.getFeedName());
+        out.writeString(flowFile.getFeedProcessGroupId());
+        out.writeVarInt(flowFile.getFailedEventCount());
+
+        out.writeNullableLong(flowFile.getFirstEventId());
+        out.writeTime(flowFile.getFirstEventStartTime());
+        out.writeString(flowFile.getFirstEventProcessorId());
+        out.writeNullableLong(flowFile.getLastEventId());
+        out.writeTime(flowFile.getLastEventTime());
+        out.writeString(flowFile.getLastEventProcessorId());
+
+        out.writeStrings(flowFile.getActiveChildFlowFiles());
+        out.writeStrings(flowFile.getChildFlowFiles());
+        out.writeStrings(flowFile.getFlowfilesStarted());
+        out.writeTimeMap(flowFile.getFlowFileLastEventTime());
+        out.writeTimeMap(flowFile.getChildFlowFileStartTimes());
+        out.writeStringMap(flowFile.getFlowFileIdToParentFlowFileId());
+        return out.toByteArray();
+    }
+
+    /**
+     * Decode a flow file written by this codec
+     *
+     * @param bytes the encoded bytes
+     * @return the decoded flow file
+     * @throws IOException if the bytes are not valid or were written by a newer version of the codec
+     */
+    public static FeedFlowFile decode(byte[] bytes) throws IOException {
+        CodecInput in = new CodecInput(bytes, 0);
+        int version = in.readByte();
+        if (version > VERSION) {
+            throw new IOException("Unsupported FeedFlowFile version " + version + ". This codec supports up to version " + VERSION);
+        }
+        int flags = in.readByte();
+
+        FeedFlowFile flowFile = new FeedFlowFile(in.readString());
+        flowFile.setStream((flags & FLAG_STREAM) != 0);
+        flowFile.setCurrentFlowFileComplete((flags & FLAG_CURRENT_FLOW_FILE_COMPLETE) != 0);
+        flowFile.setFeedName(in.readString());
+        flowFile.setFeedProcessGroupId(in.readString());
+        flowFile.setFailedEventCount(in.readVarInt());
+
+        flowFile.setFirstEventId(in.readNullableLong());
+        flowFile.setFirstEventStartTime(in.readTimeMillis());
+        flowFile.setFirstEventProcessorId(in.readString());
+        flowFile.setLastEventId(in.readNullableLong());
+        flowFile.setLastEventTime(in.readTimeMillis());
+        flowFile.setLastEventProcessorId(in.readString());
+
+        flowFile.setActiveChildFlowFiles(in.readStringSet());
+        flowFile.setChildFlowFiles(in.readStringSet());
+        flowFile.setFlowfilesStarted(in.readStringSet());
+        flowFile.setFlowFileLastEventTime(in.readTimeMap());
+        flowFile.setChildFlowFileStartTimes(in.readTimeMap());
+        flowFile.setFlowFileIdToParentFlowFileId(in.readStringMap());
+        return flowFile;
+    }
+}
@@ -0,0 +1,481 @@
+package com.thinkbiganalytics.nifi.provenance.model.codec;
+
+/*-
+ * #%L
+ * thinkbig-nifi-provenance-model
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.nifi.provenance.KyloProcessorFlowType;
+import com.thinkbiganalytics.nifi.provenance.model.ProvenanceEventRecordDTO;
+import com.thinkbiganalytics.nifi.provenance.model.ProvenanceEventRecordDTOHolder;
+import com.thinkbiganalytics.nifi.provenance.model.stats.AggregatedFeedProcessorStatistics;
+import com.thinkbiganalytics.nifi.provenance.model.stats.AggregatedFeedProcessorStatisticsHolder;
+import com.thinkbiganalytics.nifi.provenance.model.stats.AggregatedProcessorStatistics;
+import com.thinkbiganalytics.nifi.provenance.model.stats.GroupedStats;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Versioned binary encoding of the {@link ProvenanceEventRecordDTOHolder} and {@link AggregatedFeedProcessorStatisticsHolder} objects sent from the NiFi reporting task to Kylo.
+ *
+ * This replaces Java serialization of the object graph.  Only the fields Kylo consumes are written, strings are dictionary encoded per message and the body can optionally be compressed.
+ *
+ * Layout: {@code [magic:4][version:1][payload type:1][flags:1][body]}.  When the {@link #FLAG_COMPRESSED} flag is set the body is the uncompressed length followed by the deflated bytes.
+ */
+public final class ProvenanceBinaryCodec {
+
+    /**
+     * Name of the codec.  Sent along with each JMS message so the receiver knows how to decode the payload
+     */
+    public static final String CODEC_NAME = "kylo-provenance-binary";
+
+    /**
+     * The current version of the format written by this codec
+     */
+    public static final int VERSION = 1;
+
+    public static final byte PAYLOAD_EVENTS = 1;
+
+    public static final byte PAYLOAD_STATS = 2;
+
+    static final int FLAG_COMPRESSED = 0x01;
+
+    private static final byte[] MAGIC = {'K', 'Y', 'P', 'B'};
+
+    private static final int HEADER_LENGTH = MAGIC.length + 3;
+
+    private static final int EVENT_FLAG_START_OF_JOB = 1;
+    private static final int EVENT_FLAG_END_OF_JOB = 1 << 1;
+    private static final int EVENT_FLAG_FINAL_JOB_EVENT = 1 << 2;
+    private static final int EVENT_FLAG_BATCH_JOB = 1 << 3;
+    private static final int EVENT_FLAG_HAS_FAILED_EVENTS = 1 << 4;
+    private static final int EVENT_FLAG_START_OF_FLOW_FILE = 1 << 5;
+    private static final int EVENT_FLAG_FAILURE = 1 << 6;
+    private static final int EVENT_FLAG_STREAM = 1 << 7;
+
+    private ProvenanceBinaryCodec() {
+
+    }
+
+    /**
+     * Encode a batch of events
+     *
+     * @param holder   the events to encode
+     * @param compress true to compress the body of the message
+     * @return the encoded bytes
+     */
+    public static byte[] encodeEvents(ProvenanceEventRecordDTOHolder holder, boolean compress) {
+        List<ProvenanceEventRecordDTO> events = holder.getEvents();
+        int size = events != null ? events.size() : 0;
+        CodecOutput out = new CodecOutput(64 + size * 256);
+        out.writeString(holder.getBatchId());
+        if (events == null) {
+            out.writeVarInt(0);
+        } else {
+            out.writeVarInt(size + 1);
+            long lastEventId = 0L;
+            for (ProvenanceEventRecordDTO event : events) {
+                Long eventId = event.getEventId();
+                out.writeNullableLong(eventId != null ? eventId - lastEventId : null);
+                if (eventId != null) {
+                    lastEventId = eventId;
+                }
+                writeEvent(out, event);
+            }
+        }
+        return finish(PAYLOAD_EVENTS, out, compress);
+    }
+
+    /**
+     * Encode the aggregated statistics
+     *
+     * @param holder   the statistics to encode
+     * @param compress true to compress the body of the message
+     * @return the encoded bytes
+     */
+    public static byte[] encodeStats(AggregatedFeedProcessorStatisticsHolder holder, boolean compress) {
+        Map<String, AggregatedFeedProcessorStatistics> feedStatistics = holder.getFeedStatistics();
+        CodecOutput out = new CodecOutput(256 + feedStatistics.size() * 512);
+        out.writeString(holder.getCollectionId());
+        out.writeTime(holder.getMinTime());
+        out.writeTime(holder.getMaxTime());
+        out.writeLong(holder.getEventCount().get());
+        out.writeNullableLong(holder.getMinEventId());
+        out.writeNullableLong(holder.getMaxEventId());
+        out.writeVarInt(feedStatistics.size());
+        for (Map.Entry<String, AggregatedFeedProcessorStatistics> feedEntry : feedStatistics.entrySet()) {
+            AggregatedFeedProcessorStatistics feedStats = feedEntry.getValue();
+            out.writeString(feedEntry.getKey());
+            out.writeString(feedStats.getFeedName());
+            out.writeString(feedStats.getProcessGroup());
+            out.writeString(feedStats.getCollectionId());
+            out.writeNullableLong(feedStats.getTotalEvents());
+            out.writeNullableLong(feedStats.getMinEventId());
+            out.writeNullableLong(feedStats.getMaxEventId());
+            Map<String, AggregatedProcessorStatistics> processorStats = feedStats.getProcessorStats();
+            out.writeVarInt(processorStats.size());
+            for (Map.Entry<String, AggregatedProcessorStatistics> processorEntry : processorStats.entrySet()) {
+                AggregatedProcessorStatistics stats = processorEntry.getValue();
+                out.writeString(processorEntry.getKey());
+                out.writeString(stats.getProcessorId());
+                out.writeString(stats.getProcessorName());
+                writeGroupedStats(out, stats.getStats());
+            }
+        }
+        return finish(PAYLOAD_STATS, out, compress);
+    }
+
+    /**
+     * Decode a payload written by this codec, returning either a {@link ProvenanceEventRecordDTOHolder} or {@link AggregatedFeedProcessorStatisticsHolder} depending upon the payload type
+     *
+     * @param payload the encoded bytes
+     * @return the decoded object
+     * @throws IOException if the payload is not valid or was written by a newer version of the codec
+     */
+    public static Object decode(byte[] payload) throws IOException {
+        int type = payloadType(payload);
+        if (type == PAYLOAD_EVENTS) {
+            return decodeEvents(payload);
+        } else if (type == PAYLOAD_STATS) {
+            return decodeStats(payload);
+        }
+        throw new IOException("Unknown provenance payload type " + type);
+    }
+
+    /**
+     * Decode a batch of events
+     */
+    public static ProvenanceEventRecordDTOHolder decodeEvents(byte[] payload) throws IOException {
+        CodecInput in = open(payload, PAYLOAD_EVENTS);
+        ProvenanceEventRecordDTOHolder holder = new ProvenanceEventRecordDTOHolder();
+        holder.setBatchId(in.readString());
+        int size = in.readVarInt();
+        if (size > 0) {
+            List<ProvenanceEventRecordDTO> events = new ArrayList<>(size - 1);
+            long lastEventId = 0L;
+            for (int i = 1; i < size; i++) {
+                Long delta = in.readNullableLong();
+                Long eventId = null;
+                if (delta != null) {
+                    eventId = lastEventId + delta;
+                    lastEventId = eventId;
+                }
+                ProvenanceEventRecordDTO event = readEvent(in);
+                event.setEventId(eventId);
+                events.add(event);
+            }
+            holder.setEvents(events);
+        }
+        return holder;
+    }
+
+    /**
+     * Decode the aggregated statistics
+     */
+    public static AggregatedFeedProcessorStatisticsHolder decodeStats(byte[] payload) throws IOException {
+        CodecInput in = open(payload, PAYLOAD_STATS);
+        AggregatedFeedProcessorStatisticsHolder holder = new AggregatedFeedProcessorStatisticsHolder();
+        holder.setCollectionId(in.readString());
+        holder.setMinTime(in.readTime());
+        holder.setMaxTime(in.readTime());
+        holder.getEventCount().set(in.readLong());
+        holder.setMinEventId(in.readNullableLong());
+        holder.setMaxEventId(in.readNullableLong());
+        int feeds = in.readVarInt();
+        for (int i = 0; i < feeds; i++) {
+            String key = in.readString();
+            AggregatedFeedProcessorStatistics feedStats = new AggregatedFeedProcessorStatistics();
+            feedStats.setFeedName(in.readString());
+            feedStats.setProcessGroup(in.readString());
+            feedStats.setCollectionId(in.readString());
+            feedStats.setTotalEvents(in.readNullableLong());
+            feedStats.setMinEventId(in.readNullableLong());
+            feedStats.setMaxEventId(in.readNullableLong());
+            int processors = in.readVarInt();
+            for (int p = 0; p < processors; p++) {
+                String processorKey = in.readString();
+                String processorId = in.readString();
+                String processorName = in.readString();
+                AggregatedProcessorStatistics stats = new AggregatedProcessorStatistics(processorId, processorName, null);
+                stats.setStats(readGroupedStats(in));
+                feedStats.getProcessorStats().put(processorKey, stats);
+            }
+            holder.getFeedStatistics().put(key, feedStats);
+        }
+        return holder;
+    }
+
+    /**
+     * Return the payload type of the encoded bytes
+     */
+    public static int payloadType(byte[] payload) throws IOException {
+        checkHeader(payload);
+        return payload[MAGIC.length + 1];
+    }
+
+    private static void writeEvent(CodecOutput out, ProvenanceEventRecordDTO event) {
+        int flags = 0;
+        flags |= event.isStartOfJob() ? EVENT_FLAG_START_OF_JOB : 0;
+        flags |= event.isEndOfJob() ? EVENT_FLAG_END_OF_JOB : 0;
+        flags |= event.isFinalJobEvent() ? EVENT_FLAG_FINAL_JOB_EVENT : 0;
+        flags |= event.isBatchJob() ? EVENT_FLAG_BATCH_JOB : 0;
+        flags |= event.isHasFailedEvents() ? EVENT_FLAG_HAS_FAILED_EVENTS : 0;
+        flags |= event.isStartOfFlowFile() ? EVENT_FLAG_START_OF_FLOW_FILE : 0;
+        flags |= event.isFailure() ? EVENT_FLAG_FAILURE : 0;
+        flags |= event.isStream() ? EVENT_FLAG_STREAM : 0;
+        out.writeByte(flags);
+
+        out.writeString(event.getId());
+        out.writeString(event.getEventType());
+        out.writeString(event.getFlowFileUuid());
+        out.writeString(event.getFileSize());
+        out.writeString(event.getClusterNodeId());
+        out.writeString(event.getClusterNodeAddress());
+        out.writeString(event.getGroupId());
+        out.writeString(event.getComponentId());
+        out.writeString(event.getComponentType());
+        out.writeString(event.getComponentName());
+        out.writeString(event.getDetails());
+        out.writeString(event.getSourceConnectionIdentifier());
+        out.writeString(event.getInputContentClaimFileSize());
+        out.writeString(event.getOutputContentClaimFileSize());
+        out.writeString(event.getJobFlowFileId());
+        out.writeString(event.getFeedName());
+        out.writeString(event.getFeedProcessGroupId());
+        out.writeString(event.getBatchId());
+        out.writeString(event.getRelationship());
+        out.writeString(event.getProcessorType() != null ? event.getProcessorType().name() : null);
+
+        out.writeNullableLong(event.getEventDuration());
+        out.writeNullableLong(event.getFileSizeBytes());
+        out.writeNullableLong(event.getInputContentClaimFileSizeBytes());
+        out.writeNullableLong(event.getOutputContentClaimFileSizeBytes());
+        out.writeNullableLong(event.getPreviousEventId());
+        out.writeNullableLong(event.getJobEventId());
+
+        out.writeTime(event.getEventTime());
+        out.writeTime(event.getPreviousEventTime());
+        out.writeTime(event.getStartTime());
+
+        out.writeStrings(event.getParentUuids());
+        out.writeStrings(event.getChildUuids());
+        out.writeStrings(event.getRelatedRootFlowFiles());
+
+        out.writeStringMap(event.getAttributeMap());
+        out.writeStringMap(event.getUpdatedAttributes());
+        out.writeStringMap(event.getPreviousAttributes());
+    }
+
+    private static ProvenanceEventRecordDTO readEvent(CodecInput in) throws IOException {
+        ProvenanceEventRecordDTO event = new ProvenanceEventRecordDTO();
+        int flags = in.readByte();
+        event.setIsStartOfJob((flags & EVENT_FLAG_START_OF_JOB) != 0);
+        event.setIsEndOfJob((flags & EVENT_FLAG_END_OF_JOB) != 0);
+        event.setIsFinalJobEvent((flags & EVENT_FLAG_FINAL_JOB_EVENT) != 0);
+        event.setIsBatchJob((flags & EVENT_FLAG_BATCH_JOB) != 0);
+        event.setHasFailedEvents((flags & EVENT_FLAG_HAS_FAILED_EVENTS) != 0);
+        event.setStartOfFlowFile((flags & EVENT_FLAG_START_OF_FLOW_FILE) != 0);
+        event.setIsFailure((flags & EVENT_FLAG_FAILURE) != 0);
+        event.setStream((flags & EVENT_FLAG_STREAM) != 0);
+
+        event.setId(in.readString());
+        event.setEventType(in.readString());
+        event.setFlowFileUuid(in.readString());
+        event.setFileSize(in.readString());
+        event.setClusterNodeId(in.readString());
+        event.setClusterNodeAddress(in.readString());
+        event.setGroupId(in.readString());
+        event.setComponentId(in.readString());
+        event.setComponentType(in.readString());
+        event.setComponentName(in.readString());
+        event.setDetails(in.readString());
+        event.setSourceConnectionIdentifier(in.readString());
+        event.setInputContentClaimFileSize(in.readString());
+        event.setOutputContentClaimFileSize(in.readString());
+        event.setJobFlowFileId(in.readString());
+        event.setFeedName(in.readString());
+        event.setFeedProcessGroupId(in.readString());
+        event.setBatchId(in.readString());
+        event.setRelationship(in.readString());
+        String processorType = in.readString();
+        event.setProcessorType(processorType != null ? KyloProcessorFlowType.valueOf(processorType) : null);
+
+        event.setEventDuration(in.readNullableLong());
+        event.setFileSizeBytes(in.readNullableLong());
+        event.setInputContentClaimFileSizeBytes(in.readNullableLong());
+        event.setOutputContentClaimFileSizeBytes(in.readNullableLong());
+        event.setPreviousEventId(in.readNullableLong());
+        event.setJobEventId(in.readNullableLong());
+
+        event.setEventTime(in.readTime());
+        event.setPreviousEventTime(in.readTime());
+        event.setStartTime(in.readTime());
+
+        event.setParentUuids(in.readStringList());
+        event.setChildUuids(in.readStringList());
+        event.setRelatedRootFlowFiles(in.readStringSet());
+
+        event.setAttributeMap(in.readStringMap());
+        event.setUpdatedAttributes(in.readStringMap());
+        event.setPreviousAttributes(in.readStringMap());
+        return event;
+    }
+
+    private static void writeGroupedStats(CodecOutput out, GroupedStats stats) {
+        out.writeString(stats.getGroupKey());
+        out.writeTime(stats.getTime());
+        out.writeTime(stats.getMinTime());
+        out.writeTime(stats.getMaxTime());
+        out.writeLong(stats.getBytesIn());
+        out.writeLong(stats.getBytesOut());
+        out.writeLong(stats.getDuration());
+        out.writeLong(stats.getTotalCount());
+        out.writeLong(stats.getJobsStarted());
+        out.writeLong(stats.getJobsFinished());
+        out.writeLong(stats.getProcessorsFailed());
+        out.writeLong(stats.getFlowFilesStarted());
+        out.writeLong(stats.getFlowFilesFinished());
+        out.writeLong(stats.getJobsFailed());
+        out.writeLong(stats.getSuccessfulJobDuration());
+        out.writeLong(stats.getJobDuration());
+        out.writeLong(stats.getMaxEventId());
+        out.writeString(stats.getClusterNodeId());
+        out.writeString(stats.getClusterNodeAddress());
+    }
+
+    private static GroupedStats readGroupedStats(CodecInput in) throws IOException {
+        GroupedStats stats = new GroupedStats();
+        stats.setGroupKey(in.readString());
+        stats.setTime(in.readTime());
+        stats.setMinTime(in.readTime());
+        stats.setMaxTime(in.readTime());
+        stats.setBytesIn(in.readLong());
+        stats.setBytesOut(in.readLong());
+        stats.setDuration(in.readLong());
+        stats.setTotalCount(in.readLong());
+        stats.setJobsStarted(in.readLong());
+        stats.setJobsFinished(in.readLong());
+        stats.setProcessorsFailed(in.readLong());
+        stats.setFlowFilesStarted(in.readLong());
+        stats.setFlowFilesFinished(in.readLong());
+        stats.setJobsFailed(in.readLong());
+        stats.setSuccessfulJobDuration(in.readLong());
+        stats.setJobDuration(in.readLong());
+        stats.setMaxEventId(in.readLong());
+        stats.setClusterNodeId(in.readString());
+        stats.setClusterNodeAddress(in.readString());
+        return stats;
+    }
+
+    /**
+     * Prepend the header and optionally compress the body
+     */
+    private static byte[] finish(byte payloadType, CodecOutput out, boolean compress) {
+        byte[] body = out.toByteArray();
+        ByteArrayOutputStream result = new ByteArrayOutputStream(HEADER_LENGTH + body.length + 8);
+        result.write(MAGIC, 0, MAGIC.length);
+        result.write(VERSION);
+        result.write(payloadType);
+        if (compress) {
+            result.write(FLAG_COMPRESSED);
+            CodecOutput length = new CodecOutput(5);
+            length.writeVarInt(body.length);
+            result.write(length.toByteArray(), 0, length.size());
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            try {
+                deflater.setInput(body);
+                deflater.finish();
+                byte[] chunk = new byte[8192];
+                while (!deflater.finished()) {
+                    int count = deflater.deflate(chunk);
+                    result.write(chunk, 0, count);
+                }
+            } finally {
+                deflater.end();
+            }
+        } else {
+            result.write(0);
+            result.write(body, 0, body.length);
+        }
+        return result.toByteArray();
+    }
+
+    /**
+     * Validate the header and return an input positioned at the start of the (uncompressed) body
+     */
+    private static CodecInput open(byte[] payload, byte expectedType) throws IOException {
+        checkHeader(payload);
+        int type = payload[MAGIC.length + 1];
+        if (type != expectedType) {
+            throw new IOException("Expected provenance payload type " + expectedType + " but found " + type);
+        }
+        int flags = payload[MAGIC.length + 2];
+        if ((flags & FLAG_COMPRESSED) == 0) {
+            return new CodecInput(payload, HEADER_LENGTH);
+        }
+        CodecInput lengthInput = new CodecInput(payload, HEADER_LENGTH);
+        int length = lengthInput.readVarInt();
+        int offset = HEADER_LENGTH;
+        while ((payload[offset++] & 0x80) != 0) {
+            //skip over the length
+        }
+        byte[] body = new byte[length];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(payload, offset, payload.length - offset);
+            int read = 0;
+            while (read < length) {
+                int count = inflater.inflate(body, read, length - read);
+                if (count == 0 && (inflater.finished() || inflater.needsInput())) {
+                    break;
+                }
+                read += count;
+            }
+            if (read != length) {
+                throw new IOException("Compressed provenance payload is truncated.  Expected " + length + " bytes but found " + read);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Unable to decompress provenance payload", e);
+        } finally {
+            inflater.end();
+        }
+        return new CodecInput(body, 0);
+    }
+
+    private static void checkHeader(byte[] payload) throws IOException {
+        if (payload == null || payload.length < HEADER_LENGTH) {
+            throw new IOException("Provenance payload is too short to contain a header");
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (payload[i] != MAGIC[i]) {
+                throw new IOException("Payload was not written by the " + CODEC_NAME + " codec");
+            }
+        }
+        int version = payload[MAGIC.length];
+        if (version > VERSION) {
+            throw new IOException("Provenance payload version " + version + " is newer than the supported version " + VERSION);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.thinkbiganalytics.nifi.provenance.model.codec;
+
+/*-
+ * #%L
+ * thinkbig-nifi-provenance-model
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.nifi.provenance.model.FeedFlowFile;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.UUID;
+
+public class FeedFlowFileCodecTest {
+
+    /**
+     * Verifies the flow file graph survives an encode/decode round trip
+     */
+    @Test
+    public void roundTrip() throws Exception {
+        FeedFlowFile flowFile = createFlowFile(50);
+        FeedFlowFile decoded = FeedFlowFileCodec.decode(FeedFlowFileCodec.encode(flowFile));
+
+        Assert.assertEquals(flowFile.getId(), decoded.getId());
+        Assert.assertEquals(flowFile.isStream(), decoded.isStream());
+        Assert.assertEquals(flowFile.isCurrentFlowFileComplete(), decoded.isCurrentFlowFileComplete());
+        Assert.assertEquals(flowFile.getFeedName(), decoded.getFeedName());
+        Assert.assertEquals(flowFile.getFeedProcessGroupId(), decoded.getFeedProcessGroupId());
+        Assert.assertEquals(flowFile.getFailedEventCount(), decoded.getFailedEventCount());
+        Assert.assertEquals(flowFile.getFirstEventId(), decoded.getFirstEventId());
+        Assert.assertEquals(flowFile.getFirstEventStartTime(), decoded.getFirstEventStartTime());
+        Assert.assertEquals(flowFile.getFirstEventProcessorId(), decoded.getFirstEventProcessorId());
+        Assert.assertEquals(flowFile.getLastEventId(), decoded.getLastEventId());
+        Assert.assertEquals(flowFile.getLastEventTime(), decoded.getLastEventTime());
+        Assert.assertEquals(flowFile.getLastEventProcessorId(), decoded.getLastEventProcessorId());
+        Assert.assertEquals(flowFile.getActiveChildFlowFiles(), decoded.getActiveChildFlowFiles());
+        Assert.assertEquals(flowFile.getChildFlowFiles(), decoded.getChildFlowFiles());
+        Assert.assertEquals(flowFile.getFlowfilesStarted(), decoded.getFlowfilesStarted());
+        Assert.assertEquals(flowFile.getFlowFileLastEventTime(), decoded.getFlowFileLastEventTime());
+        Assert.assertEquals(flowFile.getChildFlowFileStartTimes(), decoded.getChildFlowFileStartTimes());
+        Assert.assertEquals(flowFile.getFlowFileIdToParentFlowFileId(), decoded.getFlowFileIdToParentFlowFileId());
+        Assert.assertFalse(decoded.isFeedComplete());
+    }
+
+    /**
+     * Verifies a flow file that has not seen any events round trips with its null collections
+     */
+    @Test
+    public void emptyRoundTrip() throws Exception {
+        FeedFlowFile decoded = FeedFlowFileCodec.decode(FeedFlowFileCodec.encode(new FeedFlowFile("root")));
+        Assert.assertEquals("root", decoded.getId());
+        Assert.assertNull(decoded.getFirstEventId());
+        Assert.assertNull(decoded.getChildFlowFiles());
+        Assert.assertNull(decoded.getFlowFileLastEventTime());
+        Assert.assertTrue(decoded.getFailedEventCount() == 0);
+    }
+
+    /**
+     * Verifies the encoding is smaller than Java serialization
+     */
+    @Test
+    public void smallerThanJavaSerialization() throws Exception {
+        FeedFlowFile flowFile = createFlowFile(100);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(flowFile);
+        }
+        Assert.assertTrue(FeedFlowFileCodec.encode(flowFile).length < bytes.size());
+    }
+
+    /**
+     * Verifies flow files written by a newer version are rejected
+     */
+    @Test(expected = IOException.class)
+    public void newerVersion() throws Exception {
+        byte[] bytes = FeedFlowFileCodec.encode(new FeedFlowFile("root"));
+        bytes[0] = (byte) (FeedFlowFileCodec.VERSION + 1);
+        FeedFlowFileCodec.decode(bytes);
+    }
+
+    private FeedFlowFile createFlowFile(int children) {
+        String rootId = UUID.randomUUID().toString();
+        FeedFlowFile flowFile = new FeedFlowFile(rootId);
+        flowFile.setFeedName("category.feed");
+        flowFile.setFeedProcessGroupId(UUID.randomUUID().toString());
+        flowFile.setFirstEventId(1000L);
+        flowFile.setFirstEventStartTime(1490000000000L);
+        flowFile.setFirstEventProcessorId(UUID.randomUUID().toString());
+        flowFile.setLastEventId(1000L + children);
+        flowFile.setLastEventTime(1490000000000L + children * 10);
+        flowFile.setLastEventProcessorId(UUID.randomUUID().toString());
+        flowFile.setCurrentFlowFileComplete(true);
+        flowFile.incrementFailedEvents();
+        flowFile.assignChildFlowFileStartTime(rootId, 1490000000000L);
+        for (int i = 0; i < children; i++) {
+            String childId = UUID.randomUUID().toString();
+            flowFile.addChildFlowFile(childId);
+            flowFile.assignFlowFileToParent(childId, rootId);
+            flowFile.assignChildFlowFileStartTime(childId, 1490000000000L + i * 10);
+        }
+        Map<String, Long> lastEventTimes = new HashMap<>();
+        lastEventTimes.put(rootId, 1490000000000L + children * 10);
+        flowFile.setFlowFileLastEventTime(lastEventTimes);
+        flowFile.setFlowfilesStarted(new HashSet<>(Collections.singleton(rootId)));
+        return flowFile;
+    }
+}
@@ -0,0 +1,274 @@
+package com.thinkbiganalytics.nifi.provenance.model.codec;
+
+/*-
+ * #%L
+ * thinkbig-nifi-provenance-model
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.nifi.provenance.KyloProcessorFlowType;
+import com.thinkbiganalytics.nifi.provenance.model.ProvenanceEventRecordDTO;
+import com.thinkbiganalytics.nifi.provenance.model.ProvenanceEventRecordDTOHolder;
+import com.thinkbiganalytics.nifi.provenance.model.stats.AggregatedFeedProcessorStatistics;
+import com.thinkbiganalytics.nifi.provenance.model.stats.AggregatedFeedProcessorStatisticsHolder;
+import com.thinkbiganalytics.nifi.provenance.model.stats.AggregatedProcessorStatistics;
+import com.thinkbiganalytics.nifi.provenance.model.stats.GroupedStats;
+
+import org.joda.time.DateTime;
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+public class ProvenanceBinaryCodecTest {
+
+    private static final Logger log = LoggerFactory.getLogger(ProvenanceBinaryCodecTest.class);
+
+    private static final String[] FEEDS = {"category.feed_a", "category.feed_b", "other.feed_c"};
+
+    /**
+     * Verifies every field Kylo consumes survives an encode/decode round trip
+     */
+    @Test
+    public void eventsRoundTrip() throws Exception {
+        ProvenanceEventRecordDTOHolder holder = createEvents(20);
+        for (boolean compress : new boolean[]{false, true}) {
+            ProvenanceEventRecordDTOHolder decoded = ProvenanceBinaryCodec.decodeEvents(ProvenanceBinaryCodec.encodeEvents(holder, compress));
+            Assert.assertEquals(holder.getBatchId(), decoded.getBatchId());
+            Assert.assertEquals(holder.getEvents().size(), decoded.getEvents().size());
+            for (int i = 0; i < holder.getEvents().size(); i++) {
+                assertEventEquals(holder.getEvents().get(i), decoded.getEvents().get(i));
+            }
+        }
+    }
+
+    /**
+     * Verifies the aggregated statistics survive an encode/decode round trip
+     */
+    @Test
+    public void statsRoundTrip() throws Exception {
+        AggregatedFeedProcessorStatisticsHolder holder = createStats();
+        Object decodedObject = ProvenanceBinaryCodec.decode(ProvenanceBinaryCodec.encodeStats(holder, true));
+        Assert.assertTrue(decodedObject instanceof AggregatedFeedProcessorStatisticsHolder);
+        AggregatedFeedProcessorStatisticsHolder decoded = (AggregatedFeedProcessorStatisticsHolder) decodedObject;
+
+        Assert.assertEquals(holder.getCollectionId(), decoded.getCollectionId());
+        Assert.assertEquals(holder.getEventCount().get(), decoded.getEventCount().get());
+        Assert.assertEquals(holder.getMaxEventId(), decoded.getMaxEventId());
+        Assert.assertEquals(holder.getMinTime().getMillis(), decoded.getMinTime().getMillis());
+        Assert.assertEquals(holder.getFeedStatistics().keySet(), decoded.getFeedStatistics().keySet());
+        for (String feed : holder.getFeedStatistics().keySet()) {
+            AggregatedFeedProcessorStatistics expected = holder.getFeedStatistics().get(feed);
+            AggregatedFeedProcessorStatistics actual = decoded.getFeedStatistics().get(feed);
+            Assert.assertEquals(expected.getFeedName(), actual.getFeedName());
+            Assert.assertEquals(expected.getProcessGroup(), actual.getProcessGroup());
+            Assert.assertEquals(expected.getProcessorStats().keySet(), actual.getProcessorStats().keySet());
+            for (String processorId : expected.getProcessorStats().keySet()) {
+                GroupedStats expectedStats = expected.getProcessorStats().get(processorId).getStats();
+                GroupedStats actualStats = actual.getProcessorStats().get(processorId).getStats();
+                Assert.assertEquals(expected.getProcessorStats().get(processorId).getProcessorName(), actual.getProcessorStats().get(processorId).getProcessorName());
+                Assert.assertEquals(expectedStats.getGroupKey(), actualStats.getGroupKey());
+                Assert.assertEquals(expectedStats.getBytesOut(), actualStats.getBytesOut());
+                Assert.assertEquals(expectedStats.getJobsFailed(), actualStats.getJobsFailed());
+                Assert.assertEquals(expectedStats.getJobDuration(), actualStats.getJobDuration());
+                Assert.assertEquals(expectedStats.getMaxTime().getMillis(), actualStats.getMaxTime().getMillis());
+                Assert.assertEquals(expectedStats.getClusterNodeId(), actualStats.getClusterNodeId());
+            }
+        }
+    }
+
+    /**
+     * Payloads with an unknown header or newer version must be rejected
+     */
+    @Test(expected = IOException.class)
+    public void rejectsNewerVersion() throws Exception {
+        byte[] payload = ProvenanceBinaryCodec.encodeEvents(createEvents(1), false);
+        payload[4] = (byte) (ProvenanceBinaryCodec.VERSION + 1);
+        ProvenanceBinaryCodec.decodeEvents(payload);
+    }
+
+    /**
+     * Compares the size and encode/decode cost of the binary codec against Java serialization
+     */
+    @Test
+    public void benchmarkAgainstJavaSerialization() throws Exception {
+        int batchSize = 50;
+        int iterations = 200;
+        ProvenanceEventRecordDTOHolder holder = createEvents(batchSize);
+
+        byte[] javaBytes = javaSerialize(holder);
+        byte[] binaryBytes = ProvenanceBinaryCodec.encodeEvents(holder, false);
+        byte[] compressedBytes = ProvenanceBinaryCodec.encodeEvents(holder, true);
+
+        //warm up
+        for (int i = 0; i < 20; i++) {
+            javaDeserialize(javaSerialize(holder));
+            ProvenanceBinaryCodec.decodeEvents(ProvenanceBinaryCodec.encodeEvents(holder, true));
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            javaDeserialize(javaSerialize(holder));
+        }
+        long javaTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            ProvenanceBinaryCodec.decodeEvents(ProvenanceBinaryCodec.encodeEvents(holder, false));
+        }
+        long binaryTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            ProvenanceBinaryCodec.decodeEvents(ProvenanceBinaryCodec.encodeEvents(holder, true));
+        }
+        long compressedTime = System.nanoTime() - start;
+
+        int events = batchSize * iterations;
+        log.info("Java serialization: {} bytes/event, {} ns/event encode+decode", javaBytes.length / batchSize, javaTime / events);
+        log.info("Binary codec: {} bytes/event, {} ns/event encode+decode", binaryBytes.length / batchSize, binaryTime / events);
+        log.info("Binary codec compressed: {} bytes/event, {} ns/event encode+decode", compressedBytes.length / batchSize, compressedTime / events);
+
+        Assert.assertTrue(binaryBytes.length < javaBytes.length);
+        Assert.assertTrue(compressedBytes.length < binaryBytes.length);
+    }
+
+    private void assertEventEquals(ProvenanceEventRecordDTO expected, ProvenanceEventRecordDTO actual) {
+        Assert.assertEquals(expected.getEventId(), actual.getEventId());
+        Assert.assertEquals(expected.getFeedName(), actual.getFeedName());
+        Assert.assertEquals(expected.getComponentId(), actual.getComponentId());
+        Assert.assertEquals(expected.getComponentName(), actual.getComponentName());
+        Assert.assertEquals(expected.getFlowFileUuid(), actual.getFlowFileUuid());
+        Assert.assertEquals(expected.getJobFlowFileId(), actual.getJobFlowFileId());
+        Assert.assertEquals(expected.getEventType(), actual.getEventType());
+        Assert.assertEquals(expected.getEventDuration(), actual.getEventDuration());
+        Assert.assertEquals(expected.getEventTime().getMillis(), actual.getEventTime().getMillis());
+        Assert.assertEquals(expected.getStartTime().getMillis(), actual.getStartTime().getMillis());
+        Assert.assertEquals(expected.getProcessorType(), actual.getProcessorType());
+        Assert.assertEquals(expected.isBatchJob(), actual.isBatchJob());
+        Assert.assertEquals(expected.isStartOfJob(), actual.isStartOfJob());
+        Assert.assertEquals(expected.isEndOfJob(), actual.isEndOfJob());
+        Assert.assertEquals(expected.isFinalJobEvent(), actual.isFinalJobEvent());
+        Assert.assertEquals(expected.isHasFailedEvents(), actual.isHasFailedEvents());
+        Assert.assertEquals(expected.isFailure(), actual.isFailure());
+        Assert.assertEquals(expected.getParentUuids(), actual.getParentUuids());
+        Assert.assertEquals(expected.getChildUuids(), actual.getChildUuids());
+        Assert.assertEquals(expected.getRelatedRootFlowFiles(), actual.getRelatedRootFlowFiles());
+        Assert.assertEquals(expected.getAttributeMap(), actual.getAttributeMap());
+        Assert.assertEquals(expected.getUpdatedAttributes(), actual.getUpdatedAttributes());
+        Assert.assertEquals(expected.getPreviousAttributes(), actual.getPreviousAttributes());
+    }
+
+    private ProvenanceEventRecordDTOHolder createEvents(int count) {
+        List<ProvenanceEventRecordDTO> events = new ArrayList<>(count);
+        DateTime time = DateTime.now();
+        String jobFlowFileId = UUID.randomUUID().toString();
+        for (int i = 0; i < count; i++) {
+            String feedName = FEEDS[i % FEEDS.length];
+            ProvenanceEventRecordDTO event = new ProvenanceEventRecordDTO();
+            event.setEventId(1000L + i);
+            event.setEventTime(time.plusMillis(i * 15));
+            event.setStartTime(time.plusMillis(i * 15 - 10));
+            event.setEventDuration(10L + i);
+            event.setEventType(i == 0 ? "CREATE" : "ATTRIBUTES_MODIFIED");
+            event.setFlowFileUuid(UUID.randomUUID().toString());
+            event.setJobFlowFileId(jobFlowFileId);
+            event.setFeedName(feedName);
+            event.setFeedProcessGroupId("pg-" + feedName);
+            event.setComponentId("processor-" + (i % 5));
+            event.setComponentName("Processor " + (i % 5));
+            event.setComponentType("UpdateAttribute");
+            event.setClusterNodeId("node-1");
+            event.setProcessorType(KyloProcessorFlowType.NORMAL_FLOW);
+            event.setIsBatchJob(true);
+            event.setIsStartOfJob(i == 0);
+            event.setIsEndOfJob(i == count - 1);
+            event.setIsFailure(i % 7 == 0);
+            event.setParentUuids(Arrays.asList(jobFlowFileId));
+            Map<String, String> attributes = new HashMap<>();
+            attributes.put("uuid", event.getFlowFileUuid());
+            attributes.put("filename", "file-" + i + ".csv");
+            attributes.put("path", "./");
+            attributes.put("feed", feedName);
+            attributes.put("category", feedName.substring(0, feedName.indexOf('.')));
+            event.setAttributeMap(attributes);
+            Map<String, String> updated = new HashMap<>();
+            updated.put("filename", "file-" + i + ".csv");
+            event.setUpdatedAttributes(updated);
+            event.setPreviousAttributes(new HashMap<>());
+            events.add(event);
+        }
+        ProvenanceEventRecordDTOHolder holder = new ProvenanceEventRecordDTOHolder();
+        holder.setEvents(events);
+        return holder;
+    }
+
+    private AggregatedFeedProcessorStatisticsHolder createStats() {
+        AggregatedFeedProcessorStatisticsHolder holder = new AggregatedFeedProcessorStatisticsHolder();
+        DateTime time = DateTime.now();
+        holder.setMinTime(time);
+        holder.setMaxTime(time.plusSeconds(30));
+        holder.setMaxEventId(5000L);
+        holder.getEventCount().set(120L);
+        for (String feed : FEEDS) {
+            AggregatedFeedProcessorStatistics feedStats = new AggregatedFeedProcessorStatistics(feed, holder.getCollectionId());
+            feedStats.setProcessGroup("pg-" + feed);
+            for (int i = 0; i < 4; i++) {
+                GroupedStats stats = new GroupedStats();
+                stats.setGroupKey(holder.getCollectionId());
+                stats.setTime(time);
+                stats.setMinTime(time);
+                stats.setMaxTime(time.plusSeconds(i));
+                stats.setBytesOut(1024L * i);
+                stats.setJobsFailed(i % 2);
+                stats.setJobDuration(100L * i);
+                stats.setClusterNodeId("node-1");
+                AggregatedProcessorStatistics processorStats = new AggregatedProcessorStatistics("processor-" + i, "Processor " + i, holder.getCollectionId());
+                processorStats.setStats(stats);
+                feedStats.getProcessorStats().put(processorStats.getProcessorId(), processorStats);
+            }
+            holder.getFeedStatistics().put(feed, feedStats);
+        }
+        return holder;
+    }
+
+    private byte[] javaSerialize(Object object) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(object);
+        }
+        return bytes.toByteArray();
+    }
+
+    private Object javaDeserialize(byte[] bytes) throws Exception {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return in.readObject();
+        }
+    }
+}
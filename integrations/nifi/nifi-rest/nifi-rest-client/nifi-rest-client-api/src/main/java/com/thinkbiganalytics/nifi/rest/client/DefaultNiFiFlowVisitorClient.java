@@ -149,27 +149,30 @@ public class DefaultNiFiFlowVisitorClient implements NiFiFlowVisitorClient {
         return flow;
     }
 
+    /**
+     * Walks the feeds under each category process group.
+     *
+     * <p>The categories and feeds are listed without their contents so that only the contents of the feeds being walked are fetched.</p>
+     */
     public List<NifiFlowProcessGroup> getFeedFlows(Collection<String> feedNames) {
         log.info("get Graph of Nifi Flows looking for {} ", feedNames == null ? "ALL Feeds " : feedNames);
         long start = System.currentTimeMillis();
         NifiConnectionOrderVisitorCache cache = new NifiConnectionOrderVisitorCache();
         List<NifiFlowProcessGroup> feedFlows = new ArrayList<>();
-        ProcessGroupDTO processGroupEntity = restClient.processGroups().findRoot();
-        ProcessGroupDTO root = processGroupEntity;
         //first level is the category
-        root.getContents().getProcessGroups().stream().sorted(new Comparator<ProcessGroupDTO>() {
+        restClient.processGroups().findAll("root").stream().sorted(new Comparator<ProcessGroupDTO>() {
             @Override
             public int compare(ProcessGroupDTO o1, ProcessGroupDTO o2) {
                 if (TemplateCreationHelper.REUSABLE_TEMPLATES_PROCESS_GROUP_NAME.equalsIgnoreCase(o1.getName())) {
                     return -1;
                 }
                 if (TemplateCreationHelper.REUSABLE_TEMPLATES_PROCESS_GROUP_NAME.equalsIgnoreCase(o2.getName())) {
-                    return -1;
+                    return 1;
                 }
                 return o1.getName().compareTo(o2.getName());
             }
         }).forEach(category -> {
-            for (ProcessGroupDTO feedProcessGroup : category.getContents().getProcessGroups()) {
+            for (ProcessGroupDTO feedProcessGroup : restClient.processGroups().findAll(category.getId())) {
 
                 //second level is the feed
                 String feedName = FeedNameUtil.fullName(category.getName(), feedProcessGroup.getName());
@@ -0,0 +1,161 @@
+package com.thinkbiganalytics.nifi.rest.client;
+
+/*-
+ * #%L
+ * thinkbig-nifi-rest-client-api
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.collect.ImmutableSet;
+import com.thinkbiganalytics.nifi.feedmgr.TemplateCreationHelper;
+import com.thinkbiganalytics.nifi.rest.model.flow.NifiFlowProcessGroup;
+
+import org.apache.nifi.web.api.dto.FlowSnippetDTO;
+import org.apache.nifi.web.api.dto.ProcessGroupDTO;
+import org.apache.nifi.web.api.dto.ProcessorDTO;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+public class DefaultNiFiFlowVisitorClientTest {
+
+    /**
+     * Ids of the process groups under each parent process group
+     */
+    private final Map<String, Set<String>> children = new HashMap<>();
+
+    /**
+     * Process groups by id
+     */
+    private final Map<String, ProcessGroupDTO> groups = new HashMap<>();
+
+    /**
+     * Mock NiFi Process Groups REST client
+     */
+    private NiFiProcessGroupsRestClient processGroups;
+
+    /**
+     * Flow visitor client being tested
+     */
+    private DefaultNiFiFlowVisitorClient flows;
+
+    @Before
+    public void setUp() {
+        addGroup("root", "sales", "sales");
+        addGroup("root", "reusable", TemplateCreationHelper.REUSABLE_TEMPLATES_PROCESS_GROUP_NAME);
+        addGroup("reusable", "standard-ingest", "standard-ingest");
+        addGroup("sales", "orders", "orders");
+        addGroup("sales", "customers", "customers");
+
+        processGroups = Mockito.mock(NiFiProcessGroupsRestClient.class);
+        Mockito.when(processGroups.findAll(Mockito.anyString())).then(invocation -> getChildren((String) invocation.getArguments()[0]));
+        Mockito.when(processGroups.findById(Mockito.anyString(), Mockito.anyBoolean(), Mockito.anyBoolean()))
+            .then(invocation -> Optional.ofNullable(groups.get(invocation.getArguments()[0])));
+        Mockito.when(processGroups.findById(Mockito.anyString(), Mockito.anyBoolean(), Mockito.anyBoolean(), Mockito.anyBoolean()))
+            .then(invocation -> Optional.ofNullable(groups.get(invocation.getArguments()[0])));
+
+        final NiFiRestClient restClient = Mockito.mock(NiFiRestClient.class);
+        Mockito.when(restClient.processGroups()).thenReturn(processGroups);
+        flows = new DefaultNiFiFlowVisitorClient(restClient);
+    }
+
+    /**
+     * Verify that the feeds are walked without fetching the contents of the whole NiFi flow, starting with the reusable templates.
+     */
+    @Test
+    public void getFeedFlows() {
+        final List<NifiFlowProcessGroup> feedFlows = flows.getFeedFlows();
+        Assert.assertEquals(ImmutableSet.of("reusable_templates.standard-ingest", "sales.orders", "sales.customers"), getFeedNames(feedFlows));
+        Assert.assertEquals("reusable_templates.standard-ingest", feedFlows.get(0).getFeedName());
+
+        verifyFetched("standard-ingest", 1);
+        verifyFetched("orders", 1);
+        verifyFetched("customers", 1);
+        Mockito.verify(processGroups, Mockito.never()).findRoot();
+        Mockito.verify(processGroups, Mockito.never()).findById("root", true, true);
+    }
+
+    /**
+     * Verify that a filtered walk only fetches the requested feeds and the reusable templates.
+     */
+    @Test
+    public void getFeedFlowsFiltered() {
+        Assert.assertEquals(ImmutableSet.of("reusable_templates.standard-ingest", "sales.orders"), getFeedNames(flows.getFeedFlows(Collections.singleton("sales.orders"))));
+
+        verifyFetched("standard-ingest", 1);
+        verifyFetched("orders", 1);
+        verifyFetched("customers", 0);
+    }
+
+    /**
+     * Adds a process group with a single processor.
+     */
+    private void addGroup(final String parentId, final String id, final String name) {
+        final ProcessorDTO processor = new ProcessorDTO();
+        processor.setId(id + "-processor");
+        processor.setName("processor");
+        processor.setParentGroupId(id);
+
+        final FlowSnippetDTO contents = new FlowSnippetDTO();
+        contents.setProcessors(Collections.singleton(processor));
+
+        final ProcessGroupDTO group = new ProcessGroupDTO();
+        group.setId(id);
+        group.setName(name);
+        group.setParentGroupId(parentId);
+        group.setContents(contents);
+        groups.put(id, group);
+        children.computeIfAbsent(parentId, key -> new LinkedHashSet<>()).add(id);
+    }
+
+    /**
+     * Gets the child process groups, without contents, as returned by NiFi.
+     */
+    private Set<ProcessGroupDTO> getChildren(final String parentId) {
+        return children.getOrDefault(parentId, Collections.emptySet()).stream()
+            .map(groups::get)
+            .map(group -> {
+                final ProcessGroupDTO child = new ProcessGroupDTO();
+                child.setId(group.getId());
+                child.setName(group.getName());
+                child.setParentGroupId(group.getParentGroupId());
+                return child;
+            })
+            .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    private Set<String> getFeedNames(final List<NifiFlowProcessGroup> feedFlows) {
+        return feedFlows.stream().map(NifiFlowProcessGroup::getFeedName).collect(Collectors.toSet());
+    }
+
+    /**
+     * Verifies the number of times the contents of a feed process group were fetched.
+     */
+    private void verifyFetched(final String id, final int times) {
+        Mockito.verify(processGroups, Mockito.times(times)).findById(id, true, true);
+    }
+}
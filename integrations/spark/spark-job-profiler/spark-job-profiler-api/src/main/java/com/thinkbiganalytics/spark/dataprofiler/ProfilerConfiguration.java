@@ -38,6 +38,26 @@ public class ProfilerConfiguration implements Serializable {
     private String outputTableName = "profilestats";
     private String outputTablePartitionColumnName = "processing_dttm";
     private String sqlDialect = "hiveql";  // Hive supported HQL
+    private Engine engine = Engine.STANDARD;
+    private Integer sketchPrecision = 14;
+    private Integer sketchTopNCapacity = 1000;
+    private Integer sketchCompression = 100;
+
+    /**
+     * Engines available for calculating the profile statistics
+     */
+    public enum Engine {
+
+        /**
+         * Exact statistics. Counts every distinct value of every column using a shuffle.
+         */
+        STANDARD,
+
+        /**
+         * Approximate statistics. Each partition builds mergeable sketches in a single pass without a shuffle.
+         */
+        SKETCH
+    }
 
     /**
      * Number of decimals to print out in console<br>
@@ -129,4 +149,50 @@ public class ProfilerConfiguration implements Serializable {
     public void setSqlDialect(String sqlDialect) {
         this.sqlDialect = sqlDialect;
     }
+
+    /**
+     * Engine used to calculate the statistics
+     */
+    public Engine getEngine() {
+        return engine;
+    }
+
+    public void setEngine(Engine engine) {
+        this.engine = engine;
+    }
+
+    /**
+     * Precision of the HyperLogLog sketch used for unique counts by the sketch engine<br>
+     * Uses 2^precision bytes per column with a standard error of about 1.04 / sqrt(2^precision)
+     */
+    public Integer getSketchPrecision() {
+        return sketchPrecision;
+    }
+
+    public void setSketchPrecision(Integer sketchPrecision) {
+        this.sketchPrecision = sketchPrecision;
+    }
+
+    /**
+     * Number of values tracked per column by the sketch engine when finding the top-N values
+     */
+    public Integer getSketchTopNCapacity() {
+        return sketchTopNCapacity;
+    }
+
+    public void setSketchTopNCapacity(Integer sketchTopNCapacity) {
+        this.sketchTopNCapacity = sketchTopNCapacity;
+    }
+
+    /**
+     * Compression of the t-digest used for quantiles by the sketch engine<br>
+     * Higher values are more accurate and use more memory
+     */
+    public Integer getSketchCompression() {
+        return sketchCompression;
+    }
+
+    public void setSketchCompression(Integer sketchCompression) {
+        this.sketchCompression = sketchCompression;
+    }
 }
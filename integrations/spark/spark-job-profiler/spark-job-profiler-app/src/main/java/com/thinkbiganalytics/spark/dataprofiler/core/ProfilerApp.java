@@ -37,6 +37,10 @@ import com.thinkbiganalytics.spark.dataprofiler.columns.TimestampColumnStatistic
 import com.thinkbiganalytics.spark.dataprofiler.columns.UnsupportedColumnStatistics;
 import com.thinkbiganalytics.spark.dataprofiler.output.OutputWriter;
 import com.thinkbiganalytics.spark.dataprofiler.output.OutputRow;
+import com.thinkbiganalytics.spark.dataprofiler.sketch.ColumnSketches;
+import com.thinkbiganalytics.spark.dataprofiler.sketch.HyperLogLog;
+import com.thinkbiganalytics.spark.dataprofiler.sketch.SpaceSaving;
+import com.thinkbiganalytics.spark.dataprofiler.sketch.TDigest;
 import com.thinkbiganalytics.spark.dataprofiler.topn.TopNDataItem;
 import com.thinkbiganalytics.spark.dataprofiler.topn.TopNDataList;
 
@@ -55,9 +59,17 @@ import javax.annotation.Nonnull;
 @Configuration
 public class ProfilerApp {
 
+    /**
+     * Name of the Spark configuration property that selects the profiler engine
+     */
+    public static final String ENGINE_PROPERTY = "spark.kylo.profiler.engine";
+
     @Bean
     public ProfilerConfiguration profilerConfiguration() {
-        return new ProfilerConfiguration();
+        final ProfilerConfiguration profilerConfiguration = new ProfilerConfiguration();
+        final String engine = new SparkConf().get(ENGINE_PROPERTY, ProfilerConfiguration.Engine.STANDARD.name());
+        profilerConfiguration.setEngine(ProfilerConfiguration.Engine.valueOf(engine.trim().toUpperCase()));
+        return profilerConfiguration;
     }
 
     @Bean
@@ -97,6 +109,10 @@ public class ProfilerApp {
         serializeClassesList.add(StatisticsModel.class);
         serializeClassesList.add(TopNDataItem.class);
         serializeClassesList.add(TopNDataList.class);
+        serializeClassesList.add(ColumnSketches.class);
+        serializeClassesList.add(HyperLogLog.class);
+        serializeClassesList.add(SpaceSaving.class);
+        serializeClassesList.add(TDigest.class);
         serializeClassesList.add(OutputRow.class);
         serializeClassesList.add(OutputWriter.class);
 
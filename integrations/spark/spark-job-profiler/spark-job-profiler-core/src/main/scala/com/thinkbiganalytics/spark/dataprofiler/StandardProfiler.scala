@@ -1,6 +1,7 @@
 package com.thinkbiganalytics.spark.dataprofiler
 
-import com.thinkbiganalytics.spark.dataprofiler.function.PartitionLevelModels
+import com.thinkbiganalytics.spark.dataprofiler.function.{PartitionLevelModels, PartitionLevelSketchModels}
+import com.thinkbiganalytics.spark.dataprofiler.model.StandardStatisticsModel
 import com.thinkbiganalytics.spark.{DataSet, SparkContextService}
 import org.apache.spark.sql.SQLContext
 import org.apache.spark.sql.types.StructField
@@ -35,20 +36,32 @@ class StandardProfiler(val sqlContext: SQLContext, val sparkContextService: Spar
       * @return the statistics model
       */
     private def profileStatistics(dataset: DataSet, schemaMap: Map[Int, StructField], profilerConfiguration: ProfilerConfiguration): Option[StatisticsModel] = {
-        // Get ((column index, column value), count)
-        val columnValueCounts = dataset.rdd
-            .flatMap((row) => row.toSeq.zipWithIndex.map((tuple) => ((tuple._2, tuple._1), 1)))
-            .reduceByKey((a, b) => a + b)
+        val combine = (a: StandardStatisticsModel, b: StandardStatisticsModel) => {
+            a.combine(b)
+            a
+        }
 
-        // Generate the profile model
-        val partitionLevelModels = columnValueCounts.mapPartitions(new PartitionLevelModels(schemaMap, profilerConfiguration))
-        if (!partitionLevelModels.isEmpty) {
-            Option(partitionLevelModels.reduce((a, b) => {
-                a.combine(b)
-                a
-            }))
+        if (profilerConfiguration.getEngine == ProfilerConfiguration.Engine.SKETCH) {
+            // Build mergeable sketches for each partition in a single pass without a shuffle
+            val partitionLevelModels = dataset.rdd.mapPartitions(new PartitionLevelSketchModels(schemaMap, profilerConfiguration))
+            if (partitionLevelModels.partitions.nonEmpty) {
+                Option(partitionLevelModels.treeReduce(combine))
+            } else {
+                Option.empty
+            }
         } else {
-            Option.empty
+            // Get ((column index, column value), count)
+            val columnValueCounts = dataset.rdd
+                .flatMap((row) => row.toSeq.zipWithIndex.map((tuple) => ((tuple._2, tuple._1), 1)))
+                .reduceByKey((a, b) => a + b)
+
+            // Generate the profile model
+            val partitionLevelModels = columnValueCounts.mapPartitions(new PartitionLevelModels(schemaMap, profilerConfiguration))
+            if (!partitionLevelModels.isEmpty) {
+                Option(partitionLevelModels.reduce(combine))
+            } else {
+                Option.empty
+            }
         }
     }
 }
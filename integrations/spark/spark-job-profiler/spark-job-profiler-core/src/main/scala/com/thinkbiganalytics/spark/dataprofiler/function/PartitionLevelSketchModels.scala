@@ -0,0 +1,32 @@
+package com.thinkbiganalytics.spark.dataprofiler.function
+
+import com.thinkbiganalytics.spark.dataprofiler.ProfilerConfiguration
+import com.thinkbiganalytics.spark.dataprofiler.model.StandardStatisticsModel
+import org.apache.spark.sql.Row
+import org.apache.spark.sql.types.StructField
+
+/** Creates a statistics model from the rows of a partition using the sketch engine.
+  *
+  * Every cell is added with a count of one, and the column statistics keep mergeable sketches instead of exact counts, so no shuffle is needed.
+  *
+  * @param schemaMap the schema map
+  */
+class PartitionLevelSketchModels(val schemaMap: Map[Int, StructField], val profilerConfiguration: ProfilerConfiguration) extends (Iterator[Row] => Iterator[StandardStatisticsModel])
+    with Serializable {
+
+    override def apply(iter: Iterator[Row]): Iterator[StandardStatisticsModel] = {
+        val statisticsModel = new StandardStatisticsModel(profilerConfiguration)
+        val fields = schemaMap.toSeq.sortBy(_._1).map(_._2).toArray
+        val one = java.lang.Long.valueOf(1L)
+
+        for (row <- iter) {
+            var index = 0
+            while (index < fields.length) {
+                statisticsModel.add(index, row.get(index), one, fields(index))
+                index += 1
+            }
+        }
+
+        Iterator.apply(statisticsModel)
+    }
+}
@@ -24,6 +24,7 @@ import com.thinkbiganalytics.spark.dataprofiler.ColumnStatistics;
 import com.thinkbiganalytics.spark.dataprofiler.ProfilerConfiguration;
 import com.thinkbiganalytics.spark.dataprofiler.model.MetricType;
 import com.thinkbiganalytics.spark.dataprofiler.output.OutputRow;
+import com.thinkbiganalytics.spark.dataprofiler.sketch.ColumnSketches;
 import com.thinkbiganalytics.spark.dataprofiler.topn.TopNDataItem;
 import com.thinkbiganalytics.spark.dataprofiler.topn.TopNDataList;
 
@@ -45,7 +46,7 @@ public abstract class StandardColumnStatistics implements ColumnStatistics, Seri
     final StructField columnField;
     /* Other variables */
     final DecimalFormat df;
-    private final TopNDataList topNValues;
+    private TopNDataList topNValues;
     /* Common metrics for all data types */
     long nullCount;
     long totalCount;
@@ -55,6 +56,10 @@ public abstract class StandardColumnStatistics implements ColumnStatistics, Seri
     private double percDuplicateValues;
     private ProfilerConfiguration profilerConfiguration;
 
+    /* Sketches used instead of exact counts by the sketch engine */
+    private final ColumnSketches sketches;
+    private boolean sketchesChanged;
+
 
     /**
      * One-argument constructor
@@ -72,6 +77,8 @@ public abstract class StandardColumnStatistics implements ColumnStatistics, Seri
         this.profilerConfiguration = profilerConfiguration;
         topNValues = new TopNDataList(profilerConfiguration.getNumberOfTopNValues());
         df = new DecimalFormat(getDecimalFormatPattern());
+        sketches = (profilerConfiguration.getEngine() == ProfilerConfiguration.Engine.SKETCH) ? new ColumnSketches(profilerConfiguration) : null;
+        sketchesChanged = false;
     }
 
 
@@ -84,12 +91,20 @@ public abstract class StandardColumnStatistics implements ColumnStatistics, Seri
     void accomodateCommon(Object columnValue, Long columnCount) {
 
         totalCount += columnCount;
-        uniqueCount += 1;
 
         if (columnValue == null) {
             nullCount += columnCount;
         }
 
+        /* The sketch engine sees each value many times so unique count and top-N come from the sketches */
+        if (sketches != null) {
+            sketches.offer(columnValue, columnCount);
+            sketchesChanged = true;
+            return;
+        }
+
+        uniqueCount += 1;
+
         doPercentageCalculationsCommon();
 
         topNValues.add(columnValue, columnCount);
@@ -104,9 +119,16 @@ public abstract class StandardColumnStatistics implements ColumnStatistics, Seri
     void combineCommon(StandardColumnStatistics v_columnStatistics) {
 
         totalCount += v_columnStatistics.totalCount;
-        uniqueCount += v_columnStatistics.uniqueCount;
         nullCount += v_columnStatistics.nullCount;
 
+        if (sketches != null && v_columnStatistics.sketches != null) {
+            sketches.merge(v_columnStatistics.sketches);
+            sketchesChanged = true;
+            return;
+        }
+
+        uniqueCount += v_columnStatistics.uniqueCount;
+
         doPercentageCalculationsCommon();
 
         for (TopNDataItem dataItem :
@@ -168,6 +190,7 @@ public abstract class StandardColumnStatistics implements ColumnStatistics, Seri
      */
     void writeStatisticsCommon(@Nonnull final List<OutputRow> rows) {
 
+        updateFromSketches();
         writeColumnSchemaInformation(rows);
 
         rows.add(new OutputRow(columnField.name(), String.valueOf(MetricType.NULL_COUNT), String.valueOf(nullCount)));
@@ -178,6 +201,10 @@ public abstract class StandardColumnStatistics implements ColumnStatistics, Seri
         rows.add(new OutputRow(columnField.name(), String.valueOf(MetricType.PERC_DUPLICATE_VALUES), df.format(percDuplicateValues)));
 
         writeTopNInformation(rows);
+
+        if (sketches != null && sketches.hasQuantiles()) {
+            rows.add(new OutputRow(columnField.name(), String.valueOf(MetricType.QUANTILES), getQuantilesInformation()));
+        }
     }
 
 
@@ -188,6 +215,7 @@ public abstract class StandardColumnStatistics implements ColumnStatistics, Seri
      */
     String getVerboseStatisticsCommon() {
 
+        updateFromSketches();
         return getVerboseColumnSchemaInformation()
                + "\n"
                + "CommonStatistics ["
@@ -203,6 +231,35 @@ public abstract class StandardColumnStatistics implements ColumnStatistics, Seri
     }
 
 
+    /*
+     * Quartiles in the same format as the top-N values (quantile, value)
+     */
+    private String getQuantilesInformation() {
+
+        StringBuilder sb = new StringBuilder();
+        for (int percent = 25; percent <= 75; percent += 25) {
+            sb.append(percent).append(TopNDataList.TOP_N_VALUES_INTERNAL_DELIMITER)
+                .append(df.format(sketches.getQuantile(percent / 100.0d)))
+                .append(TopNDataList.TOP_N_VALUES_RECORD_DELIMITER);
+        }
+        return sb.toString();
+    }
+
+
+    /*
+     * Update the unique count, top-N values and percentages from the sketches
+     */
+    private void updateFromSketches() {
+
+        if (sketches != null && sketchesChanged) {
+            uniqueCount = Math.min(sketches.getUniqueCount(), totalCount);
+            topNValues = sketches.getTopNValues(profilerConfiguration.getNumberOfTopNValues());
+            doPercentageCalculationsCommon();
+            sketchesChanged = false;
+        }
+    }
+
+
     /*
      * Do percentage calculations for common metrics
      */
@@ -256,6 +313,7 @@ public abstract class StandardColumnStatistics implements ColumnStatistics, Seri
      * @return unique count
      */
     public long getUniqueCount() {
+        updateFromSketches();
         return uniqueCount;
     }
 
@@ -266,6 +324,7 @@ public abstract class StandardColumnStatistics implements ColumnStatistics, Seri
      * @return percentage of null values
      */
     public double getPercNullValues() {
+        updateFromSketches();
         return percNullValues;
     }
 
@@ -276,6 +335,7 @@ public abstract class StandardColumnStatistics implements ColumnStatistics, Seri
      * @return percentage of unique values
      */
     public double getPercUniqueValues() {
+        updateFromSketches();
         return percUniqueValues;
     }
 
@@ -286,6 +346,7 @@ public abstract class StandardColumnStatistics implements ColumnStatistics, Seri
      * @return percentage of duplicate values
      */
     public double getPercDuplicateValues() {
+        updateFromSketches();
         return percDuplicateValues;
     }
 
@@ -296,9 +357,21 @@ public abstract class StandardColumnStatistics implements ColumnStatistics, Seri
      * @return top n values
      */
     public TopNDataList getTopNValues() {
+        updateFromSketches();
         return topNValues;
     }
 
+
+    /**
+     * Get the estimated value at a quantile of a numeric column (sketch engine only)
+     *
+     * @param q quantile between 0 and 1
+     * @return estimated value, or NaN if not available
+     */
+    public double getQuantile(double q) {
+        return (sketches != null) ? sketches.getQuantile(q) : Double.NaN;
+    }
+
     /*
      * Methods to be implemented by data type specific column statistics classes that:
      * 1) extend this class
@@ -216,6 +216,12 @@ public enum MetricType {
     /**
      * Max string (Lexical ordering) (Case-insensitive)
      */
-    MAX_STRING_ICASE
+    MAX_STRING_ICASE,
+
+
+    /**
+     * Approximate quartiles of numeric values (only calculated by the sketch engine)
+     */
+    QUANTILES
 
 }
@@ -0,0 +1,132 @@
+package com.thinkbiganalytics.spark.dataprofiler.sketch;
+
+/*-
+ * #%L
+ * thinkbig-spark-job-profiler-app
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.spark.dataprofiler.ProfilerConfiguration;
+import com.thinkbiganalytics.spark.dataprofiler.topn.TopNDataList;
+
+import java.io.Serializable;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Mergeable sketches used by the sketch profiler engine to calculate the statistics of a column in a single pass:
+ * HyperLogLog for the unique count, SpaceSaving for the top-N values and a t-digest for the quantiles of numeric values.
+ */
+@SuppressWarnings("serial")
+public class ColumnSketches implements Serializable {
+
+    private final HyperLogLog uniqueValues;
+    private final SpaceSaving frequentValues;
+    private final int compression;
+
+    /* only created for numeric columns */
+    private TDigest quantiles;
+
+
+    /**
+     * Constructor
+     *
+     * @param profilerConfiguration configuration with the sketch sizes
+     */
+    public ColumnSketches(@Nonnull final ProfilerConfiguration profilerConfiguration) {
+        uniqueValues = new HyperLogLog(profilerConfiguration.getSketchPrecision());
+        frequentValues = new SpaceSaving(Math.max(profilerConfiguration.getSketchTopNCapacity(), profilerConfiguration.getNumberOfTopNValues()));
+        compression = profilerConfiguration.getSketchCompression();
+    }
+
+
+    /**
+     * Include a value in the sketches
+     *
+     * @param columnValue value
+     * @param columnCount frequency/count
+     */
+    public void offer(Object columnValue, long columnCount) {
+        uniqueValues.offer(columnValue);
+        frequentValues.offer(columnValue, columnCount);
+        if (columnValue instanceof Number) {
+            if (quantiles == null) {
+                quantiles = new TDigest(compression);
+            }
+            quantiles.add(((Number) columnValue).doubleValue(), columnCount);
+        }
+    }
+
+
+    /**
+     * Merge the sketches of another partition
+     *
+     * @param other sketches to merge
+     */
+    public void merge(ColumnSketches other) {
+        uniqueValues.merge(other.uniqueValues);
+        frequentValues.merge(other.frequentValues);
+        if (other.quantiles != null) {
+            if (quantiles == null) {
+                quantiles = new TDigest(compression);
+            }
+            quantiles.merge(other.quantiles);
+        }
+    }
+
+
+    /**
+     * Get the estimated unique count
+     *
+     * @return unique count
+     */
+    public long getUniqueCount() {
+        return uniqueValues.cardinality();
+    }
+
+
+    /**
+     * Get the estimated top-N values
+     *
+     * @param n number of values
+     * @return top-N values
+     */
+    public TopNDataList getTopNValues(int n) {
+        return frequentValues.getTopN(n);
+    }
+
+
+    /**
+     * Check if quantiles are available (numeric columns with at least one value)
+     *
+     * @return true if quantiles are available
+     */
+    public boolean hasQuantiles() {
+        return quantiles != null && quantiles.size() > 0;
+    }
+
+
+    /**
+     * Get the estimated value at a quantile
+     *
+     * @param q quantile between 0 and 1
+     * @return estimated value, or NaN if not available
+     */
+    public double getQuantile(double q) {
+        return (quantiles != null) ? quantiles.quantile(q) : Double.NaN;
+    }
+}
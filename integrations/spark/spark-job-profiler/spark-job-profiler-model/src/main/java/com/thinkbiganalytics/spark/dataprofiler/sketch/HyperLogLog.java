@@ -0,0 +1,167 @@
+package com.thinkbiganalytics.spark.dataprofiler.sketch;
+
+/*-
+ * #%L
+ * thinkbig-spark-job-profiler-app
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.Serializable;
+
+/**
+ * HyperLogLog sketch for estimating the number of unique values in a column<br>
+ * Sketches built on different partitions can be merged without losing accuracy.
+ */
+@SuppressWarnings("serial")
+public class HyperLogLog implements Serializable {
+
+    /**
+     * Hash used for null values (null is counted as a unique value)
+     */
+    private static final long NULL_HASH = 0x5bd1e9955bd1e995L;
+
+    private final int precision;
+    private final byte[] registers;
+
+
+    /**
+     * Constructor
+     *
+     * @param precision number of bits used to pick a register (4 to 18)
+     */
+    public HyperLogLog(int precision) {
+        if (precision < 4 || precision > 18) {
+            throw new IllegalArgumentException("HyperLogLog precision must be between 4 and 18: " + precision);
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+
+    /**
+     * Include a value in the sketch
+     *
+     * @param value value (may be null)
+     */
+    public void offer(Object value) {
+        offerHash(hash(value));
+    }
+
+
+    /**
+     * Include a 64-bit hash in the sketch
+     *
+     * @param hash hash of a value
+     */
+    void offerHash(long hash) {
+        int index = (int) (hash >>> (64 - precision));
+        // guard bit keeps the rank within the remaining bits
+        long remaining = (hash << precision) | (1L << (precision - 1));
+        byte rank = (byte) (Long.numberOfLeadingZeros(remaining) + 1);
+        if (rank > registers[index]) {
+            registers[index] = rank;
+        }
+    }
+
+
+    /**
+     * Merge another sketch into this sketch
+     *
+     * @param other sketch with the same precision
+     */
+    public void merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("Cannot merge HyperLogLog sketches with precision " + precision + " and " + other.precision);
+        }
+        for (int i = 0; i < registers.length; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+
+
+    /**
+     * Estimate the number of unique values included in the sketch
+     *
+     * @return estimated unique count
+     */
+    public long cardinality() {
+        int m = registers.length;
+        double sum = 0.0d;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0d / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+
+        double estimate = alpha(m) * m * m / sum;
+        if (estimate <= 2.5d * m && zeros > 0) {
+            // linear counting is more accurate for small cardinalities
+            estimate = m * Math.log((double) m / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+
+    /**
+     * Get the precision of this sketch
+     *
+     * @return precision
+     */
+    public int getPrecision() {
+        return precision;
+    }
+
+
+    private static double alpha(int m) {
+        switch (m) {
+            case 16:
+                return 0.673d;
+            case 32:
+                return 0.697d;
+            case 64:
+                return 0.709d;
+            default:
+                return 0.7213d / (1.0d + 1.079d / m);
+        }
+    }
+
+
+    /**
+     * 64-bit FNV-1a hash of the string form of a value, finished with the MurmurHash3 mixer
+     */
+    static long hash(Object value) {
+        if (value == null) {
+            return NULL_HASH;
+        }
+        String string = String.valueOf(value);
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < string.length(); i++) {
+            hash ^= string.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,160 @@
+package com.thinkbiganalytics.spark.dataprofiler.sketch;
+
+/*-
+ * #%L
+ * thinkbig-spark-job-profiler-app
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.spark.dataprofiler.topn.TopNDataList;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * SpaceSaving summary of the most frequent values in a column<br>
+ * Counts are exact until more than the capacity of distinct values are seen. After that a value's count may be over-estimated by at most the largest count dropped from the
+ * summary. Summaries built on different partitions can be merged.
+ */
+@SuppressWarnings("serial")
+public class SpaceSaving implements Serializable {
+
+    private static final Comparator<Map.Entry<Object, long[]>> COUNT_DESCENDING = new CountDescending();
+
+    private final int capacity;
+
+    /* value mapped to its counter: [count, maximum over-estimate] */
+    private final HashMap<Object, long[]> counters = new HashMap<>();
+
+    /* largest count dropped from the summary */
+    private long floor = 0L;
+
+
+    /**
+     * Constructor
+     *
+     * @param capacity number of values to keep
+     */
+    public SpaceSaving(int capacity) {
+        this.capacity = Math.max(1, capacity);
+    }
+
+
+    /**
+     * Include a value in the summary
+     *
+     * @param value value (may be null)
+     * @param count frequency/count
+     */
+    public void offer(Object value, long count) {
+        long[] counter = counters.get(value);
+        if (counter != null) {
+            counter[0] += count;
+        } else {
+            counters.put(value, new long[]{floor + count, floor});
+            if (counters.size() > 2 * capacity) {
+                prune();
+            }
+        }
+    }
+
+
+    /**
+     * Merge another summary into this summary
+     *
+     * @param other summary to merge
+     */
+    public void merge(SpaceSaving other) {
+        for (Map.Entry<Object, long[]> entry : counters.entrySet()) {
+            if (!other.counters.containsKey(entry.getKey())) {
+                entry.getValue()[0] += other.floor;
+                entry.getValue()[1] += other.floor;
+            }
+        }
+        for (Map.Entry<Object, long[]> entry : other.counters.entrySet()) {
+            long[] counter = counters.get(entry.getKey());
+            if (counter != null) {
+                counter[0] += entry.getValue()[0];
+                counter[1] += entry.getValue()[1];
+            } else {
+                counters.put(entry.getKey(), new long[]{entry.getValue()[0] + floor, entry.getValue()[1] + floor});
+            }
+        }
+        floor += other.floor;
+        if (counters.size() > capacity) {
+            prune();
+        }
+    }
+
+
+    /**
+     * Get the most frequent values
+     *
+     * @param n number of values
+     * @return top-N list
+     */
+    public TopNDataList getTopN(int n) {
+        TopNDataList topN = new TopNDataList(n);
+        for (Map.Entry<Object, long[]> entry : sortedCounters()) {
+            topN.add(entry.getKey(), entry.getValue()[0]);
+        }
+        return topN;
+    }
+
+
+    /**
+     * Get the number of values being tracked
+     *
+     * @return size
+     */
+    public int size() {
+        return counters.size();
+    }
+
+
+    /*
+     * Keep only the values with the highest counts
+     */
+    private void prune() {
+        List<Map.Entry<Object, long[]>> sorted = sortedCounters();
+        for (int i = capacity; i < sorted.size(); i++) {
+            floor = Math.max(floor, sorted.get(i).getValue()[0]);
+            counters.remove(sorted.get(i).getKey());
+        }
+    }
+
+
+    private List<Map.Entry<Object, long[]>> sortedCounters() {
+        List<Map.Entry<Object, long[]>> sorted = new ArrayList<>(counters.entrySet());
+        Collections.sort(sorted, COUNT_DESCENDING);
+        return sorted;
+    }
+
+
+    private static class CountDescending implements Comparator<Map.Entry<Object, long[]>>, Serializable {
+
+        @Override
+        public int compare(Map.Entry<Object, long[]> a, Map.Entry<Object, long[]> b) {
+            return Long.compare(b.getValue()[0], a.getValue()[0]);
+        }
+    }
+}
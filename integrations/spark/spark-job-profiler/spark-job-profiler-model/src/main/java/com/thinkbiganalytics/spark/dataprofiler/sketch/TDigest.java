@@ -0,0 +1,206 @@
+package com.thinkbiganalytics.spark.dataprofiler.sketch;
+
+/*-
+ * #%L
+ * thinkbig-spark-job-profiler-app
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Merging t-digest for estimating quantiles of numeric values<br>
+ * Values are grouped into weighted centroids which are kept small near the tails of the distribution, so extreme quantiles stay accurate. Digests built on different
+ * partitions can be merged.
+ */
+@SuppressWarnings("serial")
+public class TDigest implements Serializable {
+
+    private final double compression;
+
+    /* compressed centroids ordered by mean */
+    private double[] means = new double[0];
+    private double[] weights = new double[0];
+
+    /* centroids added since the last compression */
+    private final double[] bufferMeans;
+    private final double[] bufferWeights;
+    private int bufferSize = 0;
+
+    private double totalWeight = 0.0d;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+
+    /**
+     * Constructor
+     *
+     * @param compression accuracy parameter, roughly the number of centroids kept
+     */
+    public TDigest(double compression) {
+        this.compression = Math.max(10.0d, compression);
+        int bufferCapacity = (int) (this.compression * 5);
+        bufferMeans = new double[bufferCapacity];
+        bufferWeights = new double[bufferCapacity];
+    }
+
+
+    /**
+     * Include a value in the digest
+     *
+     * @param value value
+     * @param count frequency/count
+     */
+    public void add(double value, long count) {
+        if (Double.isNaN(value) || count <= 0) {
+            return;
+        }
+        addCentroid(value, count);
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+
+    /**
+     * Merge another digest into this digest
+     *
+     * @param other digest to merge
+     */
+    public void merge(TDigest other) {
+        other.compress();
+        for (int i = 0; i < other.means.length; i++) {
+            addCentroid(other.means[i], other.weights[i]);
+        }
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+
+    /**
+     * Estimate the value at a quantile
+     *
+     * @param q quantile between 0 and 1
+     * @return estimated value, or NaN if the digest is empty
+     */
+    public double quantile(double q) {
+        compress();
+        int size = means.length;
+        if (size == 0) {
+            return Double.NaN;
+        } else if (size == 1 || q <= 0.0d) {
+            return size == 1 ? means[0] : min;
+        } else if (q >= 1.0d) {
+            return max;
+        }
+
+        double index = q * totalWeight;
+        double cumulative = weights[0] / 2;
+        if (index < cumulative) {
+            return min + (means[0] - min) * (index / cumulative);
+        }
+        for (int i = 0; i < size - 1; i++) {
+            double step = (weights[i] + weights[i + 1]) / 2;
+            if (cumulative + step > index) {
+                return means[i] + (means[i + 1] - means[i]) * ((index - cumulative) / step);
+            }
+            cumulative += step;
+        }
+        double tail = weights[size - 1] / 2;
+        return means[size - 1] + (max - means[size - 1]) * Math.min(1.0d, (index - cumulative) / tail);
+    }
+
+
+    /**
+     * Get the total count of values included in the digest
+     *
+     * @return total count
+     */
+    public long size() {
+        return Math.round(totalWeight);
+    }
+
+
+    private void addCentroid(double mean, double weight) {
+        if (bufferSize == bufferMeans.length) {
+            compress();
+        }
+        bufferMeans[bufferSize] = mean;
+        bufferWeights[bufferSize] = weight;
+        bufferSize++;
+        totalWeight += weight;
+    }
+
+
+    /*
+     * Merge the buffered centroids into the compressed centroids
+     */
+    private void compress() {
+        if (bufferSize == 0) {
+            return;
+        }
+
+        int count = means.length + bufferSize;
+        Integer[] order = new Integer[count];
+        final double[] allMeans = Arrays.copyOf(means, count);
+        double[] allWeights = Arrays.copyOf(weights, count);
+        System.arraycopy(bufferMeans, 0, allMeans, means.length, bufferSize);
+        System.arraycopy(bufferWeights, 0, allWeights, means.length, bufferSize);
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return Double.compare(allMeans[a], allMeans[b]);
+            }
+        });
+
+        double[] newMeans = new double[count];
+        double[] newWeights = new double[count];
+        int size = 0;
+        double weightSoFar = 0.0d;
+        double currentMean = allMeans[order[0]];
+        double currentWeight = allWeights[order[0]];
+        for (int i = 1; i < count; i++) {
+            double mean = allMeans[order[i]];
+            double weight = allWeights[order[i]];
+            double proposed = currentWeight + weight;
+            double q = (weightSoFar + proposed / 2) / totalWeight;
+            double limit = Math.max(1.0d, 4 * totalWeight * q * (1 - q) / compression);
+            if (proposed <= limit) {
+                currentMean += (mean - currentMean) * weight / proposed;
+                currentWeight = proposed;
+            } else {
+                newMeans[size] = currentMean;
+                newWeights[size] = currentWeight;
+                size++;
+                weightSoFar += currentWeight;
+                currentMean = mean;
+                currentWeight = weight;
+            }
+        }
+        newMeans[size] = currentMean;
+        newWeights[size] = currentWeight;
+        size++;
+
+        means = Arrays.copyOf(newMeans, size);
+        weights = Arrays.copyOf(newWeights, size);
+        bufferSize = 0;
+    }
+}
@@ -0,0 +1,172 @@
+package com.thinkbiganalytics.spark.dataprofiler.core;
+
+/*-
+ * #%L
+ * thinkbig-spark-job-profiler-app
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.spark.DataSet;
+import com.thinkbiganalytics.spark.SparkContextService;
+import com.thinkbiganalytics.spark.dataprofiler.ProfilerConfiguration;
+import com.thinkbiganalytics.spark.dataprofiler.StatisticsModel;
+import com.thinkbiganalytics.spark.dataprofiler.columns.DoubleColumnStatistics;
+import com.thinkbiganalytics.spark.dataprofiler.columns.IntegerColumnStatistics;
+import com.thinkbiganalytics.spark.dataprofiler.columns.StandardColumnStatistics;
+import com.thinkbiganalytics.spark.dataprofiler.config.ProfilerConfig;
+import com.thinkbiganalytics.spark.dataprofiler.topn.TopNDataItem;
+
+import org.apache.spark.api.java.JavaRDD;
+import org.apache.spark.api.java.JavaSparkContext;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.RowFactory;
+import org.apache.spark.sql.SQLContext;
+import org.apache.spark.sql.types.DataTypes;
+import org.apache.spark.sql.types.StructField;
+import org.apache.spark.sql.types.StructType;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import javax.inject.Inject;
+
+/**
+ * Compares the accuracy and speed of the sketch engine with the standard engine
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ComponentScan(basePackages = {"com.thinkbiganalytics"})
+@ContextConfiguration(classes = {ProfilerConfig.class, SpringTestConfigV1.class, SpringTestConfigV2.class})
+@ActiveProfiles("spark-v1")
+public class SketchProfilerComparisonTest {
+
+    private static final int ROWS = 50000;
+
+    private static Map<Integer, StandardColumnStatistics> standardStats;
+    private static Map<Integer, StandardColumnStatistics> sketchStats;
+
+    @Inject
+    private com.thinkbiganalytics.spark.dataprofiler.Profiler profiler;
+
+    @Inject
+    private SparkContextService scs;
+
+    @Inject
+    private SQLContext sqlContext;
+
+    @Before
+    public void setUp() {
+        if (standardStats == null) {
+            StructField[] schemaFields = new StructField[3];
+            schemaFields[0] = DataTypes.createStructField("id", DataTypes.IntegerType, true);
+            schemaFields[1] = DataTypes.createStructField("category", DataTypes.StringType, true);
+            schemaFields[2] = DataTypes.createStructField("amount", DataTypes.DoubleType, true);
+            StructType schema = DataTypes.createStructType(schemaFields);
+
+            List<Row> rows = new ArrayList<>(ROWS);
+            for (int i = 0; i < ROWS; i++) {
+                // skewed categories: "hot" is the most frequent followed by "warm"
+                String category = (i % 5 == 0) ? "hot" : (i % 7 == 0) ? "warm" : (i % 11 == 0) ? null : "c" + (i % 500);
+                rows.add(RowFactory.create(i, category, (i % 1000) * 0.5d));
+            }
+
+            final JavaSparkContext javaSparkContext = JavaSparkContext.fromSparkContext(sqlContext.sparkContext());
+            JavaRDD<Row> dataRDD = javaSparkContext.parallelize(rows, 8);
+            DataSet dataDF = scs.toDataSet(sqlContext.createDataFrame(dataRDD, schema));
+
+            standardStats = profile(dataDF, ProfilerConfiguration.Engine.STANDARD);
+            sketchStats = profile(dataDF, ProfilerConfiguration.Engine.SKETCH);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<Integer, StandardColumnStatistics> profile(DataSet dataDF, ProfilerConfiguration.Engine engine) {
+        ProfilerConfiguration profilerConfiguration = new ProfilerConfiguration();
+        profilerConfiguration.setEngine(engine);
+
+        long start = System.currentTimeMillis();
+        StatisticsModel statsModel = profiler.profile(dataDF, profilerConfiguration);
+        System.out.println("\t*** " + engine + " engine profiled " + ROWS + " rows in " + (System.currentTimeMillis() - start) + " ms ***");
+
+        Assert.assertNotNull(statsModel);
+        return (Map) statsModel.getColumnStatisticsMap();
+    }
+
+    @Test
+    public void testCounts() {
+        for (int column = 0; column < 3; column++) {
+            Assert.assertEquals(standardStats.get(column).getTotalCount(), sketchStats.get(column).getTotalCount());
+            Assert.assertEquals(standardStats.get(column).getNullCount(), sketchStats.get(column).getNullCount());
+        }
+    }
+
+    @Test
+    public void testUniqueCount() {
+        // high cardinality is estimated within a few percent
+        long exact = standardStats.get(0).getUniqueCount();
+        Assert.assertEquals(ROWS, exact);
+        Assert.assertEquals(exact, sketchStats.get(0).getUniqueCount(), exact * 0.03d);
+
+        // low cardinality is exact
+        Assert.assertEquals(standardStats.get(1).getUniqueCount(), sketchStats.get(1).getUniqueCount());
+        Assert.assertEquals(standardStats.get(2).getUniqueCount(), sketchStats.get(2).getUniqueCount());
+        Assert.assertEquals(standardStats.get(1).getPercUniqueValues(), sketchStats.get(1).getPercUniqueValues(), ProfilerTest.epsilon);
+    }
+
+    @Test
+    public void testTopNValues() {
+        List<TopNDataItem> expected = new ArrayList<>(standardStats.get(1).getTopNValues().getTopNDataItemsForColumn().descendingSet());
+        List<TopNDataItem> actual = new ArrayList<>(sketchStats.get(1).getTopNValues().getTopNDataItemsForColumn().descendingSet());
+        Assert.assertEquals("hot", expected.get(0).getValue());
+        Assert.assertEquals(expected.get(0).getValue(), actual.get(0).getValue());
+        Assert.assertEquals(expected.get(0).getCount(), actual.get(0).getCount());
+        Assert.assertEquals(expected.get(1).getValue(), actual.get(1).getValue());
+        Assert.assertEquals(expected.get(1).getCount(), actual.get(1).getCount());
+    }
+
+    @Test
+    public void testNumericStatistics() {
+        IntegerColumnStatistics expectedId = (IntegerColumnStatistics) standardStats.get(0);
+        IntegerColumnStatistics actualId = (IntegerColumnStatistics) sketchStats.get(0);
+        Assert.assertEquals(expectedId.getMin(), actualId.getMin());
+        Assert.assertEquals(expectedId.getMax(), actualId.getMax());
+        Assert.assertEquals(expectedId.getSum(), actualId.getSum());
+        Assert.assertEquals(expectedId.getMean(), actualId.getMean(), ProfilerTest.epsilon);
+
+        DoubleColumnStatistics expectedAmount = (DoubleColumnStatistics) standardStats.get(2);
+        DoubleColumnStatistics actualAmount = (DoubleColumnStatistics) sketchStats.get(2);
+        Assert.assertEquals(expectedAmount.getMean(), actualAmount.getMean(), ProfilerTest.epsilon);
+        Assert.assertEquals(expectedAmount.getStddev(), actualAmount.getStddev(), ProfilerTest.epsilon);
+    }
+
+    @Test
+    public void testQuantiles() {
+        Assert.assertTrue(Double.isNaN(standardStats.get(0).getQuantile(0.5d)));
+        Assert.assertEquals(ROWS * 0.25d, sketchStats.get(0).getQuantile(0.25d), ROWS * 0.01d);
+        Assert.assertEquals(ROWS * 0.5d, sketchStats.get(0).getQuantile(0.5d), ROWS * 0.01d);
+        Assert.assertEquals(ROWS * 0.75d, sketchStats.get(0).getQuantile(0.75d), ROWS * 0.01d);
+        Assert.assertTrue(Double.isNaN(sketchStats.get(1).getQuantile(0.5d)));
+    }
+}
@@ -264,6 +264,62 @@ public class HCatDataType implements Cloneable, Serializable {
         }
     }
 
+    /**
+     * Converts a value that is already typed, such as an Integer read from a numeric feed column, to the native value of this type without a round trip
+     * through its string form. Only lossless conversions are supported.
+     *
+     * @param val the typed value
+     * @return the native value, or null if the value must be converted using {@link #toNativeValue(String)}
+     */
+    public Comparable toNativeValueFromTyped(Object val) {
+        if (val == null || unchecked || isstring) {
+            return null;
+        }
+        if (convertibleType == Integer.class) {
+            if (val instanceof Integer) {
+                return (Integer) val;
+            } else if (val instanceof Short || val instanceof Byte) {
+                return ((Number) val).intValue();
+            }
+        } else if (convertibleType == BigInteger.class) {
+            if (val instanceof BigInteger) {
+                return (BigInteger) val;
+            } else if (val instanceof Long || val instanceof Integer || val instanceof Short || val instanceof Byte) {
+                return BigInteger.valueOf(((Number) val).longValue());
+            }
+        } else if (convertibleType == Double.class && val instanceof Double) {
+            return (Double) val;
+        } else if (convertibleType == Float.class && val instanceof Float) {
+            return (Float) val;
+        } else if (convertibleType == BigDecimal.class && val instanceof BigDecimal) {
+            return (BigDecimal) val;
+        }
+        return null;
+    }
+
+    /**
+     * Tests whether a native value returned by {@link #toNativeValueFromTyped(Object)} is within the range of this type. This is equivalent to calling
+     * {@link #isValueConvertibleToType(String)} with the string form of the value.
+     *
+     * @param nativeValue the native value
+     * @return whether value is valid
+     */
+    public boolean isNativeValueConvertibleToType(Comparable nativeValue) {
+        if (nativeValue != null && isnumeric) {
+            try {
+                if (min != null && min.compareTo(nativeValue) > 0) {
+                    return false;
+                }
+                if (max != null && max.compareTo(nativeValue) < 0) {
+                    return false;
+                }
+            } catch (ClassCastException e) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Validate scale (digits following the decimal)
      *
@@ -339,6 +395,27 @@ public class HCatDataType implements Cloneable, Serializable {
         return nativeType;
     }
 
+    /**
+     * Minimum value of a numeric type, or null if there is no minimum
+     */
+    public Comparable getMin() {
+        return min;
+    }
+
+    /**
+     * Maximum value of a numeric type, or null if there is no maximum
+     */
+    public Comparable getMax() {
+        return max;
+    }
+
+    /**
+     * Maximum length of a string type
+     */
+    public long getMaxLength() {
+        return maxlength;
+    }
+
     public boolean isUnchecked() {
         return unchecked;
     }
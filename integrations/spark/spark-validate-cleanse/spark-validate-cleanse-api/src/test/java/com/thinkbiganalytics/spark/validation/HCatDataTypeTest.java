@@ -23,7 +23,12 @@ package com.thinkbiganalytics.spark.validation;
 import org.apache.commons.lang3.StringUtils;
 import org.junit.Test;
 
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 public class HCatDataTypeTest {
@@ -213,4 +218,36 @@ public class HCatDataTypeTest {
         assertTrue(valid);
     }
 
+    @Test
+    public void testToNativeValueFromTyped() throws Exception {
+        HCatDataType tinyintType = HCatDataType.createFromDataType("tiny", "tinyint");
+        assertEquals(Integer.valueOf(12), tinyintType.toNativeValueFromTyped((byte) 12));
+        assertNull(tinyintType.toNativeValueFromTyped(12L));
+        assertNull(tinyintType.toNativeValueFromTyped("12"));
+
+        HCatDataType bigintType = HCatDataType.createFromDataType("big", "bigint");
+        assertEquals(BigInteger.valueOf(Long.MAX_VALUE), bigintType.toNativeValueFromTyped(Long.MAX_VALUE));
+
+        HCatDataType doubleType = HCatDataType.createFromDataType("dbl", "double");
+        assertEquals(2.5d, doubleType.toNativeValueFromTyped(2.5d));
+        assertNull(doubleType.toNativeValueFromTyped(2.5f));
+
+        HCatDataType stringType = HCatDataType.createFromDataType("str", "string");
+        assertNull(stringType.toNativeValueFromTyped("abc"));
+    }
+
+    @Test
+    public void testIsNativeValueConvertibleToType() throws Exception {
+        HCatDataType tinyintType = HCatDataType.createFromDataType("tiny", "tinyint");
+        assertTrue(tinyintType.isNativeValueConvertibleToType(127));
+        assertFalse(tinyintType.isNativeValueConvertibleToType(128));
+
+        HCatDataType decimalType = HCatDataType.createFromDataType("decimal_type", "decimal(2,1)");
+        BigDecimal inRange = new BigDecimal("99.9");
+        BigDecimal outOfRange = new BigDecimal("100.00");
+        assertEquals(decimalType.isValueConvertibleToType(inRange.toString()), decimalType.isNativeValueConvertibleToType(inRange));
+        assertEquals(decimalType.isValueConvertibleToType(outOfRange.toString()), decimalType.isNativeValueConvertibleToType(outOfRange));
+        assertFalse(decimalType.isNativeValueConvertibleToType(outOfRange));
+    }
+
 }
@@ -0,0 +1,41 @@
+package com.thinkbiganalytics.spark.datavalidator;
+
+/*-
+ * #%L
+ * thinkbig-spark-validate-cleanse-app
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.apache.spark.sql.Column;
+
+/**
+ * A standardization or validation policy that can be evaluated as a Spark SQL column expression. When every policy of every column has an expression the
+ * {@link Validator} cleanses and validates the feed with a DataFrame plan instead of mapping each row through Java code.
+ * <p>
+ * The value passed to the policy is the string value of the field. A standardizer returns the standardized value. A validator returns a boolean column that
+ * is {@code false} when the value violates the policy, where a null result is treated as valid.
+ */
+public interface ColumnExpressionPolicy {
+
+    /**
+     * Returns the column expression for this policy.
+     *
+     * @param value the string value of the field
+     * @return the standardized value or the validation result
+     */
+    Column toColumnExpression(Column value);
+}
@@ -0,0 +1,221 @@
+package com.thinkbiganalytics.spark.datavalidator;
+
+/*-
+ * #%L
+ * thinkbig-spark-validate-cleanse-app
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.policy.BaseFieldPolicy;
+import com.thinkbiganalytics.policy.FieldPolicy;
+import com.thinkbiganalytics.policy.standardization.AcceptsEmptyValues;
+import com.thinkbiganalytics.policy.standardization.StandardizationPolicy;
+import com.thinkbiganalytics.policy.validation.ValidationPolicy;
+import com.thinkbiganalytics.policy.validation.ValidationResult;
+import com.thinkbiganalytics.spark.util.InvalidFormatException;
+import com.thinkbiganalytics.spark.validation.HCatDataType;
+
+import org.apache.commons.lang.StringUtils;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * The field policy of a single column compiled once per job so that rows can be cleansed and validated without repeating the policy lookups.
+ * <p>
+ * The standardizers and validators are flattened into arrays in the order they were defined, with the parameter type of each validator resolved up front.
+ * Values that are already of the column's native type, such as numbers read from a typed feed table, are validated directly instead of being converted to
+ * a string and parsed back, as long as no standardizer has replaced the value.
+ */
+class ColumnValidationPlan implements Serializable {
+
+    private static final long serialVersionUID = 3284019576265740139L;
+
+    private final HCatDataType dataType;
+
+    /**
+     * Standardizers and validators in the order defined by the field policy
+     */
+    private final BaseFieldPolicy[] steps;
+
+    /**
+     * Parameter type of the validator at the same index in {@link #steps}, or null for a standardizer
+     */
+    private final Class[] validatorParamTypes;
+
+    /**
+     * Whether the standardizer at the same index in {@link #steps} should be applied to empty values
+     */
+    private final boolean[] acceptsEmptyValues;
+
+    private final boolean hasStandardizers;
+
+    private final ValidationPolicy notNullValidator;
+
+    private final Class notNullParamType;
+
+    private final boolean skipSchemaValidation;
+
+    /**
+     * Compiles the specified field policy.
+     *
+     * @param fieldPolicy the field policy
+     * @param dataType    the target column type
+     * @param validator   the validator used to resolve the parameter type of each validation policy
+     */
+    ColumnValidationPlan(FieldPolicy fieldPolicy, HCatDataType dataType, Validator validator) {
+        this.dataType = dataType;
+
+        List<BaseFieldPolicy> policies = fieldPolicy.getAllPolicies();
+        int size = (policies != null) ? policies.size() : 0;
+        steps = new BaseFieldPolicy[size];
+        validatorParamTypes = new Class[size];
+        acceptsEmptyValues = new boolean[size];
+
+        boolean standardizers = false;
+        for (int i = 0; i < size; i++) {
+            BaseFieldPolicy policy = policies.get(i);
+            steps[i] = policy;
+            if (policy instanceof StandardizationPolicy) {
+                standardizers = true;
+                acceptsEmptyValues[i] = (policy instanceof AcceptsEmptyValues);
+            }
+            if (policy instanceof ValidationPolicy) {
+                validatorParamTypes[i] = validator.resolveValidatorParamType((ValidationPolicy) policy);
+            }
+        }
+        hasStandardizers = standardizers;
+
+        notNullValidator = fieldPolicy.getNotNullValidator();
+        notNullParamType = (notNullValidator != null) ? validator.resolveValidatorParamType(notNullValidator) : null;
+        skipSchemaValidation = fieldPolicy.shouldSkipSchemaValidation();
+    }
+
+    /**
+     * Indicates that values of this column are passed through without cleansing or validation.
+     */
+    boolean isUnchecked() {
+        return dataType.isUnchecked();
+    }
+
+    /**
+     * Standardizes and validates the specified value.
+     *
+     * @param value the column value
+     * @return the result
+     */
+    StandardizationAndValidationResult apply(Object value) {
+        StandardizationAndValidationResult result = new StandardizationAndValidationResult(value);
+        apply(value, result);
+        return result;
+    }
+
+    /**
+     * Standardizes and validates the specified value, reusing the specified result.
+     *
+     * @param value  the column value
+     * @param result the result to reset and populate
+     */
+    void apply(Object value, StandardizationAndValidationResult result) {
+        result.reset(value);
+
+        // The native value remains usable until a standardizer replaces the value
+        Comparable typedValue = dataType.toNativeValueFromTyped(value);
+        boolean isEmpty = hasStandardizers && ((value == null) || (StringUtils.isEmpty(value.toString())));
+
+        for (int i = 0; i < steps.length; i++) {
+            BaseFieldPolicy step = steps[i];
+            if (step instanceof StandardizationPolicy) {
+                StandardizationPolicy standardizationPolicy = (StandardizationPolicy) step;
+                if ((!isEmpty || acceptsEmptyValues[i]) && standardizationPolicy.accepts(value)) {
+                    Object newValue = standardizationPolicy.convertRawValue(result.getFieldValue());
+                    result.setFieldValue(newValue != null ? newValue.toString() : newValue);
+                    typedValue = null;
+                }
+            }
+
+            if (validatorParamTypes[i] != null) {
+                ValidationResult validationResult = validateValue((ValidationPolicy) step, validatorParamTypes[i], result, typedValue);
+                //only need to add those that are invalid
+                if (validationResult != Validator.VALID_RESULT) {
+                    result.addValidationResult(validationResult);
+                    break; //exit out of processing if invalid records found.
+                }
+            }
+        }
+
+        ValidationResult finalValidationCheck = finalValidationCheck(result, typedValue);
+        if (finalValidationCheck != Validator.VALID_RESULT) {
+            result.addValidationResult(finalValidationCheck);
+        }
+    }
+
+    /**
+     * Perform validation using both schema validation the validation policies
+     */
+    private ValidationResult finalValidationCheck(StandardizationAndValidationResult result, Comparable typedValue) {
+        if (typedValue != null) {
+            if (!skipSchemaValidation && !dataType.isNativeValueConvertibleToType(typedValue)) {
+                return incompatible();
+            }
+            return Validator.VALID_RESULT;
+        }
+
+        String fieldValue = result.getFieldValueForValidation();
+        if (StringUtils.isEmpty(fieldValue)) {
+            if (notNullValidator != null) {
+                ValidationResult validationResult = validateValue(notNullValidator, notNullParamType, result, null);
+                if (validationResult != Validator.VALID_RESULT) {
+                    return validationResult;
+                }
+            }
+        } else if (!skipSchemaValidation) {
+            if (!dataType.isValueConvertibleToType(fieldValue)) {
+                return incompatible();
+            }
+        }
+
+        return Validator.VALID_RESULT;
+    }
+
+    private ValidationResult validateValue(ValidationPolicy validator, Class expectedParamClazz, StandardizationAndValidationResult result, Comparable typedValue) {
+        try {
+            Object nativeValue;
+            if (expectedParamClazz == String.class) {
+                nativeValue = result.getFieldValueForValidation();
+            } else if (typedValue != null) {
+                nativeValue = typedValue;
+            } else {
+                nativeValue = dataType.toNativeValue(result.getFieldValueForValidation());
+            }
+            if (!validator.validate(nativeValue)) {
+                return ValidationResult
+                    .failFieldRule("rule", dataType.getName(), validator.getClass().getSimpleName(),
+                                   "Rule violation");
+            }
+            return Validator.VALID_RESULT;
+        } catch (InvalidFormatException | ClassCastException e) {
+            return incompatible();
+        }
+    }
+
+    private ValidationResult incompatible() {
+        return ValidationResult
+            .failField("incompatible", dataType.getName(),
+                       "Not convertible to " + dataType.getNativeType());
+    }
+}
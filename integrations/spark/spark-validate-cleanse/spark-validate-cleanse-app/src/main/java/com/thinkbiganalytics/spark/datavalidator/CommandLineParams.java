@@ -43,6 +43,9 @@ public class CommandLineParams implements Serializable {
     @Parameter(names = "--numPartitions", description = "Number of RDD partitions")
     private Integer numPartitions = DEFAULT_NUM_PARTITIONS;
 
+    @Parameter(names = "--stagingDir", description = "Directory for staging cleansed rows so that valid and invalid rows are split in a single pass instead of persisting the RDD")
+    private String stagingDir;
+
     public List<Param> getHiveParams() {
         return hiveParams == null ? new ArrayList<Param>(0) : hiveParams;
     }
@@ -54,4 +57,8 @@ public class CommandLineParams implements Serializable {
     public Integer getNumPartitions() {
         return numPartitions;
     }
+
+    public String getStagingDir() {
+        return stagingDir;
+    }
 }
@@ -0,0 +1,403 @@
+package com.thinkbiganalytics.spark.datavalidator;
+
+/*-
+ * #%L
+ * thinkbig-spark-validate-cleanse-app
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.policy.BaseFieldPolicy;
+import com.thinkbiganalytics.policy.FieldPolicy;
+import com.thinkbiganalytics.policy.standardization.AcceptsEmptyValues;
+import com.thinkbiganalytics.policy.standardization.StandardizationPolicy;
+import com.thinkbiganalytics.policy.validation.ValidationPolicy;
+import com.thinkbiganalytics.policy.validation.ValidationResult;
+import com.thinkbiganalytics.spark.validation.HCatDataType;
+
+import org.apache.spark.sql.Column;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.types.DataTypes;
+import org.apache.spark.sql.types.StructField;
+import org.apache.spark.sql.types.StructType;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.apache.spark.sql.functions.coalesce;
+import static org.apache.spark.sql.functions.col;
+import static org.apache.spark.sql.functions.concat;
+import static org.apache.spark.sql.functions.concat_ws;
+import static org.apache.spark.sql.functions.isnan;
+import static org.apache.spark.sql.functions.lit;
+import static org.apache.spark.sql.functions.not;
+import static org.apache.spark.sql.functions.sum;
+import static org.apache.spark.sql.functions.when;
+
+/**
+ * Cleanses and validates a feed using Spark SQL column expressions, so that the whole job stays a DataFrame plan that Catalyst can optimize.
+ * <p>
+ * The expressions produce the same values, reject reasons and counts as {@link ColumnValidationPlan}. A plan can only be created when every policy has an
+ * equivalent expression, every checked column is read as a string, and every column type can be checked with an expression. Otherwise the
+ * {@link Validator} falls back to validating row by row.
+ */
+class ExpressionValidationPlan {
+
+    /**
+     * Column containing whether the row is valid
+     */
+    static final String VALID_COL = "dlp_row_valid";
+
+    /**
+     * Prefix of the columns containing whether a field is invalid
+     */
+    static final String INVALID_COL_PREFIX = "dlp_field_invalid_";
+
+    /**
+     * Matches the strings accepted by {@link Integer#valueOf(String)} and {@link BigInteger#BigInteger(String)}, excluding non-ASCII digits
+     */
+    private static final String INTEGER_REGEX = "\\A[+-]?[0-9]+\\z";
+
+    private static final String EMPTY_ROW_JSON = ValidationResult.failRow("empty", "Row is empty").toJSON();
+
+    /**
+     * Output value of each column
+     */
+    private final Column[] values;
+
+    /**
+     * Whether each column is invalid
+     */
+    private final Column[] invalid;
+
+    /**
+     * Whether the row is valid
+     */
+    private final Column rowValid;
+
+    /**
+     * Reject reasons of the row as a JSON array
+     */
+    private final Column rejectReason;
+
+    private ExpressionValidationPlan(Column[] values, Column[] invalid, Column rowValid, Column rejectReason) {
+        this.values = values;
+        this.invalid = invalid;
+        this.rowValid = rowValid;
+        this.rejectReason = rejectReason;
+    }
+
+    /**
+     * Creates a plan for validating the specified source.
+     *
+     * @param policies     the field policy of each column
+     * @param schema       the target type of each column
+     * @param sourceSchema the schema of the source data set
+     * @param validator    the validator used to resolve the parameter type of each validation policy
+     * @return the plan, or null if any column requires row by row validation
+     */
+    static ExpressionValidationPlan create(FieldPolicy[] policies, HCatDataType[] schema, StructType sourceSchema, Validator validator) {
+        StructField[] sourceFields = sourceSchema.fields();
+        Column[] values = new Column[schema.length];
+        Column[] invalid = new Column[schema.length];
+        List<Column> failures = new ArrayList<>();
+        Column nulls = lit(1);
+
+        for (int idx = 0; idx < schema.length; idx++) {
+            Column source;
+            boolean stringSource;
+            if (idx < sourceFields.length) {
+                source = col(sourceFields[idx].name());
+                stringSource = DataTypes.StringType.equals(sourceFields[idx].dataType());
+            } else {
+                source = lit(null).cast(DataTypes.StringType);
+                stringSource = true;
+            }
+            nulls = nulls.plus(when(source.isNull(), 1).otherwise(0));
+
+            if (schema[idx].isUnchecked()) {
+                values[idx] = source;
+                invalid[idx] = lit(false);
+                continue;
+            }
+            if (!stringSource) {
+                return null;
+            }
+
+            Column[] column = compileColumn(policies[idx], schema[idx], source, validator);
+            if (column == null) {
+                return null;
+            }
+            Column ruleFailure = column[1];
+            Column finalFailure = column[2];
+            invalid[idx] = ruleFailure.isNotNull().or(finalFailure.isNotNull());
+            values[idx] = when(invalid[idx], source).otherwise(column[0]);
+            failures.add(ruleFailure);
+            failures.add(finalFailure);
+        }
+
+        // Return success unless all values were null.  That would indicate a blank line in the file.
+        Column emptyRow = nulls.geq(schema.length);
+        failures.add(when(emptyRow, lit(EMPTY_ROW_JSON)));
+
+        Column anyInvalid = emptyRow;
+        for (Column columnInvalid : invalid) {
+            anyInvalid = anyInvalid.or(columnInvalid);
+        }
+        Column rejectReason = when(anyInvalid, concat(lit("["), concat_ws(",", failures.toArray(new Column[0])), lit("]"))).otherwise(lit(""));
+        return new ExpressionValidationPlan(values, invalid, not(anyInvalid), rejectReason);
+    }
+
+    /**
+     * Compiles the policies of a single column.
+     *
+     * @return the standardized value, the reason for the first failed rule, and the reason for failing the final check, or null if the column requires row
+     * by row validation
+     */
+    private static Column[] compileColumn(FieldPolicy fieldPolicy, HCatDataType dataType, Column source, Validator validator) {
+        Column value = source;
+        Column ruleFailure = null;
+        Column nonEmptySource = source.isNotNull().and(source.notEqual(""));
+
+        List<BaseFieldPolicy> fieldPolicies = fieldPolicy.getAllPolicies();
+        if (fieldPolicies != null) {
+            for (BaseFieldPolicy p : fieldPolicies) {
+                if (p instanceof StandardizationPolicy) {
+                    Column standardized = PolicyColumnExpressions.standardize((StandardizationPolicy) p, value);
+                    if (standardized == null) {
+                        return null;
+                    }
+                    // Standardizers only accept non-empty strings, and stop after the first invalid rule
+                    Column accepts = (p instanceof AcceptsEmptyValues) ? source.isNotNull() : nonEmptySource;
+                    if (ruleFailure != null) {
+                        accepts = accepts.and(ruleFailure.isNull());
+                    }
+                    value = when(accepts, standardized).otherwise(value);
+                }
+
+                if (p instanceof ValidationPolicy) {
+                    Column failure = validationFailure((ValidationPolicy) p, dataType, value, validator);
+                    if (failure == null) {
+                        return null;
+                    }
+                    ruleFailure = (ruleFailure == null) ? failure : coalesce(ruleFailure, failure);
+                }
+            }
+        }
+        if (ruleFailure == null) {
+            ruleFailure = lit(null).cast(DataTypes.StringType);
+        }
+
+        Column finalFailure = finalValidationFailure(fieldPolicy, dataType, value, validator);
+        if (finalFailure == null) {
+            return null;
+        }
+        return new Column[]{value, ruleFailure, finalFailure};
+    }
+
+    /**
+     * Returns the reject reason when the value violates the specified validator, or null if the validator has no equivalent expression.
+     */
+    private static Column validationFailure(ValidationPolicy policy, HCatDataType dataType, Column value, Validator validator) {
+        Class expectedParamClazz = validator.resolveValidatorParamType(policy);
+        Column ruleJson = lit(ValidationResult.failFieldRule("rule", dataType.getName(), policy.getClass().getSimpleName(), "Rule violation").toJSON());
+
+        if (expectedParamClazz == String.class) {
+            Column valid = PolicyColumnExpressions.validate(policy, value);
+            return (valid != null) ? when(not(coalesce(valid, lit(true))), ruleJson) : null;
+        }
+
+        Column incompatibleJson = incompatibleJson(dataType);
+        if (dataType.getConvertibleType() == String.class) {
+            // The string value of a non-null field cannot be cast to the expected parameter type
+            return (PolicyColumnExpressions.validateNumber(policy, value) != null) ? when(value.isNotNull(), incompatibleJson) : null;
+        }
+
+        // Empty values are converted to null for non-string types
+        Column empty = value.isNull().or(value.equalTo(""));
+        Column parseable = parseable(dataType, value);
+        Column number = numberValue(dataType, value);
+        Column valid = (number != null) ? PolicyColumnExpressions.validateNumber(policy, number) : null;
+        if (parseable == null || valid == null) {
+            return null;
+        }
+        return when(not(empty).and(not(parseable)), incompatibleJson)
+            .when(not(empty).and(not(coalesce(valid, lit(true)))), ruleJson);
+    }
+
+    /**
+     * Returns the reject reason when the value fails the null check or is not convertible to the column type, or null if the type has no equivalent
+     * expression.
+     */
+    private static Column finalValidationFailure(FieldPolicy fieldPolicy, HCatDataType dataType, Column value, Validator validator) {
+        Column empty = value.isNull().or(value.equalTo(""));
+        Column failure = null;
+
+        ValidationPolicy notNullValidator = fieldPolicy.getNotNullValidator();
+        if (notNullValidator != null) {
+            Column nullFailure = validationFailure(notNullValidator, dataType, value, validator);
+            if (nullFailure == null) {
+                return null;
+            }
+            failure = when(empty, nullFailure);
+        }
+
+        if (!fieldPolicy.shouldSkipSchemaValidation()) {
+            Column convertible = convertible(dataType, value);
+            if (convertible == null) {
+                return null;
+            }
+            Column typeFailure = incompatibleJson(dataType);
+            failure = (failure == null) ? when(not(empty).and(not(convertible)), typeFailure)
+                                        : when(empty, failure).when(not(convertible), typeFailure);
+        }
+        return (failure != null) ? failure : lit(null).cast(DataTypes.StringType);
+    }
+
+    /**
+     * Returns whether a non-empty value is convertible to the column type, as defined by {@link HCatDataType#isValueConvertibleToType(String)}.
+     */
+    private static Column convertible(HCatDataType dataType, Column value) {
+        Class type = dataType.getConvertibleType();
+        if (type == String.class) {
+            return (dataType.getMaxLength() == Long.MAX_VALUE) ? lit(true) : PolicyColumnExpressions.stringLength(value).leq(dataType.getMaxLength());
+        }
+
+        Column parseable = parseable(dataType, value);
+        if (parseable == null) {
+            return null;
+        }
+        Column inRange;
+        if (type == BigInteger.class) {
+            // The range of a big integer is the range of a long
+            inRange = value.cast(DataTypes.LongType).isNotNull();
+        } else {
+            Column nativeValue = value.cast(type == Integer.class ? DataTypes.LongType : type == Double.class ? DataTypes.DoubleType : DataTypes.FloatType);
+            inRange = nativeValue.geq(dataType.getMin()).and(nativeValue.leq(dataType.getMax()));
+            if (type != Integer.class) {
+                inRange = inRange.and(not(isnan(nativeValue)));
+            }
+        }
+        return coalesce(parseable.and(inRange), lit(false));
+    }
+
+    /**
+     * Returns whether a non-empty value can be converted to the native type of the column by {@link HCatDataType#toNativeValue(String)}, or null if the
+     * type has no equivalent expression.
+     */
+    private static Column parseable(HCatDataType dataType, Column value) {
+        Class type = dataType.getConvertibleType();
+        if (type == Integer.class) {
+            Column longValue = value.cast(DataTypes.LongType);
+            return coalesce(value.rlike(INTEGER_REGEX).and(longValue.between(Integer.MIN_VALUE, Integer.MAX_VALUE)), lit(false));
+        } else if (type == BigInteger.class) {
+            return value.rlike(INTEGER_REGEX);
+        } else if (type == Double.class) {
+            return value.cast(DataTypes.DoubleType).isNotNull();
+        } else if (type == Float.class) {
+            return value.cast(DataTypes.FloatType).isNotNull();
+        }
+        return null;
+    }
+
+    /**
+     * Returns the value of the native type of the column as a double, as used by the numeric validators.
+     */
+    private static Column numberValue(HCatDataType dataType, Column value) {
+        Class type = dataType.getConvertibleType();
+        if (type == Integer.class || type == BigInteger.class || type == Double.class) {
+            return value.cast(DataTypes.DoubleType);
+        } else if (type == Float.class) {
+            return value.cast(DataTypes.FloatType).cast(DataTypes.DoubleType);
+        }
+        return null;
+    }
+
+    private static Column incompatibleJson(HCatDataType dataType) {
+        return lit(ValidationResult.failField("incompatible", dataType.getName(), "Not convertible to " + dataType.getNativeType()).toJSON());
+    }
+
+    /**
+     * Returns the columns of the validated data set. These are the output columns, named and typed as specified, followed by the invalid flag of each
+     * field and the valid flag of the row.
+     *
+     * @param outputSchema the schema of the output, which has the reject reason before the last column
+     * @return the columns
+     */
+    Column[] getValidatedColumns(StructType outputSchema) {
+        StructField[] fields = outputSchema.fields();
+        int last = values.length - 1;
+        List<Column> columns = new ArrayList<>();
+
+        // Move processing partition value last, after the reject reason
+        for (int idx = 0; idx < last; idx++) {
+            columns.add(values[idx].cast(fields[idx].dataType()).as(fields[idx].name()));
+        }
+        columns.add(rejectReason.as(fields[last].name()));
+        columns.add(values[last].cast(fields[last + 1].dataType()).as(fields[last + 1].name()));
+
+        for (int idx = 0; idx < invalid.length; idx++) {
+            columns.add(invalid[idx].as(INVALID_COL_PREFIX + idx));
+        }
+        columns.add(rowValid.as(VALID_COL));
+        return columns.toArray(new Column[0]);
+    }
+
+    /**
+     * Returns the output columns of a validated data set, with the types of the specified schema.
+     *
+     * @param outputSchema the schema of the output
+     * @return the columns
+     */
+    static Column[] getOutputColumns(StructType outputSchema) {
+        StructField[] fields = outputSchema.fields();
+        Column[] columns = new Column[fields.length];
+        for (int idx = 0; idx < fields.length; idx++) {
+            columns[idx] = col(fields[idx].name()).cast(fields[idx].dataType()).as(fields[idx].name());
+        }
+        return columns;
+    }
+
+    /**
+     * Returns the aggregate columns that count the invalid fields, followed by the total valid and invalid rows, of a validated data set.
+     *
+     * @return the columns
+     */
+    Column[] getCountColumns() {
+        Column[] columns = new Column[invalid.length + 2];
+        for (int idx = 0; idx < invalid.length; idx++) {
+            columns[idx] = sum(when(col(INVALID_COL_PREFIX + idx), 1L).otherwise(0L));
+        }
+        columns[invalid.length] = sum(when(col(VALID_COL), 1L).otherwise(0L));
+        columns[invalid.length + 1] = sum(when(col(VALID_COL), 0L).otherwise(1L));
+        return columns;
+    }
+
+    /**
+     * Converts the result of the count columns to the counts of invalid columns, and total valid and invalid rows.
+     *
+     * @param row the result of {@link #getCountColumns()}
+     * @return the counts
+     */
+    static long[] toCounts(Row row) {
+        long[] counts = new long[row.length()];
+        for (int idx = 0; idx < counts.length; idx++) {
+            counts[idx] = row.isNullAt(idx) ? 0L : row.getLong(idx);
+        }
+        return counts;
+    }
+}
@@ -34,4 +34,10 @@ public interface IValidatorStrategy {
      * @return RDD containing counts of invalid columns, and total valid and invalid rows
      */
     JavaRDD<long[]> getCleansedRowResultPartitionCounts(JavaRDD<CleansedRowResult> cleansedRowResultJavaRDD, int schemaLength);
+
+    /**
+     * Whether to cleanse and validate using Spark SQL column expressions when every field policy has one, instead of mapping each row
+     * @return true to use column expressions when possible, or false to always validate row by row
+     */
+    boolean isColumnExpressionValidationSupported();
 }
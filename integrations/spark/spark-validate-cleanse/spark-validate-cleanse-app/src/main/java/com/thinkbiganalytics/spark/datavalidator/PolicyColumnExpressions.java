@@ -0,0 +1,147 @@
+package com.thinkbiganalytics.spark.datavalidator;
+
+/*-
+ * #%L
+ * thinkbig-spark-validate-cleanse-app
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.policy.standardization.LowercaseStandardizer;
+import com.thinkbiganalytics.policy.standardization.SimpleRegexReplacer;
+import com.thinkbiganalytics.policy.standardization.StandardizationPolicy;
+import com.thinkbiganalytics.policy.standardization.StripNonNumeric;
+import com.thinkbiganalytics.policy.standardization.UppercaseStandardizer;
+import com.thinkbiganalytics.policy.validation.LengthValidator;
+import com.thinkbiganalytics.policy.validation.NotNullValidator;
+import com.thinkbiganalytics.policy.validation.RangeValidator;
+import com.thinkbiganalytics.policy.validation.RegexValidator;
+import com.thinkbiganalytics.policy.validation.ValidationPolicy;
+
+import org.apache.spark.sql.Column;
+
+import static org.apache.spark.sql.functions.encode;
+import static org.apache.spark.sql.functions.isnan;
+import static org.apache.spark.sql.functions.length;
+import static org.apache.spark.sql.functions.lit;
+import static org.apache.spark.sql.functions.lower;
+import static org.apache.spark.sql.functions.not;
+import static org.apache.spark.sql.functions.regexp_replace;
+import static org.apache.spark.sql.functions.upper;
+
+/**
+ * Translates the standard field policies into Spark SQL column expressions that produce the same results as the policies themselves.
+ * <p>
+ * Only the exact policy classes are translated, so subclasses that override the behavior are evaluated row by row.
+ */
+class PolicyColumnExpressions {
+
+    /**
+     * Matches strings that are empty after {@link String#trim()}
+     */
+    private static final String BLANK_REGEX = "\\A[\\x00-\\x20]*\\z";
+
+    private PolicyColumnExpressions() {
+    }
+
+    /**
+     * Returns the expression that standardizes the specified string value.
+     *
+     * @param policy the standardizer
+     * @param value  the string value
+     * @return the standardized value, or null if the policy has no equivalent expression
+     */
+    static Column standardize(StandardizationPolicy policy, Column value) {
+        if (policy instanceof ColumnExpressionPolicy) {
+            return ((ColumnExpressionPolicy) policy).toColumnExpression(value);
+        }
+
+        Class<?> policyClass = policy.getClass();
+        if (policyClass == LowercaseStandardizer.class) {
+            return lower(value);
+        } else if (policyClass == UppercaseStandardizer.class) {
+            return upper(value);
+        } else if (policyClass == SimpleRegexReplacer.class || policyClass == StripNonNumeric.class) {
+            SimpleRegexReplacer replacer = (SimpleRegexReplacer) policy;
+            return replacer.isValid() ? regexp_replace(value, replacer.getPattern().pattern(), replacer.getReplacement()) : value;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the expression that validates the specified string value.
+     *
+     * @param policy the validator
+     * @param value  the string value
+     * @return {@code false} if the value is invalid, or null if the policy has no equivalent expression
+     */
+    static Column validate(ValidationPolicy policy, Column value) {
+        if (policy instanceof ColumnExpressionPolicy) {
+            return ((ColumnExpressionPolicy) policy).toColumnExpression(value);
+        }
+
+        Class<?> policyClass = policy.getClass();
+        if (policyClass == NotNullValidator.class) {
+            NotNullValidator validator = (NotNullValidator) policy;
+            if (validator.isAllowEmptyString()) {
+                return value.isNotNull();
+            }
+            Column empty = validator.isTrimString() ? value.rlike(BLANK_REGEX) : value.equalTo("");
+            return value.isNotNull().and(not(empty));
+        } else if (policyClass == LengthValidator.class) {
+            LengthValidator validator = (LengthValidator) policy;
+            Column len = stringLength(value);
+            return len.geq(validator.getMinLength()).and(len.leq(validator.getMaxLength()));
+        } else if (policyClass == RegexValidator.class) {
+            RegexValidator validator = (RegexValidator) policy;
+            return (validator.getPattern() != null) ? value.rlike("\\A(?:" + validator.getPattern().pattern() + ")\\z") : lit(true);
+        }
+        return null;
+    }
+
+    /**
+     * Returns the expression that validates the specified numeric value.
+     *
+     * @param policy the validator
+     * @param value  the value as a double
+     * @return {@code false} if the value is invalid, or null if the policy has no equivalent expression
+     */
+    static Column validateNumber(ValidationPolicy policy, Column value) {
+        if (policy.getClass() == RangeValidator.class) {
+            RangeValidator validator = (RangeValidator) policy;
+            Column outOfRange = lit(false);
+            if (validator.getMin() != null) {
+                outOfRange = outOfRange.or(value.lt(validator.getMin().doubleValue()));
+            }
+            if (validator.getMax() != null) {
+                outOfRange = outOfRange.or(value.gt(validator.getMax().doubleValue()));
+            }
+            // NaN is never out of range when compared in Java
+            return isnan(value).or(not(outOfRange));
+        }
+        return null;
+    }
+
+    /**
+     * Returns the length of the specified string value in UTF-16 code units, as returned by {@link String#length()}.
+     *
+     * @param value the string value
+     * @return the length
+     */
+    static Column stringLength(Column value) {
+        return length(encode(value, "UTF-16BE")).divide(2);
+    }
+}
@@ -38,6 +38,14 @@ public class StandardizationAndValidationResult {
         fieldValue = value;
     }
 
+    /**
+     * Clears the validation results so this instance can be reused for another value
+     */
+    void reset(Object value) {
+        fieldValue = value;
+        validationResults = null;
+    }
+
 
     public ValidationResult getFinalValidationResult(){
         ValidationResult finalResult = Validator.VALID_RESULT;
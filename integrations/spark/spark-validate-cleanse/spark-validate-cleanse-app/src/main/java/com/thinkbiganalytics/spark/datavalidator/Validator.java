@@ -29,23 +29,23 @@ import com.thinkbiganalytics.policy.BaseFieldPolicy;
 import com.thinkbiganalytics.policy.FieldPolicy;
 import com.thinkbiganalytics.policy.FieldPolicyBuilder;
 import com.thinkbiganalytics.policy.PolicyProperty;
-import com.thinkbiganalytics.policy.standardization.AcceptsEmptyValues;
-import com.thinkbiganalytics.policy.standardization.StandardizationPolicy;
 import com.thinkbiganalytics.policy.validation.ValidationPolicy;
 import com.thinkbiganalytics.policy.validation.ValidationResult;
 import com.thinkbiganalytics.spark.DataSet;
 import com.thinkbiganalytics.spark.SparkContextService;
 import com.thinkbiganalytics.spark.datavalidator.functions.SumPartitionLevelCounts;
 import com.thinkbiganalytics.spark.policy.FieldPolicyLoader;
-import com.thinkbiganalytics.spark.util.InvalidFormatException;
 import com.thinkbiganalytics.spark.validation.HCatDataType;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang3.reflect.FieldUtils;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
 import org.apache.spark.SparkContext;
 import org.apache.spark.api.java.JavaRDD;
 import org.apache.spark.api.java.JavaSparkContext;
 import org.apache.spark.api.java.function.Function;
+import org.apache.spark.sql.Column;
 import org.apache.spark.sql.Row;
 import org.apache.spark.sql.RowFactory;
 import org.apache.spark.sql.hive.HiveContext;
@@ -62,6 +62,7 @@ import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.AnnotationConfigApplicationContext;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
 import java.io.Serializable;
 import java.lang.reflect.ParameterizedType;
 import java.util.ArrayList;
@@ -71,6 +72,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.Vector;
 
+import static org.apache.spark.sql.functions.col;
+import static org.apache.spark.sql.functions.not;
+import static org.apache.spark.sql.functions.sum;
+import static org.apache.spark.sql.functions.when;
+
 
 /**
  * Cleanses and validates a table of strings according to defined field-level policies. Records are split into good and bad.
@@ -95,6 +101,10 @@ public class Validator implements Serializable {
     private static String REJECT_REASON_COL = "dlp_reject_reason";
     private static String VALID_INVALID_COL = "dlp_valid";
     private static String PROCESSING_DTTM_COL = "processing_dttm";
+    /*
+    File format for staging cleansed rows
+     */
+    private static String STAGING_FORMAT = "parquet";
 
     /* Initialize Spark */
     private HiveContext hiveContext;
@@ -113,6 +123,10 @@ public class Validator implements Serializable {
     private String partition;
     private FieldPolicy[] policies;
     private HCatDataType[] schema;
+    /*
+    Field policies compiled for each column of the schema
+     */
+    private ColumnValidationPlan[] plans;
     private Map<String, FieldPolicy> policyMap = new HashMap<>();
     /*
     Cache for performance. Validators accept different parameters (numeric,string, etc) so we need to resolve the type using reflection
@@ -144,6 +158,7 @@ public class Validator implements Serializable {
             System.out.println("You can optionally add: --hiveConf hive.setting=value --hiveConf hive.other.setting=value");
             System.out.println("You can optionally add: --storageLevel rdd_persistence_level_value");
             System.out.println("You can optionally add: --numPartitions number_of_rdd_partitions");
+            System.out.println("You can optionally add: --stagingDir directory_for_staging_cleansed_rows");
             System.out.println("You provided " + args.length + " args which are (comma separated): " + StringUtils.join(args, ","));
             System.exit(1);
         }
@@ -175,6 +190,8 @@ public class Validator implements Serializable {
     }
 
     public void doValidate() {
+        String stagingPath = null;
+        boolean failed = false;
         try {
             SparkContext sparkContext = SparkContext.getOrCreate();
             hiveContext = new HiveContext(sparkContext);
@@ -189,14 +206,12 @@ public class Validator implements Serializable {
 
             // Extract fields from a source table
             StructField[] fields = resolveSchema();
-            this.schema = resolveDataTypes(fields);
-            this.policies = resolvePolicies(fields);
+            setPolicies(resolvePolicies(fields), resolveDataTypes(fields));
 
             String selectStmt = toSelectFields();
             String sql = "SELECT " + selectStmt + " FROM " + feedTablename + " WHERE processing_dttm = '" + partition + "'";
             log.info("Executing query {}", sql);
             DataSet sourceDF = scs.sql(getHiveContext(), sql);
-            JavaRDD<Row> sourceRDD = sourceDF.javaRDD();
 
             // Extract schema from the source table.  This will be used for the invalidDataFrame
             StructType invalidSchema = createModifiedSchema(feedTablename,false);
@@ -208,61 +223,109 @@ public class Validator implements Serializable {
 
             log.info("validSchema {}", validSchema);
 
-            log.info("Persistence level: {}", params.getStorageLevel());
-
-            // Validate and cleanse input rows
-            JavaRDD<CleansedRowResult> cleansedRowResultRDD;
-            if (params.getNumPartitions() <= 0) {
-                cleansedRowResultRDD = sourceRDD.map(new Function<Row, CleansedRowResult>() {
-                    @Override
-                    public CleansedRowResult call(Row row) throws Exception {
-                        return cleanseAndValidateRow(row);
-                    }
-                }).persist(StorageLevel.fromString(params.getStorageLevel()));
-            } else {
-                log.info("Partition count: " + params.getNumPartitions());
-                cleansedRowResultRDD = sourceRDD.repartition(params.getNumPartitions()).map(new Function<Row, CleansedRowResult>() {
-                    @Override
-                    public CleansedRowResult call(Row row) throws Exception {
-                        return cleanseAndValidateRow(row);
-                    }
-                }).persist(StorageLevel.fromString(params.getStorageLevel()));
+            final DataSet invalidDF;
+            final DataSet validatedDF;
+            long[] fieldInvalidCounts;
+            JavaRDD<CleansedRowResult> cleansedRowResultRDD = null;
+            DataSet validatedResultDF = null;
+
+            ExpressionValidationPlan expressionPlan = null;
+            if (validatorStrategy.isColumnExpressionValidationSupported()) {
+                expressionPlan = ExpressionValidationPlan.create(policies, schema, sourceDF.schema(), this);
+                if (expressionPlan == null) {
+                    log.info("Field policies require row by row validation");
+                }
             }
 
-
-            // Return a new rdd based for Valid Results
-            JavaRDD<Row> validResultRDD = cleansedRowResultRDD.filter(new Function<CleansedRowResult, Boolean>() {
-                @Override
-                public Boolean call(CleansedRowResult cleansedRowResult) throws Exception {
-                    return cleansedRowResult.rowIsValid;
-                }
-            }).map(new Function<CleansedRowResult, Row>() {
-                @Override
-                public Row call(CleansedRowResult cleansedRowResult) throws Exception {
-                    return cleansedRowResult.row;
+            if (expressionPlan != null) {
+                log.info("Validating with column expressions");
+                log.info("Persistence level: {}", params.getStorageLevel());
+                DataSet expressionSourceDF = sourceDF;
+                if (params.getNumPartitions() > 0) {
+                    log.info("Partition count: " + params.getNumPartitions());
+                    expressionSourceDF = sourceDF.repartition(params.getNumPartitions());
                 }
-            });
 
-            // Return a new rdd based for Invalid Results
-            JavaRDD<Row> invalidResultRDD = cleansedRowResultRDD.filter(new Function<CleansedRowResult, Boolean>() {
-                @Override
-                public Boolean call(CleansedRowResult cleansedRowResult) throws Exception {
-                    return cleansedRowResult.rowIsValid == false;
+                // Evaluate the expressions once for the counts and both the valid and invalid rows
+                validatedResultDF = expressionSourceDF.select(expressionPlan.getValidatedColumns(invalidSchema)).persist(StorageLevel.fromString(params.getStorageLevel()));
+
+                // Counts of invalid columns, total valid rows and total invalid rows
+                fieldInvalidCounts = ExpressionValidationPlan.toCounts(validatedResultDF.select(expressionPlan.getCountColumns()).collectAsList().get(0));
+
+                invalidDF = validatedResultDF.filter(not(col(ExpressionValidationPlan.VALID_COL))).select(ExpressionValidationPlan.getOutputColumns(invalidSchema));
+                validatedDF = validatedResultDF.filter(col(ExpressionValidationPlan.VALID_COL)).select(ExpressionValidationPlan.getOutputColumns(validSchema));
+            } else if (StringUtils.isNotBlank(params.getStagingDir())) {
+                stagingPath = new Path(params.getStagingDir(), targetDatabase + "_" + validTableName + "_" + partition).toString();
+                log.info("Staging cleansed rows in {}", stagingPath);
+                JavaRDD<Row> sourceRDD = sourceDF.javaRDD();
+                if (params.getNumPartitions() > 0) {
+                    log.info("Partition count: " + params.getNumPartitions());
+                    sourceRDD = sourceRDD.repartition(params.getNumPartitions());
                 }
-            }).map(new Function<CleansedRowResult, Row>() {
-                @Override
-                public Row call(CleansedRowResult cleansedRowResult) throws Exception {
-                    return cleansedRowResult.row;
+
+                // Validate and cleanse input rows, writing both valid and invalid rows in a single pass, then count the staged rows
+                stageCleansedRows(sourceRDD, invalidSchema, validSchema, stagingPath);
+                fieldInvalidCounts = countStagedRows(stagingPath);
+
+                invalidDF = readStagedRows(stagingPath, false, fieldInvalidCounts[schema.length + 1], invalidSchema);
+                validatedDF = readStagedRows(stagingPath, true, fieldInvalidCounts[schema.length], validSchema);
+            } else {
+                log.info("Persistence level: {}", params.getStorageLevel());
+                JavaRDD<Row> sourceRDD = sourceDF.javaRDD();
+
+                // Validate and cleanse input rows
+                if (params.getNumPartitions() <= 0) {
+                    cleansedRowResultRDD = sourceRDD.map(new Function<Row, CleansedRowResult>() {
+                        @Override
+                        public CleansedRowResult call(Row row) throws Exception {
+                            return cleanseAndValidateRow(row);
+                        }
+                    }).persist(StorageLevel.fromString(params.getStorageLevel()));
+                } else {
+                    log.info("Partition count: " + params.getNumPartitions());
+                    cleansedRowResultRDD = sourceRDD.repartition(params.getNumPartitions()).map(new Function<Row, CleansedRowResult>() {
+                        @Override
+                        public CleansedRowResult call(Row row) throws Exception {
+                            return cleanseAndValidateRow(row);
+                        }
+                    }).persist(StorageLevel.fromString(params.getStorageLevel()));
                 }
-            });
 
-            // Counts of invalid columns, total valid rows and total invalid rows
-            long[] fieldInvalidCounts = cleansedRowResultsValidationCounts(cleansedRowResultRDD, schema.length);
 
-            //Create the 2 new Data Frames for the invalid and valid results
-            final DataSet invalidDF = scs.toDataSet(getHiveContext(), invalidResultRDD, invalidSchema);
+                // Return a new rdd based for Valid Results
+                JavaRDD<Row> validResultRDD = cleansedRowResultRDD.filter(new Function<CleansedRowResult, Boolean>() {
+                    @Override
+                    public Boolean call(CleansedRowResult cleansedRowResult) throws Exception {
+                        return cleansedRowResult.rowIsValid;
+                    }
+                }).map(new Function<CleansedRowResult, Row>() {
+                    @Override
+                    public Row call(CleansedRowResult cleansedRowResult) throws Exception {
+                        return cleansedRowResult.row;
+                    }
+                });
+
+                // Return a new rdd based for Invalid Results
+                JavaRDD<Row> invalidResultRDD = cleansedRowResultRDD.filter(new Function<CleansedRowResult, Boolean>() {
+                    @Override
+                    public Boolean call(CleansedRowResult cleansedRowResult) throws Exception {
+                        return cleansedRowResult.rowIsValid == false;
+                    }
+                }).map(new Function<CleansedRowResult, Row>() {
+                    @Override
+                    public Row call(CleansedRowResult cleansedRowResult) throws Exception {
+                        return cleansedRowResult.row;
+                    }
+                });
+
+                // Counts of invalid columns, total valid rows and total invalid rows
+                fieldInvalidCounts = cleansedRowResultsValidationCounts(cleansedRowResultRDD, schema.length);
+
+                //Create the 2 new Data Frames for the invalid and valid results
+                invalidDF = scs.toDataSet(getHiveContext(), invalidResultRDD, invalidSchema);
 
-            final DataSet validatedDF = scs.toDataSet(getHiveContext(), validResultRDD, validSchema);
+                validatedDF = scs.toDataSet(getHiveContext(), validResultRDD, validSchema);
+            }
 
             DataSet invalidDataFrame = null;
             // ensure the dataframe matches the correct schema
@@ -290,7 +353,12 @@ public class Validator implements Serializable {
             long validCount = fieldInvalidCounts[schema.length];
             long invalidCount = fieldInvalidCounts[schema.length + 1];
 
-            cleansedRowResultRDD.unpersist();
+            if (cleansedRowResultRDD != null) {
+                cleansedRowResultRDD.unpersist();
+            }
+            if (validatedResultDF != null) {
+                validatedResultDF.unpersist();
+            }
 
             log.info("Valid count {} invalid count {}", validCount, invalidCount);
 
@@ -299,6 +367,14 @@ public class Validator implements Serializable {
 
         } catch (Exception e) {
             log.error("Failed to perform validation", e);
+            failed = true;
+        } finally {
+            if (stagingPath != null) {
+                deleteStagingPath(stagingPath);
+            }
+        }
+
+        if (failed) {
             System.exit(1);
         }
     }
@@ -446,57 +522,56 @@ public class Validator implements Serializable {
         }
     }
 
+    /**
+     * Sets the field policies and target data types of the columns being validated
+     */
+    void setPolicies(FieldPolicy[] policies, HCatDataType[] schema) {
+        this.policies = policies;
+        this.schema = schema;
+        this.plans = compilePlans(policies, schema);
+    }
+
     /**
      * Spark function to perform both cleansing and validation of a data row based on data policies and the target datatype
      */
-    private CleansedRowResult cleanseAndValidateRow(Row row) {
+    CleansedRowResult cleanseAndValidateRow(Row row) {
         int nulls = 1;
 
         // Create placeholder for the new values plus one columns for reject_reason
         Object[] newValues = new Object[schema.length + 1];
         boolean rowValid = true;
-        String sbRejectReason = null;
         List<ValidationResult> results = null;
         boolean[] columnsValid = new boolean[schema.length];
+        StandardizationAndValidationResult standardizationAndValidationResult = new StandardizationAndValidationResult(null);
 
         // Iterate through columns to cleanse and validate
         for (int idx = 0; idx < schema.length; idx++) {
-            ValidationResult result = VALID_RESULT;
-            FieldPolicy fieldPolicy = policies[idx];
-            HCatDataType dataType = schema[idx];
+            ColumnValidationPlan plan = plans[idx];
             boolean columnValid = true;
 
             // Extract the value (allowing for null or missing field for odd-ball data)
             Object val = (idx == row.length() || row.isNullAt(idx) ? null : row.get(idx));
-            // Handle complex types by passing them through
+            if (val == null) {
+                nulls++;
+            }
 
-            if (dataType.isUnchecked()) {
-                if (val == null) {
-                    nulls++;
-                }
+            // Handle complex types by passing them through
+            if (plan.isUnchecked()) {
                 newValues[idx] = val;
             } else {
-                Object fieldValue = (val != null ? val : null);
-
-                if (fieldValue == null) {
-                    nulls++;
-                }
+                plan.apply(val, standardizationAndValidationResult);
+                ValidationResult result = standardizationAndValidationResult.getFinalValidationResult();
 
-                StandardizationAndValidationResult standardizationAndValidationResult = standardizeAndValidateField(fieldPolicy, fieldValue, dataType);
-                result = standardizationAndValidationResult.getFinalValidationResult();
                 //only apply the standardized result value if the routine is valid
-                fieldValue = result.isValid() ? standardizationAndValidationResult.getFieldValue() : fieldValue;
-
-                newValues[idx] = fieldValue;
-
-                if (!result.isValid()) {
+                if (result.isValid()) {
+                    newValues[idx] = standardizationAndValidationResult.getFieldValue();
+                } else {
+                    newValues[idx] = val;
                     rowValid = false;
-                    results = (results == null ? new Vector<ValidationResult>() : results);
+                    results = (results == null ? new ArrayList<ValidationResult>() : results);
                     results.addAll(standardizationAndValidationResult.getValidationResults());
-                    //results.add(result);
                     columnValid = false;
                 }
-
             }
 
             // Record fact that we there was an invalid column
@@ -505,17 +580,13 @@ public class Validator implements Serializable {
         // Return success unless all values were null.  That would indicate a blank line in the file.
         if (nulls >= schema.length) {
             rowValid = false;
-            results = (results == null ? new Vector<ValidationResult>() : results);
+            results = (results == null ? new ArrayList<ValidationResult>() : results);
             results.add(ValidationResult.failRow("empty", "Row is empty"));
         }
 
-        // Convert to reject reasons to JSON
-        sbRejectReason = toJSONArray(results);
-
         // Record the results in the appended columns, move processing partition value last
         newValues[schema.length] = newValues[schema.length - 1]; //PROCESSING_DTTM_COL
-        newValues[schema.length-1] = sbRejectReason;   //REJECT_REASON_COL
-        //   newValues[schema.length - 1] = (rowValid ? "1" : "0");  //VALID_INVALID_COL
+        newValues[schema.length - 1] = toJSONArray(results);   //REJECT_REASON_COL
 
         CleansedRowResult cleansedRowResult = new CleansedRowResult();
         cleansedRowResult.row = RowFactory.create(newValues);
@@ -541,11 +612,110 @@ public class Validator implements Serializable {
         return finalCounts;
     }
 
+    /**
+     * Cleanses and validates the rows, writing them to the staging path partitioned by the {@code dlp_valid} flag. The invalid flag of each column is staged with the row
+     * so that the counts can be taken from the staged files. The cleansed rows are computed once and never persisted.
+     */
+    private void stageCleansedRows(JavaRDD<Row> sourceRDD, StructType invalidSchema, StructType validSchema, String stagingPath) {
+        // Columns that are typed differently in the valid and invalid tables are staged as strings and cast when read
+        StructField[] invalidFields = invalidSchema.fields();
+        StructField[] validFields = validSchema.fields();
+        final boolean[] stringColumns = new boolean[invalidFields.length];
+        StructField[] stagingFields = new StructField[invalidFields.length + schema.length + 1];
+        for (int idx = 0; idx < invalidFields.length; idx++) {
+            stringColumns[idx] = !invalidFields[idx].dataType().equals(validFields[idx].dataType());
+            stagingFields[idx] = stringColumns[idx] ? new StructField(invalidFields[idx].name(), DataTypes.StringType, true, invalidFields[idx].metadata()) : invalidFields[idx];
+        }
+        for (int idx = 0; idx < schema.length; idx++) {
+            stagingFields[invalidFields.length + idx] = new StructField(ExpressionValidationPlan.INVALID_COL_PREFIX + idx, DataTypes.BooleanType, false, Metadata.empty());
+        }
+        stagingFields[stagingFields.length - 1] = new StructField(VALID_INVALID_COL, DataTypes.BooleanType, false, Metadata.empty());
+
+        JavaRDD<Row> stagedRDD = sourceRDD.map(new Function<Row, Row>() {
+            @Override
+            public Row call(Row row) throws Exception {
+                return toStagedRow(cleanseAndValidateRow(row), stringColumns);
+            }
+        });
+        scs.toDataSet(getHiveContext(), stagedRDD, new StructType(stagingFields)).writeToPath(VALID_INVALID_COL, STAGING_FORMAT, stagingPath);
+    }
+
+    /**
+     * Appends the invalid flag of each column and the {@code dlp_valid} flag to the cleansed row, converting the values of the specified columns to strings
+     */
+    static Row toStagedRow(CleansedRowResult cleansedRowResult, boolean[] stringColumns) {
+        boolean[] columnsValid = cleansedRowResult.columnsValid;
+        Object[] values = new Object[stringColumns.length + columnsValid.length + 1];
+        for (int idx = 0; idx < stringColumns.length; idx++) {
+            Object value = cleansedRowResult.row.get(idx);
+            values[idx] = (stringColumns[idx] && value != null) ? value.toString() : value;
+        }
+        for (int idx = 0; idx < columnsValid.length; idx++) {
+            values[stringColumns.length + idx] = !columnsValid[idx];
+        }
+        values[values.length - 1] = cleansedRowResult.rowIsValid;
+        return RowFactory.create(values);
+    }
+
+    /**
+     * Counts the invalid columns, total valid rows and total invalid rows of the staged rows. Only the flag columns are read from the staged files.
+     *
+     * @return the counts of invalid columns, total valid rows and total invalid rows
+     */
+    private long[] countStagedRows(String stagingPath) throws IOException {
+        // Partition directories are only created for values that were written
+        Path path = new Path(stagingPath);
+        FileSystem fs = path.getFileSystem(SparkContext.getOrCreate().hadoopConfiguration());
+        if (!fs.exists(new Path(path, VALID_INVALID_COL + "=true")) && !fs.exists(new Path(path, VALID_INVALID_COL + "=false"))) {
+            return new long[schema.length + 2];
+        }
+
+        // The partition column may be discovered as a string
+        Column valid = col(VALID_INVALID_COL).cast(DataTypes.BooleanType);
+        Column[] columns = new Column[schema.length + 2];
+        for (int idx = 0; idx < schema.length; idx++) {
+            columns[idx] = sum(when(col(ExpressionValidationPlan.INVALID_COL_PREFIX + idx), 1L).otherwise(0L));
+        }
+        columns[schema.length] = sum(when(valid, 1L).otherwise(0L));
+        columns[schema.length + 1] = sum(when(valid, 0L).otherwise(1L));
+        return ExpressionValidationPlan.toCounts(scs.read(getHiveContext(), STAGING_FORMAT, stagingPath).select(columns).collectAsList().get(0));
+    }
+
+    /**
+     * Deletes the staged rows, logging rather than failing if they cannot be deleted
+     */
+    private void deleteStagingPath(String stagingPath) {
+        try {
+            Path path = new Path(stagingPath);
+            path.getFileSystem(SparkContext.getOrCreate().hadoopConfiguration()).delete(path, true);
+        } catch (Exception e) {
+            log.warn("Unable to delete the staged rows in {}", stagingPath, e);
+        }
+    }
+
+    /**
+     * Reads either the valid or the invalid rows from the staging path, converted to the specified schema
+     */
+    private DataSet readStagedRows(String stagingPath, boolean valid, long count, StructType targetSchema) {
+        // Partition directories are only created for values that were written
+        if (count == 0) {
+            JavaSparkContext jsc = new JavaSparkContext(SparkContext.getOrCreate());
+            return scs.toDataSet(getHiveContext(), jsc.<Row>emptyRDD(), targetSchema);
+        }
+
+        StructField[] fields = targetSchema.fields();
+        Column[] columns = new Column[fields.length];
+        for (int idx = 0; idx < fields.length; idx++) {
+            columns[idx] = col(fields[idx].name()).cast(fields[idx].dataType()).as(fields[idx].name());
+        }
+        return scs.read(getHiveContext(), STAGING_FORMAT, new Path(stagingPath, VALID_INVALID_COL + "=" + valid).toString()).select(columns);
+    }
+
     private String toJSONArray(List<ValidationResult> results) {
-        // Convert to reject reasons to JSON
-        StringBuffer sb = null;
+        // Convert to reject reasons to JSON. Only invalid rows have results so valid rows do not pay for building the string.
+        StringBuilder sb = null;
         if (results != null) {
-            sb = new StringBuffer();
+            sb = new StringBuilder();
             for (ValidationResult result : results) {
                 if (sb.length() > 0) {
                     sb.append(",");
@@ -560,31 +730,6 @@ public class Validator implements Serializable {
     }
 
 
-    /**
-     * Perform validation using both schema validation the validation policies
-     */
-    protected ValidationResult finalValidationCheck(FieldPolicy fieldPolicy, HCatDataType fieldDataType, String fieldValue) {
-
-        boolean isEmpty = (StringUtils.isEmpty(fieldValue));
-        if (isEmpty) {
-            ValidationPolicy validator;
-            if ((validator = fieldPolicy.getNotNullValidator()) != null) {
-                ValidationResult result = validateValue(validator, fieldDataType, fieldValue, -1);
-                if (result != VALID_RESULT) {
-                    return result;
-                }
-            }
-        } else if (!fieldPolicy.shouldSkipSchemaValidation()) {
-            if (!fieldDataType.isValueConvertibleToType(fieldValue)) {
-                return ValidationResult
-                    .failField("incompatible", fieldDataType.getName(),
-                               "Not convertible to " + fieldDataType.getNativeType());
-            }
-        }
-
-        return VALID_RESULT;
-    }
-
     /**
      * Extract the @PolicyProperty annotated fields
      *
@@ -622,31 +767,6 @@ public class Validator implements Serializable {
     }
 
 
-    protected ValidationResult validateValue(ValidationPolicy validator, HCatDataType fieldDataType, String fieldValue, Integer idx) {
-        try {
-            // Resolve the type of parameter required by the validator. A cache is used to avoid cost of reflection.
-            Class expectedParamClazz = resolveValidatorParamType(validator);
-            Object nativeValue = fieldValue;
-            if (expectedParamClazz != String.class) {
-                nativeValue = fieldDataType.toNativeValue(fieldValue);
-            }
-            if (!validator.validate(nativeValue)) {
-
-                //get any fields in this validator annotated with PolicyProperty
-
-                return ValidationResult
-                    .failFieldRule("rule", fieldDataType.getName(), validator.getClass().getSimpleName(),
-                                   "Rule violation");
-            }
-            return VALID_RESULT;
-        } catch (InvalidFormatException | ClassCastException e) {
-            return ValidationResult
-                .failField("incompatible", fieldDataType.getName(),
-                           "Not convertible to " + fieldDataType.getNativeType());
-        }
-
-    }
-
     /* Resolve the type of param required by the validator. A cache is used to avoid cost of reflection */
     protected Class resolveValidatorParamType(ValidationPolicy validator) {
         Class expectedParamClazz = validatorParamType.get(validator.getClass());
@@ -669,47 +789,18 @@ public class Validator implements Serializable {
 
 
     protected StandardizationAndValidationResult standardizeAndValidateField(FieldPolicy fieldPolicy, Object value, HCatDataType dataType) {
-        StandardizationAndValidationResult result = new StandardizationAndValidationResult(value);
-
-        List<BaseFieldPolicy> fieldPolicies = fieldPolicy.getAllPolicies();
-        int idx = 0;
-        for (BaseFieldPolicy p : fieldPolicies) {
-            if (p instanceof StandardizationPolicy) {
-                StandardizationPolicy standardizationPolicy = (StandardizationPolicy) p;
-                boolean isEmpty = ((value == null) || (StringUtils.isEmpty(value.toString())));
-                boolean shouldStandardize = true;
-                if (isEmpty && !(standardizationPolicy instanceof AcceptsEmptyValues)) {
-                    shouldStandardize = false;
-                }
-
-                if (!standardizationPolicy.accepts(value)) {
-                    shouldStandardize = false;
-                }
-
-                if (shouldStandardize) {
-                    Object newValue = standardizationPolicy.convertRawValue(result.getFieldValue());
-                    result.setFieldValue(newValue != null ? newValue.toString() : newValue);
-                }
-            }
-
-            if (p instanceof ValidationPolicy) {
-
-                ValidationPolicy validationPolicy = (ValidationPolicy) p;
-                ValidationResult validationResult = validateValue(validationPolicy, dataType, result.getFieldValueForValidation(), idx);
-                //only need to add those that are invalid
-                if (validationResult != VALID_RESULT) {
-                    result.addValidationResult(validationResult);
-                    break; //exit out of processing if invalid records found.
-                }
-            }
+        return new ColumnValidationPlan(fieldPolicy, dataType, this).apply(value);
+    }
 
+    /**
+     * Compiles the field policy of each column into a plan that is reused for every row
+     */
+    private ColumnValidationPlan[] compilePlans(FieldPolicy[] policies, HCatDataType[] schema) {
+        ColumnValidationPlan[] compiled = new ColumnValidationPlan[schema.length];
+        for (int idx = 0; idx < schema.length; idx++) {
+            compiled[idx] = new ColumnValidationPlan(policies[idx], schema[idx], this);
         }
-        ValidationResult finalValidationCheck = finalValidationCheck(fieldPolicy, dataType, result.getFieldValueForValidation());
-        if (finalValidationCheck != VALID_RESULT) {
-            result.addValidationResult(finalValidationCheck);
-        }
-
-        return result;
+        return compiled;
     }
 
 
@@ -0,0 +1,116 @@
+package com.thinkbiganalytics.spark.datavalidator;
+
+/*-
+ * #%L
+ * thinkbig-spark-validate-cleanse-app
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.policy.BaseFieldPolicy;
+import com.thinkbiganalytics.policy.FieldPolicy;
+import com.thinkbiganalytics.policy.FieldPolicyBuilder;
+import com.thinkbiganalytics.policy.standardization.SimpleRegexReplacer;
+import com.thinkbiganalytics.policy.validation.NotNullValidator;
+import com.thinkbiganalytics.policy.validation.RangeValidator;
+import com.thinkbiganalytics.policy.validation.ValidationResult;
+import com.thinkbiganalytics.spark.validation.HCatDataType;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ColumnValidationPlanTest {
+
+    private Validator validator = new Validator();
+
+    @Test
+    public void testTypedValuesMatchStringValues() {
+        List<BaseFieldPolicy> policies = new ArrayList<>();
+        policies.add(new NotNullValidator(false, true));
+        policies.add(new RangeValidator(1, 100));
+
+        assertSameResult(policies, "int", 50, "50");
+        assertSameResult(policies, "int", 150, "150");
+        assertSameResult(policies, "tinyint", (byte) 0, "0");
+        assertSameResult(policies, "bigint", 100L, "100");
+        assertSameResult(policies, "double", 100.5d, "100.5");
+        assertSameResult(policies, "decimal(5,2)", new BigDecimal("15.55"), "15.55");
+        assertSameResult(policies, "decimal(2,1)", new BigDecimal("15.55"), "15.55");
+    }
+
+    @Test
+    public void testTypedValueOutOfRange() {
+        ColumnValidationPlan plan = compile(new ArrayList<BaseFieldPolicy>(), "tinyint");
+
+        assertTrue(plan.apply(127).getFinalValidationResult().isValid());
+        assertFalse(plan.apply(128).getFinalValidationResult().isValid());
+        assertEquals(Integer.valueOf(128), plan.apply(128).getFieldValue());
+    }
+
+    @Test
+    public void testStandardizedTypedValue() {
+        List<BaseFieldPolicy> policies = new ArrayList<>();
+        policies.add(new SimpleRegexReplacer("5", "7"));
+        policies.add(new RangeValidator(70, 80));
+        ColumnValidationPlan plan = compile(policies, "int");
+
+        StandardizationAndValidationResult result = plan.apply("55");
+        assertEquals("77", result.getFieldValue());
+        assertEquals(Validator.VALID_RESULT, result.getFinalValidationResult());
+
+        // The replacer only accepts strings so the typed value is validated as is
+        result = plan.apply(55);
+        assertEquals(55, result.getFieldValue());
+        assertFalse(result.getFinalValidationResult().isValid());
+    }
+
+    @Test
+    public void testReuseResult() {
+        List<BaseFieldPolicy> policies = new ArrayList<>();
+        policies.add(new NotNullValidator(false, true));
+        ColumnValidationPlan plan = compile(policies, "string");
+
+        StandardizationAndValidationResult result = new StandardizationAndValidationResult(null);
+        plan.apply(null, result);
+        assertFalse(result.getFinalValidationResult().isValid());
+
+        plan.apply("value", result);
+        assertEquals("value", result.getFieldValue());
+        assertNull(result.getValidationResults());
+        assertEquals(Validator.VALID_RESULT, result.getFinalValidationResult());
+    }
+
+    private void assertSameResult(List<BaseFieldPolicy> policies, String dataType, Object typedValue, String stringValue) {
+        ColumnValidationPlan plan = compile(policies, dataType);
+        ValidationResult typedResult = plan.apply(typedValue).getFinalValidationResult();
+        ValidationResult stringResult = plan.apply(stringValue).getFinalValidationResult();
+        assertEquals(stringResult.isValid(), typedResult.isValid());
+        assertEquals(stringResult.toJSON(), typedResult.toJSON());
+    }
+
+    private ColumnValidationPlan compile(List<BaseFieldPolicy> policies, String dataType) {
+        FieldPolicy fieldPolicy = FieldPolicyBuilder.newBuilder().addPolicies(policies).tableName("emp").fieldName("field1").feedFieldName("field1").build();
+        return new ColumnValidationPlan(fieldPolicy, HCatDataType.createFromDataType("field1", dataType), validator);
+    }
+}
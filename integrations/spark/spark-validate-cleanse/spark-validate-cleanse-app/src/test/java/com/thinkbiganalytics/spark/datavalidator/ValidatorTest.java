@@ -38,6 +38,8 @@ import com.thinkbiganalytics.policy.validation.ValidationPolicy;
 import com.thinkbiganalytics.policy.validation.ValidationResult;
 import com.thinkbiganalytics.spark.validation.HCatDataType;
 
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.RowFactory;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -272,4 +274,24 @@ public class ValidatorTest {
         assertEquals(policyMap.size(), 10);
 
     }
+
+    @Test
+    public void testToStagedRow() {
+        CleansedRowResult cleansedRowResult = new CleansedRowResult();
+        cleansedRowResult.row = RowFactory.create("abc", 42, null, "", "20001");
+        cleansedRowResult.columnsValid = new boolean[]{true, false, true, true};
+        cleansedRowResult.rowIsValid = false;
+
+        Row staged = Validator.toStagedRow(cleansedRowResult, new boolean[]{false, true, true, false, false});
+        assertEquals(10, staged.length());
+        assertEquals("abc", staged.get(0));
+        assertEquals("42", staged.get(1));
+        assertTrue(staged.isNullAt(2));
+        assertEquals("20001", staged.get(4));
+        assertEquals(false, staged.get(5));
+        assertEquals(true, staged.get(6));
+        assertEquals(false, staged.get(7));
+        assertEquals(false, staged.get(8));
+        assertEquals(false, staged.get(9));
+    }
 }
@@ -37,4 +37,12 @@ public class ValidatorStrategyV1 implements IValidatorStrategy, Serializable {
     public JavaRDD<long[]> getCleansedRowResultPartitionCounts(JavaRDD<CleansedRowResult> cleansedRowResultJavaRDD, int schemaLength) {
         return cleansedRowResultJavaRDD.mapPartitions(new PartitionLevelCountsV1(schemaLength));
     }
+
+    /**
+     * Spark 1.6 does not generate code for whole stages, so column expressions gain little over the compiled row validation.
+     */
+    @Override
+    public boolean isColumnExpressionValidationSupported() {
+        return false;
+    }
 }
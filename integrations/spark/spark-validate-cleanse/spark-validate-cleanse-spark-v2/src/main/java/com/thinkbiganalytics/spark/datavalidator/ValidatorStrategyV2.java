@@ -37,4 +37,12 @@ public class ValidatorStrategyV2 implements IValidatorStrategy, Serializable {
     public JavaRDD<long[]> getCleansedRowResultPartitionCounts(JavaRDD<CleansedRowResult> cleansedRowResultJavaRDD, int schemaLength) {
         return cleansedRowResultJavaRDD.mapPartitions(new PartitionLevelCountsV2(schemaLength));
     }
+
+    /**
+     * Spark 2 compiles column expressions into whole stage generated code, avoiding the conversion of each row to Java objects.
+     */
+    @Override
+    public boolean isColumnExpressionValidationSupported() {
+        return true;
+    }
 }
@@ -0,0 +1,156 @@
+package com.thinkbiganalytics.spark.datavalidator;
+
+/*-
+ * #%L
+ * kylo-spark-validate-cleanse-spark-v2
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.policy.BaseFieldPolicy;
+import com.thinkbiganalytics.policy.FieldPolicy;
+import com.thinkbiganalytics.policy.FieldPolicyBuilder;
+import com.thinkbiganalytics.policy.standardization.SimpleRegexReplacer;
+import com.thinkbiganalytics.policy.standardization.UppercaseStandardizer;
+import com.thinkbiganalytics.policy.validation.LengthValidator;
+import com.thinkbiganalytics.policy.validation.NotNullValidator;
+import com.thinkbiganalytics.policy.validation.RangeValidator;
+import com.thinkbiganalytics.policy.validation.RegexValidator;
+import com.thinkbiganalytics.spark.validation.HCatDataType;
+
+import org.apache.spark.SparkConf;
+import org.apache.spark.SparkContext;
+import org.apache.spark.sql.Column;
+import org.apache.spark.sql.Dataset;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.RowFactory;
+import org.apache.spark.sql.SQLContext;
+import org.apache.spark.sql.types.DataTypes;
+import org.apache.spark.sql.types.StructField;
+import org.apache.spark.sql.types.StructType;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class ExpressionValidationPlanTest {
+
+    private static final String[] COLUMNS = {"name", "code", "age", "score", "qty", "processing_dttm"};
+
+    @Test
+    public void testSameResultsAsRowValidation() {
+        FieldPolicy[] policies = {
+            policy("name", UppercaseStandardizer.instance(), new NotNullValidator(false, true), new LengthValidator(1, 5)),
+            policy("code", new SimpleRegexReplacer("-", ""), new NotNullValidator(true, false), new RegexValidator("[A-Z]{2}[0-9]+")),
+            policy("age", new NotNullValidator(false, true), new RangeValidator(0, 120)),
+            policy("score", new RangeValidator(0, 100)),
+            policy("qty"),
+            FieldPolicyBuilder.SKIP_VALIDATION
+        };
+        HCatDataType[] schema = {
+            HCatDataType.createFromDataType("name", "string"),
+            HCatDataType.createFromDataType("code", "varchar(4)"),
+            HCatDataType.createFromDataType("age", "int"),
+            HCatDataType.createFromDataType("score", "double"),
+            HCatDataType.createFromDataType("qty", "tinyint"),
+            HCatDataType.createFromDataType("processing_dttm", "string")
+        };
+        List<Row> rows = Arrays.asList(
+            RowFactory.create("bob", "AB-12", "42", "99.5", "127", "1"),
+            RowFactory.create("alice", "AB123", "130", "NaN", "128", "1"),
+            RowFactory.create(" ", "ab12", "abc", "1e400", "x", "1"),
+            RowFactory.create("", "", "", "", "", "1"),
+            RowFactory.create(null, null, null, null, null, "1"),
+            RowFactory.create("zed", "XY-9", "+7", "-1", "-128", "1"),
+            RowFactory.create("carl", "XY99", "99999999999", "4", "5", "1"),
+            RowFactory.create("dan", "CD1", "4.0", "1.5e1", null, "1")
+        );
+
+        // Validate row by row
+        Validator validator = new Validator();
+        validator.setValidatorStrategy(new ValidatorStrategyV2());
+        validator.setPolicies(policies, schema);
+        List<CleansedRowResult> expected = new ArrayList<>();
+        long[] expectedCounts = new long[schema.length + 2];
+        for (Row row : rows) {
+            CleansedRowResult result = validator.cleanseAndValidateRow(row);
+            expected.add(result);
+            for (int idx = 0; idx < schema.length; idx++) {
+                expectedCounts[idx] += result.columnsValid[idx] ? 0 : 1;
+            }
+            expectedCounts[result.rowIsValid ? schema.length : schema.length + 1]++;
+        }
+
+        // Validate with column expressions
+        List<StructField> sourceFields = new ArrayList<>();
+        for (String column : COLUMNS) {
+            sourceFields.add(DataTypes.createStructField(column, DataTypes.StringType, true));
+        }
+        List<StructField> outputFields = new ArrayList<>(sourceFields);
+        outputFields.add(outputFields.size() - 1, DataTypes.createStructField("dlp_reject_reason", DataTypes.StringType, true));
+
+        SQLContext sqlContext = new SQLContext(SparkContext.getOrCreate(new SparkConf().setMaster("local[*]").setAppName("Validator Test - Spark 2")));
+        Dataset<Row> source = sqlContext.createDataFrame(rows, DataTypes.createStructType(sourceFields));
+
+        ExpressionValidationPlan plan = ExpressionValidationPlan.create(policies, schema, source.schema(), validator);
+        assertNotNull(plan);
+
+        Column[] columns = plan.getValidatedColumns(DataTypes.createStructType(outputFields));
+        Dataset<Row> validated = source.select(columns);
+        List<Row> actual = validated.collectAsList();
+
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Row expectedRow = expected.get(i).row;
+            Row actualRow = actual.get(i);
+            for (int idx = 0; idx < expectedRow.length(); idx++) {
+                assertEquals("row " + i + " column " + idx, expectedRow.get(idx), actualRow.get(idx));
+            }
+            assertEquals("row " + i + " valid", expected.get(i).rowIsValid, actualRow.getBoolean(actualRow.fieldIndex(ExpressionValidationPlan.VALID_COL)));
+        }
+
+        long[] counts = ExpressionValidationPlan.toCounts(validated.select(plan.getCountColumns()).collectAsList().get(0));
+        assertArrayEquals(expectedCounts, counts);
+    }
+
+    @Test
+    public void testCustomPolicyRequiresRowValidation() {
+        FieldPolicy[] policies = {policy("name", new CustomValidator()), FieldPolicyBuilder.SKIP_VALIDATION};
+        HCatDataType[] schema = {HCatDataType.createFromDataType("name", "string"), HCatDataType.createFromDataType("processing_dttm", "string")};
+        StructType sourceSchema = DataTypes.createStructType(Arrays.asList(DataTypes.createStructField("name", DataTypes.StringType, true),
+                                                                           DataTypes.createStructField("processing_dttm", DataTypes.StringType, true)));
+
+        assertNull(ExpressionValidationPlan.create(policies, schema, sourceSchema, new Validator()));
+    }
+
+    private FieldPolicy policy(String field, BaseFieldPolicy... policies) {
+        return FieldPolicyBuilder.newBuilder().addPolicies(Arrays.asList(policies)).tableName("emp").fieldName(field).feedFieldName(field).build();
+    }
+
+    private static class CustomValidator implements com.thinkbiganalytics.policy.validation.ValidationPolicy<String> {
+
+        @Override
+        public boolean validate(String value) {
+            return value != null && value.startsWith("a");
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.thinkbiganalytics.metadata.api.sla;
+
+/*-
+ * #%L
+ * thinkbig-metadata-api
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.metadata.sla.api.Metric;
+
+import java.util.Date;
+
+/**
+ * A metric whose assessment can change as time passes without any feed activity, such as a feed that must complete by a deadline.
+ */
+public interface DeadlineMetric extends Metric {
+
+    /**
+     * Return the next time after the given time at which the assessment of this metric may change
+     *
+     * @param after the time to start from
+     * @return the next deadline, or null if there is none
+     */
+    Date getNextDeadline(Date after);
+}
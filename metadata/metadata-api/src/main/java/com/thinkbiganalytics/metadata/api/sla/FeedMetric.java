@@ -0,0 +1,34 @@
+package com.thinkbiganalytics.metadata.api.sla;
+
+/*-
+ * #%L
+ * thinkbig-metadata-api
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.metadata.sla.api.Metric;
+
+/**
+ * A metric whose assessment depends on the jobs of a single feed.  Agreements containing these metrics can be re-assessed when a job for the feed completes rather than on a schedule.
+ */
+public interface FeedMetric extends Metric {
+
+    /**
+     * @return the name of the feed, as {@code <category>.<feed>}
+     */
+    String getFeedName();
+}
@@ -20,7 +20,7 @@ package com.thinkbiganalytics.metadata.sla.api.core;
  * #L%
  */
 
-import com.thinkbiganalytics.metadata.sla.api.Metric;
+import com.thinkbiganalytics.metadata.api.sla.FeedMetric;
 import com.thinkbiganalytics.metadata.sla.api.ServiceLevelAgreementMetric;
 import com.thinkbiganalytics.policy.PolicyProperty;
 import com.thinkbiganalytics.policy.PolicyPropertyTypes;
@@ -31,7 +31,7 @@ import com.thinkbiganalytics.policy.PolicyPropertyTypes;
  */
 @ServiceLevelAgreementMetric(name = "Feed Failure Notification",
                              description = "Act upon a Feed Failure")
-public class FeedFailedMetric implements Metric {
+public class FeedFailedMetric implements FeedMetric {
 
     @PolicyProperty(name = "FeedName",
                     type = PolicyPropertyTypes.PROPERTY_TYPE.feedSelect,
@@ -47,6 +47,7 @@ public class FeedFailedMetric implements Metric {
         return bldr.toString();
     }
 
+    @Override
     public String getFeedName() {
         return feedName;
     }
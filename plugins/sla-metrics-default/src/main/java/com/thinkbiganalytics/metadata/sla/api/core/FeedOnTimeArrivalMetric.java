@@ -31,18 +31,22 @@ import com.cronutils.model.definition.CronDefinitionBuilder;
 import com.cronutils.parser.CronParser;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.google.common.base.MoreObjects;
-import com.thinkbiganalytics.metadata.sla.api.Metric;
+import com.thinkbiganalytics.metadata.api.sla.DeadlineMetric;
+import com.thinkbiganalytics.metadata.api.sla.FeedMetric;
 import com.thinkbiganalytics.metadata.sla.api.ServiceLevelAgreementMetric;
 import com.thinkbiganalytics.policy.PolicyProperty;
 import com.thinkbiganalytics.policy.PolicyPropertyRef;
 import com.thinkbiganalytics.policy.PolicyPropertyTypes;
 import com.thinkbiganalytics.policy.PropertyLabelValue;
+import com.thinkbiganalytics.scheduler.util.CronExpressionUtil;
 import com.thinkbiganalytics.scheduler.util.TimerToCronExpression;
 
+import org.joda.time.DateTime;
 import org.joda.time.Period;
 import org.quartz.CronExpression;
 
 import java.text.ParseException;
+import java.util.Date;
 import java.util.Locale;
 
 /**
@@ -51,7 +55,7 @@ import java.util.Locale;
  */
 @ServiceLevelAgreementMetric(name = "Feed Processing deadline",
                              description = "Ensure a Feed processes data by a specified time")
-public class FeedOnTimeArrivalMetric implements Metric {
+public class FeedOnTimeArrivalMetric implements FeedMetric, DeadlineMetric {
 
     @PolicyProperty(name = "FeedName",
                     type = PolicyPropertyTypes.PROPERTY_TYPE.feedSelect,
@@ -147,6 +151,7 @@ public class FeedOnTimeArrivalMetric implements Metric {
             .toString();
     }
 
+    @Override
     public String getFeedName() {
         return feedName;
     }
@@ -178,6 +183,26 @@ public class FeedOnTimeArrivalMetric implements Metric {
         this.latePeriod = latePeriod;
     }
 
+    /**
+     * The assessment changes once the late period has passed after an expected delivery time, so the next deadline is the first late time after the given time.
+     */
+    @Override
+    public Date getNextDeadline(Date after) {
+        CronExpression expression = getExpectedExpression();
+        if (expression == null || this.latePeriod == null) {
+            return null;
+        }
+        Date expected = CronExpressionUtil.getPreviousFireTime(after, expression);
+        while (expected != null) {
+            Date lateTime = new DateTime(expected).plus(this.latePeriod).toDate();
+            if (lateTime.after(after)) {
+                return lateTime;
+            }
+            expected = expression.getNextValidTimeAfter(expected);
+        }
+        return null;
+    }
+
     private String generateCronDescription(String cronExp) {
         CronDefinition quartzDef = CronDefinitionBuilder.instanceDefinitionFor(CronType.QUARTZ);
         CronParser parser = new CronParser(quartzDef);
@@ -0,0 +1,48 @@
+package com.thinkbiganalytics.metadata.sla.spi.core;
+
+/*-
+ * #%L
+ * thinkbig-sla-metrics-default
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.metadata.sla.api.core.FeedOnTimeArrivalMetric;
+
+import org.joda.time.DateTime;
+import org.joda.time.Period;
+import org.junit.Assert;
+import org.junit.Test;
+import org.quartz.CronExpression;
+
+import java.text.ParseException;
+
+public class FeedOnTimeArrivalMetricTest {
+
+    @Test
+    public void testNextDeadline() throws ParseException {
+        FeedOnTimeArrivalMetric metric = new FeedOnTimeArrivalMetric("category.feed", new CronExpression("0 0 12 1/1 * ? *"), Period.hours(2));
+
+        //between the expected time and the late time
+        Assert.assertEquals(new DateTime(2017, 5, 10, 14, 0).toDate(), metric.getNextDeadline(new DateTime(2017, 5, 10, 13, 0).toDate()));
+
+        //before the expected time
+        Assert.assertEquals(new DateTime(2017, 5, 10, 14, 0).toDate(), metric.getNextDeadline(new DateTime(2017, 5, 10, 11, 0).toDate()));
+
+        //after the late time
+        Assert.assertEquals(new DateTime(2017, 5, 11, 14, 0).toDate(), metric.getNextDeadline(new DateTime(2017, 5, 10, 15, 0).toDate()));
+    }
+}
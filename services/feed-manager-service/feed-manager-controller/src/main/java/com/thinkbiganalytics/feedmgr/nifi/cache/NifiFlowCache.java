@@ -166,6 +166,12 @@ public class NifiFlowCache implements NifiConnectionListener, PostMetadataConfig
 
     private DateTime lastUpdated = null;
 
+    /**
+     * Versioned log of the changes made to the cache.
+     * Each sync keeps only the version it last received and is sent the tail of this log rather than diffing a full copy of the cache
+     */
+    private final NifiFlowCacheChangeLog changeLog = new NifiFlowCacheChangeLog();
+
     @PostConstruct
     private void init() {
         nifiConnectionService.subscribeConnectionListener(this);
@@ -263,13 +269,20 @@ public class NifiFlowCache implements NifiConnectionListener, PostMetadataConfig
 
     /**
      * Return the data in the cache for a given cache id
+     * Syncs only track their change log version, so this returns the full cache as of now along with the sync information
      *
      * @param syncId a cache id
      * @return the data in the cache for a given cache id
      */
     public NiFiFlowCacheSync getCache(String syncId) {
         NiFiFlowCacheSync sync = getSync(syncId);
-        return sync;
+        if (sync.isUnavailable()) {
+            return sync;
+        }
+        NiFiFlowCacheSync cache = new NiFiFlowCacheSync(sync.getSyncId(), fullSnapshot());
+        cache.setLastSync(sync.getLastSync());
+        cache.setVersion(sync.getVersion());
+        return cache;
     }
 
     /**
@@ -320,6 +333,8 @@ public class NifiFlowCache implements NifiConnectionListener, PostMetadataConfig
             }
         });
         lastUpdated = DateTime.now();
+        //all existing syncs need the rebuilt cache in full
+        changeLog.reset();
         loaded = true;
 
 
@@ -446,58 +461,68 @@ public class NifiFlowCache implements NifiConnectionListener, PostMetadataConfig
             applyClusterUpdates();
         }
 
-
-        if (sync.needsUpdate(lastUpdated)) {
-            Map<String, String> processorIdToFeedNameMapCopy = ImmutableMap.copyOf(processorIdToFeedNameMap);
-            Map<String, String> processorIdToFeedProcessGroupIdCopy = ImmutableMap.copyOf(processorIdToFeedProcessGroupId);
-            Map<String, String> processorIdToProcessorNameCopy = ImmutableMap.copyOf(processorIdToProcessorName);
-            Set<String> streamingFeedsCopy = ImmutableSet.copyOf(streamingFeeds);
-            Set<String> allFeedsCopy = ImmutableSet.copyOf(allFeeds);
-            Map<String, NiFiFlowCacheConnectionData> connectionDataMapCopy = ImmutableMap.copyOf(connectionIdToConnectionMap);
-
-            //get feeds updated since last sync
-            NifiFlowCacheSnapshot latest = new NifiFlowCacheSnapshot.Builder()
-                .withProcessorIdToFeedNameMap(processorIdToFeedNameMapCopy)
-                .withProcessorIdToFeedProcessGroupId(processorIdToFeedProcessGroupIdCopy)
-                .withProcessorIdToProcessorName(processorIdToProcessorNameCopy)
-                .withStreamingFeeds(streamingFeedsCopy)
-                .withFeeds(allFeedsCopy)
-                .withConnections(connectionDataMapCopy)
-                .withSnapshotDate(lastUpdated).build();
-            return syncAndReturnUpdates(sync, latest, preview);
-        } else {
+        Long cursor = sync.getVersion();
+        if (cursor != null && cursor == changeLog.getVersion()) {
             return NiFiFlowCacheSync.EMPTY(sync.getSyncId());
         }
-    }
-
-
-    private NiFiFlowCacheSync syncAndReturnUpdates(NiFiFlowCacheSync sync, NifiFlowCacheSnapshot latest, boolean preview) {
-        if (latest != null && sync.needsUpdate(latest.getSnapshotDate())) {
 
-            NifiFlowCacheSnapshot updated = new NifiFlowCacheSnapshot.Builder()
-                .withProcessorIdToFeedNameMap(sync.getProcessorIdToFeedNameMapUpdatedSinceLastSync(latest.getProcessorIdToFeedNameMap()))
-                .withProcessorIdToFeedProcessGroupId(sync.getProcessorIdToProcessGroupIdUpdatedSinceLastSync(latest.getProcessorIdToFeedProcessGroupId()))
-                .withProcessorIdToProcessorName(sync.getProcessorIdToProcessorNameUpdatedSinceLastSync(latest.getProcessorIdToProcessorName()))
-                .withStreamingFeeds(latest.getAllStreamingFeeds())
-                .withConnections(sync.getConnectionIdToConnectionUpdatedSinceLastSync(latest.getConnectionIdToConnectionName(), latest.getConnectionIdToConnection()))
-                .withFeeds(sync.getFeedsUpdatedSinceLastSync(latest.getAllFeeds()))
+        Optional<NifiFlowCacheChangeLog.Changes> changes = cursor != null ? changeLog.changesSince(cursor) : Optional.empty();
+        long version;
+        NifiFlowCacheSnapshot updated;
+        if (changes.isPresent()) {
+            version = changes.get().getVersion();
+            updated = new NifiFlowCacheSnapshot.Builder()
+                .withProcessorIdToFeedNameMap(changes.get().getProcessorIdToFeedName())
+                .withProcessorIdToFeedProcessGroupId(changes.get().getProcessorIdToProcessGroupId())
+                .withProcessorIdToProcessorName(changes.get().getProcessorIdToProcessorName())
+                .withStreamingFeeds(ImmutableSet.copyOf(streamingFeeds))
+                .withConnections(changes.get().getConnections())
+                .withFeeds(changes.get().getFeeds())
                 .build();
-            //reset the pointers on this sync to be the latest
-            if (!preview) {
-                sync.setSnapshot(latest);
-                sync.setLastSync(latest.getSnapshotDate());
-
-            }
-            NiFiFlowCacheSync updatedSync = new NiFiFlowCacheSync(sync.getSyncId(), updated);
-            updatedSync.setUpdated(true);
-            if (!preview) {
-                updatedSync.setLastSync(latest.getSnapshotDate());
-            }
-            return updatedSync;
+        } else {
+            //a new sync, or one that has fallen off the change log.  Send the full cache.
+            //read the version before copying so any change made during the copy is sent again on the next sync
+            version = changeLog.getVersion();
+            updated = fullSnapshot();
+        }
+        DateTime snapshotDate = lastUpdated;
 
+        //move the cursor on this sync to the latest
+        if (!preview) {
+            sync.setVersion(version);
+            sync.setLastSync(snapshotDate);
         }
+        NiFiFlowCacheSync updatedSync = new NiFiFlowCacheSync(sync.getSyncId(), updated);
+        updatedSync.setUpdated(true);
+        if (!preview) {
+            updatedSync.setLastSync(snapshotDate);
+        }
+        return updatedSync;
+    }
+
+    /**
+     * @return a copy of the entire cache
+     */
+    private NifiFlowCacheSnapshot fullSnapshot() {
+        return new NifiFlowCacheSnapshot.Builder()
+            .withProcessorIdToFeedNameMap(ImmutableMap.copyOf(processorIdToFeedNameMap))
+            .withProcessorIdToFeedProcessGroupId(ImmutableMap.copyOf(processorIdToFeedProcessGroupId))
+            .withProcessorIdToProcessorName(ImmutableMap.copyOf(processorIdToProcessorName))
+            .withStreamingFeeds(ImmutableSet.copyOf(streamingFeeds))
+            .withFeeds(ImmutableSet.copyOf(allFeeds))
+            .withConnections(ImmutableMap.copyOf(connectionIdToConnectionMap))
+            .withSnapshotDate(lastUpdated).build();
+    }
 
-        return NiFiFlowCacheSync.EMPTY(sync.getSyncId());
+    /**
+     * Record a change in the change log.
+     * Changes made while the cache is being rebuilt are not recorded since the rebuild resets the log
+     */
+    private void recordChange(Map<String, String> processorIdToFeedName, Map<String, String> processorIdToProcessGroupId, Map<String, String> processorIdToProcessorName,
+                              Map<String, NiFiFlowCacheConnectionData> connections, Set<String> feeds) {
+        if (loaded) {
+            changeLog.append(processorIdToFeedName, processorIdToProcessGroupId, processorIdToProcessorName, connections, feeds);
+        }
     }
 
 
@@ -622,6 +647,8 @@ public class NifiFlowCache implements NifiConnectionListener, PostMetadataConfig
         } else {
             streamingFeeds.removeAll(feedNames);
         }
+        //the streaming feeds are sent in full with each update, so only the version needs to move
+        recordChange(null, null, null, null, null);
         if(notifyClusterMembers) {
             //mark the persistent table that this was updated
             if(nifiFlowCacheClusterManager.isClustered()) {
@@ -664,6 +691,7 @@ public class NifiFlowCache implements NifiConnectionListener, PostMetadataConfig
         });
 
         this.processorIdToProcessorName.putAll(processorIdToProcessorName);
+        recordChange(null, null, processorIdToProcessorName, null, null);
 
         if(notifyClusterMembers) {
             if(nifiFlowCacheClusterManager.isClustered()) {
@@ -694,7 +722,9 @@ public class NifiFlowCache implements NifiConnectionListener, PostMetadataConfig
 
             });
         }
-        this.connectionIdToConnectionMap.putAll(toConnectionIdMap(connectionIdToConnectionMap.values()));
+        Map<String, NiFiFlowCacheConnectionData> connectionData = toConnectionIdMap(connectionIdToConnectionMap.values());
+        this.connectionIdToConnectionMap.putAll(connectionData);
+        recordChange(null, null, null, connectionData, null);
 
         if(notifyClusterMembers) {
             if(nifiFlowCacheClusterManager.isClustered()) {
@@ -753,7 +783,8 @@ public class NifiFlowCache implements NifiConnectionListener, PostMetadataConfig
         this.processorIdToFeedProcessGroupId.putAll(processorIdToProcessGroupId);
         this.processorIdToProcessorName.putAll(processorIdToProcessorName);
 
-        connectionIdToConnectionMap.putAll(toConnectionIdMap(connections));
+        Map<String, NiFiFlowCacheConnectionData> connectionData = toConnectionIdMap(connections);
+        connectionIdToConnectionMap.putAll(connectionData);
 
         if (connections != null) {
             Map<String, String> connectionIdToNameMap = connections.stream().collect(Collectors.toMap(conn -> conn.getConnectionIdentifier(), conn -> conn.getName()));
@@ -761,12 +792,14 @@ public class NifiFlowCache implements NifiConnectionListener, PostMetadataConfig
         }
 
         processorIdMap.putAll(toProcessorIdMap(processors));
-        processorIdToFeedNameMap.putAll(toProcessorIdFeedNameMap(processors, feedName));
+        Map<String, String> processorIdToFeedName = toProcessorIdFeedNameMap(processors, feedName);
+        processorIdToFeedNameMap.putAll(processorIdToFeedName);
 
         if (isStream) {
             streamingFeeds.add(feedName);
         }
         allFeeds.add(feedName);
+        recordChange(processorIdToFeedName, processorIdToProcessGroupId, processorIdToProcessorName, connectionData, Collections.singleton(feedName));
 
         Long lastUpdatedTime = DateTimeUtil.getNowUTCTime().getMillis();
 
@@ -827,7 +860,7 @@ public class NifiFlowCache implements NifiConnectionListener, PostMetadataConfig
     }
 
     public CacheSummary cacheSummary() {
-        return CacheSummary.build(syncMap);
+        return CacheSummary.build(syncMap, processorIdToFeedNameMap.size());
     }
 
     private void initExpireTimerThread() {
@@ -858,6 +891,14 @@ public class NifiFlowCache implements NifiConnectionListener, PostMetadataConfig
             });
             itemsRemoved.stream().forEach(item -> lastSyncTimeMap.remove(item));
 
+            //drop the change log entries every active sync has already received
+            long minimumCursor = syncMap.values().stream()
+                .map(NiFiFlowCacheSync::getVersion)
+                .filter(version -> version != null)
+                .mapToLong(Long::longValue)
+                .min().orElse(changeLog.getVersion());
+            changeLog.truncate(minimumCursor);
+
         } catch (Exception e) {
             log.error("Error attempting to invalidate flow cache for items not touched in {} or more minutes", minutes, e);
         }
@@ -877,11 +918,12 @@ public class NifiFlowCache implements NifiConnectionListener, PostMetadataConfig
             this.cachedSyncIds = cacheIds.keySet().size();
         }
 
-        public static CacheSummary build(Map<String, NiFiFlowCacheSync> syncMap) {
+        public static CacheSummary build(Map<String, NiFiFlowCacheSync> syncMap, int processorCount) {
+            //syncs only hold a change log version, a sync that has received updates has the processors in the cache
             Map<String, Integer>
                 cacheIds =
                 syncMap.entrySet().stream().collect(Collectors.toMap(stringNiFiFlowCacheSyncEntry -> stringNiFiFlowCacheSyncEntry.getKey(),
-                                                                     stringNiFiFlowCacheSyncEntry1 -> stringNiFiFlowCacheSyncEntry1.getValue().getSnapshot().getProcessorIdToFeedNameMap().size()));
+                                                                     stringNiFiFlowCacheSyncEntry1 -> stringNiFiFlowCacheSyncEntry1.getValue().getVersion() != null ? processorCount : 0));
             return new CacheSummary(cacheIds);
         }
 
@@ -0,0 +1,231 @@
+package com.thinkbiganalytics.feedmgr.nifi.cache;
+
+/*-
+ * #%L
+ * thinkbig-feed-manager-controller
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.metadata.rest.model.nifi.NiFiFlowCacheConnectionData;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Versioned log of the mutations applied to the {@link NifiFlowCache}.
+ *
+ * Each mutation is appended as an entry with a monotonically increasing version.  A sync only needs to remember the version it last received and is sent the merged tail of the log after
+ * that version.  Since all mutations are puts, replaying an entry twice is harmless, which allows the oldest entries to be compacted into a single entry when the log grows too large.
+ * Cursors older than the {@link #getBaseVersion() base version} have fallen off the log and need a full snapshot of the cache.
+ */
+public class NifiFlowCacheChangeLog {
+
+    public static final int DEFAULT_MAX_ENTRIES = 500;
+
+    private final int maxEntries;
+
+    private final Deque<Changes> entries = new ArrayDeque<>();
+
+    /**
+     * The latest version in the log
+     */
+    private long version = 0L;
+
+    /**
+     * The oldest cursor that can still be served from the log
+     */
+    private long baseVersion = 0L;
+
+    public NifiFlowCacheChangeLog() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    public NifiFlowCacheChangeLog(int maxEntries) {
+        this.maxEntries = Math.max(2, maxEntries);
+    }
+
+    /**
+     * Append a mutation to the log
+     *
+     * @param processorIdToFeedName       processor id to feed name entries that were put
+     * @param processorIdToProcessGroupId processor id to feed process group id entries that were put
+     * @param processorIdToProcessorName  processor id to processor name entries that were put
+     * @param connections                 connections that were put
+     * @param feeds                       feeds that were added
+     * @return the new version of the log
+     */
+    public synchronized long append(Map<String, String> processorIdToFeedName, Map<String, String> processorIdToProcessGroupId, Map<String, String> processorIdToProcessorName,
+                                    Map<String, NiFiFlowCacheConnectionData> connections, Set<String> feeds) {
+        Changes entry = new Changes(++version);
+        entry.putAll(processorIdToFeedName, processorIdToProcessGroupId, processorIdToProcessorName, connections, feeds);
+        entries.addLast(entry);
+        if (entries.size() > maxEntries) {
+            //a cursor inside the compacted range will receive a few entries it already has which is harmless
+            compactOldest(entries.size() / 2);
+        }
+        return version;
+    }
+
+    /**
+     * Merge all the entries after the supplied cursor.
+     *
+     * @param cursor the version a sync last received
+     * @return the changes after the cursor, or empty if the cursor has fallen off the log and a full snapshot is needed
+     */
+    public synchronized Optional<Changes> changesSince(long cursor) {
+        if (cursor < baseVersion || cursor > version) {
+            return Optional.empty();
+        }
+        Changes changes = new Changes(version);
+        Iterator<Changes> iterator = entries.descendingIterator();
+        Deque<Changes> tail = new ArrayDeque<>();
+        while (iterator.hasNext()) {
+            Changes entry = iterator.next();
+            if (entry.version <= cursor) {
+                break;
+            }
+            tail.addFirst(entry);
+        }
+        tail.forEach(entry -> changes.putAll(entry.processorIdToFeedName, entry.processorIdToProcessGroupId, entry.processorIdToProcessorName, entry.connections, entry.feeds));
+        return Optional.of(changes);
+    }
+
+    /**
+     * Drop all entries.  Every existing cursor falls off the log and will receive a full snapshot on its next sync.
+     *
+     * @return the new version of the log
+     */
+    public synchronized long reset() {
+        entries.clear();
+        baseVersion = ++version;
+        return version;
+    }
+
+    /**
+     * Drop the entries that every active sync has already received
+     *
+     * @param minimumCursor the oldest cursor held by an active sync, or {@link #getVersion()} if there are none
+     */
+    public synchronized void truncate(long minimumCursor) {
+        long cursor = Math.min(minimumCursor, version);
+        while (!entries.isEmpty() && entries.peekFirst().version <= cursor) {
+            entries.removeFirst();
+        }
+        baseVersion = Math.max(baseVersion, cursor);
+    }
+
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    public synchronized long getBaseVersion() {
+        return baseVersion;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Merge the oldest entries into one entry carrying the version of the newest merged entry
+     */
+    private void compactOldest(int count) {
+        if (count < 2) {
+            return;
+        }
+        Changes compacted = null;
+        for (int i = 0; i < count; i++) {
+            Changes entry = entries.removeFirst();
+            if (compacted == null) {
+                compacted = entry;
+            } else {
+                compacted.putAll(entry.processorIdToFeedName, entry.processorIdToProcessGroupId, entry.processorIdToProcessorName, entry.connections, entry.feeds);
+                compacted.version = entry.version;
+            }
+        }
+        entries.addFirst(compacted);
+    }
+
+    /**
+     * The merged changes since a given cursor
+     */
+    public static class Changes {
+
+        private long version;
+        final Map<String, String> processorIdToFeedName = new HashMap<>();
+        final Map<String, String> processorIdToProcessGroupId = new HashMap<>();
+        final Map<String, String> processorIdToProcessorName = new HashMap<>();
+        final Map<String, NiFiFlowCacheConnectionData> connections = new HashMap<>();
+        final Set<String> feeds = new HashSet<>();
+
+        Changes(long version) {
+            this.version = version;
+        }
+
+        void putAll(Map<String, String> processorIdToFeedName, Map<String, String> processorIdToProcessGroupId, Map<String, String> processorIdToProcessorName,
+                    Map<String, NiFiFlowCacheConnectionData> connections, Set<String> feeds) {
+            if (processorIdToFeedName != null) {
+                this.processorIdToFeedName.putAll(processorIdToFeedName);
+            }
+            if (processorIdToProcessGroupId != null) {
+                this.processorIdToProcessGroupId.putAll(processorIdToProcessGroupId);
+            }
+            if (processorIdToProcessorName != null) {
+                this.processorIdToProcessorName.putAll(processorIdToProcessorName);
+            }
+            if (connections != null) {
+                this.connections.putAll(connections);
+            }
+            if (feeds != null) {
+                this.feeds.addAll(feeds);
+            }
+        }
+
+        /**
+         * @return the version of the log these changes bring a sync up to
+         */
+        public long getVersion() {
+            return version;
+        }
+
+        public Map<String, String> getProcessorIdToFeedName() {
+            return processorIdToFeedName;
+        }
+
+        public Map<String, String> getProcessorIdToProcessGroupId() {
+            return processorIdToProcessGroupId;
+        }
+
+        public Map<String, String> getProcessorIdToProcessorName() {
+            return processorIdToProcessorName;
+        }
+
+        public Map<String, NiFiFlowCacheConnectionData> getConnections() {
+            return connections;
+        }
+
+        public Set<String> getFeeds() {
+            return feeds;
+        }
+    }
+}
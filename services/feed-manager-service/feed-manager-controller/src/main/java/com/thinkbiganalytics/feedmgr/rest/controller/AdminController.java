@@ -32,7 +32,6 @@ import com.thinkbiganalytics.feedmgr.service.MetadataService;
 import com.thinkbiganalytics.feedmgr.service.UploadProgressService;
 import com.thinkbiganalytics.feedmgr.service.feed.ExportImportFeedService;
 import com.thinkbiganalytics.feedmgr.service.template.ExportImportTemplateService;
-import com.thinkbiganalytics.feedmgr.util.ImportUtil;
 import com.thinkbiganalytics.json.ObjectMapperSerializer;
 import com.thinkbiganalytics.rest.model.RestResponseStatus;
 
@@ -58,6 +57,7 @@ import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
@@ -108,7 +108,7 @@ public class AdminController {
     public Response exportTemplate(@NotNull @Size(min = 36, max = 36, message = "Invalid templateId size")
                                    @PathParam("templateId") String templateId) {
         ExportImportTemplateService.ExportTemplate zipFile = exportImportTemplateService.exportTemplate(templateId);
-        return Response.ok(zipFile.getFile(), MediaType.APPLICATION_OCTET_STREAM)
+        return Response.ok((StreamingOutput) zipFile::write, MediaType.APPLICATION_OCTET_STREAM)
             .header("Content-Disposition", "attachments; filename=\"" + zipFile.getFileName() + "\"") //optional
             .build();
     }
@@ -126,7 +126,7 @@ public class AdminController {
                                @PathParam("feedId") String feedId) {
         try {
             ExportImportFeedService.ExportFeed zipFile = exportImportFeedService.exportFeed(feedId);
-            return Response.ok(zipFile.getFile(), MediaType.APPLICATION_OCTET_STREAM)
+            return Response.ok((StreamingOutput) zipFile::write, MediaType.APPLICATION_OCTET_STREAM)
                 .header("Content-Disposition", "attachments; filename=\"" + zipFile.getFileName() + "\"") //optional
                 .build();
         } catch (IOException e) {
@@ -208,8 +208,7 @@ public class AdminController {
             options.findImportComponentOption(ImportComponent.FEED_DATA).setProperties(properties);
         }
 
-        byte[] content = ImportUtil.streamToByteArray(fileInputStream);
-        ExportImportFeedService.ImportFeed importFeed = exportImportFeedService.importFeed(fileMetaData.getFileName(), content, options);
+        ExportImportFeedService.ImportFeed importFeed = exportImportFeedService.importFeed(fileMetaData.getFileName(), fileInputStream, options);
 
         return Response.ok(importFeed).build();
     }
@@ -266,8 +265,7 @@ public class AdminController {
             options.findImportComponentOption(ImportComponent.TEMPLATE_DATA).setProperties(properties);
         }
 
-        byte[] content = ImportUtil.streamToByteArray(fileInputStream);
-        ExportImportTemplateService.ImportTemplate importTemplate = exportImportTemplateService.importTemplate(fileMetaData.getFileName(), content, options);
+        ExportImportTemplateService.ImportTemplate importTemplate = exportImportTemplateService.importTemplate(fileMetaData.getFileName(), fileInputStream, options);
 
         return Response.ok(importTemplate).build();
     }
@@ -29,7 +29,6 @@ import com.thinkbiganalytics.feedmgr.service.MetadataService;
 import com.thinkbiganalytics.feedmgr.service.UploadProgressService;
 import com.thinkbiganalytics.feedmgr.service.feed.ExportImportFeedService;
 import com.thinkbiganalytics.feedmgr.service.template.ExportImportTemplateService;
-import com.thinkbiganalytics.feedmgr.util.ImportUtil;
 import com.thinkbiganalytics.json.ObjectMapperSerializer;
 import com.thinkbiganalytics.rest.model.RestResponseStatus;
 
@@ -131,14 +130,12 @@ public class AdminControllerV2 {
         uploadProgressService.newUpload(uploadKey);
 
         if (importComponents == null) {
-            byte[] content = ImportUtil.streamToByteArray(fileInputStream);
-            importFeed = exportImportFeedService.validateFeedForImport(fileMetaData.getFileName(), content, options);
+            importFeed = exportImportFeedService.validateFeedForImport(fileMetaData.getFileName(), fileInputStream, options);
             importFeed.setSuccess(false);
         } else {
             options.setImportComponentOptions(ObjectMapperSerializer.deserialize(importComponents, new TypeReference<Set<ImportComponentOption>>() {
             }));
-            byte[] content = ImportUtil.streamToByteArray(fileInputStream);
-            importFeed = exportImportFeedService.importFeed(fileMetaData.getFileName(), content, options);
+            importFeed = exportImportFeedService.importFeed(fileMetaData.getFileName(), fileInputStream, options);
         }
         uploadProgressService.removeUpload(uploadKey);
         return Response.ok(importFeed).build();
@@ -161,17 +158,15 @@ public class AdminControllerV2 {
         ImportTemplateOptions options = new ImportTemplateOptions();
         options.setUploadKey(uploadKey);
         ExportImportTemplateService.ImportTemplate importTemplate = null;
-        byte[] content = ImportUtil.streamToByteArray(fileInputStream);
-
         uploadProgressService.newUpload(uploadKey);
 
         if (importComponents == null) {
-            importTemplate = exportImportTemplateService.validateTemplateForImport(fileMetaData.getFileName(), content, options);
+            importTemplate = exportImportTemplateService.validateTemplateForImport(fileMetaData.getFileName(), fileInputStream, options);
             importTemplate.setSuccess(false);
         } else {
             options.setImportComponentOptions(ObjectMapperSerializer.deserialize(importComponents, new TypeReference<Set<ImportComponentOption>>() {
             }));
-            importTemplate = exportImportTemplateService.importTemplate(fileMetaData.getFileName(), content, options);
+            importTemplate = exportImportTemplateService.importTemplate(fileMetaData.getFileName(), fileInputStream, options);
         }
         return Response.ok(importTemplate).build();
     }
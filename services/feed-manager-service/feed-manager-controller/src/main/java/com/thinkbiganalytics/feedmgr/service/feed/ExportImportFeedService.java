@@ -45,6 +45,7 @@ import com.thinkbiganalytics.feedmgr.service.UploadProgressService;
 import com.thinkbiganalytics.feedmgr.service.datasource.DatasourceModelTransform;
 import com.thinkbiganalytics.feedmgr.service.template.ExportImportTemplateService;
 import com.thinkbiganalytics.feedmgr.service.template.RegisteredTemplateService;
+import com.thinkbiganalytics.feedmgr.support.ZipArchive;
 import com.thinkbiganalytics.feedmgr.support.ZipFileUtil;
 import com.thinkbiganalytics.feedmgr.util.ImportUtil;
 import com.thinkbiganalytics.json.ObjectMapperSerializer;
@@ -69,15 +70,16 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
 
 import javax.annotation.Nonnull;
 import javax.inject.Inject;
@@ -166,8 +168,7 @@ public class ExportImportFeedService {
         final ExportImportTemplateService.ExportTemplate exportTemplate = exportImportTemplateService.exportTemplate(feed.getTemplateId());
         final String feedJson = ObjectMapperSerializer.serialize(feed);
 
-        final byte[] zipFile = ZipFileUtil.addToZip(exportTemplate.getFile(), feedJson, FEED_JSON_FILE);
-        return new ExportFeed(feed.getSystemFeedName() + ".feed.zip", zipFile);
+        return new ExportFeed(feed.getSystemFeedName() + ".feed.zip", exportTemplate, feedJson);
     }
 
     //Validate
@@ -181,10 +182,29 @@ public class ExportImportFeedService {
      * @return the feed data to import
      */
     public ImportFeed validateFeedForImport(final String fileName, byte[] content, ImportFeedOptions options) throws IOException {
+        return validateFeedForImport(fileName, new ByteArrayInputStream(content), options);
+    }
+
+    /**
+     * Validate a feed for importing.  The feed zip file is spooled to a temporary file while it is validated.
+     *
+     * @param fileName the name of the file to import
+     * @param content  the contents of the feed zip file
+     * @param options  user options about what/how it should be imported
+     * @return the feed data to import
+     */
+    public ImportFeed validateFeedForImport(final String fileName, InputStream content, ImportFeedOptions options) throws IOException {
+        this.accessController.checkPermission(AccessController.SERVICES, FeedServicesAccessControl.IMPORT_FEEDS);
+        try (ZipArchive archive = ZipArchive.open(content)) {
+            return validateFeedForImport(fileName, archive, options);
+        }
+    }
+
+    private ImportFeed validateFeedForImport(final String fileName, ZipArchive archive, ImportFeedOptions options) throws IOException {
         this.accessController.checkPermission(AccessController.SERVICES, FeedServicesAccessControl.IMPORT_FEEDS);
         ImportFeed importFeed = null;
         UploadProgressMessage feedImportStatusMessage = uploadProgressService.addUploadStatus(options.getUploadKey(), "Validating Feed import.");
-        boolean isValid = ZipFileUtil.validateZipEntriesWithRequiredEntries(content, getValidZipFileEntries(), Sets.newHashSet(FEED_JSON_FILE));
+        boolean isValid = ZipFileUtil.validateFileNames(archive.getEntryNames(), getValidZipFileEntries(), Sets.newHashSet(FEED_JSON_FILE), false);
         if (!isValid) {
             feedImportStatusMessage.update("Validation error. Feed import error. The zip file you uploaded is not valid feed export.", false);
             throw new ImportFeedException("The zip file you uploaded is not valid feed export.");
@@ -192,11 +212,11 @@ public class ExportImportFeedService {
 
         try {
             //get the Feed Data
-            importFeed = readFeedJson(fileName, content);
+            importFeed = readFeedJson(fileName, archive);
             //initially mark as valid.
             importFeed.setValid(true);
             //merge in the file components to the user options
-            Set<ImportComponentOption> componentOptions = ImportUtil.inspectZipComponents(content, ImportType.FEED);
+            Set<ImportComponentOption> componentOptions = ImportUtil.inspectZipComponents(archive.getEntryNames(), ImportType.FEED);
             options.addOptionsIfNotExists(componentOptions);
             importFeed.setImportOptions(options);
 
@@ -235,7 +255,7 @@ public class ExportImportFeedService {
             }
 
             //UploadProgressMessage statusMessage = uploadProgressService.addUploadStatus(options.getUploadKey(),"Validating the template data");
-            ExportImportTemplateService.ImportTemplate importTemplate = exportImportTemplateService.validateTemplateForImport(importFeed.getFileName(), content, options);
+            ExportImportTemplateService.ImportTemplate importTemplate = exportImportTemplateService.validateTemplateForImport(importFeed.getFileName(), archive, options);
             // need to set the importOptions back to the feed options
             //find importOptions for the Template and add them back to the set of options
             //importFeed.getImportOptions().updateOptions(importTemplate.getImportOptions().getImportComponentOptions());
@@ -458,11 +478,26 @@ public class ExportImportFeedService {
      * @return the feed data to import
      */
     public ImportFeed importFeed(String fileName, byte[] content, ImportFeedOptions importOptions) throws Exception {
+        return importFeed(fileName, new ByteArrayInputStream(content), importOptions);
+    }
+
+    /**
+     * Import a feed zip file.  The zip file is spooled to a temporary file while it is validated.
+     *
+     * @param fileName      the name of the file
+     * @param content       the file content
+     * @param importOptions user options about what/how it should be imported
+     * @return the feed data to import
+     */
+    public ImportFeed importFeed(String fileName, InputStream content, ImportFeedOptions importOptions) throws Exception {
         this.accessController.checkPermission(AccessController.SERVICES, FeedServicesAccessControl.IMPORT_FEEDS);
         UploadProgress progress = uploadProgressService.getUploadStatus(importOptions.getUploadKey());
         progress.setSections(ImportSection.sectionsForImportAsString(ImportType.FEED));
 
-        ImportFeed feed = validateFeedForImport(fileName, content, importOptions);
+        ImportFeed feed;
+        try (ZipArchive archive = ZipArchive.open(content)) {
+            feed = validateFeedForImport(fileName, archive, importOptions);
+        }
 
         if (feed.isValid()) {
             //read the JSON into the Feed object
@@ -566,20 +601,11 @@ public class ExportImportFeedService {
         progress.completeSection(section.name());
     }
 
-    private ImportFeed readFeedJson(String fileName, byte[] content) throws IOException {
-
-        byte[] buffer = new byte[1024];
-        InputStream inputStream = new ByteArrayInputStream(content);
-        ZipInputStream zis = new ZipInputStream(inputStream);
-        ZipEntry zipEntry;
-        // while there are entries I process them
+    private ImportFeed readFeedJson(String fileName, ZipArchive archive) throws IOException {
         ImportFeed importFeed = new ImportFeed(fileName);
-
-        while ((zipEntry = zis.getNextEntry()) != null) {
-
-            if (zipEntry.getName().startsWith(FEED_JSON_FILE)) {
-                String zipEntryContents = ZipFileUtil.zipEntryToString(buffer, zis, zipEntry);
-                importFeed.setFeedJson(zipEntryContents);
+        for (String entryName : archive.getEntryNames()) {
+            if (entryName.startsWith(FEED_JSON_FILE)) {
+                importFeed.setFeedJson(archive.readString(entryName));
             }
         }
         return importFeed;
@@ -587,22 +613,46 @@ public class ExportImportFeedService {
 
     //Internal classes
 
-    public class ExportFeed {
+    /**
+     * An exported feed.  The zip file is written directly to an output stream by {@link #write(OutputStream)}.
+     */
+    public static class ExportFeed {
 
         private String fileName;
-        private byte[] file;
+        private ExportImportTemplateService.ExportTemplate template;
+        private String feedJson;
 
-        public ExportFeed(String fileName, byte[] file) {
+        public ExportFeed(String fileName, ExportImportTemplateService.ExportTemplate template, String feedJson) {
             this.fileName = fileName;
-            this.file = file;
+            this.template = template;
+            this.feedJson = feedJson;
         }
 
         public String getFileName() {
             return fileName;
         }
 
+        /**
+         * Gets the zip file contents.  Use {@link #write(OutputStream)} to avoid holding the zip file in memory.
+         */
         public byte[] getFile() {
-            return file;
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            try {
+                write(baos);
+            } catch (IOException ioe) {
+                throw new RuntimeException(ioe);
+            }
+            return baos.toByteArray();
+        }
+
+        /**
+         * Writes the zip file, the template entries followed by the feed json, to the specified stream.  The stream is not closed.
+         */
+        public void write(OutputStream out) throws IOException {
+            ZipOutputStream zos = new ZipOutputStream(out);
+            template.writeEntries(zos);
+            ZipFileUtil.addEntry(zos, FEED_JSON_FILE, feedJson);
+            zos.finish();
         }
     }
 
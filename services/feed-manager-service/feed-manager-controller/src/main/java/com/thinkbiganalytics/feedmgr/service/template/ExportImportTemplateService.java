@@ -40,6 +40,7 @@ import com.thinkbiganalytics.feedmgr.rest.support.SystemNamingService;
 import com.thinkbiganalytics.feedmgr.security.FeedServicesAccessControl;
 import com.thinkbiganalytics.feedmgr.service.MetadataService;
 import com.thinkbiganalytics.feedmgr.service.UploadProgressService;
+import com.thinkbiganalytics.feedmgr.support.ZipArchive;
 import com.thinkbiganalytics.feedmgr.support.ZipFileUtil;
 import com.thinkbiganalytics.feedmgr.util.ImportUtil;
 import com.thinkbiganalytics.json.ObjectMapperSerializer;
@@ -75,6 +76,7 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -83,8 +85,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
 import java.util.zip.ZipOutputStream;
 
 import javax.inject.Inject;
@@ -175,43 +175,15 @@ public class ExportImportTemplateService {
                 throw new UnsupportedOperationException("Unable to find Nifi Template for " + templateId);
             }
 
-            //create a zip file with the template and xml
-            byte[] zipFile = zip(template, templateXml, connectingReusableTemplates);
-
-            return new ExportTemplate(SystemNamingService.generateSystemName(template.getTemplateName()) + ".template.zip", zipFile);
+            //the zip file with the template and xml is written when the export is sent
+            return new ExportTemplate(SystemNamingService.generateSystemName(template.getTemplateName()) + ".template.zip", ObjectMapperSerializer.serialize(template), templateXml,
+                                      connectingReusableTemplates);
 
         } else {
             throw new UnsupportedOperationException("Unable to find Template for " + templateId);
         }
     }
 
-    private byte[] zip(RegisteredTemplate template, String nifiTemplateXml, List<String> reusableTemplateXmls) {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        try (ZipOutputStream zos = new ZipOutputStream(baos)) {
-
-            ZipEntry entry = new ZipEntry(NIFI_TEMPLATE_XML_FILE);
-            zos.putNextEntry(entry);
-            zos.write(nifiTemplateXml.getBytes());
-            zos.closeEntry();
-            int reusableTemplateNumber = 0;
-            for (String reusableTemplateXml : reusableTemplateXmls) {
-                entry = new ZipEntry(String.format("%s_%s.xml", NIFI_CONNECTING_REUSABLE_TEMPLATE_XML_FILE, reusableTemplateNumber++));
-                zos.putNextEntry(entry);
-                zos.write(reusableTemplateXml.getBytes());
-                zos.closeEntry();
-            }
-            entry = new ZipEntry(TEMPLATE_JSON_FILE);
-            zos.putNextEntry(entry);
-            String json = ObjectMapperSerializer.serialize(template);
-            zos.write(json.getBytes());
-            zos.closeEntry();
-
-        } catch (IOException ioe) {
-            throw new RuntimeException(ioe);
-        }
-        return baos.toByteArray();
-    }
-
     //Validation Methods
 
 
@@ -228,9 +200,48 @@ public class ExportImportTemplateService {
 
     //validate
     public ImportTemplate validateTemplateForImport(final String fileName, byte[] content, ImportOptions importOptions) {
+        return validateTemplateForImport(fileName, new ByteArrayInputStream(content), importOptions);
+    }
+
+    /**
+     * Validate a template zip or xml file for importing.  A zip file is spooled to a temporary file while it is validated.
+     *
+     * @param fileName      the name of the file
+     * @param content       the file contents
+     * @param importOptions user options about what/how it should be imported
+     * @return the template data to import
+     */
+    public ImportTemplate validateTemplateForImport(final String fileName, InputStream content, ImportOptions importOptions) {
+        this.accessController.checkPermission(AccessController.SERVICES, FeedServicesAccessControl.IMPORT_TEMPLATES);
+        if (fileName.endsWith(".zip")) {
+            try (ZipArchive archive = ZipArchive.open(content)) {
+                return validateTemplateForImport(fileName, archive, importOptions);
+            } catch (IOException e) {
+                throw new UnsupportedOperationException("Error importing template  " + fileName + ".  " + e.getMessage());
+            }
+        } else {
+            return validateTemplateForImport(fileName, null, content, importOptions);
+        }
+    }
+
+    /**
+     * Validate a template zip file for importing
+     *
+     * @param fileName      the name of the file
+     * @param archive       the zip file
+     * @param importOptions user options about what/how it should be imported
+     * @return the template data to import
+     */
+    public ImportTemplate validateTemplateForImport(final String fileName, ZipArchive archive, ImportOptions importOptions) {
+        return validateTemplateForImport(fileName, archive, null, importOptions);
+    }
+
+    /**
+     * Validate either a template zip file or a NiFi template xml file for importing
+     */
+    private ImportTemplate validateTemplateForImport(final String fileName, ZipArchive archive, InputStream xmlInputStream, ImportOptions importOptions) {
 
         this.accessController.checkPermission(AccessController.SERVICES, FeedServicesAccessControl.IMPORT_TEMPLATES);
-        InputStream inputStream = new ByteArrayInputStream(content);
         UploadProgressMessage overallStatusMessage = uploadProgressService.addUploadStatus(importOptions.getUploadKey(), "Validating template for import");
         UploadProgressMessage statusMessage = overallStatusMessage;
         ImportTemplateOptions options = new ImportTemplateOptions();
@@ -241,10 +252,10 @@ public class ExportImportTemplateService {
             throw new UnsupportedOperationException("Unable to import " + fileName + ".  The file must be a zip file or a Nifi Template xml file");
         }
         try {
-            if (fileName.endsWith(".zip")) {
-                template = openZip(fileName, inputStream);
+            if (archive != null) {
+                template = openZip(fileName, archive);
                 template.setValid(true);
-                Set<ImportComponentOption> componentOptions = ImportUtil.inspectZipComponents(content, ImportType.TEMPLATE);
+                Set<ImportComponentOption> componentOptions = ImportUtil.inspectZipComponents(archive.getEntryNames(), ImportType.TEMPLATE);
                 options.setImportComponentOptions(importOptions.getImportComponentOptions());
                 options.addOptionsIfNotExists(componentOptions);
                 template.setImportOptions(options);
@@ -256,7 +267,7 @@ public class ExportImportTemplateService {
                     validateNiFiTemplateImport(template);
                 }
             } else {
-                template = getNewNiFiTemplateImport(fileName, inputStream);
+                template = getNewNiFiTemplateImport(fileName, xmlInputStream);
                 template.setImportOptions(options);
                 //deal with reusable templates??
                 validateNiFiTemplateImport(template);
@@ -542,6 +553,18 @@ public class ExportImportTemplateService {
      * @return the template data to import along with status/messages/error information if it was valid and if was successfully imported
      */
     public ImportTemplate importTemplate(final String fileName, final byte[] content, ImportTemplateOptions importOptions) {
+        return importTemplate(fileName, new ByteArrayInputStream(content), importOptions);
+    }
+
+    /**
+     * Import a template zip or xml file.  A zip file is spooled to a temporary file while it is imported.
+     *
+     * @param fileName      the name of the file
+     * @param content       the file contents
+     * @param importOptions user options about what/how it should be imported
+     * @return the template data to import along with status/messages/error information if it was valid and if was successfully imported
+     */
+    public ImportTemplate importTemplate(final String fileName, final InputStream content, ImportTemplateOptions importOptions) {
        // return metadataAccess.commit(() -> {
             this.accessController.checkPermission(AccessController.SERVICES, FeedServicesAccessControl.IMPORT_TEMPLATES);
 
@@ -553,7 +576,9 @@ public class ExportImportTemplateService {
                 if (fileName.endsWith(".zip")) {
                     UploadProgress progress = uploadProgressService.getUploadStatus(importOptions.getUploadKey());
                     progress.setSections(ImportSection.sectionsForImportAsString(ImportType.TEMPLATE));
-                    template = validateAndImportZip(fileName, content, importOptions); //dont allow exported reusable flows to become registered templates
+                    try (ZipArchive archive = ZipArchive.open(content)) {
+                        template = validateAndImportZip(fileName, archive, importOptions); //dont allow exported reusable flows to become registered templates
+                    }
                 } else if (fileName.endsWith(".xml")) {
 
                     UploadProgress progress = uploadProgressService.getUploadStatus(importOptions.getUploadKey());
@@ -718,9 +743,9 @@ public class ExportImportTemplateService {
     }
 
 
-    private ImportTemplate validateAndImportZip(String fileName, byte[] content, ImportTemplateOptions importOptions) {
+    private ImportTemplate validateAndImportZip(String fileName, ZipArchive archive, ImportTemplateOptions importOptions) {
         this.accessController.checkPermission(AccessController.SERVICES, FeedServicesAccessControl.IMPORT_TEMPLATES);
-        ImportTemplate importTemplate = validateTemplateForImport(fileName, content, importOptions);
+        ImportTemplate importTemplate = validateTemplateForImport(fileName, archive, importOptions);
         return metadataAccess.commit(() -> importZip(importTemplate));
     }
 
@@ -823,7 +848,7 @@ public class ExportImportTemplateService {
     }
 
     private ImportTemplate importNifiTemplateWithTemplateString(String fileName, String xmlFile, ImportTemplateOptions importOptions, boolean xmlImport) throws IOException {
-        byte[] content = xmlFile.getBytes("UTF-8");
+        InputStream content = new ByteArrayInputStream(xmlFile.getBytes("UTF-8"));
         return importNifiTemplate(fileName, content, importOptions, xmlImport);
     }
 
@@ -836,9 +861,8 @@ public class ExportImportTemplateService {
      * @return
      * @throws IOException
      */
-    private ImportTemplate importNifiTemplate(String fileName, byte[] xmlFile, ImportTemplateOptions importOptions, boolean xmlImport) throws IOException {
-        InputStream inputStream = new ByteArrayInputStream(xmlFile);
-        ImportTemplate importTemplate = getNewNiFiTemplateImport(fileName, inputStream);
+    private ImportTemplate importNifiTemplate(String fileName, InputStream xmlFile, ImportTemplateOptions importOptions, boolean xmlImport) throws IOException {
+        ImportTemplate importTemplate = getNewNiFiTemplateImport(fileName, xmlFile);
         importTemplate.setImportOptions(importOptions);
 
         validateNiFiTemplateImport(importTemplate);
@@ -971,27 +995,23 @@ public class ExportImportTemplateService {
     /**
      * Open the zip file and populate the {@link ImportTemplate} object with the components in the file/archive
      *
-     * @param fileName    the file name
-     * @param inputStream the file
+     * Only the template entries are read.  Any other entries in the archive are skipped without being read.
+     *
+     * @param fileName the file name
+     * @param archive  the file
      * @return the template data to import
      */
-    private ImportTemplate openZip(String fileName, InputStream inputStream) throws IOException {
-        byte[] buffer = new byte[1024];
-        ZipInputStream zis = new ZipInputStream(inputStream);
-        ZipEntry zipEntry;
+    private ImportTemplate openZip(String fileName, ZipArchive archive) throws IOException {
         ImportTemplate importTemplate = new ImportTemplate(fileName);
-        while ((zipEntry = zis.getNextEntry()) != null) {
-            String zipEntryContents = ZipFileUtil.zipEntryToString(buffer, zis, zipEntry);
-            if (zipEntry.getName().startsWith(NIFI_TEMPLATE_XML_FILE)) {
-                importTemplate.setNifiTemplateXml(zipEntryContents);
-            } else if (zipEntry.getName().startsWith(TEMPLATE_JSON_FILE)) {
-                importTemplate.setTemplateJson(zipEntryContents);
-            } else if (zipEntry.getName().startsWith(NIFI_CONNECTING_REUSABLE_TEMPLATE_XML_FILE)) {
-                importTemplate.addNifiConnectingReusableTemplateXml(zipEntryContents);
+        for (String entryName : archive.getEntryNames()) {
+            if (entryName.startsWith(NIFI_TEMPLATE_XML_FILE)) {
+                importTemplate.setNifiTemplateXml(archive.readString(entryName));
+            } else if (entryName.startsWith(TEMPLATE_JSON_FILE)) {
+                importTemplate.setTemplateJson(archive.readString(entryName));
+            } else if (entryName.startsWith(NIFI_CONNECTING_REUSABLE_TEMPLATE_XML_FILE)) {
+                importTemplate.addNifiConnectingReusableTemplateXml(archive.readString(entryName));
             }
         }
-        zis.closeEntry();
-        zis.close();
         if (!importTemplate.hasValidComponents()) {
             throw new UnsupportedOperationException(
                 " The file you uploaded is not a valid archive.  Please ensure the Zip file has been exported from the system and has 2 valid files named: " + NIFI_TEMPLATE_XML_FILE + ", and "
@@ -1195,22 +1215,59 @@ public class ExportImportTemplateService {
         }
     }
 
-    public class ExportTemplate {
+    /**
+     * An exported template.  The zip file is written directly to an output stream by {@link #write(OutputStream)}.
+     */
+    public static class ExportTemplate {
 
         private String fileName;
-        private byte[] file;
+        private String templateJson;
+        private String nifiTemplateXml;
+        private List<String> reusableTemplateXmls;
 
-        public ExportTemplate(String fileName, byte[] file) {
+        public ExportTemplate(String fileName, String templateJson, String nifiTemplateXml, List<String> reusableTemplateXmls) {
             this.fileName = fileName;
-            this.file = file;
+            this.templateJson = templateJson;
+            this.nifiTemplateXml = nifiTemplateXml;
+            this.reusableTemplateXmls = reusableTemplateXmls;
         }
 
         public String getFileName() {
             return fileName;
         }
 
+        /**
+         * Gets the zip file contents.  Use {@link #write(OutputStream)} to avoid holding the zip file in memory.
+         */
         public byte[] getFile() {
-            return file;
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            try {
+                write(baos);
+            } catch (IOException ioe) {
+                throw new RuntimeException(ioe);
+            }
+            return baos.toByteArray();
+        }
+
+        /**
+         * Writes the zip file to the specified stream.  The stream is not closed.
+         */
+        public void write(OutputStream out) throws IOException {
+            ZipOutputStream zos = new ZipOutputStream(out);
+            writeEntries(zos);
+            zos.finish();
+        }
+
+        /**
+         * Writes the template entries to the specified zip file
+         */
+        public void writeEntries(ZipOutputStream zos) throws IOException {
+            ZipFileUtil.addEntry(zos, NIFI_TEMPLATE_XML_FILE, nifiTemplateXml);
+            int reusableTemplateNumber = 0;
+            for (String reusableTemplateXml : reusableTemplateXmls) {
+                ZipFileUtil.addEntry(zos, String.format("%s_%s.xml", NIFI_CONNECTING_REUSABLE_TEMPLATE_XML_FILE, reusableTemplateNumber++), reusableTemplateXml);
+            }
+            ZipFileUtil.addEntry(zos, TEMPLATE_JSON_FILE, templateJson);
         }
     }
 
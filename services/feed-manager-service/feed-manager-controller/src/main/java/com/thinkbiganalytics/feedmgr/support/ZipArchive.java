@@ -0,0 +1,166 @@
+package com.thinkbiganalytics.feedmgr.support;
+
+/*-
+ * #%L
+ * thinkbig-feed-manager-controller
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+
+/**
+ * A zip file uploaded for import.
+ *
+ * <p>The upload is spooled to a temporary file so the archive is never held in memory. The entry names are read once from the central directory when the archive is opened, and the
+ * contents of an entry are only read when requested. The temporary file is deleted when the archive is closed.</p>
+ */
+public class ZipArchive implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(ZipArchive.class);
+
+    /**
+     * The temporary file holding the archive
+     */
+    private final Path file;
+
+    /**
+     * The opened archive, or {@code null} if the file is not a valid zip file
+     */
+    private final ZipFile zipFile;
+
+    /**
+     * The names of the entries in the archive
+     */
+    private final Set<String> entryNames;
+
+    private ZipArchive(Path file) throws IOException {
+        this.file = file;
+
+        ZipFile zip;
+        try {
+            zip = new ZipFile(file.toFile());
+        } catch (ZipException e) {
+            log.debug("Uploaded file is not a valid zip file: {}", e.getMessage());
+            zip = null;
+        }
+        this.zipFile = zip;
+
+        Set<String> names = new LinkedHashSet<>();
+        if (zipFile != null) {
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                names.add(entries.nextElement().getName());
+            }
+        }
+        this.entryNames = Collections.unmodifiableSet(names);
+    }
+
+    /**
+     * Spools the specified stream to a temporary file and opens it as a zip file. A stream that is not a valid zip file results in an archive with no entries.
+     *
+     * @param inputStream the zip file contents
+     * @return the archive
+     * @throws IOException if the stream cannot be read or the temporary file cannot be written
+     */
+    public static ZipArchive open(InputStream inputStream) throws IOException {
+        Path file = Files.createTempFile("kylo-import-", ".zip");
+        try {
+            Files.copy(inputStream, file, StandardCopyOption.REPLACE_EXISTING);
+            return new ZipArchive(file);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+    }
+
+    /**
+     * Opens the specified zip file contents.
+     *
+     * @param content the zip file contents
+     * @return the archive
+     * @throws IOException if the temporary file cannot be written
+     */
+    public static ZipArchive open(byte[] content) throws IOException {
+        return open(new ByteArrayInputStream(content));
+    }
+
+    /**
+     * Gets the names of the entries in this archive, in the order they appear in the archive.
+     */
+    public Set<String> getEntryNames() {
+        return entryNames;
+    }
+
+    /**
+     * Opens a stream to read the contents of the specified entry.
+     *
+     * @param name the entry name
+     * @return the entry contents
+     * @throws IOException if the entry does not exist or cannot be read
+     */
+    public InputStream getInputStream(String name) throws IOException {
+        ZipEntry entry = (zipFile != null) ? zipFile.getEntry(name) : null;
+        if (entry == null) {
+            throw new IOException("Entry " + name + " does not exist in the archive");
+        }
+        return zipFile.getInputStream(entry);
+    }
+
+    /**
+     * Reads the contents of the specified entry as a UTF-8 string.
+     *
+     * @param name the entry name
+     * @return the entry contents
+     * @throws IOException if the entry does not exist or cannot be read
+     */
+    public String readString(String name) throws IOException {
+        try (InputStream inputStream = getInputStream(name)) {
+            return ZipFileUtil.zipEntryToString(inputStream);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (zipFile != null) {
+                zipFile.close();
+            }
+        } finally {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                log.warn("Unable to delete temporary import file {}: {}", file, e.getMessage());
+            }
+        }
+    }
+}
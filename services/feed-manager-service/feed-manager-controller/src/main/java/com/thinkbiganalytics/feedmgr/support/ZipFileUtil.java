@@ -20,10 +20,13 @@ package com.thinkbiganalytics.feedmgr.support;
  * #L%
  */
 
+import org.apache.commons.io.IOUtils;
+
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -42,11 +45,24 @@ public class ZipFileUtil {
      * Validate filenames in a zip file This does case insensitive comparison
      */
     public static boolean validateZipEntries(byte[] zipFile, Set<String> validNames, Set<String> requiredNames, boolean matchAllValidNames) throws IOException {
+        return validateFileNames(getFileNames(zipFile), validNames, requiredNames, matchAllValidNames);
+    }
+
+    /**
+     * Validate the filenames of the entries in a zip file This does case insensitive comparison
+     *
+     * @param zipFileNames       the names of the entries in the zip file
+     * @param validNames         the names that must all be present
+     * @param requiredNames      additional names that must be present
+     * @param matchAllValidNames true if the zip file must only contain the valid names
+     * @return true if valid, false if not valid
+     */
+    public static boolean validateFileNames(Set<String> zipFileNames, Set<String> validNames, Set<String> requiredNames, boolean matchAllValidNames) {
         if (validNames == null) {
             validNames = new HashSet<>();
         }
         List<String> validNamesList = validNames.stream().map(String::toLowerCase).collect(Collectors.toList());
-        Set<String> fileNames = getFileNames(zipFile).stream().map(String::toLowerCase).collect(Collectors.toSet());
+        Set<String> fileNames = zipFileNames.stream().map(String::toLowerCase).collect(Collectors.toSet());
 
         boolean isValid = fileNames != null && !fileNames.isEmpty() && validNamesList.stream().allMatch(fileNames::contains);
         if (isValid && matchAllValidNames) {
@@ -70,6 +86,16 @@ public class ZipFileUtil {
         return new String(out.toByteArray(), "UTF-8");
     }
 
+    /**
+     * Reads the contents of a zip entry as a UTF-8 string
+     *
+     * @param inputStream the entry contents
+     * @return the entry contents as a string
+     */
+    public static String zipEntryToString(InputStream inputStream) throws IOException {
+        return IOUtils.toString(inputStream, StandardCharsets.UTF_8);
+    }
+
 
     /**
      *
@@ -151,6 +177,18 @@ public class ZipFileUtil {
         return baos.toByteArray();
     }
 
+    /**
+     * Writes a string as a new entry in a zip file
+     *
+     * @param zos      the zip file being written
+     * @param fileName the zip entry name
+     * @param content  the contents of the entry
+     */
+    public static void addEntry(ZipOutputStream zos, String fileName, String content) throws IOException {
+        zos.putNextEntry(new ZipEntry(fileName));
+        zos.write(content.getBytes(StandardCharsets.UTF_8));
+        zos.closeEntry();
+    }
+
 
 }
-
@@ -41,6 +41,8 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -62,24 +64,39 @@ public class ImportUtil {
 
 
     public static Set<ImportComponentOption> inspectZipComponents(InputStream inputStream, ImportType importType) throws IOException {
-        Set<ImportComponentOption> options = new HashSet<>();
+        List<String> entryNames = new ArrayList<>();
         ZipInputStream zis = new ZipInputStream(inputStream);
         ZipEntry entry;
         while ((entry = zis.getNextEntry()) != null) {
-            if (entry.getName().startsWith(ExportImportTemplateService.NIFI_TEMPLATE_XML_FILE)) {
+            entryNames.add(entry.getName());
+        }
+        zis.closeEntry();
+        zis.close();
+
+        return inspectZipComponents(entryNames, importType);
+    }
+
+    /**
+     * Determines the components that can be imported from the entries of a zip file.
+     *
+     * @param entryNames the names of the entries in the zip file
+     * @param importType the type of import
+     * @return the components in the zip file
+     */
+    public static Set<ImportComponentOption> inspectZipComponents(Collection<String> entryNames, ImportType importType) {
+        Set<ImportComponentOption> options = new HashSet<>();
+        for (String entryName : entryNames) {
+            if (entryName.startsWith(ExportImportTemplateService.NIFI_TEMPLATE_XML_FILE)) {
                 options.add(new ImportComponentOption(ImportComponent.NIFI_TEMPLATE, importType.equals(ImportType.TEMPLATE) ? true : false));
-            } else if (entry.getName().startsWith(ExportImportTemplateService.TEMPLATE_JSON_FILE)) {
+            } else if (entryName.startsWith(ExportImportTemplateService.TEMPLATE_JSON_FILE)) {
                 options.add(new ImportComponentOption(ImportComponent.TEMPLATE_DATA, importType.equals(ImportType.TEMPLATE) ? true : false));
-            } else if (entry.getName().startsWith(ExportImportTemplateService.NIFI_CONNECTING_REUSABLE_TEMPLATE_XML_FILE)) {
+            } else if (entryName.startsWith(ExportImportTemplateService.NIFI_CONNECTING_REUSABLE_TEMPLATE_XML_FILE)) {
                 options.add(new ImportComponentOption(ImportComponent.REUSABLE_TEMPLATE, false));
-            } else if (importType.equals(ImportType.FEED) && entry.getName().startsWith(ExportImportFeedService.FEED_JSON_FILE)) {
+            } else if (importType.equals(ImportType.FEED) && entryName.startsWith(ExportImportFeedService.FEED_JSON_FILE)) {
                 options.add(new ImportComponentOption(ImportComponent.FEED_DATA, true));
                 options.add(new ImportComponentOption(ImportComponent.USER_DATASOURCES, true));
             }
         }
-        zis.closeEntry();
-        zis.close();
-
         return options;
     }
 
@@ -0,0 +1,102 @@
+package com.thinkbiganalytics.feedmgr.nifi.cache;
+
+/*-
+ * #%L
+ * thinkbig-feed-manager-controller
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.thinkbiganalytics.metadata.rest.model.nifi.NiFiFlowCacheConnectionData;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Optional;
+
+public class NifiFlowCacheChangeLogTest {
+
+    /**
+     * Verify a cursor receives only the merged changes after it
+     */
+    @Test
+    public void testChangesSince() {
+        NifiFlowCacheChangeLog log = new NifiFlowCacheChangeLog();
+        long first = log.append(ImmutableMap.of("p1", "cat.feed1"), ImmutableMap.of("p1", "pg1"), ImmutableMap.of("p1", "Processor 1"), null, ImmutableSet.of("cat.feed1"));
+        long second = log.append(null, null, ImmutableMap.of("p1", "Renamed", "p2", "Processor 2"), null, null);
+        log.append(null, null, null, ImmutableMap.of("c1", new NiFiFlowCacheConnectionData("c1", "success", "p1", "p2")), null);
+
+        Optional<NifiFlowCacheChangeLog.Changes> all = log.changesSince(0L);
+        Assert.assertTrue(all.isPresent());
+        Assert.assertEquals(3L, all.get().getVersion());
+        Assert.assertEquals("Renamed", all.get().getProcessorIdToProcessorName().get("p1"));
+        Assert.assertEquals(ImmutableSet.of("cat.feed1"), all.get().getFeeds());
+        Assert.assertEquals(1, all.get().getConnections().size());
+
+        NifiFlowCacheChangeLog.Changes tail = log.changesSince(first).get();
+        Assert.assertTrue(tail.getProcessorIdToFeedName().isEmpty());
+        Assert.assertEquals(2, tail.getProcessorIdToProcessorName().size());
+
+        tail = log.changesSince(second).get();
+        Assert.assertTrue(tail.getProcessorIdToProcessorName().isEmpty());
+        Assert.assertTrue(tail.getConnections().containsKey("c1"));
+
+        Assert.assertTrue(log.changesSince(log.getVersion()).get().getConnections().isEmpty());
+    }
+
+    /**
+     * Verify compacted entries still serve every cursor on the log
+     */
+    @Test
+    public void testCompaction() {
+        NifiFlowCacheChangeLog log = new NifiFlowCacheChangeLog(10);
+        for (int i = 1; i <= 25; i++) {
+            log.append(ImmutableMap.of("p" + i, "cat.feed"), null, null, null, null);
+        }
+        Assert.assertTrue(log.size() <= 10);
+        Assert.assertEquals(25L, log.getVersion());
+
+        for (long cursor = 0; cursor < 25; cursor++) {
+            NifiFlowCacheChangeLog.Changes changes = log.changesSince(cursor).get();
+            for (long i = cursor + 1; i <= 25; i++) {
+                Assert.assertTrue("cursor " + cursor + " missing p" + i, changes.getProcessorIdToFeedName().containsKey("p" + i));
+            }
+        }
+    }
+
+    /**
+     * Verify cursors that fall off the log need a full snapshot
+     */
+    @Test
+    public void testTruncateAndReset() {
+        NifiFlowCacheChangeLog log = new NifiFlowCacheChangeLog();
+        log.append(ImmutableMap.of("p1", "cat.feed1"), null, null, null, null);
+        long second = log.append(ImmutableMap.of("p2", "cat.feed2"), null, null, null, null);
+        log.append(ImmutableMap.of("p3", "cat.feed3"), null, null, null, null);
+
+        log.truncate(second);
+        Assert.assertEquals(1, log.size());
+        Assert.assertFalse(log.changesSince(0L).isPresent());
+        Assert.assertEquals(ImmutableSet.of("p3"), log.changesSince(second).get().getProcessorIdToFeedName().keySet());
+
+        long version = log.reset();
+        Assert.assertFalse(log.changesSince(second).isPresent());
+        Assert.assertTrue(log.changesSince(version).isPresent());
+        Assert.assertEquals(0, log.size());
+    }
+}
@@ -0,0 +1,89 @@
+package com.thinkbiganalytics.feedmgr.support;
+
+/*-
+ * #%L
+ * thinkbig-feed-manager-controller
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.collect.ImmutableSet;
+import com.thinkbiganalytics.feedmgr.service.template.ExportImportTemplateService;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Runs with a 32 MB heap in the {@code low-memory-tests} surefire execution.
+ */
+public class ZipArchiveLowMemoryTest {
+
+    /**
+     * Verify an archive larger than the heap is spooled from a stream and only the requested entries are read.
+     */
+    @Test
+    public void openLargeArchive() throws Exception {
+        final long largeEntrySize = 64L * 1024 * 1024;
+        Assert.assertTrue("Expected a heap smaller than the archive but was " + Runtime.getRuntime().maxMemory() + " bytes",
+                          Runtime.getRuntime().maxMemory() < largeEntrySize);
+
+        final PipedInputStream in = new PipedInputStream(64 * 1024);
+        final PipedOutputStream out = new PipedOutputStream(in);
+
+        // Write the archive on another thread so that it is never held in memory
+        final CompletableFuture<Void> writer = CompletableFuture.runAsync(() -> {
+            try (ZipOutputStream zos = new ZipOutputStream(out)) {
+                zos.setLevel(Deflater.NO_COMPRESSION);
+                zos.putNextEntry(new ZipEntry("data.bin"));
+                final byte[] chunk = new byte[64 * 1024];
+                Arrays.fill(chunk, (byte) 'x');
+                for (long written = 0; written < largeEntrySize; written += chunk.length) {
+                    zos.write(chunk);
+                }
+                zos.closeEntry();
+                ZipFileUtil.addEntry(zos, ExportImportTemplateService.TEMPLATE_JSON_FILE, "{}");
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+
+        try (ZipArchive archive = ZipArchive.open(in)) {
+            writer.get();
+            Assert.assertEquals(ImmutableSet.of("data.bin", ExportImportTemplateService.TEMPLATE_JSON_FILE), archive.getEntryNames());
+            Assert.assertEquals("{}", archive.readString(ExportImportTemplateService.TEMPLATE_JSON_FILE));
+
+            long size = 0;
+            final byte[] buffer = new byte[64 * 1024];
+            try (InputStream entry = archive.getInputStream("data.bin")) {
+                int read;
+                while ((read = entry.read(buffer)) != -1) {
+                    size += read;
+                }
+            }
+            Assert.assertEquals(largeEntrySize, size);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.thinkbiganalytics.feedmgr.support;
+
+/*-
+ * #%L
+ * thinkbig-feed-manager-controller
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.thinkbiganalytics.feedmgr.rest.ImportComponent;
+import com.thinkbiganalytics.feedmgr.rest.ImportType;
+import com.thinkbiganalytics.feedmgr.rest.model.ImportComponentOption;
+import com.thinkbiganalytics.feedmgr.service.feed.ExportImportFeedService;
+import com.thinkbiganalytics.feedmgr.service.template.ExportImportTemplateService;
+import com.thinkbiganalytics.feedmgr.util.ImportUtil;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Set;
+import java.util.stream.Collectors;
+
+public class ZipArchiveTest {
+
+    /**
+     * Verify reading an exported feed through a spooled archive.
+     */
+    @Test
+    public void readExportedFeed() throws Exception {
+        final ExportImportTemplateService.ExportTemplate template = new ExportImportTemplateService.ExportTemplate("test.template.zip", "{\"templateName\":\"test\"}", "<template/>",
+                                                                                                                   ImmutableList.of("<reusable/>"));
+        final ExportImportFeedService.ExportFeed feed = new ExportImportFeedService.ExportFeed("test.feed.zip", template, "{\"feedName\":\"test\"}");
+
+        try (ZipArchive archive = ZipArchive.open(feed.getFile())) {
+            Assert.assertEquals(ImmutableSet.of(ExportImportTemplateService.NIFI_TEMPLATE_XML_FILE, ExportImportTemplateService.NIFI_CONNECTING_REUSABLE_TEMPLATE_XML_FILE + "_0.xml",
+                                                ExportImportTemplateService.TEMPLATE_JSON_FILE, ExportImportFeedService.FEED_JSON_FILE), archive.getEntryNames());
+            Assert.assertEquals("<template/>", archive.readString(ExportImportTemplateService.NIFI_TEMPLATE_XML_FILE));
+            Assert.assertEquals("{\"feedName\":\"test\"}", archive.readString(ExportImportFeedService.FEED_JSON_FILE));
+
+            Assert.assertTrue(ZipFileUtil.validateFileNames(archive.getEntryNames(),
+                                                            ImmutableSet.of(ExportImportFeedService.FEED_JSON_FILE, ExportImportTemplateService.NIFI_TEMPLATE_XML_FILE,
+                                                                            ExportImportTemplateService.TEMPLATE_JSON_FILE),
+                                                            ImmutableSet.of(ExportImportFeedService.FEED_JSON_FILE), false));
+
+            final Set<ImportComponent> components = ImportUtil.inspectZipComponents(archive.getEntryNames(), ImportType.FEED).stream()
+                .map(ImportComponentOption::getImportComponent)
+                .collect(Collectors.toSet());
+            Assert.assertEquals(ImmutableSet.of(ImportComponent.NIFI_TEMPLATE, ImportComponent.TEMPLATE_DATA, ImportComponent.REUSABLE_TEMPLATE, ImportComponent.FEED_DATA,
+                                                ImportComponent.USER_DATASOURCES), components);
+        }
+    }
+
+    /**
+     * Verify an upload that is not a zip file has no entries.
+     */
+    @Test
+    public void openInvalidZip() throws Exception {
+        try (ZipArchive archive = ZipArchive.open("not a zip file".getBytes("UTF-8"))) {
+            Assert.assertTrue(archive.getEntryNames().isEmpty());
+            Assert.assertFalse(ZipFileUtil.validateFileNames(archive.getEntryNames(), ImmutableSet.of(ExportImportFeedService.FEED_JSON_FILE),
+                                                             ImmutableSet.of(ExportImportFeedService.FEED_JSON_FILE), false));
+        }
+    }
+}
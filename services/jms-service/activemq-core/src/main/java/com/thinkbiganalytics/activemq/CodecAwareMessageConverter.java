@@ -0,0 +1,69 @@
+package com.thinkbiganalytics.activemq;
+
+/*-
+ * #%L
+ * thinkbig-activemq-core
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.activemq.config.ActiveMqConstants;
+
+import org.springframework.jms.support.converter.MessageConversionException;
+import org.springframework.jms.support.converter.SimpleMessageConverter;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.jms.BytesMessage;
+import javax.jms.JMSException;
+import javax.jms.Message;
+
+/**
+ * Message converter that decodes {@link BytesMessage} payloads sent with a {@link ActiveMqConstants#PAYLOAD_CODEC_PROPERTY} using the matching {@link JmsPayloadDecoder}.
+ * All other messages are converted with the {@link SimpleMessageConverter}, so senders using Java serialization continue to work.
+ */
+public class CodecAwareMessageConverter extends SimpleMessageConverter {
+
+    private final Map<String, JmsPayloadDecoder> decoders = new HashMap<>();
+
+    public CodecAwareMessageConverter(List<JmsPayloadDecoder> decoders) {
+        if (decoders != null) {
+            for (JmsPayloadDecoder decoder : decoders) {
+                this.decoders.put(decoder.getCodec(), decoder);
+            }
+        }
+    }
+
+    @Override
+    public Object fromMessage(Message message) throws JMSException, MessageConversionException {
+        String codec = message.getStringProperty(ActiveMqConstants.PAYLOAD_CODEC_PROPERTY);
+        if (codec == null || !(message instanceof BytesMessage)) {
+            return super.fromMessage(message);
+        }
+        JmsPayloadDecoder decoder = decoders.get(codec);
+        if (decoder == null) {
+            throw new MessageConversionException("No JmsPayloadDecoder is registered for the codec " + codec);
+        }
+        try {
+            return decoder.decode(extractByteArrayFromMessage((BytesMessage) message));
+        } catch (IOException e) {
+            throw new MessageConversionException("Unable to decode JMS message with codec " + codec, e);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.thinkbiganalytics.activemq;
+
+/*-
+ * #%L
+ * thinkbig-activemq-core
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+
+/**
+ * Decodes a binary JMS payload written with a named codec.
+ * Beans of this type are picked up by the {@link CodecAwareMessageConverter} used by the JMS listener container.
+ */
+public interface JmsPayloadDecoder {
+
+    /**
+     * @return the codec name matching the {@link com.thinkbiganalytics.activemq.config.ActiveMqConstants#PAYLOAD_CODEC_PROPERTY} of the message
+     */
+    String getCodec();
+
+    /**
+     * Decode the payload
+     *
+     * @param payload the message bytes
+     * @return the decoded object passed to the listener
+     */
+    Object decode(byte[] payload) throws IOException;
+}
@@ -20,6 +20,8 @@ package com.thinkbiganalytics.activemq;
  * #L%
  */
 
+import com.thinkbiganalytics.activemq.config.ActiveMqConstants;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -32,6 +34,7 @@ import org.springframework.stereotype.Component;
 
 import java.io.Serializable;
 
+import javax.jms.BytesMessage;
 import javax.jms.JMSException;
 import javax.jms.Session;
 import javax.jms.TextMessage;
@@ -65,6 +68,28 @@ public class SendJmsMessage {
     }
 
 
+    /**
+     * Send an already encoded payload as a {@link BytesMessage}.
+     * The {@code codec} is sent as the {@link ActiveMqConstants#PAYLOAD_CODEC_PROPERTY} so the listener can find the matching {@link JmsPayloadDecoder}
+     *
+     * @param queueName the queue to send to
+     * @param payload   the encoded bytes
+     * @param codec     the name of the codec used to encode the payload
+     */
+    public void sendBytesToQueue(String queueName, final byte[] payload, final String codec) throws JmsException {
+        log.debug("Sending ActiveMQ message of {} bytes encoded with {} to queue [{}]", payload.length, codec, queueName);
+        MessageCreator creator = new MessageCreator() {
+            @Override
+            public javax.jms.Message createMessage(Session session) throws JMSException {
+                BytesMessage message = session.createBytesMessage();
+                message.setStringProperty(ActiveMqConstants.PAYLOAD_CODEC_PROPERTY, codec);
+                message.writeBytes(payload);
+                return message;
+            }
+        };
+        this.jmsMessagingTemplate.getJmsTemplate().send(queueName, creator);
+    }
+
     private void sendObjectToQueue(String queueName, final Object obj, final String objectClassType) throws JmsException {
         log.info("Sending ActiveMQ message [" + obj + "] to queue [" + queueName + "]");
         MessageCreator creator = new MessageCreator() {
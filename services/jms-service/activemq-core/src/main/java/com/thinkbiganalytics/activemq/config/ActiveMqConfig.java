@@ -20,6 +20,8 @@ package com.thinkbiganalytics.activemq.config;
  * #L%
  */
 
+import com.thinkbiganalytics.activemq.CodecAwareMessageConverter;
+import com.thinkbiganalytics.activemq.JmsPayloadDecoder;
 import com.thinkbiganalytics.activemq.ObjectMapperSerializer;
 
 import org.apache.activemq.ActiveMQConnectionFactory;
@@ -39,7 +41,8 @@ import org.springframework.jms.config.DefaultJmsListenerContainerFactory;
 import org.springframework.jms.config.JmsListenerContainerFactory;
 import org.springframework.jms.connection.UserCredentialsConnectionFactoryAdapter;
 import org.springframework.jms.core.JmsMessagingTemplate;
-import org.springframework.jms.support.converter.SimpleMessageConverter;
+
+import java.util.List;
 
 import javax.jms.ConnectionFactory;
 
@@ -60,6 +63,12 @@ public class ActiveMqConfig {
     @Autowired
     private Environment env;
 
+    /**
+     * Decoders for binary payloads sent with a codec property. Messages without the property use the standard conversion
+     */
+    @Autowired(required = false)
+    private List<JmsPayloadDecoder> payloadDecoders;
+
     @Bean
     public ConnectionFactory connectionFactory() {
         ActiveMQConnectionFactory factory = new ActiveMQConnectionFactory(env.getProperty("jms.activemq.broker.url"));
@@ -82,7 +91,7 @@ public class ActiveMqConfig {
         factory.setClientId(env.getProperty("jms.client.id:thinkbig.feedmgr"));
         factory.setConcurrency("1-1");
         factory.setConnectionFactory(connectionFactory);
-        factory.setMessageConverter(new SimpleMessageConverter());
+        factory.setMessageConverter(new CodecAwareMessageConverter(payloadDecoders));
         factory.setSessionTransacted(true);
         return factory;
     }
@@ -26,4 +26,9 @@ public interface ActiveMqConstants {
 
     String JMS_CONTAINER_FACTORY = "jmsContainerFactory";
 
+    /**
+     * JMS message property holding the name of the codec used to encode a {@code BytesMessage} payload
+     */
+    String PAYLOAD_CODEC_PROPERTY = "kylo_payload_codec";
+
 }
@@ -24,6 +24,7 @@ import com.thinkbiganalytics.DateTimeUtil;
 import com.thinkbiganalytics.jobrepo.query.model.ExecutedJob;
 import com.thinkbiganalytics.jobrepo.query.model.ExecutedStep;
 import com.thinkbiganalytics.jobrepo.query.model.FeedHealth;
+import com.thinkbiganalytics.jobrepo.query.model.JobPageToken;
 import com.thinkbiganalytics.jobrepo.query.model.JobStatusCount;
 import com.thinkbiganalytics.jobrepo.query.model.SearchResult;
 import com.thinkbiganalytics.jobrepo.query.model.transform.JobModelTransform;
@@ -39,6 +40,7 @@ import com.thinkbiganalytics.metadata.api.jobrepo.job.BatchJobExecution;
 import com.thinkbiganalytics.metadata.api.jobrepo.job.BatchJobExecutionProvider;
 import com.thinkbiganalytics.metadata.api.jobrepo.step.BatchStepExecution;
 import com.thinkbiganalytics.metadata.api.jobrepo.step.BatchStepExecutionProvider;
+import com.thinkbiganalytics.metadata.jobrepo.JobExecutionCountCache;
 import com.thinkbiganalytics.rest.model.RestResponseStatus;
 import com.thinkbiganalytics.security.AccessController;
 
@@ -54,6 +56,7 @@ import java.util.stream.Collectors;
 
 import javax.inject.Inject;
 import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.BadRequestException;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
@@ -79,6 +82,11 @@ public class JobsRestController {
 
     public static final String BASE = "/v1/jobs";
 
+    /**
+     * Value of the paging parameter that pages by start time and job execution id instead of by offset
+     */
+    public static final String KEYSET_PAGING = "keyset";
+
     @Inject
     OpsManagerFeedProvider opsFeedManagerFeedProvider;
 
@@ -97,6 +105,9 @@ public class JobsRestController {
     @Inject
     private AccessController accessController;
 
+    @Inject
+    private JobExecutionCountCache jobExecutionCountCache;
+
     @GET
     @Path("/{executionId}")
     @Produces(MediaType.APPLICATION_JSON)
@@ -295,13 +306,10 @@ public class JobsRestController {
                                  @QueryParam("limit") @DefaultValue("10") Integer limit,
                                  @QueryParam("start") @DefaultValue("1") Integer start,
                                  @QueryParam("filter") String filter,
+                                 @QueryParam("paging") @DefaultValue("offset") String paging,
+                                 @QueryParam("after") String after,
                                  @Context HttpServletRequest request) {
-        return metadataAccess.read(() -> {
-            Page<ExecutedJob> page = jobExecutionProvider.findAll(filter, pageRequest(start, limit, sort)).map(jobExecution -> JobModelTransform.executedJobSimple(jobExecution));
-            return ModelUtils.toSearchResult(page);
-        });
-
-
+        return searchJobs(filter, sort, limit, start, paging, after);
     }
 
     @GET
@@ -341,15 +349,13 @@ public class JobsRestController {
                                         @QueryParam("limit") @DefaultValue("10") Integer limit,
                                         @QueryParam("start") @DefaultValue("1") Integer start,
                                         @QueryParam("filter") String filter,
+                                        @QueryParam("paging") @DefaultValue("offset") String paging,
+                                        @QueryParam("after") String after,
                                         @Context HttpServletRequest request) {
 
         this.accessController.checkPermission(AccessController.SERVICES, OperationsAccessControl.ACCESS_OPS);
 
-        return metadataAccess.read(() -> {
-            String defaultFilter = ensureDefaultFilter(filter, jobExecutionProvider.RUNNING_FILTER);
-            Page<ExecutedJob> page = jobExecutionProvider.findAll(defaultFilter, pageRequest(start, limit, sort)).map(jobExecution -> JobModelTransform.executedJobSimple(jobExecution));
-            return ModelUtils.toSearchResult(page);
-        });
+        return searchJobs(ensureDefaultFilter(filter, jobExecutionProvider.RUNNING_FILTER), sort, limit, start, paging, after);
 
     }
 
@@ -368,13 +374,11 @@ public class JobsRestController {
                                        @QueryParam("limit") @DefaultValue("10") Integer limit,
                                        @QueryParam("start") @DefaultValue("1") Integer start,
                                        @QueryParam("filter") String filter,
+                                       @QueryParam("paging") @DefaultValue("offset") String paging,
+                                       @QueryParam("after") String after,
                                        @Context HttpServletRequest request) {
 
-        return metadataAccess.read(() -> {
-            String defaultFilter = ensureDefaultFilter(filter, jobExecutionProvider.FAILED_FILTER);
-            Page<ExecutedJob> page = jobExecutionProvider.findAll(defaultFilter, pageRequest(start, limit, sort)).map(jobExecution -> JobModelTransform.executedJobSimple(jobExecution));
-            return ModelUtils.toSearchResult(page);
-        });
+        return searchJobs(ensureDefaultFilter(filter, jobExecutionProvider.FAILED_FILTER), sort, limit, start, paging, after);
     }
 
 
@@ -392,15 +396,13 @@ public class JobsRestController {
                                         @QueryParam("limit") @DefaultValue("10") Integer limit,
                                         @QueryParam("start") @DefaultValue("1") Integer start,
                                         @QueryParam("filter") String filter,
+                                        @QueryParam("paging") @DefaultValue("offset") String paging,
+                                        @QueryParam("after") String after,
                                         @Context HttpServletRequest request) {
 
         this.accessController.checkPermission(AccessController.SERVICES, OperationsAccessControl.ACCESS_OPS);
 
-        return metadataAccess.read(() -> {
-            String defaultFilter = ensureDefaultFilter(filter, jobExecutionProvider.STOPPED_FILTER);
-            Page<ExecutedJob> page = jobExecutionProvider.findAll(defaultFilter, pageRequest(start, limit, sort)).map(jobExecution -> JobModelTransform.executedJobSimple(jobExecution));
-            return ModelUtils.toSearchResult(page);
-        });
+        return searchJobs(ensureDefaultFilter(filter, jobExecutionProvider.STOPPED_FILTER), sort, limit, start, paging, after);
 
     }
 
@@ -418,15 +420,13 @@ public class JobsRestController {
                                           @QueryParam("limit") @DefaultValue("10") Integer limit,
                                           @QueryParam("start") @DefaultValue("1") Integer start,
                                           @QueryParam("filter") String filter,
+                                          @QueryParam("paging") @DefaultValue("offset") String paging,
+                                          @QueryParam("after") String after,
                                           @Context HttpServletRequest request) {
 
         this.accessController.checkPermission(AccessController.SERVICES, OperationsAccessControl.ACCESS_OPS);
 
-        return metadataAccess.read(() -> {
-            String defaultFilter = ensureDefaultFilter(filter, jobExecutionProvider.COMPLETED_FILTER);
-            Page<ExecutedJob> page = jobExecutionProvider.findAll(defaultFilter, pageRequest(start, limit, sort)).map(jobExecution -> JobModelTransform.executedJobSimple(jobExecution));
-            return ModelUtils.toSearchResult(page);
-        });
+        return searchJobs(ensureDefaultFilter(filter, jobExecutionProvider.COMPLETED_FILTER), sort, limit, start, paging, after);
 
     }
 
@@ -445,15 +445,13 @@ public class JobsRestController {
                                           @QueryParam("limit") @DefaultValue("10") Integer limit,
                                           @QueryParam("start") @DefaultValue("1") Integer start,
                                           @QueryParam("filter") String filter,
+                                          @QueryParam("paging") @DefaultValue("offset") String paging,
+                                          @QueryParam("after") String after,
                                           @Context HttpServletRequest request) {
 
         this.accessController.checkPermission(AccessController.SERVICES, OperationsAccessControl.ACCESS_OPS);
 
-        return metadataAccess.read(() -> {
-            String defaultFilter = ensureDefaultFilter(filter, jobExecutionProvider.ABANDONED_FILTER);
-            Page<ExecutedJob> page = jobExecutionProvider.findAll(defaultFilter, pageRequest(start, limit, sort)).map(jobExecution -> JobModelTransform.executedJobSimple(jobExecution));
-            return ModelUtils.toSearchResult(page);
-        });
+        return searchJobs(ensureDefaultFilter(filter, jobExecutionProvider.ABANDONED_FILTER), sort, limit, start, paging, after);
     }
 
 
@@ -501,6 +499,55 @@ public class JobsRestController {
 
     }
 
+    /**
+     * Find a page of jobs by offset, or by keyset if requested or a continuation token is given
+     */
+    private SearchResult searchJobs(String filter, String sort, Integer limit, Integer start, String paging, String after) {
+        if (KEYSET_PAGING.equalsIgnoreCase(paging) || StringUtils.isNotBlank(after)) {
+            return findJobsAfter(filter, limit, after);
+        }
+        return metadataAccess.read(() -> {
+            Page<ExecutedJob> page = jobExecutionProvider.findAll(filter, pageRequest(start, limit, sort)).map(jobExecution -> JobModelTransform.executedJobSimple(jobExecution));
+            return ModelUtils.toSearchResult(page);
+        });
+    }
+
+    /**
+     * Find the page of jobs after the continuation token, newest first.
+     * The total is the cached count for the filter, which may be out of date or null while it is being computed.
+     */
+    private SearchResult findJobsAfter(String filter, Integer limit, String after) {
+        if (limit == null || limit < 1) {
+            throw new BadRequestException("The limit must be a positive integer: " + limit);
+        }
+        //fetch one extra job to find out if there is another page
+        final int fetchLimit = (limit < Integer.MAX_VALUE) ? limit + 1 : limit;
+        final JobPageToken token;
+        try {
+            token = StringUtils.isNotBlank(after) ? JobPageToken.decode(after) : null;
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException(e.getMessage());
+        }
+
+        SearchResult searchResult = metadataAccess.read(() -> {
+            List<? extends BatchJobExecution> jobExecutions = jobExecutionProvider.findAllAfter(filter, token != null ? token.getStartTime() : null, token != null ? token.getJobExecutionId() : null,
+                                                                                                 fetchLimit);
+            String nextPage = null;
+            if (jobExecutions.size() > limit) {
+                jobExecutions = jobExecutions.subList(0, limit);
+                BatchJobExecution last = jobExecutions.get(jobExecutions.size() - 1);
+                nextPage = new JobPageToken(last.getStartTime().getMillis(), last.getJobExecutionId()).encode();
+            }
+            List<ExecutedJob> jobs = jobExecutions.stream().map(jobExecution -> JobModelTransform.executedJobSimple(jobExecution)).collect(Collectors.toList());
+            return ModelUtils.toSearchResult(jobs, null, nextPage);
+        });
+
+        Long total = jobExecutionCountCache.getCount(filter);
+        searchResult.setRecordsTotal(total);
+        searchResult.setRecordsFiltered(total);
+        return searchResult;
+    }
+
     /**
      * This will evaluate the {@code incomingFilter} and append/set the value including the {@code defaultFilter} and return a new String with the updated filter
      */
@@ -44,6 +44,10 @@ public class NiFiFlowCacheSync {
     private DateTime lastSync;
     private String message;
     private boolean updated = false;
+    /**
+     * The version of the Kylo flow cache change log this sync has received.  Only used on the server side.
+     */
+    private Long version;
 
     public NiFiFlowCacheSync() {
         this((NifiFlowCacheSnapshot) null);
@@ -162,6 +166,17 @@ public class NiFiFlowCacheSync {
     public void reset() {
         this.snapshot = null;
         this.lastSync = null;
+        this.version = null;
+    }
+
+    @JsonIgnore
+    public Long getVersion() {
+        return version;
+    }
+
+    @JsonIgnore
+    public void setVersion(Long version) {
+        this.version = version;
     }
 
     public String getSyncId() {
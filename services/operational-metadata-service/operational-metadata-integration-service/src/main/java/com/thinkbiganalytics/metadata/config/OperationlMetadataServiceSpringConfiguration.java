@@ -21,8 +21,13 @@ package com.thinkbiganalytics.metadata.config;
  */
 
 import com.thinkbiganalytics.alerts.api.AlertProvider;
+import com.thinkbiganalytics.metadata.jobrepo.FeedJobCountsReconciliationService;
+import com.thinkbiganalytics.metadata.jobrepo.JobExecutionCountCache;
 import com.thinkbiganalytics.metadata.jobrepo.nifi.provenance.NifiStatsJmsReceiver;
+import com.thinkbiganalytics.metadata.jobrepo.nifi.provenance.NifiStatsRetentionService;
+import com.thinkbiganalytics.metadata.jobrepo.nifi.provenance.ProvenanceBinaryPayloadDecoder;
 import com.thinkbiganalytics.metadata.sla.DefaultServiceLevelAgreementScheduler;
+import com.thinkbiganalytics.metadata.sla.FeedEventServiceLevelAgreementAssessor;
 import com.thinkbiganalytics.metadata.sla.JpaJcrServiceLevelAgreementChecker;
 import com.thinkbiganalytics.metadata.sla.ServiceLevelAgreementActionAlertResponderFactory;
 import com.thinkbiganalytics.metadata.sla.spi.ServiceLevelAgreementChecker;
@@ -43,11 +48,36 @@ public class OperationlMetadataServiceSpringConfiguration {
         return new NifiStatsJmsReceiver();
     }
 
+    @Bean
+    public NifiStatsRetentionService nifiStatsRetentionService() {
+        return new NifiStatsRetentionService();
+    }
+
+    @Bean
+    public FeedJobCountsReconciliationService feedJobCountsReconciliationService() {
+        return new FeedJobCountsReconciliationService();
+    }
+
+    @Bean
+    public JobExecutionCountCache jobExecutionCountCache() {
+        return new JobExecutionCountCache();
+    }
+
+    @Bean
+    public ProvenanceBinaryPayloadDecoder provenanceBinaryPayloadDecoder() {
+        return new ProvenanceBinaryPayloadDecoder();
+    }
+
     @Bean
     public ServiceLevelAgreementScheduler serviceLevelAgreementScheduler() {
         return new DefaultServiceLevelAgreementScheduler();
     }
 
+    @Bean
+    public FeedEventServiceLevelAgreementAssessor feedEventServiceLevelAgreementAssessor() {
+        return new FeedEventServiceLevelAgreementAssessor();
+    }
+
     @Bean
     public ServiceLevelAgreementChecker serviceLevelAgreementChecker() {
         return new JpaJcrServiceLevelAgreementChecker();
@@ -0,0 +1,99 @@
+package com.thinkbiganalytics.metadata.jobrepo;
+
+/*-
+ * #%L
+ * thinkbig-operational-metadata-integration-service
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.metadata.api.MetadataAccess;
+import com.thinkbiganalytics.metadata.api.feed.BatchFeedJobCountsProvider;
+import com.thinkbiganalytics.metadata.api.feed.OpsManagerFeed;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+
+/**
+ * Periodically rebuilds the per feed job counts from the job history.
+ * The counts are updated as jobs change, this corrects any drift from jobs that were changed outside of Kylo or by a failed transaction.
+ * Each feed is reconciled in its own transaction so the feeds counts are only locked briefly.
+ */
+public class FeedJobCountsReconciliationService {
+
+    private static final Logger log = LoggerFactory.getLogger(FeedJobCountsReconciliationService.class);
+
+    @Inject
+    private BatchFeedJobCountsProvider feedJobCountsProvider;
+
+    @Inject
+    private MetadataAccess metadataAccess;
+
+    /**
+     * How often to reconcile the job counts.  0 or less disables the reconciliation
+     */
+    @Value("${kylo.ops.mgr.feed.job.counts.reconcile.interval.minutes:60}")
+    private int reconcileIntervalMinutes;
+
+    private ScheduledExecutorService executorService;
+
+    @PostConstruct
+    private void init() {
+        if (reconcileIntervalMinutes > 0) {
+            executorService = Executors.newSingleThreadScheduledExecutor();
+            executorService.scheduleWithFixedDelay(this::reconcile, reconcileIntervalMinutes, reconcileIntervalMinutes, TimeUnit.MINUTES);
+        }
+    }
+
+    @PreDestroy
+    private void destroy() {
+        if (executorService != null) {
+            executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * Rebuild the job counts of every feed
+     */
+    public void reconcile() {
+        try {
+            List<OpsManagerFeed.ID> feedIds = metadataAccess.read(() -> feedJobCountsProvider.findFeedIds(), MetadataAccess.SERVICE);
+            int corrected = 0;
+            for (OpsManagerFeed.ID feedId : feedIds) {
+                try {
+                    if (metadataAccess.commit(() -> feedJobCountsProvider.reconcile(feedId), MetadataAccess.SERVICE)) {
+                        corrected++;
+                    }
+                } catch (Exception e) {
+                    log.error("Unable to reconcile the job counts for feed {}", feedId, e);
+                }
+            }
+            log.info("Reconciled the job counts of {} feeds. {} were corrected", feedIds.size(), corrected);
+        } catch (Exception e) {
+            log.error("Unable to reconcile the feed job counts", e);
+        }
+    }
+}
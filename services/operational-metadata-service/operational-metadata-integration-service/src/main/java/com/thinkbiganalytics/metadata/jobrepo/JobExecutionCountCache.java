@@ -0,0 +1,211 @@
+package com.thinkbiganalytics.metadata.jobrepo;
+
+/*-
+ * #%L
+ * thinkbig-operational-metadata-integration-service
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.thinkbiganalytics.metadata.api.MetadataAccess;
+import com.thinkbiganalytics.metadata.api.jobrepo.job.BatchJobExecutionProvider;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.concurrent.DelegatingSecurityContextRunnable;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+
+/**
+ * Caches the number of job executions matching a filter so that paging through the jobs does not count the whole job history on every request.
+ * Counts are computed in the background as the current user, so the feed access checks still apply, and are refreshed in the background once they are older than the refresh interval.
+ * Until the first count completes no count is available.
+ */
+public class JobExecutionCountCache {
+
+    private static final Logger log = LoggerFactory.getLogger(JobExecutionCountCache.class);
+
+    @Inject
+    private BatchJobExecutionProvider jobExecutionProvider;
+
+    @Inject
+    private MetadataAccess metadataAccess;
+
+    /**
+     * How long a count is used before it is refreshed
+     */
+    @Value("${kylo.ops.mgr.job.count.cache.refresh.seconds:30}")
+    private int refreshSeconds;
+
+    /**
+     * Maximum number of user and filter combinations to keep counts for
+     */
+    @Value("${kylo.ops.mgr.job.count.cache.max.entries:1000}")
+    private int maxEntries;
+
+    /**
+     * Number of threads counting the jobs
+     */
+    @Value("${kylo.ops.mgr.job.count.cache.threads:2}")
+    private int threads;
+
+    private Cache<CountKey, CachedCount> counts;
+
+    private ExecutorService executorService;
+
+    @PostConstruct
+    private void init() {
+        counts = CacheBuilder.newBuilder()
+            .maximumSize(maxEntries)
+            .expireAfterAccess(10, TimeUnit.MINUTES)
+            .build();
+        executorService = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder().setNameFormat("job-count-cache-%d").setDaemon(true).build());
+    }
+
+    @PreDestroy
+    private void destroy() {
+        if (executorService != null) {
+            executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * Get the number of job executions matching the filter for the current user.
+     * A refresh is started in the background if the count is missing or older than the refresh interval.
+     *
+     * @param filter the filter string
+     * @return the last computed count, or null if the first count has not completed
+     */
+    public Long getCount(String filter) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        CountKey key = new CountKey(authentication != null ? authentication.getName() : null, StringUtils.defaultString(filter));
+        CachedCount count = counts.asMap().computeIfAbsent(key, k -> new CachedCount());
+
+        if (count.startRefresh(TimeUnit.SECONDS.toMillis(refreshSeconds))) {
+            SecurityContext securityContext = SecurityContextHolder.createEmptyContext();
+            securityContext.setAuthentication(authentication);
+            try {
+                executorService.execute(new DelegatingSecurityContextRunnable(() -> refresh(filter, count), securityContext));
+            } catch (RejectedExecutionException e) {
+                count.refreshFailed();
+            }
+        }
+        return count.getValue();
+    }
+
+    /**
+     * Count the job executions matching the filter
+     */
+    private void refresh(String filter, CachedCount count) {
+        try {
+            long start = System.currentTimeMillis();
+            Long value = metadataAccess.read(() -> jobExecutionProvider.count(filter));
+            count.refreshed(value);
+            log.debug("Counted {} jobs for filter {} in {} ms", value, filter, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("Unable to count the jobs for filter {}", filter, e);
+            count.refreshFailed();
+        }
+    }
+
+    /**
+     * The user and filter a count is for
+     */
+    private static class CountKey {
+
+        private final String user;
+        private final String filter;
+
+        CountKey(String user, String filter) {
+            this.user = user;
+            this.filter = filter;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            CountKey that = (CountKey) o;
+            return Objects.equals(user, that.user) && Objects.equals(filter, that.filter);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(user, filter);
+        }
+    }
+
+    /**
+     * The last count for a user and filter
+     */
+    private static class CachedCount {
+
+        private volatile Long value;
+        private long refreshedTime;
+        private boolean refreshing;
+
+        Long getValue() {
+            return value;
+        }
+
+        /**
+         * Mark the count as refreshing if it is not already being refreshed and is older than the refresh interval
+         *
+         * @return true if the caller should refresh the count
+         */
+        synchronized boolean startRefresh(long refreshMillis) {
+            if (refreshing || (refreshedTime > 0 && System.currentTimeMillis() - refreshedTime < refreshMillis)) {
+                return false;
+            }
+            refreshing = true;
+            return true;
+        }
+
+        synchronized void refreshed(Long value) {
+            this.value = value;
+            refreshedTime = System.currentTimeMillis();
+            refreshing = false;
+        }
+
+        /**
+         * Keep the previous count until the next refresh interval
+         */
+        synchronized void refreshFailed() {
+            refreshedTime = System.currentTimeMillis();
+            refreshing = false;
+        }
+    }
+}
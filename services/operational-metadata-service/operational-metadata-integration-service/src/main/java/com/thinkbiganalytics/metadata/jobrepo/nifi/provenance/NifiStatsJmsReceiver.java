@@ -54,9 +54,8 @@ public class NifiStatsJmsReceiver {
 
         metadataAccess.commit(() -> {
             List<NifiFeedProcessorStats> summaryStats = createSummaryStats(stats);
-            for (NifiFeedProcessorStats stat : summaryStats) {
-                nifiEventStatisticsProvider.create(stat);
-            }
+            //saves the stats and folds them into the minute/hour/day rollups
+            nifiEventStatisticsProvider.create(summaryStats);
             return summaryStats;
         }, MetadataAccess.SERVICE);
 
@@ -0,0 +1,117 @@
+package com.thinkbiganalytics.metadata.jobrepo.nifi.provenance;
+
+/*-
+ * #%L
+ * thinkbig-operational-metadata-integration-service
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.metadata.api.MetadataAccess;
+import com.thinkbiganalytics.metadata.api.jobrepo.nifi.NifiFeedProcessorStatisticsProvider;
+import com.thinkbiganalytics.metadata.api.jobrepo.nifi.NifiFeedProcessorStatisticsProvider.RollupLevel;
+
+import org.joda.time.DateTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+
+/**
+ * Periodically removes the raw NiFi feed processor statistics and the fine grained rollups once they are older than their configured retention.
+ * Queries over long time windows are answered from the hour and day rollups so the raw rows are not needed once they age out.
+ * A retention of 0 or less keeps the records forever.
+ */
+public class NifiStatsRetentionService {
+
+    private static final Logger log = LoggerFactory.getLogger(NifiStatsRetentionService.class);
+
+    @Inject
+    private NifiFeedProcessorStatisticsProvider nifiFeedProcessorStatisticsProvider;
+
+    @Inject
+    private MetadataAccess metadataAccess;
+
+    /**
+     * Number of days to keep the raw stats records received from NiFi
+     */
+    @Value("${kylo.ops.mgr.stats.retention.raw.days:30}")
+    private int rawRetentionDays;
+
+    /**
+     * Number of days to keep the minute rollups
+     */
+    @Value("${kylo.ops.mgr.stats.retention.minute.days:7}")
+    private int minuteRetentionDays;
+
+    /**
+     * Number of days to keep the hour rollups
+     */
+    @Value("${kylo.ops.mgr.stats.retention.hour.days:0}")
+    private int hourRetentionDays;
+
+    /**
+     * How often to run the retention
+     */
+    @Value("${kylo.ops.mgr.stats.retention.interval.minutes:60}")
+    private int retentionIntervalMinutes;
+
+    private ScheduledExecutorService executorService;
+
+    @PostConstruct
+    private void init() {
+        executorService = Executors.newSingleThreadScheduledExecutor();
+        executorService.scheduleWithFixedDelay(this::applyRetention, retentionIntervalMinutes, retentionIntervalMinutes, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    private void destroy() {
+        if (executorService != null) {
+            executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * Remove the records that are older than their retention
+     */
+    public void applyRetention() {
+        try {
+            DateTime now = DateTime.now();
+            metadataAccess.commit(() -> {
+                if (rawRetentionDays > 0) {
+                    int deleted = nifiFeedProcessorStatisticsProvider.deleteStatisticsBefore(now.minusDays(rawRetentionDays));
+                    log.info("Removed {} NiFi feed processor statistics older than {} days", deleted, rawRetentionDays);
+                }
+                if (minuteRetentionDays > 0) {
+                    nifiFeedProcessorStatisticsProvider.deleteRollupsBefore(RollupLevel.MINUTE, now.minusDays(minuteRetentionDays));
+                }
+                if (hourRetentionDays > 0) {
+                    nifiFeedProcessorStatisticsProvider.deleteRollupsBefore(RollupLevel.HOUR, now.minusDays(hourRetentionDays));
+                }
+                return null;
+            }, MetadataAccess.SERVICE);
+        } catch (Exception e) {
+            log.error("Unable to apply the retention to the NiFi feed processor statistics", e);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.thinkbiganalytics.metadata.jobrepo.nifi.provenance;
+
+/*-
+ * #%L
+ * thinkbig-operational-metadata-integration-service
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.activemq.JmsPayloadDecoder;
+import com.thinkbiganalytics.nifi.provenance.model.codec.ProvenanceBinaryCodec;
+
+import java.io.IOException;
+
+/**
+ * Decodes provenance events and statistics sent by the NiFi reporting task using the {@link ProvenanceBinaryCodec}.
+ * The decoded {@link com.thinkbiganalytics.nifi.provenance.model.ProvenanceEventRecordDTOHolder} and {@link com.thinkbiganalytics.nifi.provenance.model.stats.AggregatedFeedProcessorStatisticsHolder}
+ * are handed to the {@link ProvenanceEventReceiver} and {@link NifiStatsJmsReceiver} exactly as if they had been sent using Java serialization.
+ */
+public class ProvenanceBinaryPayloadDecoder implements JmsPayloadDecoder {
+
+    @Override
+    public String getCodec() {
+        return ProvenanceBinaryCodec.CODEC_NAME;
+    }
+
+    @Override
+    public Object decode(byte[] payload) throws IOException {
+        return ProvenanceBinaryCodec.decode(payload);
+    }
+}
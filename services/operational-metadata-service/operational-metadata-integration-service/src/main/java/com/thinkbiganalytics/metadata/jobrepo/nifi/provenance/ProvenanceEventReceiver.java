@@ -55,7 +55,10 @@ import org.springframework.jms.annotation.JmsListener;
 import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
@@ -112,6 +115,11 @@ public class ProvenanceEventReceiver implements FailedStepExecutionListener, Del
     LoadingCache<String, OpsManagerFeed> opsManagerFeedCache = null;
     @Value("${kylo.ops.mgr.query.nifi.bulletins:false}")
     private boolean queryForNiFiBulletins;
+    /**
+     * When true all the events in a JMS message are persisted in a single transaction, otherwise each event is persisted in its own transactions
+     */
+    @Value("${kylo.ops.mgr.provenance.batch.persist:true}")
+    private boolean batchPersistEvents;
     @Inject
     private NifiEventProvider nifiEventProvider;
     @Inject
@@ -183,12 +191,103 @@ public class ProvenanceEventReceiver implements FailedStepExecutionListener, Del
     @JmsListener(destination = Queues.FEED_MANAGER_QUEUE, containerFactory = ActiveMqConstants.JMS_CONTAINER_FACTORY, concurrency = "3-10")
     public void receiveEvents(ProvenanceEventRecordDTOHolder events) {
         log.info("About to process batch: {},  {} events from the {} queue ", events.getBatchId(),events.getEvents().size(), Queues.FEED_MANAGER_QUEUE);
-        events.getEvents().stream()
-            .filter(this::isRegisteredWithFeedManager)
+        if (batchPersistEvents) {
+            List<ProvenanceEventRecordDTO> registeredEvents = events.getEvents().stream()
+                .filter(this::isRegisteredWithFeedManager)
+                .collect(Collectors.toList());
+            if (!registeredEvents.isEmpty()) {
+                processEventBatch(events.getBatchId(), registeredEvents, 0);
+            }
+        } else {
+            events.getEvents().stream()
+                .filter(this::isRegisteredWithFeedManager)
+                .filter(this::ensureNewEvent)
+                .forEach(event -> processEvent(event, 0));
+        }
+    }
+
+    /**
+     * Process all the events from a single JMS message in one transaction.
+     * If there is a lock error the entire batch is retried until it hits the {@link this#lockAcquisitionRetryAmount}.
+     * If the batch fails for any other reason the events are processed one at a time so a single bad event does not lose the rest of the batch.
+     *
+     * @param batchId      the id of the batch from NiFi
+     * @param events       the events registered with feed manager
+     * @param retryAttempt the retry number
+     */
+    private void processEventBatch(String batchId, List<ProvenanceEventRecordDTO> events, int retryAttempt) {
+        try {
+            List<ProvenanceEventRecordDTO> persistedEvents = metadataAccess.commit(() -> persistEventBatch(events), MetadataAccess.SERVICE);
+            //only notify once the batch is committed
+            persistedEvents.stream()
+                .filter(ProvenanceEventRecordDTO::isFinalJobEvent)
+                .forEach(this::notifyJobFinished);
+        } catch (LockAcquisitionException lae) {
+            if (retryAttempt < lockAcquisitionRetryAmount) {
+                retryAttempt++;
+                log.error("LockAcquisitionException found trying to process batch: {} of {} events.  Retry attempt # {} ", batchId, events.size(), retryAttempt, lae);
+                //wait and re attempt
+                try {
+                    Thread.sleep(300L);
+                } catch (InterruptedException var10) {
+
+                }
+                processEventBatch(batchId, events, retryAttempt);
+            } else {
+                log.error("LockAcquisitionException found.  Unsuccessful after retrying batch {} {} times.  Processing the {} events individually. ", batchId, retryAttempt, events.size(), lae);
+                processEventsIndividually(events);
+            }
+        } catch (Exception e) {
+            log.error("Error processing batch: {}.  Processing the {} events individually. ", batchId, events.size(), e);
+            processEventsIndividually(events);
+        }
+    }
+
+    /**
+     * Process each event in its own transaction
+     *
+     * @param events the provenance events
+     */
+    private void processEventsIndividually(List<ProvenanceEventRecordDTO> events) {
+        events.stream()
             .filter(this::ensureNewEvent)
             .forEach(event -> processEvent(event, 0));
     }
 
+    /**
+     * Persist a batch of events along with their Jobs and Steps.  This needs to be called within a transaction.
+     * Events already persisted are skipped using a single query, the nifi events are saved together, and the job executions for all the job flow files in the batch are found with a single query.
+     * Batch events are applied to their job in event id order.
+     *
+     * @param events the provenance events
+     * @return the events that were persisted
+     */
+    private List<ProvenanceEventRecordDTO> persistEventBatch(List<ProvenanceEventRecordDTO> events) {
+        List<ProvenanceEventRecordDTO> newEvents = nifiEventProvider.filterNewEvents(events);
+        if (newEvents.isEmpty()) {
+            return newEvents;
+        }
+        Map<ProvenanceEventRecordDTO, NifiEvent> nifiEvents = nifiEventProvider.create(newEvents);
+
+        //group the batch events by their job flow file
+        Map<String, List<ProvenanceEventRecordDTO>> eventsByJobFlowFile = newEvents.stream()
+            .filter(ProvenanceEventRecordDTO::isBatchJob)
+            .sorted(Comparator.comparing(ProvenanceEventRecordDTO::getEventId))
+            .collect(Collectors.groupingBy(ProvenanceEventRecordDTO::getJobFlowFileId, LinkedHashMap::new, Collectors.toList()));
+
+        if (!eventsByJobFlowFile.isEmpty()) {
+            Map<String, BatchJobExecution> jobExecutions = batchJobExecutionProvider.findJobExecutionsByFlowFiles(eventsByJobFlowFile.keySet());
+            for (List<ProvenanceEventRecordDTO> jobEvents : eventsByJobFlowFile.values()) {
+                for (ProvenanceEventRecordDTO event : jobEvents) {
+                    log.debug("Received ProvenanceEvent {}.  is end of Job: {}.  is ending flowfile:{}, isBatch: {}", event, event.isEndOfJob(), event.isEndingFlowFileEvent(), event.isBatchJob());
+                    BatchJobExecution jobExecution = batchJobExecutionProvider.getOrCreateJobExecution(event, jobExecutions);
+                    batchJobExecutionProvider.save(jobExecution, event, nifiEvents.get(event));
+                }
+            }
+        }
+        return newEvents;
+    }
+
     /**
      * process the event and persist it along with creating the Job and Step.  If there is a lock error it will retry until it hits the {@link this#lockAcquisitionRetryAmount}
      *
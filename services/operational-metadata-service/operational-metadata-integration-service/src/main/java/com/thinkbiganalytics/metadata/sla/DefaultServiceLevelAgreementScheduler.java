@@ -66,6 +66,10 @@ public class DefaultServiceLevelAgreementScheduler implements ServiceLevelAgreem
 
     public static String QTZ_JOB_UNSCHEDULED_MESSAGE_TYPE = "QTZ_JOB_UNSCHEDULED";
 
+    public static String SLA_EVENT_REGISTERED_MESSAGE_TYPE = "SLA_EVENT_REGISTERED";
+
+    public static String SLA_EVENT_UNREGISTERED_MESSAGE_TYPE = "SLA_EVENT_UNREGISTERED";
+
     @Inject
     ServiceLevelAgreementProvider slaProvider;
     private String DEFAULT_CRON = "0 0/5 * 1/1 * ? *";// every 5 min
@@ -81,6 +85,9 @@ public class DefaultServiceLevelAgreementScheduler implements ServiceLevelAgreem
     @Inject
     private ClusterService clusterService;
 
+    @Inject
+    private FeedEventServiceLevelAgreementAssessor eventAssessor;
+
     private Map<ServiceLevelAgreement.ID, String> scheduledJobNames = new ConcurrentHashMap<>();
 
     /**
@@ -96,7 +103,12 @@ public class DefaultServiceLevelAgreementScheduler implements ServiceLevelAgreem
                      for (ServiceLevelAgreement agreement : agreements) {
                          JobIdentifier jobIdentifier = slaJobName(agreement);
                          QuartzScheduler scheduler = (QuartzScheduler)jobScheduler;
-                         if(!scheduler.jobExists(jobIdentifier)) {
+                         if (eventAssessor.register(agreement)) {
+                             //assessed on feed events, remove any schedule created before event assessment was enabled
+                             if (scheduler.jobExists(jobIdentifier)) {
+                                 deleteJob(jobIdentifier);
+                             }
+                         } else if(!scheduler.jobExists(jobIdentifier)) {
                              scheduleServiceLevelAgreement(agreement);
                          }
                      }
@@ -160,6 +172,12 @@ public class DefaultServiceLevelAgreementScheduler implements ServiceLevelAgreem
     public boolean unscheduleServiceLevelAgreement(ServiceLevelAgreement.ID slaId) {
         boolean unscheduled = false;
         JobIdentifier scheduledJobId = null;
+        if (eventAssessor.unregister(slaId)) {
+            unscheduled = true;
+            if (clusterService.isClustered()) {
+                clusterService.sendMessageToOthers(SLA_EVENT_UNREGISTERED_MESSAGE_TYPE, new ScheduledServiceLevelAgreementClusterMessage(slaId, null));
+            }
+        }
         try {
             if (scheduledJobNames.containsKey(slaId)) {
                 scheduledJobId = jobIdentifierForName(scheduledJobNames.get(slaId));
@@ -178,6 +196,14 @@ public class DefaultServiceLevelAgreementScheduler implements ServiceLevelAgreem
     }
 
 
+    private void deleteJob(JobIdentifier jobIdentifier) {
+        try {
+            jobScheduler.deleteJob(jobIdentifier);
+        } catch (JobSchedulerException e) {
+            log.error("Unable to delete the SLA Job " + jobIdentifier);
+        }
+    }
+
     private JobIdentifier slaJobName(ServiceLevelAgreement sla) {
         String name = sla.getName();
         if (scheduledJobNames.containsKey(sla.getId())) {
@@ -270,9 +296,16 @@ public class DefaultServiceLevelAgreementScheduler implements ServiceLevelAgreem
      * @param sla The SLA to schedule
      */
     public void scheduleServiceLevelAgreement(ServiceLevelAgreement sla) {
-            if (scheduledJobNames.containsKey(sla.getId())) {
+            if (scheduledJobNames.containsKey(sla.getId()) || eventAssessor.isRegistered(sla.getId())) {
                 unscheduleServiceLevelAgreement(sla);
             }
+            if (eventAssessor.register(sla)) {
+                log.debug("SLA {} will be assessed on feed events", sla.getName());
+                if (clusterService.isClustered()) {
+                    clusterService.sendMessageToOthers(SLA_EVENT_REGISTERED_MESSAGE_TYPE, new ScheduledServiceLevelAgreementClusterMessage(sla.getId(), null));
+                }
+                return;
+            }
             JobIdentifier jobIdentifier = slaJobName(sla);
             ServiceLevelAgreement.ID slaId = sla.getId();
             //schedule the job
@@ -378,6 +411,14 @@ public class DefaultServiceLevelAgreementScheduler implements ServiceLevelAgreem
             ScheduledServiceLevelAgreementClusterMessage msg = (ScheduledServiceLevelAgreementClusterMessage) message.getMessage();
             scheduledJobNames.remove(msg.getSlaId());
         }
+        else if (SLA_EVENT_REGISTERED_MESSAGE_TYPE.equalsIgnoreCase(message.getType())) {
+            ScheduledServiceLevelAgreementClusterMessage msg = (ScheduledServiceLevelAgreementClusterMessage) message.getMessage();
+            metadataAccess.read(() -> findAgreement(msg.getSlaId()).ifPresent(sla -> eventAssessor.register(sla)), MetadataAccess.SERVICE);
+        }
+        else if (SLA_EVENT_UNREGISTERED_MESSAGE_TYPE.equalsIgnoreCase(message.getType())) {
+            ScheduledServiceLevelAgreementClusterMessage msg = (ScheduledServiceLevelAgreementClusterMessage) message.getMessage();
+            eventAssessor.unregister(msg.getSlaId());
+        }
     }
 
 
@@ -0,0 +1,343 @@
+package com.thinkbiganalytics.metadata.sla;
+
+/*-
+ * #%L
+ * thinkbig-operational-metadata-integration-service
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.metadata.api.MetadataAccess;
+import com.thinkbiganalytics.metadata.api.event.MetadataEventListener;
+import com.thinkbiganalytics.metadata.api.event.MetadataEventService;
+import com.thinkbiganalytics.metadata.api.event.feed.FeedOperationStatusEvent;
+import com.thinkbiganalytics.metadata.api.op.FeedOperation;
+import com.thinkbiganalytics.metadata.api.sla.DeadlineMetric;
+import com.thinkbiganalytics.metadata.api.sla.FeedMetric;
+import com.thinkbiganalytics.metadata.sla.api.Metric;
+import com.thinkbiganalytics.metadata.sla.api.Obligation;
+import com.thinkbiganalytics.metadata.sla.api.ServiceLevelAgreement;
+import com.thinkbiganalytics.metadata.sla.spi.ServiceLevelAgreementChecker;
+import com.thinkbiganalytics.metadata.sla.spi.ServiceLevelAgreementProvider;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+
+/**
+ * Assesses service level agreements when the jobs of the feeds they reference complete, rather than on a schedule.
+ *
+ * Only agreements whose metrics are all {@link FeedMetric}s or {@link DeadlineMetric}s are handled here; the {@link DefaultServiceLevelAgreementScheduler} keeps
+ * scheduling the others.  A {@link FeedOperationStatusEvent} re-assesses just the agreements referencing that feed, and the next deadline of each agreement is kept
+ * in a single {@link TimerWheel} so an agreement is also assessed when a deadline passes without any job completing.
+ *
+ * Deadlines are tracked on every node of a cluster so a deadline may be assessed once per node.  Alerts are only raised when an assessment differs from the
+ * previous one.
+ */
+public class FeedEventServiceLevelAgreementAssessor {
+
+    private static final Logger log = LoggerFactory.getLogger(FeedEventServiceLevelAgreementAssessor.class);
+
+    @Inject
+    private MetadataEventService eventService;
+
+    @Inject
+    private ServiceLevelAgreementProvider slaProvider;
+
+    @Inject
+    private ServiceLevelAgreementChecker slaChecker;
+
+    @Inject
+    private MetadataAccess metadataAccess;
+
+    @Value("${sla.assessment.event.enabled:false}")
+    private boolean enabled;
+
+    /**
+     * How long to wait after a feed event before assessing, so that other listeners of the event have run and bursts of jobs for a feed are assessed once
+     */
+    @Value("${sla.assessment.event.delay.millis:2000}")
+    private long eventDelayMillis;
+
+    @Value("${sla.assessment.event.threads:2}")
+    private int assessmentThreads;
+
+    @Value("${sla.assessment.timer.tick.millis:1000}")
+    private long tickMillis;
+
+    @Value("${sla.assessment.timer.wheel.size:512}")
+    private int wheelSize;
+
+    private final MetadataEventListener<FeedOperationStatusEvent> feedOperationListener = new FeedOperationListener();
+
+    /**
+     * The agreements to assess by feed name
+     */
+    private final Map<String, Set<ServiceLevelAgreement.ID>> agreementsByFeed = new ConcurrentHashMap<>();
+
+    /**
+     * The feeds and deadline metrics of each registered agreement
+     */
+    private final Map<ServiceLevelAgreement.ID, RegisteredAgreement> registeredAgreements = new ConcurrentHashMap<>();
+
+    /**
+     * Agreements waiting to be assessed, so that an agreement is only queued once.  All of the agreements pending when an assessment runs are assessed together
+     */
+    private final Set<ServiceLevelAgreement.ID> pendingAssessments = ConcurrentHashMap.newKeySet();
+
+    private TimerWheel<ServiceLevelAgreement.ID> deadlines;
+
+    private ScheduledExecutorService executor;
+
+    @PostConstruct
+    public void start() {
+        if (enabled) {
+            deadlines = new TimerWheel<>(tickMillis, wheelSize, System.currentTimeMillis());
+            executor = Executors.newScheduledThreadPool(Math.max(1, assessmentThreads));
+            executor.scheduleAtFixedRate(this::expireDeadlines, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+            eventService.addListener(feedOperationListener);
+            log.info("Assessing service level agreements on feed events");
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (enabled) {
+            eventService.removeListener(feedOperationListener);
+            executor.shutdownNow();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Check if the agreement can be assessed on feed events, that is all of its metrics reference a feed or have deadlines
+     *
+     * @param sla the agreement
+     * @return true if the agreement can be assessed on feed events
+     */
+    public static boolean isEventAssessable(ServiceLevelAgreement sla) {
+        boolean hasMetrics = false;
+        for (Obligation obligation : sla.getObligations()) {
+            for (Metric metric : obligation.getMetrics()) {
+                if (!(metric instanceof FeedMetric) && !(metric instanceof DeadlineMetric)) {
+                    return false;
+                }
+                hasMetrics = true;
+            }
+        }
+        return hasMetrics;
+    }
+
+    /**
+     * Register the agreement to be assessed on feed events, replacing any earlier registration.  Must be called inside a metadataAccess wrapper.
+     *
+     * @param sla the agreement
+     * @return true if the agreement is registered, false if assessment on feed events is disabled or the agreement has other metrics
+     */
+    public boolean register(ServiceLevelAgreement sla) {
+        if (!enabled || !isEventAssessable(sla)) {
+            unregister(sla.getId());
+            return false;
+        }
+
+        Set<String> feedNames = new HashSet<>();
+        Set<DeadlineMetric> deadlineMetrics = new HashSet<>();
+        for (Obligation obligation : sla.getObligations()) {
+            for (Metric metric : obligation.getMetrics()) {
+                if (metric instanceof FeedMetric && ((FeedMetric) metric).getFeedName() != null) {
+                    feedNames.add(((FeedMetric) metric).getFeedName());
+                }
+                if (metric instanceof DeadlineMetric) {
+                    deadlineMetrics.add((DeadlineMetric) metric);
+                }
+            }
+        }
+
+        RegisteredAgreement previous = registeredAgreements.put(sla.getId(), new RegisteredAgreement(feedNames, deadlineMetrics));
+        if (previous != null) {
+            removeFeeds(sla.getId(), previous.feedNames);
+        }
+        for (String feedName : feedNames) {
+            agreementsByFeed.computeIfAbsent(feedName, name -> ConcurrentHashMap.newKeySet()).add(sla.getId());
+        }
+        scheduleNextDeadline(sla.getId());
+        log.debug("Registered SLA {} for assessment on events for feeds {}", sla.getName(), feedNames);
+        return true;
+    }
+
+    /**
+     * Stop assessing the agreement on feed events
+     *
+     * @param slaId the agreement id
+     * @return true if the agreement was registered
+     */
+    public boolean unregister(ServiceLevelAgreement.ID slaId) {
+        RegisteredAgreement previous = registeredAgreements.remove(slaId);
+        if (previous != null) {
+            removeFeeds(slaId, previous.feedNames);
+            deadlines.cancel(slaId);
+            return true;
+        }
+        return false;
+    }
+
+    public boolean isRegistered(ServiceLevelAgreement.ID slaId) {
+        return registeredAgreements.containsKey(slaId);
+    }
+
+    private void removeFeeds(ServiceLevelAgreement.ID slaId, Set<String> feedNames) {
+        for (String feedName : feedNames) {
+            agreementsByFeed.computeIfPresent(feedName, (name, ids) -> {
+                ids.remove(slaId);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+
+    /**
+     * Schedule the earliest of the next deadlines of the agreement's metrics
+     */
+    private void scheduleNextDeadline(ServiceLevelAgreement.ID slaId) {
+        RegisteredAgreement agreement = registeredAgreements.get(slaId);
+        if (agreement == null) {
+            return;
+        }
+        Date now = new Date();
+        Date next = null;
+        for (DeadlineMetric metric : agreement.deadlineMetrics) {
+            Date deadline = metric.getNextDeadline(now);
+            if (deadline != null && (next == null || deadline.before(next))) {
+                next = deadline;
+            }
+        }
+        if (next != null) {
+            deadlines.schedule(slaId, next.getTime());
+        } else {
+            deadlines.cancel(slaId);
+        }
+    }
+
+    private void expireDeadlines() {
+        try {
+            for (ServiceLevelAgreement.ID slaId : deadlines.advance(System.currentTimeMillis())) {
+                queueAssessment(slaId, 0L);
+            }
+        } catch (Exception e) {
+            log.error("Unable to process the service level agreement deadlines", e);
+        }
+    }
+
+    private void queueAssessment(ServiceLevelAgreement.ID slaId, long delayMillis) {
+        if (pendingAssessments.add(slaId)) {
+            executor.schedule(this::assessPending, delayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Assess all of the pending agreements as a single batch so that metrics shared by the agreements are only evaluated once
+     */
+    private void assessPending() {
+        List<ServiceLevelAgreement.ID> slaIds = new ArrayList<>();
+        for (Iterator<ServiceLevelAgreement.ID> itr = pendingAssessments.iterator(); itr.hasNext(); ) {
+            slaIds.add(itr.next());
+            itr.remove();
+        }
+        if (slaIds.isEmpty()) {
+            return;
+        }
+
+        try {
+            metadataAccess.commit(() -> {
+                List<ServiceLevelAgreement> slas = new ArrayList<>(slaIds.size());
+                for (ServiceLevelAgreement.ID slaId : slaIds) {
+                    ServiceLevelAgreement sla = slaProvider.getAgreement(slaId);
+                    if (sla == null) {
+                        log.info("Unable to find SLA {}. It will no longer be assessed", slaId);
+                        unregister(slaId);
+                    } else if (sla.isEnabled()) {
+                        slas.add(sla);
+                    } else {
+                        log.info("SLA {} will not be assessed since it is disabled ", sla.getName());
+                    }
+                }
+                log.debug("Assessing {} SLAs on feed events", slas.size());
+                slaChecker.checkAgreements(slas);
+            }, MetadataAccess.SERVICE);
+        } catch (Exception e) {
+            log.error("Unable to assess SLAs {}", slaIds, e);
+        } finally {
+            for (ServiceLevelAgreement.ID slaId : slaIds) {
+                scheduleNextDeadline(slaId);
+            }
+        }
+    }
+
+    /**
+     * The feeds and deadline metrics of a registered agreement
+     */
+    private static class RegisteredAgreement {
+
+        private final Set<String> feedNames;
+
+        private final Set<DeadlineMetric> deadlineMetrics;
+
+        RegisteredAgreement(Set<String> feedNames, Set<DeadlineMetric> deadlineMetrics) {
+            this.feedNames = Collections.unmodifiableSet(feedNames);
+            this.deadlineMetrics = Collections.unmodifiableSet(deadlineMetrics);
+        }
+    }
+
+    /**
+     * Queues the agreements referencing the feed of a completed job for assessment
+     */
+    private class FeedOperationListener implements MetadataEventListener<FeedOperationStatusEvent> {
+
+        @Override
+        public void notify(@Nonnull final FeedOperationStatusEvent event) {
+            FeedOperation.State state = event.getData().getState();
+            String feedName = event.getData().getFeedName();
+            if (feedName != null && (FeedOperation.State.SUCCESS.equals(state) || FeedOperation.State.FAILURE.equals(state))) {
+                Set<ServiceLevelAgreement.ID> slaIds = agreementsByFeed.get(feedName);
+                if (slaIds != null) {
+                    for (ServiceLevelAgreement.ID slaId : slaIds) {
+                        queueAssessment(slaId, eventDelayMillis);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.thinkbiganalytics.metadata.sla;
+
+/*-
+ * #%L
+ * thinkbig-operational-metadata-integration-service
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A hashed timer wheel holding one deadline per key.
+ *
+ * Deadlines are rounded up to a tick and kept in the bucket for that tick modulo the wheel size, so scheduling and cancelling are constant time and each tick only
+ * looks at the deadlines in one bucket.  Deadlines further away than one turn of the wheel stay in their bucket until their tick is reached.  The wheel does not
+ * run a thread itself; the owner calls {@link #advance(long)} periodically.
+ *
+ * @param <K> the key type
+ */
+public class TimerWheel<K> {
+
+    private final long tickMillis;
+
+    private final long startMillis;
+
+    private final List<Set<Timeout<K>>> buckets;
+
+    private final Map<K, Timeout<K>> timeouts = new HashMap<>();
+
+    /**
+     * the last tick that has been processed
+     */
+    private long currentTick;
+
+    /**
+     * @param tickMillis  the duration of a tick
+     * @param wheelSize   the number of buckets
+     * @param startMillis the time of tick 0
+     */
+    public TimerWheel(long tickMillis, int wheelSize, long startMillis) {
+        if (tickMillis <= 0 || wheelSize <= 0) {
+            throw new IllegalArgumentException("The tick duration and wheel size must be positive");
+        }
+        this.tickMillis = tickMillis;
+        this.startMillis = startMillis;
+        this.buckets = new ArrayList<>(wheelSize);
+        for (int i = 0; i < wheelSize; i++) {
+            buckets.add(new LinkedHashSet<>());
+        }
+    }
+
+    /**
+     * Schedule the deadline for the key, replacing any deadline already scheduled for it.  Deadlines already passed expire on the next tick.
+     *
+     * @param key            the key
+     * @param deadlineMillis the deadline
+     */
+    public synchronized void schedule(K key, long deadlineMillis) {
+        cancel(key);
+        long tick = Math.max(ceilDiv(deadlineMillis - startMillis, tickMillis), currentTick + 1);
+        Timeout<K> timeout = new Timeout<>(key, tick);
+        timeouts.put(key, timeout);
+        bucket(tick).add(timeout);
+    }
+
+    /**
+     * Cancel the deadline for the key
+     *
+     * @param key the key
+     * @return true if a deadline was scheduled for the key
+     */
+    public synchronized boolean cancel(K key) {
+        Timeout<K> timeout = timeouts.remove(key);
+        if (timeout != null) {
+            bucket(timeout.tick).remove(timeout);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Process the ticks up to the given time and return the keys whose deadlines have been reached
+     *
+     * @param nowMillis the current time
+     * @return the expired keys, in deadline order
+     */
+    public synchronized List<K> advance(long nowMillis) {
+        List<K> expired = new ArrayList<>();
+        long targetTick = Math.floorDiv(nowMillis - startMillis, tickMillis);
+        while (currentTick < targetTick && !timeouts.isEmpty()) {
+            currentTick++;
+            Iterator<Timeout<K>> iterator = bucket(currentTick).iterator();
+            while (iterator.hasNext()) {
+                Timeout<K> timeout = iterator.next();
+                if (timeout.tick <= currentTick) {
+                    iterator.remove();
+                    timeouts.remove(timeout.key);
+                    expired.add(timeout.key);
+                }
+            }
+        }
+        currentTick = Math.max(currentTick, targetTick);
+        return expired;
+    }
+
+    /**
+     * @return the number of scheduled deadlines
+     */
+    public synchronized int size() {
+        return timeouts.size();
+    }
+
+    private Set<Timeout<K>> bucket(long tick) {
+        return buckets.get((int) Math.floorMod(tick, (long) buckets.size()));
+    }
+
+    private static long ceilDiv(long x, long y) {
+        return -Math.floorDiv(-x, y);
+    }
+
+    private static final class Timeout<K> {
+
+        private final K key;
+
+        private final long tick;
+
+        private Timeout(K key, long tick) {
+            this.key = key;
+            this.tick = tick;
+        }
+    }
+}
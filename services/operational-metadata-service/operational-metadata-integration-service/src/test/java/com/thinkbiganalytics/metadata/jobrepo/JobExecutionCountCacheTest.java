@@ -0,0 +1,276 @@
+package com.thinkbiganalytics.metadata.jobrepo;
+
+/*-
+ * #%L
+ * thinkbig-operational-metadata-integration-service
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.metadata.api.MetadataAccess;
+import com.thinkbiganalytics.metadata.api.MetadataAction;
+import com.thinkbiganalytics.metadata.api.MetadataCommand;
+import com.thinkbiganalytics.metadata.api.MetadataRollbackAction;
+import com.thinkbiganalytics.metadata.api.MetadataRollbackCommand;
+import com.thinkbiganalytics.metadata.api.jobrepo.job.BatchJobExecutionProvider;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.security.Principal;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class JobExecutionCountCacheTest {
+
+    private static final String FILTER = "status==FAILED";
+
+    private BatchJobExecutionProvider jobExecutionProvider;
+
+    private JobExecutionCountCache cache;
+
+    /**
+     * Released once for each count the provider may complete
+     */
+    private final Semaphore countPermits = new Semaphore(0);
+
+    /**
+     * Released each time a background count has finished and the cache has stored it, or kept the previous count
+     */
+    private final Semaphore countsDone = new Semaphore(0);
+
+    /**
+     * The value returned by the next count
+     */
+    private final AtomicLong nextCount = new AtomicLong();
+
+    /**
+     * The users the counts were made as
+     */
+    private final List<String> countUsers = new CopyOnWriteArrayList<>();
+
+    @Before
+    public void setUp() {
+        jobExecutionProvider = Mockito.mock(BatchJobExecutionProvider.class);
+        Mockito.when(jobExecutionProvider.count(Mockito.anyString())).thenAnswer(invocation -> {
+            countUsers.add(SecurityContextHolder.getContext().getAuthentication().getName());
+            countPermits.acquire();
+            if (nextCount.get() < 0) {
+                throw new IllegalStateException("Expected failure");
+            }
+            return nextCount.get();
+        });
+
+        cache = createCache(60);
+        login("dladmin");
+    }
+
+    @After
+    public void tearDown() {
+        ReflectionTestUtils.invokeMethod(cache, "destroy");
+        SecurityContextHolder.clearContext();
+    }
+
+    /**
+     * The count is null until the first count completes, then the cached count is used
+     */
+    @Test
+    public void testFirstCount() throws Exception {
+        nextCount.set(5);
+        Assert.assertNull(cache.getCount(FILTER));
+
+        completeCount();
+        Assert.assertEquals(Long.valueOf(5), cache.getCount(FILTER));
+        Assert.assertEquals(Long.valueOf(5), cache.getCount(FILTER));
+        Mockito.verify(jobExecutionProvider, Mockito.times(1)).count(FILTER);
+    }
+
+    /**
+     * Only one count runs at a time for a user and filter
+     */
+    @Test
+    public void testSingleFlight() throws Exception {
+        for (int i = 0; i < 10; ++i) {
+            Assert.assertNull(cache.getCount(FILTER));
+        }
+
+        nextCount.set(7);
+        completeCount();
+        Assert.assertEquals(Long.valueOf(7), cache.getCount(FILTER));
+        Mockito.verify(jobExecutionProvider, Mockito.times(1)).count(FILTER);
+    }
+
+    /**
+     * A count older than the refresh interval is returned while it is refreshed in the background
+     */
+    @Test
+    public void testRefresh() throws Exception {
+        ReflectionTestUtils.invokeMethod(cache, "destroy");
+        cache = createCache(0);
+
+        nextCount.set(1);
+        cache.getCount(FILTER);
+        completeCount();
+
+        nextCount.set(2);
+        Assert.assertEquals(Long.valueOf(1), cache.getCount(FILTER));
+        Assert.assertEquals(Long.valueOf(1), cache.getCount(FILTER));
+        completeCount();
+        Mockito.verify(jobExecutionProvider, Mockito.times(2)).count(FILTER);
+        Assert.assertEquals(Long.valueOf(2), cache.getCount(FILTER));
+    }
+
+    /**
+     * A failed count keeps the previous count
+     */
+    @Test
+    public void testRefreshFailure() throws Exception {
+        ReflectionTestUtils.invokeMethod(cache, "destroy");
+        cache = createCache(0);
+
+        nextCount.set(3);
+        cache.getCount(FILTER);
+        completeCount();
+
+        nextCount.set(-1);
+        cache.getCount(FILTER);
+        completeCount();
+        nextCount.set(4);
+        Assert.assertEquals(Long.valueOf(3), cache.getCount(FILTER));
+    }
+
+    /**
+     * Counts are kept per user and filter, and are made as the user requesting them
+     */
+    @Test
+    public void testCountsPerUser() throws Exception {
+        nextCount.set(10);
+        cache.getCount(FILTER);
+        completeCount();
+
+        login("analyst");
+        Assert.assertNull(cache.getCount(FILTER));
+        nextCount.set(2);
+        completeCount();
+        Assert.assertEquals(Long.valueOf(2), cache.getCount(FILTER));
+
+        login("dladmin");
+        Assert.assertEquals(Long.valueOf(10), cache.getCount(FILTER));
+        Assert.assertNull(cache.getCount("status==COMPLETED"));
+        completeCount();
+
+        Assert.assertEquals("dladmin", countUsers.get(0));
+        Assert.assertEquals("analyst", countUsers.get(1));
+        Assert.assertEquals(3, countUsers.size());
+    }
+
+    /**
+     * Lets one count complete and waits for the cache to store it
+     */
+    private void completeCount() throws InterruptedException {
+        countPermits.release();
+        Assert.assertTrue("Timed out waiting for the count", countsDone.tryAcquire(10, TimeUnit.SECONDS));
+    }
+
+    private JobExecutionCountCache createCache(int refreshSeconds) {
+        JobExecutionCountCache newCache = new JobExecutionCountCache();
+        ReflectionTestUtils.setField(newCache, "jobExecutionProvider", jobExecutionProvider);
+        ReflectionTestUtils.setField(newCache, "metadataAccess", new DirectMetadataAccess());
+        ReflectionTestUtils.setField(newCache, "refreshSeconds", refreshSeconds);
+        ReflectionTestUtils.setField(newCache, "maxEntries", 100);
+        ReflectionTestUtils.setField(newCache, "threads", 2);
+        ReflectionTestUtils.invokeMethod(newCache, "init");
+        ReflectionTestUtils.invokeMethod(newCache, "destroy");
+        ReflectionTestUtils.setField(newCache, "executorService", new SignallingExecutor());
+        return newCache;
+    }
+
+    private static void login(String user) {
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken(user, "secret"));
+    }
+
+    /**
+     * Releases {@link #countsDone} once each background count has run
+     */
+    private class SignallingExecutor extends ThreadPoolExecutor {
+
+        SignallingExecutor() {
+            super(2, 2, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+        }
+
+        @Override
+        protected void afterExecute(Runnable r, Throwable t) {
+            super.afterExecute(r, t);
+            countsDone.release();
+        }
+    }
+
+    /**
+     * Runs the commands directly without a transaction
+     */
+    private class DirectMetadataAccess implements MetadataAccess {
+
+        @Override
+        public <R> R commit(MetadataCommand<R> cmd, Principal... principals) {
+            try {
+                return cmd.execute();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public <R> R commit(MetadataCommand<R> cmd, MetadataRollbackCommand rollbackCmd, Principal... principals) {
+            return commit(cmd, principals);
+        }
+
+        @Override
+        public void commit(MetadataAction action, Principal... principals) {
+            commit(() -> {
+                action.execute();
+                return null;
+            }, principals);
+        }
+
+        @Override
+        public void commit(MetadataAction action, MetadataRollbackAction rollbackAction, Principal... principals) {
+            commit(action, principals);
+        }
+
+        @Override
+        public <R> R read(MetadataCommand<R> cmd, Principal... principals) {
+            return commit(cmd, principals);
+        }
+
+        @Override
+        public void read(MetadataAction cmd, Principal... principals) {
+            commit(cmd, principals);
+        }
+    }
+}
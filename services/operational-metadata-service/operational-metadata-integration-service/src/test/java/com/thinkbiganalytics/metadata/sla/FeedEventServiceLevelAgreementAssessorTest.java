@@ -0,0 +1,355 @@
+package com.thinkbiganalytics.metadata.sla;
+
+/*-
+ * #%L
+ * thinkbig-operational-metadata-integration-service
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.metadata.api.MetadataAccess;
+import com.thinkbiganalytics.metadata.api.MetadataAction;
+import com.thinkbiganalytics.metadata.api.MetadataCommand;
+import com.thinkbiganalytics.metadata.api.MetadataRollbackAction;
+import com.thinkbiganalytics.metadata.api.MetadataRollbackCommand;
+import com.thinkbiganalytics.metadata.api.event.MetadataEventListener;
+import com.thinkbiganalytics.metadata.api.event.MetadataEventService;
+import com.thinkbiganalytics.metadata.api.event.feed.FeedOperationStatusEvent;
+import com.thinkbiganalytics.metadata.api.event.feed.OperationStatus;
+import com.thinkbiganalytics.metadata.api.op.FeedOperation;
+import com.thinkbiganalytics.metadata.api.sla.DeadlineMetric;
+import com.thinkbiganalytics.metadata.api.sla.FeedMetric;
+import com.thinkbiganalytics.metadata.sla.api.Metric;
+import com.thinkbiganalytics.metadata.sla.api.Obligation;
+import com.thinkbiganalytics.metadata.sla.api.ServiceLevelAgreement;
+import com.thinkbiganalytics.metadata.sla.spi.ServiceLevelAgreementChecker;
+import com.thinkbiganalytics.metadata.sla.spi.ServiceLevelAgreementProvider;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.security.Principal;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+public class FeedEventServiceLevelAgreementAssessorTest {
+
+    private static final long EVENT_DELAY_MILLIS = 200L;
+
+    private FeedEventServiceLevelAgreementAssessor assessor;
+
+    private MetadataEventListener<FeedOperationStatusEvent> listener;
+
+    /**
+     * The agreements returned by the provider
+     */
+    private final Map<ServiceLevelAgreement.ID, ServiceLevelAgreement> agreements = new HashMap<>();
+
+    /**
+     * The names of the agreements checked by each assessment
+     */
+    private final BlockingQueue<Set<String>> assessments = new LinkedBlockingQueue<>();
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        MetadataEventService eventService = Mockito.mock(MetadataEventService.class);
+        ServiceLevelAgreementProvider slaProvider = Mockito.mock(ServiceLevelAgreementProvider.class);
+        Mockito.when(slaProvider.getAgreement(Mockito.any(ServiceLevelAgreement.ID.class))).thenAnswer(invocation -> agreements.get(invocation.getArguments()[0]));
+
+        assessor = new FeedEventServiceLevelAgreementAssessor();
+        ReflectionTestUtils.setField(assessor, "eventService", eventService);
+        ReflectionTestUtils.setField(assessor, "slaProvider", slaProvider);
+        ReflectionTestUtils.setField(assessor, "slaChecker", new RecordingChecker());
+        ReflectionTestUtils.setField(assessor, "metadataAccess", new DirectMetadataAccess());
+        ReflectionTestUtils.setField(assessor, "enabled", true);
+        ReflectionTestUtils.setField(assessor, "eventDelayMillis", EVENT_DELAY_MILLIS);
+        ReflectionTestUtils.setField(assessor, "assessmentThreads", 2);
+        ReflectionTestUtils.setField(assessor, "tickMillis", 10L);
+        ReflectionTestUtils.setField(assessor, "wheelSize", 16);
+        assessor.start();
+
+        ArgumentCaptor<MetadataEventListener> captor = ArgumentCaptor.forClass(MetadataEventListener.class);
+        Mockito.verify(eventService).addListener(captor.capture());
+        listener = captor.getValue();
+    }
+
+    @After
+    public void tearDown() {
+        assessor.stop();
+    }
+
+    @Test
+    public void testIsEventAssessable() {
+        Assert.assertTrue(FeedEventServiceLevelAgreementAssessor.isEventAssessable(createAgreement("feed", feedMetric("category.feed"))));
+        Assert.assertTrue(FeedEventServiceLevelAgreementAssessor.isEventAssessable(createAgreement("deadline", deadlineMetric(new AtomicInteger(), 50))));
+        Assert.assertFalse(FeedEventServiceLevelAgreementAssessor.isEventAssessable(createAgreement("other", feedMetric("category.feed"), Mockito.mock(Metric.class))));
+        Assert.assertFalse(FeedEventServiceLevelAgreementAssessor.isEventAssessable(createAgreement("empty")));
+    }
+
+    /**
+     * An agreement with metrics not referencing a feed is left to the scheduler, and replacing a registration with such metrics unregisters it
+     */
+    @Test
+    public void testRegisterOtherMetrics() {
+        ServiceLevelAgreement sla = createAgreement("sla", feedMetric("category.feed"));
+        Assert.assertTrue(assessor.register(sla));
+        Assert.assertTrue(assessor.isRegistered(sla.getId()));
+
+        ServiceLevelAgreement changed = createAgreement("sla", sla.getId(), feedMetric("category.feed"), Mockito.mock(Metric.class));
+        Assert.assertFalse(assessor.register(changed));
+        Assert.assertFalse(assessor.isRegistered(sla.getId()));
+
+        notifyFeed("category.feed", FeedOperation.State.SUCCESS);
+        assertNoAssessment();
+    }
+
+    /**
+     * A completed job assesses only the agreements referencing its feed
+     */
+    @Test
+    public void testFeedEventAssessesFeedAgreements() throws Exception {
+        assessor.register(createAgreement("sla1", feedMetric("category.feed1")));
+        assessor.register(createAgreement("sla2", feedMetric("category.feed2")));
+
+        notifyFeed("category.feed1", FeedOperation.State.SUCCESS);
+        Assert.assertEquals(Collections.singleton("sla1"), nextAssessment());
+        assertNoAssessment();
+
+        notifyFeed("category.feed2", FeedOperation.State.FAILURE);
+        Assert.assertEquals(Collections.singleton("sla2"), nextAssessment());
+
+        //running jobs and other feeds are ignored
+        notifyFeed("category.feed1", FeedOperation.State.STARTED);
+        notifyFeed("category.feed3", FeedOperation.State.SUCCESS);
+        assertNoAssessment();
+    }
+
+    /**
+     * A burst of events is assessed as a single batch with each agreement assessed once
+     */
+    @Test
+    public void testFeedEventsAreBatched() throws Exception {
+        assessor.register(createAgreement("sla1", feedMetric("category.feed1")));
+        assessor.register(createAgreement("sla2", feedMetric("category.feed1"), feedMetric("category.feed2")));
+
+        notifyFeed("category.feed1", FeedOperation.State.SUCCESS);
+        notifyFeed("category.feed2", FeedOperation.State.SUCCESS);
+        notifyFeed("category.feed1", FeedOperation.State.FAILURE);
+
+        Assert.assertEquals(new HashSet<>(Arrays.asList("sla1", "sla2")), nextAssessment());
+        assertNoAssessment();
+    }
+
+    /**
+     * Re-registering an agreement replaces the feeds it is assessed for
+     */
+    @Test
+    public void testReregisterChangesFeeds() throws Exception {
+        ServiceLevelAgreement sla = createAgreement("sla", feedMetric("category.feed1"));
+        assessor.register(sla);
+        assessor.register(createAgreement("sla", sla.getId(), feedMetric("category.feed2")));
+
+        notifyFeed("category.feed1", FeedOperation.State.SUCCESS);
+        assertNoAssessment();
+        notifyFeed("category.feed2", FeedOperation.State.SUCCESS);
+        Assert.assertEquals(Collections.singleton("sla"), nextAssessment());
+    }
+
+    /**
+     * An agreement is assessed when its deadline passes, and the next deadline is scheduled after each assessment
+     */
+    @Test
+    public void testDeadlineAssessment() throws Exception {
+        AtomicInteger deadlineRequests = new AtomicInteger();
+        assessor.register(createAgreement("sla", deadlineMetric(deadlineRequests, 50)));
+
+        Assert.assertEquals(Collections.singleton("sla"), nextAssessment());
+        Assert.assertEquals(Collections.singleton("sla"), nextAssessment());
+        assertNoAssessment();
+        Assert.assertEquals(3, deadlineRequests.get());
+    }
+
+    /**
+     * Unregistering an agreement cancels its deadline and stops assessing it on events
+     */
+    @Test
+    public void testUnregister() throws Exception {
+        ServiceLevelAgreement sla = createAgreement("sla", feedMetric("category.feed"), deadlineMetric(new AtomicInteger(), 100));
+        assessor.register(sla);
+        Assert.assertTrue(assessor.unregister(sla.getId()));
+        Assert.assertFalse(assessor.unregister(sla.getId()));
+
+        notifyFeed("category.feed", FeedOperation.State.SUCCESS);
+        assertNoAssessment();
+    }
+
+    /**
+     * Agreements that have been deleted are unregistered, and disabled agreements are not assessed
+     */
+    @Test
+    public void testMissingAndDisabledAgreements() throws Exception {
+        ServiceLevelAgreement deleted = createAgreement("deleted", feedMetric("category.feed"));
+        ServiceLevelAgreement disabled = createAgreement("disabled", feedMetric("category.feed"));
+        Mockito.when(disabled.isEnabled()).thenReturn(false);
+        assessor.register(deleted);
+        assessor.register(disabled);
+        assessor.register(createAgreement("enabled", feedMetric("category.feed")));
+        agreements.remove(deleted.getId());
+
+        notifyFeed("category.feed", FeedOperation.State.SUCCESS);
+        Assert.assertEquals(Collections.singleton("enabled"), nextAssessment());
+        Assert.assertFalse(assessor.isRegistered(deleted.getId()));
+        Assert.assertTrue(assessor.isRegistered(disabled.getId()));
+    }
+
+    private void notifyFeed(String feedName, FeedOperation.State state) {
+        listener.notify(new FeedOperationStatusEvent(new OperationStatus(feedName, null, state, state.name())));
+    }
+
+    private Set<String> nextAssessment() throws InterruptedException {
+        Set<String> names = assessments.poll(10, TimeUnit.SECONDS);
+        Assert.assertNotNull("Timed out waiting for an assessment", names);
+        return names;
+    }
+
+    private void assertNoAssessment() {
+        try {
+            Assert.assertNull(assessments.poll(EVENT_DELAY_MILLIS * 3, TimeUnit.MILLISECONDS));
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private FeedMetric feedMetric(String feedName) {
+        FeedMetric metric = Mockito.mock(FeedMetric.class);
+        Mockito.when(metric.getFeedName()).thenReturn(feedName);
+        return metric;
+    }
+
+    /**
+     * A metric whose first two deadlines are the given time after they are requested, and which has no deadline after that
+     */
+    private DeadlineMetric deadlineMetric(AtomicInteger requests, long delayMillis) {
+        DeadlineMetric metric = Mockito.mock(DeadlineMetric.class);
+        Mockito.when(metric.getNextDeadline(Mockito.any(Date.class))).thenAnswer(invocation -> {
+            Date after = (Date) invocation.getArguments()[0];
+            return requests.incrementAndGet() <= 2 ? new Date(after.getTime() + delayMillis) : null;
+        });
+        return metric;
+    }
+
+    private ServiceLevelAgreement createAgreement(String name, Metric... metrics) {
+        return createAgreement(name, Mockito.mock(ServiceLevelAgreement.ID.class), metrics);
+    }
+
+    private ServiceLevelAgreement createAgreement(String name, ServiceLevelAgreement.ID id, Metric... metrics) {
+        Obligation obligation = Mockito.mock(Obligation.class);
+        Mockito.when(obligation.getMetrics()).thenReturn(new HashSet<>(Arrays.asList(metrics)));
+
+        ServiceLevelAgreement sla = Mockito.mock(ServiceLevelAgreement.class);
+        Mockito.when(sla.getId()).thenReturn(id);
+        Mockito.when(sla.getName()).thenReturn(name);
+        Mockito.when(sla.isEnabled()).thenReturn(true);
+        Mockito.when(sla.getObligations()).thenReturn(metrics.length > 0 ? Collections.singletonList(obligation) : Collections.emptyList());
+        agreements.put(id, sla);
+        return sla;
+    }
+
+    /**
+     * Records the names of the agreements checked together
+     */
+    private class RecordingChecker implements ServiceLevelAgreementChecker {
+
+        @Override
+        public void checkAgreements() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void checkAgreement(ServiceLevelAgreement agreement) {
+            checkAgreements(Collections.singletonList(agreement));
+        }
+
+        @Override
+        public void checkAgreements(Collection<? extends ServiceLevelAgreement> agreements) {
+            if (!agreements.isEmpty()) {
+                assessments.add(agreements.stream().map(ServiceLevelAgreement::getName).collect(Collectors.toSet()));
+            }
+        }
+    }
+
+    /**
+     * Runs the commands directly without a transaction
+     */
+    private static class DirectMetadataAccess implements MetadataAccess {
+
+        @Override
+        public <R> R commit(MetadataCommand<R> cmd, Principal... principals) {
+            try {
+                return cmd.execute();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public <R> R commit(MetadataCommand<R> cmd, MetadataRollbackCommand rollbackCmd, Principal... principals) {
+            return commit(cmd, principals);
+        }
+
+        @Override
+        public void commit(MetadataAction action, Principal... principals) {
+            commit(() -> {
+                action.execute();
+                return null;
+            }, principals);
+        }
+
+        @Override
+        public void commit(MetadataAction action, MetadataRollbackAction rollbackAction, Principal... principals) {
+            commit(action, principals);
+        }
+
+        @Override
+        public <R> R read(MetadataCommand<R> cmd, Principal... principals) {
+            return commit(cmd, principals);
+        }
+
+        @Override
+        public void read(MetadataAction cmd, Principal... principals) {
+            commit(cmd, principals);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.thinkbiganalytics.metadata.sla;
+
+/*-
+ * #%L
+ * thinkbig-operational-metadata-integration-service
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+public class TimerWheelTest {
+
+    /**
+     * A deadline expires on the first tick at or after it
+     */
+    @Test
+    public void testExpire() {
+        TimerWheel<String> wheel = new TimerWheel<>(10, 8, 0);
+        wheel.schedule("a", 25);
+        Assert.assertEquals(1, wheel.size());
+
+        Assert.assertTrue(wheel.advance(29).isEmpty());
+        Assert.assertEquals(Collections.singletonList("a"), wheel.advance(30));
+        Assert.assertEquals(0, wheel.size());
+        Assert.assertTrue(wheel.advance(1000).isEmpty());
+    }
+
+    /**
+     * Deadlines further away than one turn of the wheel are kept until their own tick
+     */
+    @Test
+    public void testRollover() {
+        TimerWheel<String> wheel = new TimerWheel<>(10, 8, 0);
+        wheel.schedule("a", 200);
+        wheel.schedule("b", 40);
+
+        //tick 4 shares a bucket with tick 20
+        Assert.assertEquals(Collections.singletonList("b"), wheel.advance(40));
+        Assert.assertTrue(wheel.advance(120).isEmpty());
+        Assert.assertTrue(wheel.advance(199).isEmpty());
+        Assert.assertEquals(Collections.singletonList("a"), wheel.advance(200));
+    }
+
+    /**
+     * Deadlines reached by one advance are returned in deadline order
+     */
+    @Test
+    public void testDeadlineOrder() {
+        TimerWheel<String> wheel = new TimerWheel<>(10, 4, 0);
+        wheel.schedule("a", 70);
+        wheel.schedule("b", 10);
+        wheel.schedule("c", 30);
+
+        Assert.assertEquals(Arrays.asList("b", "c", "a"), wheel.advance(100));
+    }
+
+    /**
+     * Scheduling a key again replaces its deadline
+     */
+    @Test
+    public void testReschedule() {
+        TimerWheel<String> wheel = new TimerWheel<>(10, 8, 0);
+        wheel.schedule("a", 50);
+        wheel.schedule("a", 100);
+        Assert.assertEquals(1, wheel.size());
+
+        Assert.assertTrue(wheel.advance(50).isEmpty());
+        Assert.assertEquals(Collections.singletonList("a"), wheel.advance(100));
+
+        //an earlier deadline replaces a later one too
+        wheel.schedule("a", 300);
+        wheel.schedule("a", 150);
+        Assert.assertEquals(Collections.singletonList("a"), wheel.advance(150));
+        Assert.assertTrue(wheel.advance(300).isEmpty());
+    }
+
+    @Test
+    public void testCancel() {
+        TimerWheel<String> wheel = new TimerWheel<>(10, 8, 0);
+        wheel.schedule("a", 50);
+        wheel.schedule("b", 50);
+
+        Assert.assertTrue(wheel.cancel("a"));
+        Assert.assertFalse(wheel.cancel("a"));
+        Assert.assertFalse(wheel.cancel("c"));
+        Assert.assertEquals(Collections.singletonList("b"), wheel.advance(50));
+    }
+
+    /**
+     * Deadlines that have already passed expire on the next tick
+     */
+    @Test
+    public void testPastDeadline() {
+        TimerWheel<String> wheel = new TimerWheel<>(10, 8, 1000);
+        Assert.assertTrue(wheel.advance(1105).isEmpty());
+
+        wheel.schedule("a", 1020);
+        wheel.schedule("b", 0);
+        Assert.assertTrue(wheel.advance(1109).isEmpty());
+        Assert.assertEquals(Arrays.asList("a", "b"), wheel.advance(1110));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidTick() {
+        new TimerWheel<String>(0, 8, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidWheelSize() {
+        new TimerWheel<String>(10, 0, 0);
+    }
+}
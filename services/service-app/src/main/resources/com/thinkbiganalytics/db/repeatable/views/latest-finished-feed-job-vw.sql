@@ -25,15 +25,12 @@ CREATE OR REPLACE VIEW LATEST_FINISHED_FEED_JOB_VW AS
 SELECT f.ID as FEED_ID,f.NAME as FEED_NAME,
        f.FEED_TYPE as FEED_TYPE,
        e.JOB_EXECUTION_ID as JOB_EXECUTION_ID,
-       i.JOB_INSTANCE_ID as JOB_INSTANCE_ID,
+       e.JOB_INSTANCE_ID as JOB_INSTANCE_ID,
        e.START_TIME,
        e.END_TIME,
        e.STATUS,
        e.EXIT_CODE,
        e.EXIT_MESSAGE
-FROM   BATCH_JOB_EXECUTION e
-INNER JOIN BATCH_JOB_INSTANCE i on i.JOB_INSTANCE_ID = e.JOB_INSTANCE_ID
-INNER JOIN FEED f on f.ID = i.FEED_ID
-inner JOIN LATEST_FEED_JOB_END_TIME_VW maxJobs
-                             on maxJobs.FEED_ID = f.ID
-                             and maxJobs.END_TIME =e.END_TIME;
+FROM   BATCH_FEED_JOB_COUNTS c
+INNER JOIN FEED f on f.ID = c.FEED_ID
+INNER JOIN BATCH_JOB_EXECUTION e on e.JOB_EXECUTION_ID = c.LATEST_FINISHED_JOB_EXECUTION_ID;
@@ -20,12 +20,14 @@ package com.thinkbiganalytics.hive.rest.controller;
  * #L%
  */
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.thinkbiganalytics.discovery.schema.DatabaseMetadata;
 import com.thinkbiganalytics.discovery.schema.QueryResult;
 import com.thinkbiganalytics.discovery.schema.TableSchema;
-import com.thinkbiganalytics.hive.service.HiveMetastoreService;
+import com.thinkbiganalytics.hive.service.HiveCatalogService;
+import com.thinkbiganalytics.hive.service.HiveQueryCursor;
 import com.thinkbiganalytics.hive.service.HiveService;
 import com.thinkbiganalytics.rest.model.RestResponseStatus;
 
@@ -37,16 +39,23 @@ import org.springframework.dao.DataAccessException;
 
 import java.security.AccessControlException;
 import java.sql.SQLException;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
+import javax.ws.rs.DELETE;
 import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
+import javax.ws.rs.NotFoundException;
+import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
@@ -64,6 +73,13 @@ public class HiveRestController {
 
     public static final String BASE = "/v1/hive";
 
+    /**
+     * The maximum number of rows returned by a single page of a query cursor
+     */
+    private static final int MAX_CURSOR_PAGE_SIZE = 10000;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
     @Autowired
     private Environment env;
 
@@ -71,7 +87,7 @@ public class HiveRestController {
     private HiveService hiveService;
 
     @Autowired
-    private HiveMetastoreService hiveMetadataService;
+    private HiveCatalogService hiveCatalogService;
 
     @GET
     @Path("/test-connection")
@@ -104,9 +120,9 @@ public class HiveRestController {
             boolean userImpersonationEnabled = Boolean.valueOf(env.getProperty("hive.userImpersonation.enabled"));
             if (userImpersonationEnabled) {
                 List<String> tables = hiveService.getAllTablesForImpersonatedUser();
-                list = hiveMetadataService.getTableColumns(tables);
+                list = hiveCatalogService.getTableColumns(tables);
             } else {
-                list = hiveMetadataService.getTableColumns(null);
+                list = hiveCatalogService.getTableColumns(null);
             }
 
         } catch (DataAccessException e) {
@@ -181,6 +197,85 @@ public class HiveRestController {
     }
 
 
+    @POST
+    @Path("/cursors")
+    @Produces(MediaType.APPLICATION_JSON)
+    @ApiOperation("Opens a cursor over the results of a Hive query.")
+    @ApiResponses({
+                      @ApiResponse(code = 200, message = "Returns the cursor id and the result columns."),
+                      @ApiResponse(code = 500, message = "Hive is unavailable.", response = RestResponseStatus.class),
+                      @ApiResponse(code = 503, message = "Too many cursors are open.", response = RestResponseStatus.class)
+                  })
+    public Response openCursor(@QueryParam("query") String query, @QueryParam("fetchSize") Integer fetchSize) {
+        HiveQueryCursor cursor;
+        try {
+            cursor = hiveService.openCursor(query, fetchSize);
+        } catch (IllegalStateException e) {
+            throw new WebApplicationException(e.getMessage(), Response.Status.SERVICE_UNAVAILABLE);
+        } catch (DataAccessException e) {
+            if (e.getCause() != null && e.getCause().getMessage() != null && e.getCause().getMessage().contains("HiveAccessControlException Permission denied")) {
+                throw new AccessControlException("You do not have permission to execute this hive query");
+            } else {
+                log.error("Error opening Hive cursor for query: " + query, e);
+                throw e;
+            }
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("cursorId", cursor.getId());
+        result.put("query", cursor.getQuery());
+        result.put("columns", cursor.getColumns());
+        return Response.ok(asJson(result)).build();
+    }
+
+    @GET
+    @Path("/cursors/{cursorId}/rows")
+    @Produces(MediaType.APPLICATION_JSON)
+    @ApiOperation("Reads the next page of rows from a query cursor.",
+                  notes = "Rows are streamed to the response as they are read from Hive. The cursor is closed once the last row is read, which is indicated by the complete property.")
+    @ApiResponses({
+                      @ApiResponse(code = 200, message = "Returns the rows."),
+                      @ApiResponse(code = 404, message = "The cursor does not exist or has expired.", response = RestResponseStatus.class)
+                  })
+    public Response fetchCursor(@PathParam("cursorId") String cursorId, @QueryParam("limit") @DefaultValue("1000") Integer limit) {
+        if (hiveService.getCursor(cursorId) == null) {
+            throw new NotFoundException("Query cursor " + cursorId + " does not exist or has expired");
+        }
+        final int maxRows = Math.max(1, Math.min(limit, MAX_CURSOR_PAGE_SIZE));
+
+        StreamingOutput stream = output -> {
+            JsonGenerator generator = mapper.getFactory().createGenerator(output);
+            generator.writeStartObject();
+            generator.writeStringField("cursorId", cursorId);
+            generator.writeArrayFieldStart("rows");
+            HiveQueryCursor cursor = hiveService.fetchCursor(cursorId, maxRows, generator::writeObject);
+            generator.writeEndArray();
+            if (cursor != null) {
+                generator.writeNumberField("rowCount", cursor.getRowCount());
+                generator.writeBooleanField("complete", cursor.isExhausted());
+            } else {
+                generator.writeBooleanField("complete", true);
+            }
+            generator.writeEndObject();
+            generator.flush();
+        };
+        return Response.ok(stream).build();
+    }
+
+    @DELETE
+    @Path("/cursors/{cursorId}")
+    @ApiOperation("Closes a query cursor.")
+    @ApiResponses({
+                      @ApiResponse(code = 204, message = "The cursor was closed."),
+                      @ApiResponse(code = 404, message = "The cursor does not exist or has expired.", response = RestResponseStatus.class)
+                  })
+    public Response closeCursor(@PathParam("cursorId") String cursorId) {
+        if (!hiveService.closeCursor(cursorId)) {
+            throw new NotFoundException("Query cursor " + cursorId + " does not exist or has expired");
+        }
+        return Response.noContent().build();
+    }
+
     @GET
     @Path("/schemas/{schema}/tables/{table}")
     @Produces(MediaType.APPLICATION_JSON)
@@ -204,7 +299,8 @@ public class HiveRestController {
                       @ApiResponse(code = 500, message = "Hive is unavailable.", response = RestResponseStatus.class)
                   })
     public Response getSchemaNames() {
-        List<String> schemas = hiveService.getSchemaNames();
+        boolean userImpersonationEnabled = Boolean.valueOf(env.getProperty("hive.userImpersonation.enabled"));
+        List<String> schemas = userImpersonationEnabled ? hiveService.getSchemaNames() : hiveCatalogService.getSchemaNames();
         return Response.ok(asJson(schemas)).build();
     }
 
@@ -217,10 +313,9 @@ public class HiveRestController {
                       @ApiResponse(code = 500, message = "Hive is unavailable.", response = RestResponseStatus.class)
                   })
     public Response getAllTableSchemas() {
-        //  List<TableSchema> schemas = hiveService.getAllTableSchemas();
         List<TableSchema> schemas;
         try {
-            schemas = hiveMetadataService.getTableSchemas();
+            schemas = hiveService.getAllTableSchemas();
         } catch (DataAccessException e) {
             log.error("Error listing Hive Table schemas from the metastore ", e);
             throw e;
@@ -244,7 +339,7 @@ public class HiveRestController {
             tables = hiveService.getAllTablesForImpersonatedUser();
         } else {
             try {
-                tables = hiveMetadataService.getAllTables();
+                tables = hiveCatalogService.getAllTables();
             } catch (DataAccessException e) {
                 log.error("Error listing Hive Tables from the metastore ", e);
                 throw e;
@@ -267,7 +362,7 @@ public class HiveRestController {
         if (userImpersonationEnabled) {
             tables = hiveService.getTablesForImpersonatedUser(schema);
         } else {
-            tables = hiveService.getTables(schema);
+            tables = hiveCatalogService.getTables(schema);
         }
         return Response.ok(asJson(tables)).build();
     }
@@ -0,0 +1,403 @@
+package com.thinkbiganalytics.hive.service;
+
+/*-
+ * #%L
+ * thinkbig-thrift-proxy-core
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.thinkbiganalytics.discovery.model.DefaultDatabaseMetadata;
+import com.thinkbiganalytics.discovery.model.DefaultField;
+import com.thinkbiganalytics.discovery.model.DefaultTableSchema;
+import com.thinkbiganalytics.discovery.schema.DatabaseMetadata;
+import com.thinkbiganalytics.discovery.schema.Field;
+import com.thinkbiganalytics.discovery.schema.TableSchema;
+import com.thinkbiganalytics.jdbc.util.DatabaseType;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+
+/**
+ * An in memory catalog of the Hive databases, tables and columns read directly from the metastore.
+ *
+ * The catalog is loaded with a few bulk queries rather than describing each table through HiveServer2.  It is refreshed periodically by listing the tables
+ * and reloading the columns of only those tables that are new or have changed, which is detected by comparing the table id, create time and column
+ * descriptor of each table.  A lookup of a table that is not in the catalog also triggers a refresh, at most once every
+ * {@code hive.catalog.miss.refresh.seconds}.
+ *
+ * The catalog is not filtered by user, so it should not be used to list tables when user impersonation is enabled.
+ */
+@Service("hiveCatalogService")
+public class HiveCatalogService {
+
+    private static final Logger log = LoggerFactory.getLogger(HiveCatalogService.class);
+
+    /**
+     * The maximum number of table ids in the IN clause of a single column query
+     */
+    private static final int TABLE_ID_BATCH_SIZE = 500;
+
+    @Inject
+    @Qualifier("hiveMetatoreJdbcTemplate")
+    private JdbcTemplate hiveMetatoreJdbcTemplate;
+
+    @Inject
+    private HiveMetastoreService hiveMetastoreService;
+
+    @Value("${hive.catalog.refresh.interval.seconds:300}")
+    private long refreshIntervalSeconds = 300;
+
+    @Value("${hive.catalog.miss.refresh.seconds:10}")
+    private long missRefreshSeconds = 10;
+
+    private volatile Catalog catalog;
+
+    private volatile long lastRefreshTime;
+
+    private ScheduledExecutorService refreshExecutor;
+
+    @PostConstruct
+    public void startRefresh() {
+        if (refreshIntervalSeconds > 0) {
+            refreshExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setDaemon(true).setNameFormat("hive-catalog-refresh-%d").build());
+            refreshExecutor.scheduleWithFixedDelay(this::scheduledRefresh, refreshIntervalSeconds, refreshIntervalSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void stopRefresh() {
+        if (refreshExecutor != null) {
+            refreshExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * @return the names of all the databases
+     */
+    public List<String> getSchemaNames() throws DataAccessException {
+        return new ArrayList<>(getCatalog().databases.keySet());
+    }
+
+    /**
+     * @return the names of the tables in the database, or an empty list if the database does not exist
+     */
+    public List<String> getTables(String schema) throws DataAccessException {
+        Map<String, CatalogTable> tables = getCatalog().databases.get(normalize(schema));
+        return tables != null ? new ArrayList<>(tables.keySet()) : Collections.emptyList();
+    }
+
+    /**
+     * @return all of the tables as database.table
+     */
+    public List<String> getAllTables() throws DataAccessException {
+        List<String> allTables = new ArrayList<>();
+        for (Map.Entry<String, Map<String, CatalogTable>> database : getCatalog().databases.entrySet()) {
+            for (String table : database.getValue().keySet()) {
+                allTables.add(database.getKey() + "." + table);
+            }
+        }
+        return allTables;
+    }
+
+    /**
+     * @return the schema of every table.  The schemas are shared by the catalog and must not be modified
+     */
+    public List<TableSchema> getTableSchemas() throws DataAccessException {
+        return getCatalog().databases.values().stream()
+            .flatMap(tables -> tables.values().stream())
+            .map(table -> table.schema)
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Gets the schema of a table.  If the table isn't in the catalog the catalog is refreshed, as the table may have been created since the last refresh.
+     *
+     * @return the table schema, which must not be modified, or null if the table does not exist
+     */
+    public TableSchema getTableSchema(String schema, String table) throws DataAccessException {
+        CatalogTable catalogTable = getCatalog().getTable(schema, table);
+        if (catalogTable == null && System.currentTimeMillis() - lastRefreshTime > TimeUnit.SECONDS.toMillis(missRefreshSeconds)) {
+            catalogTable = refresh().getTable(schema, table);
+        }
+        return catalogTable != null ? catalogTable.schema : null;
+    }
+
+    /**
+     * Lists the columns of every table
+     *
+     * @param tablesFilter the database.table names to include, or null for all tables
+     * @return the columns
+     */
+    public List<DatabaseMetadata> getTableColumns(Collection<String> tablesFilter) throws DataAccessException {
+        Set<String> filter = tablesFilter != null ? new HashSet<>(tablesFilter) : null;
+        List<DatabaseMetadata> metadata = new ArrayList<>();
+        for (Map.Entry<String, Map<String, CatalogTable>> database : getCatalog().databases.entrySet()) {
+            for (CatalogTable table : database.getValue().values()) {
+                if (filter == null || filter.contains(database.getKey() + "." + table.schema.getName())) {
+                    for (Field field : table.schema.getFields()) {
+                        DefaultDatabaseMetadata column = new DefaultDatabaseMetadata();
+                        column.setDatabaseName(database.getKey());
+                        column.setTableName(table.schema.getName());
+                        column.setColumnName(field.getName());
+                        metadata.add(column);
+                    }
+                }
+            }
+        }
+        return metadata;
+    }
+
+    /**
+     * Discards the catalog so that it is fully reloaded on next use
+     */
+    public void invalidate() {
+        catalog = null;
+    }
+
+    /**
+     * @return the time of the last refresh, in millis, or 0 if the catalog hasn't been loaded
+     */
+    public long getLastRefreshTime() {
+        return lastRefreshTime;
+    }
+
+    /**
+     * Brings the catalog up to date with the metastore, reloading the columns of only the new and changed tables
+     *
+     * @return the refreshed catalog
+     */
+    public synchronized Catalog refresh() throws DataAccessException {
+        long start = System.currentTimeMillis();
+        Catalog previous = catalog;
+        Map<Long, CatalogTable> previousTables = previous != null ? previous.tablesById : Collections.emptyMap();
+
+        List<CatalogTable> tables = loadTables();
+        List<CatalogTable> changed = new ArrayList<>();
+        Map<Long, CatalogTable> tablesById = new HashMap<>();
+        for (CatalogTable table : tables) {
+            CatalogTable existing = previousTables.get(table.id);
+            if (existing != null && existing.isSameVersion(table)) {
+                tablesById.put(table.id, existing);
+            } else {
+                changed.add(table);
+                tablesById.put(table.id, table);
+            }
+        }
+
+        if (!changed.isEmpty()) {
+            loadColumns(changed, changed.size() > tables.size() / 2);
+        }
+
+        Map<String, Map<String, CatalogTable>> databases = new TreeMap<>();
+        for (String database : loadDatabaseNames()) {
+            databases.put(database, new TreeMap<>());
+        }
+        for (CatalogTable table : tablesById.values()) {
+            databases.computeIfAbsent(table.schema.getSchemaName(), name -> new TreeMap<>()).put(table.schema.getName(), table);
+        }
+
+        Catalog refreshed = new Catalog(databases, tablesById);
+        catalog = refreshed;
+        lastRefreshTime = System.currentTimeMillis();
+        log.debug("Refreshed Hive catalog of {} tables in {} ms. Loaded columns for {} new or changed tables", tables.size(), lastRefreshTime - start, changed.size());
+        return refreshed;
+    }
+
+    private Catalog getCatalog() throws DataAccessException {
+        Catalog current = catalog;
+        return current != null ? current : refresh();
+    }
+
+    private void scheduledRefresh() {
+        // only keep a catalog up to date once something has used it
+        if (catalog != null) {
+            try {
+                refresh();
+            } catch (Exception e) {
+                log.error("Unable to refresh the Hive catalog", e);
+            }
+        }
+    }
+
+    private List<String> loadDatabaseNames() {
+        String query = "SELECT " + column("d", "NAME") + " FROM " + table("DBS") + " d";
+        return new ArrayList<>(new TreeSet<>(hiveMetatoreJdbcTemplate.queryForList(query, String.class)));
+    }
+
+    /**
+     * Lists every table without its columns
+     */
+    private List<CatalogTable> loadTables() {
+        String query = "SELECT " + column("t", "TBL_ID") + ", " + column("t", "CREATE_TIME") + ", " + column("t", "TBL_NAME") + ", "
+                       + column("d", "NAME") + " AS " + alias("DATABASE_NAME") + ", " + column("s", "CD_ID") + " "
+                       + "FROM " + table("TBLS") + " t "
+                       + "JOIN " + table("DBS") + " d ON " + column("d", "DB_ID") + " = " + column("t", "DB_ID") + " "
+                       + "LEFT JOIN " + table("SDS") + " s ON " + column("s", "SD_ID") + " = " + column("t", "SD_ID");
+        return hiveMetatoreJdbcTemplate.query(query, (rs, rowNum) -> {
+            long cdIdValue = rs.getLong("CD_ID");
+            Long cdId = rs.wasNull() ? null : cdIdValue;
+            return new CatalogTable(rs.getLong("TBL_ID"), rs.getLong("CREATE_TIME"), cdId, rs.getString("DATABASE_NAME"), rs.getString("TBL_NAME"));
+        });
+    }
+
+    /**
+     * Loads the columns, followed by the partition columns, of the tables
+     *
+     * @param tables   the tables to load
+     * @param allTables true to load the columns of every table in a single query, false to query for just the given tables
+     */
+    private void loadColumns(List<CatalogTable> tables, boolean allTables) {
+        Map<Long, CatalogTable> tablesById = tables.stream().collect(Collectors.toMap(table -> table.id, table -> table));
+
+        String columnQuery = "SELECT " + column("t", "TBL_ID") + ", " + column("c", "COLUMN_NAME") + " AS " + alias("NAME") + ", "
+                             + column("c", "TYPE_NAME") + " AS " + alias("TYPE") + ", " + column("c", "COMMENT") + " AS " + alias("DESCRIPTION") + " "
+                             + "FROM " + table("TBLS") + " t "
+                             + "JOIN " + table("SDS") + " s ON " + column("s", "SD_ID") + " = " + column("t", "SD_ID") + " "
+                             + "JOIN " + table("COLUMNS_V2") + " c ON " + column("c", "CD_ID") + " = " + column("s", "CD_ID");
+        String partitionQuery = "SELECT " + column("p", "TBL_ID") + ", " + column("p", "PKEY_NAME") + " AS " + alias("NAME") + ", "
+                                + column("p", "PKEY_TYPE") + " AS " + alias("TYPE") + ", " + column("p", "PKEY_COMMENT") + " AS " + alias("DESCRIPTION") + " "
+                                + "FROM " + table("PARTITION_KEYS") + " p";
+
+        loadFields(columnQuery, column("t", "TBL_ID"), column("c", "INTEGER_IDX"), tablesById, allTables);
+        loadFields(partitionQuery, column("p", "TBL_ID"), column("p", "INTEGER_IDX"), tablesById, allTables);
+    }
+
+    private void loadFields(String query, String tableIdColumn, String orderColumn, Map<Long, CatalogTable> tablesById, boolean allTables) {
+        List<List<Long>> batches = allTables ? Collections.singletonList(Collections.emptyList()) : Lists.partition(new ArrayList<>(tablesById.keySet()), TABLE_ID_BATCH_SIZE);
+        for (List<Long> batch : batches) {
+            String sql = query;
+            if (!batch.isEmpty()) {
+                sql += " WHERE " + tableIdColumn + " IN (" + StringUtils.repeat("?", ",", batch.size()) + ")";
+            }
+            sql += " ORDER BY " + tableIdColumn + ", " + orderColumn;
+
+            hiveMetatoreJdbcTemplate.query(sql, batch.toArray(), rs -> {
+                CatalogTable table = tablesById.get(rs.getLong("TBL_ID"));
+                if (table != null) {
+                    DefaultField field = new DefaultField();
+                    field.setName(rs.getString("NAME"));
+                    field.setNativeDataType(rs.getString("TYPE"));
+                    field.setDerivedDataType(rs.getString("TYPE"));
+                    field.setDescription(rs.getString("DESCRIPTION"));
+                    table.schema.getFields().add(field);
+                }
+            });
+        }
+    }
+
+    private boolean isPostgres() {
+        return DatabaseType.POSTGRES.equals(hiveMetastoreService.getMetastoreDatabaseType());
+    }
+
+    private String table(String name) {
+        return isPostgres() ? "\"" + name + "\"" : name;
+    }
+
+    private String column(String tableAlias, String name) {
+        return tableAlias + "." + (isPostgres() ? "\"" + name + "\"" : name);
+    }
+
+    private String alias(String name) {
+        return "\"" + name + "\"";
+    }
+
+    private static String normalize(String name) {
+        return name != null ? name.toLowerCase() : null;
+    }
+
+    /**
+     * An immutable snapshot of the catalog
+     */
+    public static class Catalog {
+
+        private final Map<String, Map<String, CatalogTable>> databases;
+
+        private final Map<Long, CatalogTable> tablesById;
+
+        Catalog(Map<String, Map<String, CatalogTable>> databases, Map<Long, CatalogTable> tablesById) {
+            this.databases = databases;
+            this.tablesById = tablesById;
+        }
+
+        CatalogTable getTable(String schema, String table) {
+            Map<String, CatalogTable> tables = databases.get(normalize(schema));
+            return tables != null ? tables.get(normalize(table)) : null;
+        }
+
+        public int getTableCount() {
+            return tablesById.size();
+        }
+    }
+
+    /**
+     * A table in the catalog along with the metastore values used to detect changes to it
+     */
+    static class CatalogTable {
+
+        private final long id;
+
+        private final long createTime;
+
+        private final Long columnDescriptorId;
+
+        private final DefaultTableSchema schema;
+
+        CatalogTable(long id, long createTime, Long columnDescriptorId, String databaseName, String tableName) {
+            this.id = id;
+            this.createTime = createTime;
+            this.columnDescriptorId = columnDescriptorId;
+            this.schema = new DefaultTableSchema();
+            this.schema.setSchemaName(databaseName);
+            this.schema.setName(tableName);
+            this.schema.setFields(new ArrayList<>());
+        }
+
+        boolean isSameVersion(CatalogTable other) {
+            return createTime == other.createTime
+                   && (columnDescriptorId == null ? other.columnDescriptorId == null : columnDescriptorId.equals(other.columnDescriptorId))
+                   && schema.getSchemaName().equals(other.schema.getSchemaName())
+                   && schema.getName().equals(other.schema.getName());
+        }
+    }
+}
@@ -66,7 +66,7 @@ public class HiveMetastoreService {
         return hiveMetatoreJdbcTemplate.getDataSource();
     }
 
-    private DatabaseType getMetastoreDatabaseType() {
+    public DatabaseType getMetastoreDatabaseType() {
         if (metastoreDatabaseType == null) {
             try {
                 metastoreDatabaseType = DatabaseType.fromMetaData(getDataSource());
@@ -143,7 +143,7 @@ public class HiveMetastoreService {
 
     public List<TableSchema> getTableSchemas() throws DataAccessException {
 
-        String query = "SELECT d.NAME as \"DATABASE_NAME\", t.TBL_NAME, c.COLUMN_NAME c.TYPE_NAME "
+        String query = "SELECT d.NAME as \"DATABASE_NAME\", t.TBL_NAME, c.COLUMN_NAME, c.TYPE_NAME "
                        + "FROM COLUMNS_V2 c "
                        + "JOIN  SDS s on s.CD_ID = c.CD_ID "
                        + "JOIN  TBLS t ON s.SD_ID = t.SD_ID "
@@ -0,0 +1,175 @@
+package com.thinkbiganalytics.hive.service;
+
+/*-
+ * #%L
+ * thinkbig-thrift-proxy-core
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.discovery.schema.QueryResultColumn;
+
+import org.springframework.jdbc.support.JdbcUtils;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A server side handle to the open result set of a Hive query.  Rows are read from the result set a page at a time, as the client asks for them, so that large
+ * results never need to be held in memory.
+ *
+ * The cursor owns its connection, which is closed along with the result set when the cursor is closed.
+ */
+public class HiveQueryCursor {
+
+    /**
+     * Receives the rows read from the cursor
+     */
+    public interface RowHandler {
+
+        void handle(Map<String, Object> row) throws IOException;
+    }
+
+    private final String id;
+
+    private final String owner;
+
+    private final String query;
+
+    private final Connection connection;
+
+    private final Statement statement;
+
+    private final ResultSet resultSet;
+
+    private final List<QueryResultColumn> columns;
+
+    private volatile long lastAccessTime;
+
+    private long rowCount;
+
+    private boolean exhausted;
+
+    private boolean closed;
+
+    public HiveQueryCursor(String id, String owner, String query, Connection connection, Statement statement, ResultSet resultSet, List<QueryResultColumn> columns) {
+        this.id = id;
+        this.owner = owner;
+        this.query = query;
+        this.connection = connection;
+        this.statement = statement;
+        this.resultSet = resultSet;
+        this.columns = Collections.unmodifiableList(columns);
+        this.lastAccessTime = System.currentTimeMillis();
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * @return the user that opened the cursor, or null if it was opened without an authenticated user
+     */
+    public String getOwner() {
+        return owner;
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public List<QueryResultColumn> getColumns() {
+        return columns;
+    }
+
+    public long getLastAccessTime() {
+        return lastAccessTime;
+    }
+
+    /**
+     * @return the number of rows read from the cursor so far
+     */
+    public synchronized long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * @return true if every row of the result has been read
+     */
+    public synchronized boolean isExhausted() {
+        return exhausted;
+    }
+
+    public synchronized boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Read the next rows of the result, passing each one to the handler as it is read
+     *
+     * @param maxRows the maximum number of rows to read
+     * @param handler receives each row
+     * @return the number of rows read
+     */
+    public synchronized int fetch(int maxRows, RowHandler handler) throws SQLException, IOException {
+        if (closed) {
+            throw new IllegalStateException("The query cursor " + id + " is closed");
+        }
+        lastAccessTime = System.currentTimeMillis();
+        int count = 0;
+        try {
+            while (count < maxRows && !exhausted) {
+                if (resultSet.next()) {
+                    handler.handle(readRow());
+                    count++;
+                } else {
+                    exhausted = true;
+                }
+            }
+        } finally {
+            rowCount += count;
+            lastAccessTime = System.currentTimeMillis();
+        }
+        return count;
+    }
+
+    /**
+     * Close the result set and release the connection.  Closing a closed cursor has no effect
+     */
+    public synchronized void close() {
+        if (!closed) {
+            closed = true;
+            JdbcUtils.closeResultSet(resultSet);
+            JdbcUtils.closeStatement(statement);
+            JdbcUtils.closeConnection(connection);
+        }
+    }
+
+    private Map<String, Object> readRow() throws SQLException {
+        Map<String, Object> row = new LinkedHashMap<>(columns.size() * 2);
+        for (int i = 0; i < columns.size(); i++) {
+            row.put(columns.get(i).getDisplayName(), resultSet.getObject(i + 1));
+        }
+        return row;
+    }
+}
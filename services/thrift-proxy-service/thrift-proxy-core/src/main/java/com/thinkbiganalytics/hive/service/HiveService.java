@@ -21,6 +21,7 @@ package com.thinkbiganalytics.hive.service;
  */
 
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.thinkbiganalytics.discovery.model.DefaultQueryResult;
 import com.thinkbiganalytics.discovery.model.DefaultQueryResultColumn;
 import com.thinkbiganalytics.discovery.schema.Field;
@@ -36,20 +37,35 @@ import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 
+import java.io.IOException;
+import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 import javax.sql.DataSource;
 
@@ -67,8 +83,49 @@ public class HiveService {
     @Qualifier("kerberosHiveConfiguration")
     private KerberosTicketConfiguration kerberosHiveConfiguration;
 
+    @Inject
+    private HiveCatalogService hiveCatalogService;
+
     private DBSchemaParser schemaParser = null;
 
+    /**
+     * Cursors are closed once they have not been read from for this long
+     */
+    @Value("${hive.query.cursor.idle.timeout.seconds:300}")
+    private long cursorIdleTimeoutSeconds = 300;
+
+    @Value("${hive.query.cursor.max.open:20}")
+    private int maxOpenCursors = 20;
+
+    /**
+     * The number of rows Hive returns per round trip when reading from a cursor
+     */
+    @Value("${hive.query.cursor.fetch.size:1000}")
+    private int defaultCursorFetchSize = 1000;
+
+    /**
+     * Open query cursors by id
+     */
+    private final Map<String, HiveQueryCursor> cursors = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService cursorExpiryExecutor;
+
+    @PostConstruct
+    public void startCursorExpiry() {
+        long interval = Math.max(1, cursorIdleTimeoutSeconds / 4);
+        cursorExpiryExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setDaemon(true).setNameFormat("hive-cursor-expiry-%d").build());
+        cursorExpiryExecutor.scheduleWithFixedDelay(this::expireIdleCursors, interval, interval, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void stopCursorExpiry() {
+        if (cursorExpiryExecutor != null) {
+            cursorExpiryExecutor.shutdownNow();
+        }
+        cursors.values().forEach(HiveQueryCursor::close);
+        cursors.clear();
+    }
+
     public DataSource getDataSource() {
         return jdbcTemplate.getDataSource();
     }
@@ -137,22 +194,10 @@ public class HiveService {
     }
 
     /**
-     * returns a list of populated TableSchema objects
+     * returns a list of populated TableSchema objects from the metastore catalog, rather than describing each table
      */
     public List<TableSchema> getAllTableSchemas() {
-        List<TableSchema> allTables = new ArrayList<>();
-        List<String> schemas = getSchemaNames();
-        if (schemas != null) {
-            for (String schema : schemas) {
-                List<String> tables = getTables(schema);
-                if (tables != null) {
-                    for (String table : tables) {
-                        allTables.add(getTableSchema(schema, table));
-                    }
-                }
-            }
-        }
-        return allTables;
+        return hiveCatalogService.getTableSchemas();
     }
 
     /**
@@ -195,39 +240,19 @@ public class HiveService {
 
     public QueryResult query(String query) throws DataAccessException {
         final DefaultQueryResult queryResult = new DefaultQueryResult(query);
-        final List<QueryResultColumn> columns = new ArrayList<>();
-        final Map<String, Integer> displayNameMap = new HashMap<>();
         if (query != null && !query.toLowerCase().startsWith("show")) {
             query = safeQuery(query);
         }
         try {
             //  Setting in order to query complex formats like parquet
             jdbcTemplate.execute("set hive.optimize.index.filter=false");
-            jdbcTemplate.query(query, new RowMapper<Map<String, Object>>() {
+            jdbcTemplate.query(query, new RowCallbackHandler() {
+                private List<QueryResultColumn> columns;
+
                 @Override
-                public Map<String, Object> mapRow(ResultSet rs, int rowNum) throws SQLException {
-                    if (columns.isEmpty()) {
-                        ResultSetMetaData rsMetaData = rs.getMetaData();
-                        for (int i = 1; i <= rsMetaData.getColumnCount(); i++) {
-                            String colName = rsMetaData.getColumnName(i);
-                            DefaultQueryResultColumn column = new DefaultQueryResultColumn();
-                            column.setField(rsMetaData.getColumnName(i));
-                            String displayName = rsMetaData.getColumnLabel(i);
-                            column.setHiveColumnLabel(displayName);
-                            //remove the table name if it exists
-                            displayName = StringUtils.substringAfterLast(displayName, ".");
-                            Integer count = 0;
-                            if (displayNameMap.containsKey(displayName)) {
-                                count = displayNameMap.get(displayName);
-                                count++;
-                            }
-                            displayNameMap.put(displayName, count);
-                            column.setDisplayName(displayName + "" + (count > 0 ? count : ""));
-
-                            column.setTableName(StringUtils.substringAfterLast(rsMetaData.getColumnName(i), "."));
-                            column.setDataType(ParserHelper.sqlTypeToHiveType(rsMetaData.getColumnType(i)));
-                            columns.add(column);
-                        }
+                public void processRow(ResultSet rs) throws SQLException {
+                    if (columns == null) {
+                        columns = createColumns(rs.getMetaData());
                         queryResult.setColumns(columns);
                     }
                     Map<String, Object> row = new LinkedHashMap<>();
@@ -235,7 +260,6 @@ public class HiveService {
                         row.put(column.getDisplayName(), rs.getObject(column.getHiveColumnLabel()));
                     }
                     queryResult.addRow(row);
-                    return row;
                 }
             });
 
@@ -247,5 +271,161 @@ public class HiveService {
 
     }
 
+    /**
+     * Opens a cursor over the results of the query.  Unlike {@link #query(String)} the rows are not read up front, they are read a page at a time with
+     * {@link #fetchCursor(String, int, HiveQueryCursor.RowHandler)}.  The cursor must be closed with {@link #closeCursor(String)} once it is no longer needed,
+     * otherwise it is closed after being idle for {@code hive.query.cursor.idle.timeout.seconds}.
+     *
+     * @param query     the query
+     * @param fetchSize the number of rows Hive returns per round trip, or null for the default
+     * @return the open cursor
+     * @throws IllegalStateException if the maximum number of cursors are already open
+     */
+    public HiveQueryCursor openCursor(String query, Integer fetchSize) throws DataAccessException {
+        if (cursors.size() >= maxOpenCursors) {
+            expireIdleCursors();
+            if (cursors.size() >= maxOpenCursors) {
+                throw new IllegalStateException("Unable to open a Hive query cursor. " + maxOpenCursors + " cursors are already open");
+            }
+        }
+
+        String sql = (query != null && !query.toLowerCase().startsWith("show")) ? safeCursorQuery(query) : query;
+        Connection connection = null;
+        Statement statement = null;
+        try {
+            connection = getDataSource().getConnection();
+            statement = connection.createStatement();
+            //  Setting in order to query complex formats like parquet
+            statement.execute("set hive.optimize.index.filter=false");
+            statement.setFetchSize(fetchSize != null && fetchSize > 0 ? fetchSize : defaultCursorFetchSize);
+            ResultSet resultSet = statement.executeQuery(sql);
+
+            HiveQueryCursor cursor = new HiveQueryCursor(UUID.randomUUID().toString(), getCurrentUser(), query, connection, statement, resultSet, createColumns(resultSet.getMetaData()));
+            cursors.put(cursor.getId(), cursor);
+            log.debug("Opened Hive query cursor {} for query: {}", cursor.getId(), query);
+            return cursor;
+        } catch (SQLException e) {
+            JdbcUtils.closeStatement(statement);
+            JdbcUtils.closeConnection(connection);
+            throw jdbcTemplate.getExceptionTranslator().translate("openCursor", sql, e);
+        } catch (RuntimeException e) {
+            JdbcUtils.closeStatement(statement);
+            JdbcUtils.closeConnection(connection);
+            throw e;
+        }
+    }
+
+    /**
+     * Gets an open cursor belonging to the current user
+     *
+     * @param cursorId the cursor id
+     * @return the cursor, or null if it does not exist, has expired, or belongs to another user
+     */
+    public HiveQueryCursor getCursor(String cursorId) {
+        HiveQueryCursor cursor = cursorId != null ? cursors.get(cursorId) : null;
+        if (cursor != null && Objects.equals(cursor.getOwner(), getCurrentUser())) {
+            return cursor;
+        }
+        return null;
+    }
+
+    /**
+     * Reads the next page of rows from the cursor, passing each row to the handler as it is read.  The cursor is closed once all of its rows have been read.
+     *
+     * @param cursorId the cursor id
+     * @param maxRows  the maximum number of rows to read
+     * @param handler  receives each row
+     * @return the cursor, or null if it does not exist
+     */
+    public HiveQueryCursor fetchCursor(String cursorId, int maxRows, HiveQueryCursor.RowHandler handler) throws DataAccessException, IOException {
+        HiveQueryCursor cursor = getCursor(cursorId);
+        if (cursor == null) {
+            return null;
+        }
+        try {
+            cursor.fetch(maxRows, handler);
+        } catch (SQLException e) {
+            closeCursor(cursorId);
+            throw jdbcTemplate.getExceptionTranslator().translate("fetchCursor", cursor.getQuery(), e);
+        }
+        if (cursor.isExhausted()) {
+            closeCursor(cursorId);
+        }
+        return cursor;
+    }
+
+    /**
+     * Closes the cursor and releases its connection
+     *
+     * @param cursorId the cursor id
+     * @return true if the cursor was open
+     */
+    public boolean closeCursor(String cursorId) {
+        HiveQueryCursor cursor = getCursor(cursorId);
+        if (cursor != null && cursors.remove(cursorId, cursor)) {
+            cursor.close();
+            log.debug("Closed Hive query cursor {} after reading {} rows", cursorId, cursor.getRowCount());
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return the number of open cursors
+     */
+    public int getOpenCursorCount() {
+        return cursors.size();
+    }
+
+    /**
+     * Closes the cursors that have not been read from within the idle timeout
+     */
+    public void expireIdleCursors() {
+        long expireBefore = System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(cursorIdleTimeoutSeconds);
+        for (HiveQueryCursor cursor : cursors.values()) {
+            if (cursor.getLastAccessTime() < expireBefore && cursors.remove(cursor.getId(), cursor)) {
+                log.info("Closing Hive query cursor {} after being idle for more than {} seconds", cursor.getId(), cursorIdleTimeoutSeconds);
+                cursor.close();
+            }
+        }
+    }
+
+    // Wrapping the query as a sub query ensures DDL isn't sent through
+    private String safeCursorQuery(String query) {
+        return "SELECT kylo_.* FROM (" + query + ") kylo_";
+    }
+
+    private String getCurrentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null ? authentication.getName() : null;
+    }
+
+    /**
+     * Creates the result columns from the result set metadata, giving columns with the same display name a numeric suffix
+     */
+    private List<QueryResultColumn> createColumns(ResultSetMetaData rsMetaData) throws SQLException {
+        final List<QueryResultColumn> columns = new ArrayList<>();
+        final Map<String, Integer> displayNameMap = new HashMap<>();
+        for (int i = 1; i <= rsMetaData.getColumnCount(); i++) {
+            DefaultQueryResultColumn column = new DefaultQueryResultColumn();
+            column.setField(rsMetaData.getColumnName(i));
+            String displayName = rsMetaData.getColumnLabel(i);
+            column.setHiveColumnLabel(displayName);
+            //remove the table name if it exists
+            displayName = StringUtils.substringAfterLast(displayName, ".");
+            Integer count = 0;
+            if (displayNameMap.containsKey(displayName)) {
+                count = displayNameMap.get(displayName);
+                count++;
+            }
+            displayNameMap.put(displayName, count);
+            column.setDisplayName(displayName + "" + (count > 0 ? count : ""));
+
+            column.setTableName(StringUtils.substringAfterLast(rsMetaData.getColumnName(i), "."));
+            column.setDataType(ParserHelper.sqlTypeToHiveType(rsMetaData.getColumnType(i)));
+            columns.add(column);
+        }
+        return columns;
+    }
 
 }
@@ -0,0 +1,218 @@
+package com.thinkbiganalytics.hive.service;
+
+/*-
+ * #%L
+ * thinkbig-thrift-proxy-core
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.discovery.schema.TableSchema;
+import com.thinkbiganalytics.jdbc.util.DatabaseType;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class HiveCatalogServiceTest {
+
+    private HiveCatalogService catalogService;
+
+    private MetastoreJdbcTemplate metastore;
+
+    @Before
+    public void setUp() {
+        metastore = new MetastoreJdbcTemplate();
+        metastore.addTable(1, "sales", "orders", 10L, "id", "int", "amount", "double");
+        metastore.addTable(2, "sales", "customers", 20L, "id", "int", "name", "string");
+        metastore.addTable(3, "hr", "employees", 30L, "id", "int");
+        metastore.databases.add("empty");
+
+        HiveMetastoreService metastoreService = mock(HiveMetastoreService.class);
+        when(metastoreService.getMetastoreDatabaseType()).thenReturn(DatabaseType.MYSQL);
+
+        catalogService = new HiveCatalogService();
+        ReflectionTestUtils.setField(catalogService, "hiveMetatoreJdbcTemplate", metastore);
+        ReflectionTestUtils.setField(catalogService, "hiveMetastoreService", metastoreService);
+        ReflectionTestUtils.setField(catalogService, "missRefreshSeconds", 0L);
+    }
+
+    @Test
+    public void testBulkLoad() {
+        assertThat(catalogService.getSchemaNames()).containsExactly("empty", "hr", "sales");
+        assertThat(catalogService.getTables("sales")).containsExactly("customers", "orders");
+        assertThat(catalogService.getAllTables()).containsExactly("hr.employees", "sales.customers", "sales.orders");
+        assertThat(catalogService.getTableSchemas()).hasSize(3);
+        assertThat(catalogService.getTableSchema("SALES", "orders").getFields()).extracting("name").containsExactly("id", "amount");
+        assertThat(catalogService.getTableColumns(Arrays.asList("sales.customers"))).extracting("columnName").containsExactly("id", "name");
+
+        // the columns of every table are loaded with a single query
+        assertThat(metastore.columnQueries).isEqualTo(1);
+        assertThat(metastore.lastTableIds).isEmpty();
+    }
+
+    @Test
+    public void testIncrementalRefresh() {
+        for (long id = 6; id < 10; id++) {
+            metastore.addTable(id, "finance", "ledger" + id, id * 10, "id", "int");
+        }
+        TableSchema customers = catalogService.getTableSchema("sales", "customers");
+
+        metastore.addTable(4, "hr", "departments", 40L, "id", "int");
+        metastore.addTable(1, "sales", "orders", 11L, "id", "int", "amount", "double", "status", "string");
+        metastore.tables.remove(3L);
+        catalogService.refresh();
+
+        assertThat(catalogService.getAllTables()).contains("hr.departments", "sales.customers", "sales.orders").doesNotContain("hr.employees");
+        assertThat(catalogService.getTableSchema("sales", "orders").getFields()).extracting("name").containsExactly("id", "amount", "status");
+
+        // only the new and changed tables are reloaded
+        assertThat(metastore.columnQueries).isEqualTo(2);
+        assertThat(metastore.lastTableIds).containsOnly(1L, 4L);
+        assertThat(catalogService.getTableSchema("sales", "customers")).isSameAs(customers);
+    }
+
+    @Test
+    public void testMissingTableRefreshes() throws Exception {
+        assertThat(catalogService.getTableSchema("sales", "returns")).isNull();
+
+        metastore.addTable(5, "sales", "returns", 50L, "id", "int");
+        Thread.sleep(5);
+        assertThat(catalogService.getTableSchema("sales", "returns")).isNotNull();
+    }
+
+    @Test
+    public void testTableWithoutColumnDescriptor() {
+        metastore.addTable(4, "hr", "employee_view", null);
+
+        assertThat(catalogService.getTableSchema("hr", "employee_view").getFields()).isEmpty();
+        HiveCatalogService.Catalog catalog = (HiveCatalogService.Catalog) ReflectionTestUtils.getField(catalogService, "catalog");
+        assertThat(ReflectionTestUtils.getField(catalog.getTable("hr", "employee_view"), "columnDescriptorId")).isNull();
+        assertThat(ReflectionTestUtils.getField(catalog.getTable("sales", "orders"), "columnDescriptorId")).isEqualTo(10L);
+
+        // a table that gains a column descriptor is reloaded
+        metastore.addTable(4, "hr", "employee_view", 0L, "id", "int");
+        catalogService.refresh();
+        assertThat(catalogService.getTableSchema("hr", "employee_view").getFields()).extracting("name").containsExactly("id");
+        assertThat(metastore.lastTableIds).containsOnly(4L);
+    }
+
+    /**
+     * Answers the catalog queries from in memory metastore tables
+     */
+    private static class MetastoreJdbcTemplate extends JdbcTemplate {
+
+        private final List<String> databases = new ArrayList<>();
+
+        private final Map<Long, Object[]> tables = new TreeMap<>();
+
+        private int columnQueries;
+
+        private List<Object> lastTableIds;
+
+        void addTable(long id, String database, String name, Long columnDescriptorId, String... columns) {
+            tables.put(id, new Object[]{database, name, columnDescriptorId, columns});
+            if (!databases.contains(database)) {
+                databases.add(database);
+            }
+        }
+
+        /**
+         * Reads a column value, recording whether it is null
+         */
+        private static Object read(boolean[] lastNull, Object value) {
+            return read(lastNull, value, value);
+        }
+
+        /**
+         * Reads a column value, recording whether it is null, and returns the value the JDBC getter would return
+         */
+        private static Object read(boolean[] lastNull, Object value, Object returned) {
+            lastNull[0] = (value == null);
+            return returned;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> List<T> queryForList(String sql, Class<T> elementType) throws DataAccessException {
+            return (List<T>) new ArrayList<>(databases);
+        }
+
+        @Override
+        public <T> List<T> query(String sql, RowMapper<T> rowMapper) throws DataAccessException {
+            List<T> rows = new ArrayList<>();
+            try {
+                for (Map.Entry<Long, Object[]> table : tables.entrySet()) {
+                    // wasNull() reports on the last column read
+                    Long columnDescriptorId = (Long) table.getValue()[2];
+                    boolean[] lastNull = {false};
+                    ResultSet rs = mock(ResultSet.class);
+                    when(rs.getLong("TBL_ID")).thenAnswer(invocation -> read(lastNull, table.getKey()));
+                    when(rs.getLong("CREATE_TIME")).thenAnswer(invocation -> read(lastNull, 0L));
+                    when(rs.getLong("CD_ID")).thenAnswer(invocation -> columnDescriptorId != null ? read(lastNull, columnDescriptorId) : read(lastNull, null, 0L));
+                    when(rs.getString("DATABASE_NAME")).thenAnswer(invocation -> read(lastNull, table.getValue()[0]));
+                    when(rs.getString("TBL_NAME")).thenAnswer(invocation -> read(lastNull, table.getValue()[1]));
+                    when(rs.wasNull()).thenAnswer(invocation -> lastNull[0]);
+                    rows.add(rowMapper.mapRow(rs, rows.size()));
+                }
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+            return rows;
+        }
+
+        @Override
+        public void query(String sql, Object[] args, RowCallbackHandler rch) throws DataAccessException {
+            if (sql.contains("PARTITION_KEYS")) {
+                return;
+            }
+            columnQueries++;
+            lastTableIds = Arrays.asList(args);
+            try {
+                for (Map.Entry<Long, Object[]> table : tables.entrySet()) {
+                    if (args.length > 0 && !lastTableIds.contains(table.getKey())) {
+                        continue;
+                    }
+                    for (String column : (String[]) table.getValue()[3]) {
+                        ResultSet rs = mock(ResultSet.class);
+                        when(rs.getLong("TBL_ID")).thenReturn(table.getKey());
+                        when(rs.getString("NAME")).thenReturn(column);
+                        when(rs.getString("TYPE")).thenReturn("string");
+                        rch.processRow(rs);
+                    }
+                }
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.thinkbiganalytics.hive.service;
+
+/*-
+ * #%L
+ * thinkbig-thrift-proxy-core
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class HiveServiceCursorTest {
+
+    private HiveService hiveService;
+
+    private Connection connection;
+
+    private Statement statement;
+
+    private ResultSet resultSet;
+
+    @Before
+    public void setUp() throws Exception {
+        ResultSetMetaData metaData = mock(ResultSetMetaData.class);
+        when(metaData.getColumnCount()).thenReturn(1);
+        when(metaData.getColumnName(1)).thenReturn("sample.id");
+        when(metaData.getColumnLabel(1)).thenReturn("sample.id");
+        when(metaData.getColumnType(1)).thenReturn(Types.INTEGER);
+
+        resultSet = mock(ResultSet.class);
+        when(resultSet.getMetaData()).thenReturn(metaData);
+        when(resultSet.next()).thenReturn(true, true, true, true, true, false);
+        when(resultSet.getObject(1)).thenReturn(1, 2, 3, 4, 5);
+
+        statement = mock(Statement.class);
+        when(statement.executeQuery(anyString())).thenReturn(resultSet);
+
+        connection = mock(Connection.class);
+        when(connection.createStatement()).thenReturn(statement);
+
+        DataSource dataSource = mock(DataSource.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+
+        hiveService = new HiveService();
+        ReflectionTestUtils.setField(hiveService, "jdbcTemplate", new JdbcTemplate(dataSource));
+        ReflectionTestUtils.setField(hiveService, "maxOpenCursors", 2);
+
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("dladmin", "secret"));
+    }
+
+    @After
+    public void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    public void testFetchPages() throws Exception {
+        HiveQueryCursor cursor = hiveService.openCursor("select id from sample", 500);
+        verify(statement).setFetchSize(500);
+        verify(statement).executeQuery("SELECT kylo_.* FROM (select id from sample) kylo_");
+        assertThat(cursor.getColumns()).extracting("displayName").containsExactly("id");
+
+        List<Object> ids = new ArrayList<>();
+        hiveService.fetchCursor(cursor.getId(), 2, row -> ids.add(row.get("id")));
+        assertThat(ids).containsExactly(1, 2);
+        assertThat(cursor.isExhausted()).isFalse();
+
+        hiveService.fetchCursor(cursor.getId(), 2, row -> ids.add(row.get("id")));
+        hiveService.fetchCursor(cursor.getId(), 2, row -> ids.add(row.get("id")));
+        assertThat(ids).containsExactly(1, 2, 3, 4, 5);
+        assertThat(cursor.getRowCount()).isEqualTo(5);
+
+        // the cursor is closed once all of its rows have been read
+        assertThat(cursor.isExhausted()).isTrue();
+        assertThat(cursor.isClosed()).isTrue();
+        assertThat(hiveService.getCursor(cursor.getId())).isNull();
+        verify(resultSet).close();
+        verify(connection).close();
+    }
+
+    @Test
+    public void testCursorBelongsToOwner() throws Exception {
+        HiveQueryCursor cursor = hiveService.openCursor("select id from sample", null);
+        verify(statement).setFetchSize(1000);
+
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("other", "secret"));
+        assertThat(hiveService.getCursor(cursor.getId())).isNull();
+        assertThat(hiveService.fetchCursor(cursor.getId(), 10, row -> {
+        })).isNull();
+        assertThat(hiveService.closeCursor(cursor.getId())).isFalse();
+        verify(connection, never()).close();
+
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("dladmin", "secret"));
+        assertThat(hiveService.closeCursor(cursor.getId())).isTrue();
+        verify(connection).close();
+    }
+
+    @Test
+    public void testExpireIdleCursors() throws Exception {
+        ReflectionTestUtils.setField(hiveService, "cursorIdleTimeoutSeconds", 0L);
+        HiveQueryCursor cursor = hiveService.openCursor("select id from sample", null);
+        Thread.sleep(5);
+
+        hiveService.expireIdleCursors();
+
+        assertThat(cursor.isClosed()).isTrue();
+        assertThat(hiveService.getOpenCursorCount()).isEqualTo(0);
+        verify(connection).close();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testMaxOpenCursors() throws Exception {
+        hiveService.openCursor("select id from sample", null);
+        hiveService.openCursor("select id from sample", null);
+        hiveService.openCursor("select id from sample", null);
+    }
+
+    @Test
+    public void testShowQueryIsNotWrapped() throws Exception {
+        hiveService.openCursor("show tables", null);
+        verify(statement).executeQuery("show tables");
+    }
+}